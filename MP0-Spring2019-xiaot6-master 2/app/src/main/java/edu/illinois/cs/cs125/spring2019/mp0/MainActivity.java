@@ -6,6 +6,7 @@ import android.location.Location;
 import android.os.Bundle;
 import android.os.Handler;
 import android.support.v4.app.FragmentActivity;
+import android.util.Log;
 import android.widget.Switch;
 import android.widget.ToggleButton;
 import android.widget.Button;
@@ -21,11 +22,18 @@ import com.google.android.gms.maps.MapView;
 import com.google.android.gms.maps.OnMapReadyCallback;
 import com.google.android.gms.maps.model.BitmapDescriptorFactory;
 import com.google.android.gms.maps.model.LatLng;
+import com.google.android.gms.maps.model.Marker;
 import com.google.android.gms.maps.model.MarkerOptions;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.Random;
 
+import edu.illinois.cs.cs125.spring2019.mp0.lib.FixFilter;
+import edu.illinois.cs.cs125.spring2019.mp0.lib.LocationProcessor;
 import edu.illinois.cs.cs125.spring2019.mp0.lib.Locator;
+import edu.illinois.cs.cs125.spring2019.mp0.lib.MarkerStateTracker;
+import edu.illinois.cs.cs125.spring2019.mp0.lib.TrackLog;
 
 /**
  * The main activity launched when your app runs.
@@ -128,7 +136,7 @@ public final class MainActivity extends FragmentActivity implements OnMapReadyCa
     private static final int LOCATION_ARRAY_SIZE = 720;
 
     /**
-     * Array of longitude measurements.
+     * History of our location measurements.
      * <p>
      * There are better ways to store data like this, which we'll learn about shortly. But for MP0 we store pairs of
      * latitude and longitude returned by the location service in two separate arrays: one for longitude and the
@@ -137,24 +145,41 @@ public final class MainActivity extends FragmentActivity implements OnMapReadyCa
      * We also maintain a separate array of booleans indicating which location measurements are valid. Until we store
      * LOCATION_ARRAY_SIZE measurements, some values in the array contain invalid values. So we use the array of
      * booleans to determine which spots in the latitude and longitude arrays contain value positions.
+     * <p>
+     * The history owns all three arrays and also keeps track of the position furthest north as new measurements
+     * arrive, so we don't have to scan the arrays on every update.
+     * <p>
+     * The processor owns our history along with the state of our map markers. It doesn't know anything about Android,
+     * so the same code can be tested and load-tested without a map: it just tells us which markers to redraw.
      */
-    private double[] longitudes = new double[LOCATION_ARRAY_SIZE];
+    private LocationProcessor locationProcessor = new LocationProcessor(LOCATION_ARRAY_SIZE);
 
-    /** Array of latitude measurements. */
-    private double[] latitudes = new double[LOCATION_ARRAY_SIZE];
+    /**
+     * The marker shown for each slot of our history, or null if the slot doesn't have one.
+     */
+    private Marker[] markers = new Marker[LOCATION_ARRAY_SIZE];
 
-    /** Array to save whether the location at an index is valid or not. */
-    private boolean[] validLocations = new boolean[LOCATION_ARRAY_SIZE];
+    /**
+     * Smooths the fixes we receive from the location service and drops ones that haven't really moved.
+     * <p>
+     * While we're standing still the location service keeps reporting slightly different positions. Without the
+     * filter each of those would overwrite an older measurement in our history.
+     */
+    private FixFilter fixFilter = new FixFilter();
+
+    /**
+     * Name of the file in our app's private storage that holds the track log.
+     */
+    private static final String TRACK_LOG_NAME = "track.log";
 
     /**
-     * Index of our current location measurement in our array.
+     * Log of every location measurement we've received, kept on disk.
      * <p>
-     * We increment this each time <i>before</i> we add a location measurement to our arrays. That way, in between
-     * new measurements it still stores the position of the last measurement that we saved. Starting it at -1 means
-     * that after we increment it for the first time it will be 0, which is the right spot in the index for the first
-     * measurement.
+     * Our history only lives in memory, so we also append each measurement to a track log and replay the most recent
+     * ones when the app starts. This is null if the log could not be opened, in which case we just don't remember
+     * anything across restarts.
      */
-    private int currentLocationIndex = -1;
+    private TrackLog trackLog;
 
     /**
      * Whether we've received any location updates at all.
@@ -280,6 +305,19 @@ public final class MainActivity extends FragmentActivity implements OnMapReadyCa
 
         handler = new Handler();
 
+        /*
+         * Reload the most recent measurements from our track log so the history doesn't start out empty.
+         */
+        try {
+            trackLog = new TrackLog(new File(getFilesDir(), TRACK_LOG_NAME));
+            if (trackLog.replayInto(locationProcessor.getHistory(), LOCATION_ARRAY_SIZE) > 0) {
+                receivedLocation = true;
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Could not open track log", e);
+            trackLog = null;
+        }
+
         /*
          * Determine if we've been granted fine-grained location permissions. If not, trigger the permissions dialog
          * again.
@@ -359,12 +397,18 @@ public final class MainActivity extends FragmentActivity implements OnMapReadyCa
                  * idea to just pass the information you receive from a callback to your app by calling a function
                  * that you have defined. Here we pass the new location information to processNewLocation, which
                  * saves it in our array and updates the map as needed.
+                 *
+                 * Each fix goes through our filter first, and we only process the smoothed position if the filter
+                 * decides we've actually moved.
                  */
                 if (locationResult == null) {
                     return;
                 }
                 Location lastLocation = locationResult.getLastLocation();
-                processNewLocation(lastLocation.getLatitude(), lastLocation.getLongitude());
+                if (fixFilter.offer(lastLocation.getTime(), lastLocation.getLatitude(), lastLocation.getLongitude(),
+                    lastLocation.getAccuracy())) {
+                    processNewLocation(fixFilter.getLatitude(), fixFilter.getLongitude());
+                }
             }
         };
 
@@ -419,6 +463,7 @@ public final class MainActivity extends FragmentActivity implements OnMapReadyCa
             mapView.onPause();
         }
         enableOrDisableLocation(false);
+        Log.d(TAG, "Dropped " + fixFilter.getDropped() + " of " + fixFilter.getOffered() + " location fixes");
     }
 
     @Override
@@ -427,6 +472,14 @@ public final class MainActivity extends FragmentActivity implements OnMapReadyCa
         if (mapView != null) {
             mapView.onDestroy();
         }
+        if (trackLog != null) {
+            try {
+                trackLog.close();
+            } catch (IOException e) {
+                Log.w(TAG, "Could not close track log", e);
+            }
+            trackLog = null;
+        }
     }
 
     /**
@@ -471,18 +524,21 @@ public final class MainActivity extends FragmentActivity implements OnMapReadyCa
      */
     public void processNewLocation(final double latitude, final double longitude) {
         /*
-         * Update our index before saving a new value. Because we initialize it to -1 our first value goes in index 0
-         * which is what we want. Note that modular arithmetic ensures that the array index always stays within the
-         * bounds of the array.
+         * Save the new value in our history. The history stores it in the slot after the previous measurement,
+         * wrapping around to overwrite the oldest measurement once it is full, and marks that slot as valid.
          */
-        currentLocationIndex = (currentLocationIndex + 1) % LOCATION_ARRAY_SIZE;
+        locationProcessor.add(latitude, longitude);
 
         /*
-         * Save the new value at the same index in both arrays, and mark this location as valid.
+         * Also save it to the track log so that we remember it the next time the app starts.
          */
-        latitudes[currentLocationIndex] = latitude;
-        longitudes[currentLocationIndex] = longitude;
-        validLocations[currentLocationIndex] = true;
+        if (trackLog != null) {
+            try {
+                trackLog.append(System.currentTimeMillis(), latitude, longitude);
+            } catch (IOException e) {
+                Log.w(TAG, "Could not append to track log", e);
+            }
+        }
 
         /*
          * Mark that we've received a location update
@@ -497,34 +553,57 @@ public final class MainActivity extends FragmentActivity implements OnMapReadyCa
         }
 
         /*
-         * If we do have a map, clear it and mark it as not centered, since it is likely that our new location will
-         * result in the map moving.
+         * If we do have a map, mark it as not centered, since it is likely that our new location will result in the
+         * map moving.
          */
-        googleMap.clear();
         centered = false;
 
         /*
          * Mark various locations on the map. We use one color (green) for the furthest position north, a second
          * color (blue) for any repeated locations, a third (red) for the latest location, and a fourth (orange) for
          * other locations.
+         *
+         * Our location processor remembers which color each slot is showing and tells us which slots changed
+         * because of this measurement, so we only replace those markers rather than redrawing the whole map.
          */
-        int furthestNorth = Locator.farthestNorth(latitudes, longitudes, validLocations);
-        for (int i = 0; i < LOCATION_ARRAY_SIZE; i++) {
-            if (!(validLocations[i])) {
-                continue;
-            }
-            float hue = BitmapDescriptorFactory.HUE_ORANGE;
-            if (i == furthestNorth) {
+        locationProcessor.render(this::drawMarker);
+    }
+
+    /**
+     * Replace the marker shown for one slot of our history.
+     * <p>
+     * This carries out the render instructions produced by our location processor.
+     *
+     * @param index the slot whose marker changed
+     * @param category the kind of marker the slot should now show
+     * @param latitude latitude of the slot's measurement
+     * @param longitude longitude of the slot's measurement
+     */
+    private void drawMarker(final int index, final int category, final double latitude, final double longitude) {
+        if (markers[index] != null) {
+            markers[index].remove();
+            markers[index] = null;
+        }
+        float hue;
+        switch (category) {
+            case MarkerStateTracker.NORTH:
                 hue = BitmapDescriptorFactory.HUE_GREEN;
-            } else if (i == currentLocationIndex) {
+                break;
+            case MarkerStateTracker.CURRENT:
                 hue = BitmapDescriptorFactory.HUE_RED;
-            } else if (Locator.beenHere(i, latitudes, longitudes, validLocations)) {
+                break;
+            case MarkerStateTracker.BEEN_HERE:
                 hue = BitmapDescriptorFactory.HUE_BLUE;
-            }
-            googleMap.addMarker(new MarkerOptions()
-                .position(new LatLng(latitudes[i], longitudes[i]))
-                .icon(BitmapDescriptorFactory.defaultMarker(hue)));
+                break;
+            case MarkerStateTracker.NORMAL:
+                hue = BitmapDescriptorFactory.HUE_ORANGE;
+                break;
+            default:
+                return;
         }
+        markers[index] = googleMap.addMarker(new MarkerOptions()
+            .position(new LatLng(latitude, longitude))
+            .icon(BitmapDescriptorFactory.defaultMarker(hue)));
     }
 
     /**
@@ -543,8 +622,8 @@ public final class MainActivity extends FragmentActivity implements OnMapReadyCa
          */
         double currentLatitude, currentLongitude;
         if (receivedLocation) {
-            currentLatitude = latitudes[currentLocationIndex];
-            currentLongitude = longitudes[currentLocationIndex];
+            currentLatitude = locationProcessor.getCurrentLatitude();
+            currentLongitude = locationProcessor.getCurrentLongitude();
         } else {
             currentLatitude = SIEBEL_CENTER_LATITUDE;
             currentLongitude = SIEBEL_CENTER_LONGITUDE;
@@ -603,7 +682,7 @@ public final class MainActivity extends FragmentActivity implements OnMapReadyCa
          * Otherwise move the map camera based on the last recorded position.
          */
         googleMap.moveCamera(CameraUpdateFactory.newLatLng(
-            new LatLng(latitudes[currentLocationIndex], longitudes[currentLocationIndex])
+            new LatLng(locationProcessor.getCurrentLatitude(), locationProcessor.getCurrentLongitude())
         ));
     }
 
@@ -0,0 +1,167 @@
+package edu.illinois.cs.cs125.spring2019.mp0.lib;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmarks comparing GeoGridIndex radius queries against a linear haversine scan.
+ * <p>
+ * Positions follow a random walk around Siebel Center so that the density looks like a real track history. Each query
+ * asks whether any other position lies within 50 meters of a stored one, cycling through a fixed random sample of
+ * positions so that runs are comparable:
+ * <pre>./gradlew :lib:jmh -PjmhArgs="GeoGridIndexBenchmark -p size=1000000"</pre>
+ * The largest histories need a few gigabytes of heap, which the forked JVMs are given.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = GeoGridIndexBenchmark.WARMUP_ITERATIONS, time = 1)
+@Measurement(iterations = GeoGridIndexBenchmark.MEASUREMENT_ITERATIONS, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class GeoGridIndexBenchmark {
+
+    /** Number of one-second iterations run to warm up each benchmark. */
+    static final int WARMUP_ITERATIONS = 3;
+
+    /** Number of one-second iterations measured for each benchmark. */
+    static final int MEASUREMENT_ITERATIONS = 5;
+
+    /** Radius of every query, in meters. */
+    private static final double RADIUS_METERS = 50.0;
+
+    /** Number of positions queried, in turn. */
+    private static final int QUERIES = 1024;
+
+    /** Fraction of the app's wandering step taken at every step, so that positions are as dense as a walked track. */
+    private static final double STEP_SCALE = 0.1;
+
+    /** Seed for every generated history, so that runs are comparable. */
+    private static final long SEED = 125;
+
+    /**
+     * A history of positions, with an index over all of them.
+     */
+    @State(Scope.Benchmark)
+    public static class History {
+
+        /** Number of positions in the history. */
+        @Param({"10000", "1000000", "10000000"})
+        private int size;
+
+        /** Latitude of each position. */
+        private double[] latitudes;
+
+        /** Longitude of each position. */
+        private double[] longitudes;
+
+        /** Index over every position. */
+        private GeoGridIndex index;
+
+        /** Positions to query, in order. */
+        private int[] queries;
+
+        /** Next entry of queries to use. */
+        private int nextQuery = 0;
+
+        /**
+         * Generate the history and build its index.
+         */
+        @Setup(Level.Trial)
+        public void generate() {
+            latitudes = new double[size];
+            longitudes = new double[size];
+            latitudes[0] = WalkerSimulation.WANDER_LATITUDE;
+            longitudes[0] = WalkerSimulation.WANDER_LONGITUDE;
+            SplittableRandom random = new SplittableRandom(SEED);
+            WalkerSimulation.fillRandomWalk(latitudes, longitudes, 1.0,
+                STEP_SCALE * WalkerSimulation.WANDER_LATITUDE_CHANGE,
+                STEP_SCALE * WalkerSimulation.WANDER_LONGITUDE_CHANGE, random.split());
+            index = buildIndex(latitudes, longitudes);
+            queries = new int[QUERIES];
+            for (int i = 0; i < QUERIES; i++) {
+                queries[i] = random.nextInt(size);
+            }
+        }
+
+        /**
+         * Return the position to query next.
+         *
+         * @return a position, moving on through the sample each call
+         */
+        int nextQuery() {
+            nextQuery++;
+            if (nextQuery == QUERIES) {
+                nextQuery = 0;
+            }
+            return queries[nextQuery];
+        }
+    }
+
+    /**
+     * Build an index holding every position of a history.
+     *
+     * @param latitudes the latitude of each position
+     * @param longitudes the longitude of each position
+     * @return the index
+     */
+    static GeoGridIndex buildIndex(final double[] latitudes, final double[] longitudes) {
+        GeoGridIndex index = GeoGridIndex.forRadius(latitudes.length, RADIUS_METERS);
+        for (int i = 0; i < latitudes.length; i++) {
+            index.insert(i, latitudes[i], longitudes[i]);
+        }
+        return index;
+    }
+
+    /**
+     * Index the whole history.
+     *
+     * @param state the history
+     * @return the new index
+     */
+    @Benchmark
+    public GeoGridIndex build(final History state) {
+        return buildIndex(state.latitudes, state.longitudes);
+    }
+
+    /**
+     * Ask the index whether any other position is near one position.
+     *
+     * @param state the history
+     * @return whether a nearby position was found
+     */
+    @Benchmark
+    public boolean anyWithin(final History state) {
+        int i = state.nextQuery();
+        return state.index.anyWithin(state.latitudes[i], state.longitudes[i], RADIUS_METERS, i);
+    }
+
+    /**
+     * Scan the whole history for any other position near one position, as a baseline for the index.
+     *
+     * @param state the history
+     * @return whether a nearby position was found
+     */
+    @Benchmark
+    public boolean linearScan(final History state) {
+        int i = state.nextQuery();
+        for (int j = 0; j < state.size; j++) {
+            if (j != i && GeoMath.haversine(state.latitudes[i], state.longitudes[i], state.latitudes[j],
+                state.longitudes[j]) <= RADIUS_METERS) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
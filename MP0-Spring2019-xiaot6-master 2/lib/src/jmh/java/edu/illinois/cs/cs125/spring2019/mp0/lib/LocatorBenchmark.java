@@ -0,0 +1,263 @@
+package edu.illinois.cs.cs125.spring2019.mp0.lib;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmarks for the Locator helpers and the per-measurement path of the app.
+ * <p>
+ * This is the baseline that Locator optimizations are measured against. Histories are random walks around Siebel
+ * Center, like the app's wandering, at the app's size of 720 and at 100 thousand and 10 million measurements. Two
+ * parameters shape them: validFraction is the fraction of slots holding a valid measurement, and duplicateFraction is
+ * the fraction of measurements that exactly repeat an earlier one, as when the device sits still. The processor
+ * benchmark always starts from a full history, since every measured update evicts one measurement and adds another.
+ * Run it with the GC profiler to see allocation rates alongside times:
+ * <pre>./gradlew :lib:jmh -PjmhArgs="LocatorBenchmark.farthestNorth -p size=720"</pre>
+ * The largest histories need a few gigabytes of heap, which the forked JVMs are given.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = LocatorBenchmark.WARMUP_ITERATIONS, time = 1)
+@Measurement(iterations = LocatorBenchmark.MEASUREMENT_ITERATIONS, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class LocatorBenchmark {
+
+    /** Number of one-second iterations run to warm up each benchmark. */
+    static final int WARMUP_ITERATIONS = 3;
+
+    /** Number of one-second iterations measured for each benchmark. */
+    static final int MEASUREMENT_ITERATIONS = 5;
+
+    /** Seed for every generated history, so that runs are comparable. */
+    private static final long SEED = 125;
+
+    /**
+     * Measurements in the arrays the Locator helpers take.
+     */
+    @State(Scope.Benchmark)
+    public static class History {
+
+        /** Number of slots in the history. */
+        @Param({"720", "100000", "10000000"})
+        private int size;
+
+        /** Fraction of slots holding a valid measurement. */
+        @Param({"1.0", "0.5"})
+        private double validFraction;
+
+        /** Fraction of measurements that repeat an earlier one. */
+        @Param({"0.0", "0.5"})
+        private double duplicateFraction;
+
+        /** Latitude of each slot. */
+        private double[] latitudes;
+
+        /** Longitude of each slot. */
+        private double[] longitudes;
+
+        /** Whether each slot is valid. */
+        private boolean[] validLocations;
+
+        /** Slot the next beenHere call checks, cycling through the history. */
+        private int currentIndex = 0;
+
+        /**
+         * Generate the history.
+         */
+        @Setup(Level.Trial)
+        public void generate() {
+            latitudes = new double[size];
+            longitudes = new double[size];
+            validLocations = new boolean[size];
+            fillHistory(latitudes, longitudes, validLocations, validFraction, duplicateFraction);
+        }
+
+        /**
+         * Return the slot to check next.
+         *
+         * @return a slot, moving on by one each call
+         */
+        int nextIndex() {
+            currentIndex++;
+            if (currentIndex == size) {
+                currentIndex = 0;
+            }
+            return currentIndex;
+        }
+    }
+
+    /**
+     * A LocationProcessor holding a full history, fed by the same kind of walk, as in MainActivity.processNewLocation.
+     * <p>
+     * A partly filled history would not stay that way: the benchmark makes millions of updates per iteration, so it
+     * would fill up during warmup. So the history starts full, which is the state the app spends nearly all its time
+     * in.
+     * <p>
+     * The walk is twice as long as the history. Its first half fills the history, and updates are then fed from the
+     * second half onward, cycling through the whole walk, so that each one evicts the fix fed size updates earlier and
+     * adds a different one. Repeated measurements are spread over the whole walk, so they reach the measured updates.
+     */
+    @State(Scope.Benchmark)
+    public static class Processor {
+
+        /** Capacity of the processor's history. */
+        @Param({"720", "100000", "10000000"})
+        private int size;
+
+        /** Fraction of measurements that repeat an earlier one. */
+        @Param({"0.0", "0.5"})
+        private double duplicateFraction;
+
+        /** The processor being fed. */
+        private LocationProcessor processor;
+
+        /** Latitudes of the walk, in order. */
+        private double[] latitudes;
+
+        /** Longitudes of the walk, in order. */
+        private double[] longitudes;
+
+        /** Index in the walk of the next measurement to feed in. */
+        private int next = 0;
+
+        /** Discards render instructions, as the app does when there is no map. */
+        private final LocationProcessor.Renderer renderer = (index, category, latitude, longitude) -> { };
+
+        /**
+         * Generate the walk, build the processor, and fill its whole history from the first half of the walk.
+         */
+        @Setup(Level.Trial)
+        public void generate() {
+            latitudes = new double[2 * size];
+            longitudes = new double[2 * size];
+            boolean[] validLocations = new boolean[2 * size];
+            fillHistory(latitudes, longitudes, validLocations, 1.0, duplicateFraction);
+            processor = new LocationProcessor(size);
+            for (int i = 0; i < size; i++) {
+                processor.add(latitudes[i], longitudes[i]);
+            }
+            // Draw everything once, so that measured updates only redraw what they change
+            processor.render(renderer);
+            next = size;
+        }
+
+        /**
+         * Feed the next measurement through the processor.
+         *
+         * @return the number of render instructions it produced
+         */
+        int processNext() {
+            int instructions = processor.process(latitudes[next], longitudes[next], renderer);
+            next++;
+            if (next == latitudes.length) {
+                next = 0;
+            }
+            return instructions;
+        }
+    }
+
+    /**
+     * The current position of a walk, moved by nextRandomLocation.
+     */
+    @State(Scope.Thread)
+    public static class Walker {
+
+        /** Latitude of the walk. */
+        private double latitude = WalkerSimulation.WANDER_LATITUDE;
+
+        /** Longitude of the walk. */
+        private double longitude = WalkerSimulation.WANDER_LONGITUDE;
+
+        /** Direction of the next step, which alternates so that the walk does not run into a pole. */
+        private double direction = 1;
+    }
+
+    /**
+     * Fill arrays with a random walk, then mark some slots invalid and make some measurements repeat earlier ones.
+     *
+     * @param latitudes array to fill with latitudes
+     * @param longitudes array to fill with longitudes
+     * @param validLocations array to fill with whether each slot is valid
+     * @param validFraction fraction of slots to mark valid
+     * @param duplicateFraction fraction of measurements to copy from an earlier slot
+     */
+    static void fillHistory(final double[] latitudes, final double[] longitudes, final boolean[] validLocations,
+                            final double validFraction, final double duplicateFraction) {
+        SplittableRandom random = new SplittableRandom(SEED);
+        latitudes[0] = WalkerSimulation.WANDER_LATITUDE;
+        longitudes[0] = WalkerSimulation.WANDER_LONGITUDE;
+        WalkerSimulation.fillRandomWalk(latitudes, longitudes, WalkerSimulation.WANDER_PROBABILITY,
+            WalkerSimulation.WANDER_LATITUDE_CHANGE, WalkerSimulation.WANDER_LONGITUDE_CHANGE, random.split());
+        for (int i = 0; i < latitudes.length; i++) {
+            if (i > 0 && random.nextDouble() < duplicateFraction) {
+                int earlier = random.nextInt(i);
+                latitudes[i] = latitudes[earlier];
+                longitudes[i] = longitudes[earlier];
+            }
+            validLocations[i] = random.nextDouble() < validFraction;
+        }
+    }
+
+    /**
+     * Scan the arrays for the measurement farthest north.
+     *
+     * @param state the history
+     * @return the index found
+     */
+    @Benchmark
+    public int farthestNorth(final History state) {
+        return Locator.farthestNorth(state.latitudes, state.longitudes, state.validLocations);
+    }
+
+    /**
+     * Scan the arrays for an earlier visit to one slot's position, moving on to the next slot each time.
+     *
+     * @param state the history
+     * @return whether the position was visited before
+     */
+    @Benchmark
+    public boolean beenHere(final History state) {
+        return Locator.beenHere(state.nextIndex(), state.latitudes, state.longitudes, state.validLocations);
+    }
+
+    /**
+     * Take one step of a random walk, as the app does once a second while wandering.
+     *
+     * @param walker the walk
+     * @return the new position
+     */
+    @Benchmark
+    public double[] nextRandomLocation(final Walker walker) {
+        double[] next = Locator.nextRandomLocation(walker.latitude, walker.longitude,
+            WalkerSimulation.WANDER_PROBABILITY, walker.direction * WalkerSimulation.WANDER_LATITUDE_CHANGE,
+            walker.direction * WalkerSimulation.WANDER_LONGITUDE_CHANGE);
+        walker.direction = -walker.direction;
+        walker.latitude = next[0];
+        walker.longitude = next[1];
+        return next;
+    }
+
+    /**
+     * Record one measurement and work out which markers change, as processNewLocation does for each fix.
+     *
+     * @param state the processor
+     * @return the number of markers to redraw
+     */
+    @Benchmark
+    public int processNewLocation(final Processor state) {
+        return state.processNext();
+    }
+}
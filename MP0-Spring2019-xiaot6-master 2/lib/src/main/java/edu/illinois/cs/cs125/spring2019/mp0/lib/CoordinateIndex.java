@@ -0,0 +1,362 @@
+package edu.illinois.cs.cs125.spring2019.mp0.lib;
+
+import java.util.Arrays;
+
+/**
+ * Counts how many times each exact latitude and longitude pair has been seen.
+ * <p>
+ * This is a small hash table specialized for coordinate pairs. Each distinct pair is an entry in primitive arrays,
+ * found through a LongIntTable keyed by a 64-bit hash of the pair, so adding, removing, and counting a pair all take
+ * expected O(1) time and never allocate once the arrays are large enough. Pairs whose hashes collide are chained
+ * together, so lookups stay exact.
+ * <p>
+ * Coordinates are compared the same way Locator.beenHere compares them: using ==. So 0.0 and -0.0 are the same key
+ * and NaN is never equal to anything, which means pairs containing NaN are never stored and always have a count of
+ * zero.
+ * <p>
+ * Each occurrence can also carry an integer tag, such as the slot it is stored at. The index keeps the exclusive or
+ * of the tags of every occurrence of a pair, so when a pair is present exactly once its tag can be recovered in O(1)
+ * without storing a list per pair. Occurrences added without a tag use a tag of zero.
+ *
+ * @see Locator#beenHere(int, double[], double[], boolean[])
+ */
+public final class CoordinateIndex {
+
+    /** Number of pairs to make room for when no size hint is given. */
+    private static final int DEFAULT_EXPECTED = 16;
+
+    /** Marks the end of a chain or a missing entry. */
+    private static final int NONE = -1;
+
+    /** First entry with each pair hash. */
+    private final LongIntTable heads;
+
+    /** Bit patterns of the latitude of each entry. */
+    private long[] latitudeKeys;
+
+    /** Bit patterns of the longitude of each entry. */
+    private long[] longitudeKeys;
+
+    /** Number of times each entry's pair has been added. */
+    private int[] counts;
+
+    /** Exclusive or of the tags of every occurrence of each entry's pair. */
+    private int[] tags;
+
+    /** Next entry with the same pair hash, or NONE. */
+    private int[] chain;
+
+    /** Number of distinct keys stored, which are entries 0 to distinct - 1. */
+    private int distinct = 0;
+
+    /** Total number of pairs stored, counting repeats. */
+    private int total = 0;
+
+    /**
+     * Create a new empty index.
+     */
+    public CoordinateIndex() {
+        this(DEFAULT_EXPECTED);
+    }
+
+    /**
+     * Create a new empty index sized to hold a number of distinct pairs without growing.
+     *
+     * @param expected the number of distinct pairs we expect to store
+     */
+    public CoordinateIndex(final int expected) {
+        int entries = Math.max(expected, 2);
+        heads = new LongIntTable(entries);
+        latitudeKeys = new long[entries];
+        longitudeKeys = new long[entries];
+        counts = new int[entries];
+        tags = new int[entries];
+        chain = new int[entries];
+    }
+
+    /**
+     * Record one more occurrence of a coordinate pair.
+     *
+     * @param latitude the latitude to add
+     * @param longitude the longitude to add
+     * @return the number of times the pair has now been seen, or 0 if the pair contains NaN
+     */
+    public int add(final double latitude, final double longitude) {
+        return add(latitude, longitude, 0);
+    }
+
+    /**
+     * Record one more occurrence of a coordinate pair, tagged with an integer.
+     *
+     * @param latitude the latitude to add
+     * @param longitude the longitude to add
+     * @param tag the tag of this occurrence
+     * @return the number of times the pair has now been seen, or 0 if the pair contains NaN
+     */
+    public int add(final double latitude, final double longitude, final int tag) {
+        if (Double.isNaN(latitude) || Double.isNaN(longitude)) {
+            return 0;
+        }
+        return addKey(key(latitude), key(longitude), 1, tag);
+    }
+
+    /**
+     * Add every pair stored in another index to this one, combining their counts.
+     *
+     * @param other the index to add
+     */
+    public void addAll(final CoordinateIndex other) {
+        for (int i = 0; i < other.distinct; i++) {
+            addKey(other.latitudeKeys[i], other.longitudeKeys[i], other.counts[i], other.tags[i]);
+        }
+    }
+
+    /**
+     * Add occurrences of a key.
+     *
+     * @param latitudeKey the latitude key bits
+     * @param longitudeKey the longitude key bits
+     * @param occurrences the number of occurrences to add
+     * @param tag the exclusive or of the tags of the added occurrences
+     * @return the number of times the key has now been seen
+     */
+    private int addKey(final long latitudeKey, final long longitudeKey, final int occurrences, final int tag) {
+        int entry = find(latitudeKey, longitudeKey);
+        if (entry == NONE) {
+            entry = addEntry(latitudeKey, longitudeKey);
+        }
+        counts[entry] += occurrences;
+        tags[entry] ^= tag;
+        total += occurrences;
+        return counts[entry];
+    }
+
+    /**
+     * Remove one occurrence of a coordinate pair.
+     *
+     * @param latitude the latitude to remove
+     * @param longitude the longitude to remove
+     * @return the number of times the pair is still present
+     * @throws IllegalStateException if the pair is not in the index
+     */
+    public int remove(final double latitude, final double longitude) {
+        return remove(latitude, longitude, 0);
+    }
+
+    /**
+     * Remove one occurrence of a coordinate pair that was added with a tag.
+     *
+     * @param latitude the latitude to remove
+     * @param longitude the longitude to remove
+     * @param tag the tag the occurrence was added with
+     * @return the number of times the pair is still present
+     * @throws IllegalStateException if the pair is not in the index
+     */
+    public int remove(final double latitude, final double longitude, final int tag) {
+        if (Double.isNaN(latitude) || Double.isNaN(longitude)) {
+            return 0;
+        }
+        int entry = find(key(latitude), key(longitude));
+        if (entry == NONE) {
+            throw new IllegalStateException("coordinate pair is not in the index");
+        }
+        counts[entry]--;
+        tags[entry] ^= tag;
+        total--;
+        int count = counts[entry];
+        if (count == 0) {
+            deleteEntry(entry);
+        }
+        return count;
+    }
+
+    /**
+     * Return how many times a coordinate pair is present.
+     *
+     * @param latitude the latitude to look up
+     * @param longitude the longitude to look up
+     * @return the number of occurrences of the pair
+     */
+    public int count(final double latitude, final double longitude) {
+        if (Double.isNaN(latitude) || Double.isNaN(longitude)) {
+            return 0;
+        }
+        int entry = find(key(latitude), key(longitude));
+        if (entry == NONE) {
+            return 0;
+        }
+        return counts[entry];
+    }
+
+    /**
+     * Return the tag of a coordinate pair that is present exactly once.
+     *
+     * @param latitude the latitude to look up
+     * @param longitude the longitude to look up
+     * @return the tag the only occurrence of the pair was added with, or -1 if the pair is not present exactly once
+     */
+    public int soleTag(final double latitude, final double longitude) {
+        if (Double.isNaN(latitude) || Double.isNaN(longitude)) {
+            return -1;
+        }
+        int entry = find(key(latitude), key(longitude));
+        if (entry == NONE || counts[entry] != 1) {
+            return -1;
+        }
+        return tags[entry];
+    }
+
+    /**
+     * Return the number of stored pairs that have been seen more than once, counting every occurrence.
+     * <p>
+     * This is the number of valid locations for which Locator.beenHere would return true.
+     *
+     * @return the total count of all pairs whose count is at least two
+     */
+    public int repeatCount() {
+        int repeats = 0;
+        for (int i = 0; i < distinct; i++) {
+            if (counts[i] > 1) {
+                repeats += counts[i];
+            }
+        }
+        return repeats;
+    }
+
+    /**
+     * Return the number of distinct pairs stored.
+     *
+     * @return the number of distinct pairs
+     */
+    public int distinct() {
+        return distinct;
+    }
+
+    /**
+     * Return the total number of pairs stored, counting repeats.
+     *
+     * @return the number of pairs
+     */
+    public int size() {
+        return total;
+    }
+
+    /**
+     * Remove every pair from the index, keeping the current table size.
+     */
+    public void clear() {
+        heads.clear();
+        distinct = 0;
+        total = 0;
+    }
+
+    /**
+     * Convert a coordinate to the bits used as its key, folding -0.0 onto 0.0 so that keys agree with ==.
+     *
+     * @param coordinate the coordinate to convert
+     * @return the key bits
+     */
+    private static long key(final double coordinate) {
+        if (coordinate == 0.0) {
+            return 0L;
+        }
+        return Double.doubleToRawLongBits(coordinate);
+    }
+
+    /**
+     * Combine the two halves of a key into the hash the table of chains is keyed by.
+     *
+     * @param latitudeKey the latitude key bits
+     * @param longitudeKey the longitude key bits
+     * @return the pair hash
+     */
+    private static long pairHash(final long latitudeKey, final long longitudeKey) {
+        // Coordinates often have long runs of zero bits at the bottom, so one half has to be mixed thoroughly first
+        return LongIntTable.mix(latitudeKey) ^ longitudeKey;
+    }
+
+    /**
+     * Find the entry holding a key.
+     *
+     * @param latitudeKey the latitude key bits
+     * @param longitudeKey the longitude key bits
+     * @return the entry, or NONE if the key is not stored
+     */
+    private int find(final long latitudeKey, final long longitudeKey) {
+        int entry = heads.get(pairHash(latitudeKey, longitudeKey), NONE);
+        while (entry != NONE && (latitudeKeys[entry] != latitudeKey || longitudeKeys[entry] != longitudeKey)) {
+            entry = chain[entry];
+        }
+        return entry;
+    }
+
+    /**
+     * Store a new key with no occurrences.
+     *
+     * @param latitudeKey the latitude key bits
+     * @param longitudeKey the longitude key bits
+     * @return the new entry
+     */
+    private int addEntry(final long latitudeKey, final long longitudeKey) {
+        int entry = distinct;
+        if (entry == counts.length) {
+            latitudeKeys = Arrays.copyOf(latitudeKeys, entry * 2);
+            longitudeKeys = Arrays.copyOf(longitudeKeys, entry * 2);
+            counts = Arrays.copyOf(counts, entry * 2);
+            tags = Arrays.copyOf(tags, entry * 2);
+            chain = Arrays.copyOf(chain, entry * 2);
+        }
+        long hash = pairHash(latitudeKey, longitudeKey);
+        latitudeKeys[entry] = latitudeKey;
+        longitudeKeys[entry] = longitudeKey;
+        counts[entry] = 0;
+        tags[entry] = 0;
+        chain[entry] = heads.get(hash, NONE);
+        heads.put(hash, entry);
+        distinct++;
+        return entry;
+    }
+
+    /**
+     * Forget a key that no longer has any occurrences, moving the last entry into its place so that entries stay
+     * dense.
+     *
+     * @param entry the entry to forget
+     */
+    private void deleteEntry(final int entry) {
+        redirect(entry, chain[entry]);
+        distinct--;
+        int last = distinct;
+        if (entry != last) {
+            latitudeKeys[entry] = latitudeKeys[last];
+            longitudeKeys[entry] = longitudeKeys[last];
+            counts[entry] = counts[last];
+            tags[entry] = tags[last];
+            chain[entry] = chain[last];
+            redirect(last, entry);
+        }
+    }
+
+    /**
+     * Replace the link to an entry in its chain with a link to another entry.
+     *
+     * @param from the entry currently linked to
+     * @param to the entry to link to instead, or NONE to unlink the end of the chain
+     */
+    private void redirect(final int from, final int to) {
+        long hash = pairHash(latitudeKeys[from], longitudeKeys[from]);
+        int entry = heads.get(hash, NONE);
+        if (entry == from) {
+            if (to == NONE) {
+                heads.remove(hash, NONE);
+            } else {
+                heads.put(hash, to);
+            }
+            return;
+        }
+        while (chain[entry] != from) {
+            entry = chain[entry];
+        }
+        chain[entry] = to;
+    }
+}
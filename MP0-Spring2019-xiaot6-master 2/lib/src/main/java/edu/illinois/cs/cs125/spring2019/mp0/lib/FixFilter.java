@@ -0,0 +1,298 @@
+package edu.illinois.cs.cs125.spring2019.mp0.lib;
+
+/**
+ * Smooths incoming location fixes and decides which ones are worth adding to the history.
+ * <p>
+ * A phone sitting still still reports a slightly different position every few seconds. Adding each of those to the
+ * history overwrites older measurements with near duplicates and makes every downstream step, such as beenHere and
+ * redrawing markers, do work for nothing. The filter runs each fix through a Kalman filter, which blends it with a
+ * prediction from the previous estimate weighted by the fix's reported accuracy, and then through a novelty gate that
+ * only admits the smoothed position if it has moved far enough from the last admitted one: at least a minimum
+ * distance, and at least three times the filter's own position error, so jitter within that error doesn't count. A
+ * position is also admitted if nothing has been admitted for a while, so a slow walk still leaves a trail and the
+ * history doesn't go stale.
+ * <p>
+ * The Kalman filter models the device as moving at a constant velocity, disturbed by random accelerations. It works in
+ * meters north and east of its current estimate, so it is accurate anywhere on the globe. Both directions have the same
+ * noise, so they share one covariance matrix. Offered and admitted fixes are counted so callers can report the drop
+ * rate.
+ */
+public final class FixFilter {
+
+    /** Default standard deviation of the random acceleration, in meters per second squared. */
+    public static final double DEFAULT_ACCELERATION_NOISE = 0.3;
+
+    /** Accuracy assumed for fixes that don't report one, in meters. */
+    public static final double DEFAULT_ACCURACY_METERS = 20.0;
+
+    /** Default distance the smoothed position must move before it is admitted again, in meters. */
+    public static final double DEFAULT_MIN_DISTANCE_METERS = 10.0;
+
+    /** Default longest time between admitted positions, in milliseconds. */
+    public static final long DEFAULT_MAX_INTERVAL_MILLIS = 60000L;
+
+    /** How many standard deviations of position error a move must exceed to be admitted. */
+    private static final double NOVELTY_SIGMAS = 3.0;
+
+    /** Milliseconds per second. */
+    private static final double MILLIS_PER_SECOND = 1000.0;
+
+    /** Variance of the random acceleration. */
+    private final double accelerationVariance;
+
+    /** Distance the smoothed position must move before it is admitted again, in meters. */
+    private final double minDistanceMeters;
+
+    /** Longest time between admitted positions, in milliseconds. */
+    private final long maxIntervalMillis;
+
+    /** Estimated latitude. */
+    private double latitude = Double.NaN;
+
+    /** Estimated longitude. */
+    private double longitude = Double.NaN;
+
+    /** Estimated velocity north, in meters per second. */
+    private double velocityNorth = 0.0;
+
+    /** Estimated velocity east, in meters per second. */
+    private double velocityEast = 0.0;
+
+    /** Variance of the estimated position along each axis. */
+    private double positionVariance = 0.0;
+
+    /** Covariance of the estimated position and velocity along each axis. */
+    private double covariance = 0.0;
+
+    /** Variance of the estimated velocity along each axis. */
+    private double velocityVariance = 0.0;
+
+    /** Time of the most recent fix. */
+    private long lastTime = 0;
+
+    /** Latitude of the most recently admitted position. */
+    private double admittedLatitude = Double.NaN;
+
+    /** Longitude of the most recently admitted position. */
+    private double admittedLongitude = Double.NaN;
+
+    /** Time of the most recently admitted position. */
+    private long admittedTime = 0;
+
+    /** Number of fixes offered. */
+    private long offered = 0;
+
+    /** Number of fixes admitted. */
+    private long admitted = 0;
+
+    /**
+     * Create a filter with the default settings.
+     */
+    public FixFilter() {
+        this(DEFAULT_ACCELERATION_NOISE, DEFAULT_MIN_DISTANCE_METERS, DEFAULT_MAX_INTERVAL_MILLIS);
+    }
+
+    /**
+     * Create a filter.
+     *
+     * @param accelerationNoise how sharply the device may speed up, slow down or turn, as the standard deviation of its
+     *                          acceleration in meters per second squared
+     * @param setMinDistanceMeters how far the smoothed position must move before it is admitted again, in meters
+     * @param setMaxIntervalMillis the longest time to go without admitting a position, in milliseconds
+     */
+    public FixFilter(final double accelerationNoise, final double setMinDistanceMeters,
+                     final long setMaxIntervalMillis) {
+        if (!(accelerationNoise > 0) || !(setMinDistanceMeters >= 0) || setMaxIntervalMillis < 0) {
+            throw new IllegalArgumentException("invalid filter settings");
+        }
+        accelerationVariance = accelerationNoise * accelerationNoise;
+        minDistanceMeters = setMinDistanceMeters;
+        maxIntervalMillis = setMaxIntervalMillis;
+    }
+
+    /**
+     * Offer a new fix to the filter.
+     * <p>
+     * Fixes older than the previous one are ignored and count as dropped.
+     *
+     * @param timeMillis the time of the fix, in milliseconds
+     * @param fixLatitude the latitude of the fix
+     * @param fixLongitude the longitude of the fix
+     * @param accuracyMeters the reported accuracy of the fix in meters, or 0 if it has none
+     * @return true if the smoothed position should be added to the history
+     * @throws IllegalArgumentException if the position is not valid
+     */
+    public boolean offer(final long timeMillis, final double fixLatitude, final double fixLongitude,
+                         final double accuracyMeters) {
+        GeoMath.checkPosition(fixLatitude, fixLongitude);
+        offered++;
+        double accuracy = DEFAULT_ACCURACY_METERS;
+        if (accuracyMeters > 0) {
+            accuracy = accuracyMeters;
+        }
+
+        if (Double.isNaN(latitude)) {
+            latitude = fixLatitude;
+            longitude = fixLongitude;
+            positionVariance = accuracy * accuracy;
+            lastTime = timeMillis;
+            return admit(timeMillis);
+        }
+        if (timeMillis < lastTime) {
+            return false;
+        }
+        predict((timeMillis - lastTime) / MILLIS_PER_SECOND);
+        lastTime = timeMillis;
+        correct(fixLatitude, fixLongitude, accuracy);
+
+        double threshold = Math.max(minDistanceMeters, NOVELTY_SIGMAS * getPositionError());
+        if (timeMillis - admittedTime >= maxIntervalMillis
+            || GeoMath.haversine(admittedLatitude, admittedLongitude, latitude, longitude) >= threshold) {
+            return admit(timeMillis);
+        }
+        return false;
+    }
+
+    /**
+     * Move the estimate forward in time.
+     *
+     * @param seconds the time since the previous fix
+     */
+    private void predict(final double seconds) {
+        if (seconds == 0) {
+            return;
+        }
+        double degreesPerMeter = 1 / GeoMath.METERS_PER_DEGREE;
+        latitude = Locator.clamp(latitude + velocityNorth * seconds * degreesPerMeter,
+            Locator.MIN_LATITUDE, Locator.MAX_LATITUDE);
+        double cosine = Math.cos(Math.toRadians(latitude));
+        if (cosine > 0) {
+            longitude = GeoMath.wrapLongitude(longitude + velocityEast * seconds * degreesPerMeter / cosine);
+        }
+
+        double halfSquared = seconds * seconds / 2;
+        positionVariance += seconds * (2 * covariance + seconds * velocityVariance)
+            + accelerationVariance * halfSquared * halfSquared;
+        covariance += seconds * velocityVariance + accelerationVariance * halfSquared * seconds;
+        velocityVariance += accelerationVariance * seconds * seconds;
+    }
+
+    /**
+     * Blend a fix into the estimate.
+     *
+     * @param fixLatitude the latitude of the fix
+     * @param fixLongitude the longitude of the fix
+     * @param accuracy the accuracy of the fix, in meters
+     */
+    private void correct(final double fixLatitude, final double fixLongitude, final double accuracy) {
+        double metersPerDegree = GeoMath.METERS_PER_DEGREE;
+        double cosine = Math.cos(Math.toRadians(latitude));
+        double north = (fixLatitude - latitude) * metersPerDegree;
+        double east = GeoMath.wrapLongitude(fixLongitude - longitude) * metersPerDegree * cosine;
+
+        double innovationVariance = positionVariance + accuracy * accuracy;
+        double positionGain = positionVariance / innovationVariance;
+        double velocityGain = covariance / innovationVariance;
+
+        latitude = Locator.clamp(latitude + positionGain * north / metersPerDegree,
+            Locator.MIN_LATITUDE, Locator.MAX_LATITUDE);
+        if (cosine > 0) {
+            longitude = GeoMath.wrapLongitude(longitude + positionGain * east / metersPerDegree / cosine);
+        }
+        velocityNorth += velocityGain * north;
+        velocityEast += velocityGain * east;
+
+        velocityVariance -= velocityGain * covariance;
+        covariance *= 1 - positionGain;
+        positionVariance *= 1 - positionGain;
+    }
+
+    /**
+     * Record that the current estimate was admitted.
+     *
+     * @param timeMillis the time of the admitted fix
+     * @return true
+     */
+    private boolean admit(final long timeMillis) {
+        admittedLatitude = latitude;
+        admittedLongitude = longitude;
+        admittedTime = timeMillis;
+        admitted++;
+        return true;
+    }
+
+    /**
+     * Return the smoothed latitude.
+     *
+     * @return the estimated latitude, or NaN before the first fix
+     */
+    public double getLatitude() {
+        return latitude;
+    }
+
+    /**
+     * Return the smoothed longitude.
+     *
+     * @return the estimated longitude, or NaN before the first fix
+     */
+    public double getLongitude() {
+        return longitude;
+    }
+
+    /**
+     * Return the estimated speed.
+     *
+     * @return the estimated speed, in meters per second
+     */
+    public double getSpeed() {
+        return Math.hypot(velocityNorth, velocityEast);
+    }
+
+    /**
+     * Return how uncertain the smoothed position is.
+     *
+     * @return the standard deviation of the estimated position along each axis, in meters
+     */
+    public double getPositionError() {
+        return Math.sqrt(positionVariance);
+    }
+
+    /**
+     * Return the number of fixes offered so far.
+     *
+     * @return the number of fixes offered
+     */
+    public long getOffered() {
+        return offered;
+    }
+
+    /**
+     * Return the number of fixes admitted so far.
+     *
+     * @return the number of fixes admitted
+     */
+    public long getAdmitted() {
+        return admitted;
+    }
+
+    /**
+     * Return the number of fixes dropped so far.
+     *
+     * @return the number of fixes offered but not admitted
+     */
+    public long getDropped() {
+        return offered - admitted;
+    }
+
+    /**
+     * Return the fraction of fixes dropped so far.
+     *
+     * @return the fraction of offered fixes that were not admitted, or 0 if none were offered
+     */
+    public double getDropRate() {
+        if (offered == 0) {
+            return 0.0;
+        }
+        return (double) getDropped() / offered;
+    }
+}
@@ -0,0 +1,646 @@
+package edu.illinois.cs.cs125.spring2019.mp0.lib;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * An offline reverse geocoder: finds the named place nearest to a position using a memory-mapped file.
+ * <p>
+ * A place list such as a GeoNames dump is parsed once by compile, which writes a binary file holding a static k-d tree
+ * laid out like LocationKdTree's: the places are reordered so that the median of any range sits in its middle, with
+ * ranges alternating between splitting on latitude and on longitude. After a 32-byte header comes a 24-byte record per
+ * place holding its latitude, its longitude, and the cosine of its latitude as doubles, so that visiting a tree node
+ * touches a single cache line. Then come the offset of each name as ints, and the names themselves in UTF-8.
+ * Everything is little-endian.
+ * <p>
+ * Opening a gazetteer maps the file and checks its header, so it takes the same time however many places it holds.
+ * Queries read the mapping directly and do not allocate, so millions of places add nothing to the heap; only pages
+ * that queries touch are read from storage. Distances use the haversine formula, with the same exact pruning as
+ * LocationKdTree. Only getName creates an object.
+ * <p>
+ * Queries keep their working state inside the gazetteer, so a gazetteer should only be queried by one thread at a
+ * time. A single mapping can cover at most 2GB, which is tens of millions of places.
+ */
+public final class Gazetteer implements Closeable {
+
+    /** Marks an empty result. */
+    public static final int NONE = -1;
+
+    /** Tab-separated column holding the place name in a GeoNames dump. */
+    public static final int GEONAMES_NAME_COLUMN = 1;
+
+    /** Tab-separated column holding the latitude in a GeoNames dump. */
+    public static final int GEONAMES_LATITUDE_COLUMN = 4;
+
+    /** Tab-separated column holding the longitude in a GeoNames dump. */
+    public static final int GEONAMES_LONGITUDE_COLUMN = 5;
+
+    /** Identifies a gazetteer file: "MP0G" in ASCII. */
+    private static final int MAGIC = 0x4D503047;
+
+    /** Version of the file layout. */
+    private static final int VERSION = 1;
+
+    /** Size of the file header, in bytes. */
+    private static final int HEADER_SIZE = 32;
+
+    /** Offset of the file layout version in the header. */
+    private static final int VERSION_OFFSET = 4;
+
+    /** Offset of the number of places in the header. */
+    private static final int COUNT_OFFSET = 8;
+
+    /** Offset of the total size of the names in the header. */
+    private static final int NAMES_SIZE_OFFSET = 16;
+
+    /** Number of doubles in each place record. */
+    private static final int PLACE_FIELDS = 3;
+
+    /** Index of the longitude within a place record. */
+    private static final int LONGITUDE_FIELD = 1;
+
+    /** Index of the cosine of the latitude within a place record. */
+    private static final int COSINE_FIELD = 2;
+
+    /** Ranges this small are scanned directly rather than split further. */
+    private static final int LEAF_SIZE = 8;
+
+    /** Degrees in a full circle of longitude. */
+    private static final double FULL_CIRCLE = Locator.MAX_LONGITUDE - Locator.MIN_LONGITUDE;
+
+    /** Widens pruning thresholds slightly, so rounding can never skip the nearest place. */
+    private static final double REACH_SLACK = 1e-9;
+
+    /** Number of places to make room for before the first one is parsed. */
+    private static final int INITIAL_CAPACITY = 1024;
+
+    /** The open file. */
+    private final RandomAccessFile file;
+
+    /** Number of places. */
+    private final int size;
+
+    /** Record of each place, in tree order, starting with its latitude. */
+    private final DoubleBuffer places;
+
+    /** Offset of each place's name within the names, plus the end of the last name. */
+    private final IntBuffer nameOffsets;
+
+    /** Names of the places, in UTF-8. */
+    private final ByteBuffer names;
+
+    /** Latitude of the current query, in radians. */
+    private double queryPhi;
+
+    /** Cosine of the latitude of the current query. */
+    private double queryCosine;
+
+    /** Latitude of the current query, in degrees. */
+    private double queryLatitude;
+
+    /** Longitude of the current query, in degrees. */
+    private double queryLongitude;
+
+    /** Haversine of the angle to the best place found so far during a query, or the limit if none was found. */
+    private double bestHaversine;
+
+    /** Tree position of the best place found so far during a query. */
+    private int bestPosition;
+
+    /** Largest latitude difference, in degrees, at which a place could beat the best one. */
+    private double latitudeReach;
+
+    /** Largest longitude difference, in degrees, at which a place could beat the best one. */
+    private double longitudeReach;
+
+    /**
+     * Open a compiled gazetteer.
+     *
+     * @param path the file written by compile
+     * @throws IOException if the file cannot be opened or is not a gazetteer
+     */
+    public Gazetteer(final File path) throws IOException {
+        file = new RandomAccessFile(path, "r");
+        try {
+            long length = file.length();
+            if (length < HEADER_SIZE || length > Integer.MAX_VALUE) {
+                throw new IOException("not a gazetteer: " + path);
+            }
+            MappedByteBuffer buffer = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, length);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(VERSION_OFFSET) != VERSION) {
+                throw new IOException("not a gazetteer: " + path);
+            }
+            int count = buffer.getInt(COUNT_OFFSET);
+            long namesSize = buffer.getLong(NAMES_SIZE_OFFSET);
+            if (count < 0 || namesSize < 0 || fileSize(count, namesSize) != length) {
+                throw new IOException("gazetteer header is corrupt: " + path);
+            }
+            size = count;
+            int offset = HEADER_SIZE;
+            places = section(buffer, offset, size * PLACE_FIELDS * Double.BYTES).asDoubleBuffer();
+            offset += size * PLACE_FIELDS * Double.BYTES;
+            nameOffsets = section(buffer, offset, (size + 1) * Integer.BYTES).asIntBuffer();
+            offset += (size + 1) * Integer.BYTES;
+            names = section(buffer, offset, (int) namesSize);
+        } catch (IOException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Return a view of part of a mapping.
+     *
+     * @param buffer the mapping
+     * @param offset the offset of the section
+     * @param length the length of the section, in bytes
+     * @return a little-endian buffer covering just the section
+     */
+    private static ByteBuffer section(final ByteBuffer buffer, final int offset, final int length) {
+        ByteBuffer view = buffer.duplicate();
+        view.position(offset);
+        view.limit(offset + length);
+        return view.slice().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Return the size of a gazetteer file.
+     *
+     * @param count the number of places
+     * @param namesSize the total size of the names, in bytes
+     * @return the size of the file, in bytes
+     */
+    private static long fileSize(final int count, final long namesSize) {
+        return HEADER_SIZE + (long) count * PLACE_FIELDS * Double.BYTES + (count + 1L) * Integer.BYTES + namesSize;
+    }
+
+    /**
+     * Compile a GeoNames dump, such as cities1000.txt or allCountries.txt, into a gazetteer file.
+     *
+     * @param source the tab-separated GeoNames file
+     * @param target the gazetteer file to write, replacing any existing file
+     * @return the number of places compiled
+     * @throws IOException if the source cannot be read or the target cannot be written
+     */
+    public static int compileGeoNames(final File source, final File target) throws IOException {
+        return compile(source, target, '\t', GEONAMES_NAME_COLUMN, GEONAMES_LATITUDE_COLUMN, GEONAMES_LONGITUDE_COLUMN);
+    }
+
+    /**
+     * Compile a delimited text file of places into a gazetteer file.
+     * <p>
+     * Columns are numbered from 0, and fields are not quoted. Lines whose coordinates are missing, are not numbers, or
+     * are out of range are skipped, so header and comment lines need no special treatment.
+     *
+     * @param source the place file, in UTF-8
+     * @param target the gazetteer file to write, replacing any existing file
+     * @param separator the character between fields, such as a tab or a comma
+     * @param nameColumn the column holding the place name
+     * @param latitudeColumn the column holding the latitude
+     * @param longitudeColumn the column holding the longitude
+     * @return the number of places compiled
+     * @throws IOException if the source cannot be read or the target cannot be written
+     */
+    public static int compile(final File source, final File target, final char separator,
+                              final int nameColumn, final int latitudeColumn, final int longitudeColumn)
+        throws IOException {
+        if (nameColumn < 0 || latitudeColumn < 0 || longitudeColumn < 0) {
+            throw new IllegalArgumentException("columns must not be negative");
+        }
+        Builder builder = new Builder();
+        try (BufferedReader reader = new BufferedReader(
+            new InputStreamReader(new FileInputStream(source), StandardCharsets.UTF_8))) {
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                String name = field(line, separator, nameColumn);
+                String latitude = field(line, separator, latitudeColumn);
+                String longitude = field(line, separator, longitudeColumn);
+                if (name == null || latitude == null || longitude == null) {
+                    continue;
+                }
+                try {
+                    builder.add(name, Double.parseDouble(latitude), Double.parseDouble(longitude));
+                } catch (NumberFormatException e) {
+                    continue;
+                }
+            }
+        }
+        builder.build(0, builder.count, true);
+        builder.write(target);
+        return builder.count;
+    }
+
+    /**
+     * Return one field of a delimited line.
+     *
+     * @param line the line
+     * @param separator the character between fields
+     * @param column the column to return, from 0
+     * @return the field, or null if the line has too few fields
+     */
+    private static String field(final String line, final char separator, final int column) {
+        int start = 0;
+        for (int i = 0; i < column; i++) {
+            start = line.indexOf(separator, start) + 1;
+            if (start == 0) {
+                return null;
+            }
+        }
+        int end = line.indexOf(separator, start);
+        if (end == -1) {
+            end = line.length();
+        }
+        return line.substring(start, end);
+    }
+
+    /**
+     * Return the number of places.
+     *
+     * @return the number of places compiled into the file
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Return the latitude of a place.
+     *
+     * @param index the place
+     * @return its latitude
+     */
+    public double getLatitude(final int index) {
+        return places.get(index * PLACE_FIELDS);
+    }
+
+    /**
+     * Return the longitude of a place.
+     *
+     * @param index the place
+     * @return its longitude
+     */
+    public double getLongitude(final int index) {
+        return places.get(index * PLACE_FIELDS + LONGITUDE_FIELD);
+    }
+
+    /**
+     * Return the name of a place.
+     *
+     * @param index the place
+     * @return its name
+     */
+    public String getName(final int index) {
+        int start = nameOffsets.get(index);
+        byte[] bytes = new byte[nameOffsets.get(index + 1) - start];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = names.get(start + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Find the place nearest to a position.
+     *
+     * @param latitude the latitude of the position
+     * @param longitude the longitude of the position
+     * @return the nearest place, or -1 if there are no places
+     */
+    public int nearest(final double latitude, final double longitude) {
+        return nearest(latitude, longitude, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Find the place nearest to a position, if it is close enough.
+     *
+     * @param latitude the latitude of the position
+     * @param longitude the longitude of the position
+     * @param maxMeters the largest distance to look
+     * @return the nearest place, or -1 if there is no place within maxMeters
+     */
+    public int nearest(final double latitude, final double longitude, final double maxMeters) {
+        GeoMath.checkPosition(latitude, longitude);
+        if (!(maxMeters >= 0)) {
+            throw new IllegalArgumentException("maximum distance must not be negative");
+        }
+        queryLatitude = latitude;
+        queryLongitude = longitude;
+        queryPhi = Math.toRadians(latitude);
+        queryCosine = Math.cos(queryPhi);
+        double sine = Math.sin(Math.min(maxMeters / GeoMath.EARTH_RADIUS_METERS, Math.PI) / 2);
+        setBest(NONE, sine * sine);
+        search(0, size, true);
+        return bestPosition;
+    }
+
+    /**
+     * Record a new best place and work out how far away in latitude and longitude anything nearer could be.
+     * <p>
+     * These are LocationKdTree's lower bounds solved for the coordinate difference, so that pruning only needs a
+     * comparison. Each asin is replaced by the slightly larger tan of the same angle, which needs only a square root,
+     * so the reaches are never too small and results stay exact.
+     *
+     * @param position the tree position of the place, or -1 if only the distance limit is known
+     * @param haversine the haversine of the angle to the place
+     */
+    private void setBest(final int position, final double haversine) {
+        bestPosition = position;
+        bestHaversine = haversine;
+        double clamped = Math.min(1.0, haversine);
+        // The angle is 2 asin(sqrt(h)), and its sine is 2 sqrt(h (1 - h))
+        latitudeReach = Math.toDegrees(2 * Math.sqrt(clamped / (1 - clamped))) + REACH_SLACK;
+        double sine = 2 * Math.sqrt(clamped * (1 - clamped)) / queryCosine;
+        if (clamped >= 1.0 / 2 || !(sine < 1)) {
+            // Anything over a right angle away, or a query near a pole, can be reached at any longitude
+            longitudeReach = Double.POSITIVE_INFINITY;
+        } else {
+            longitudeReach = Math.toDegrees(sine / Math.sqrt(1 - sine * sine)) + REACH_SLACK;
+        }
+    }
+
+    /**
+     * Search a subtree for a nearer place.
+     *
+     * @param from the first position in the subtree
+     * @param to one past the last position in the subtree
+     * @param byLatitude whether this level splits on latitude
+     */
+    private void search(final int from, final int to, final boolean byLatitude) {
+        if (to - from <= LEAF_SIZE) {
+            for (int i = from; i < to; i++) {
+                consider(i);
+            }
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        boolean queryBelow;
+        if (byLatitude) {
+            queryBelow = queryLatitude < places.get(middle * PLACE_FIELDS);
+        } else {
+            queryBelow = queryLongitude < places.get(middle * PLACE_FIELDS + LONGITUDE_FIELD);
+        }
+        // Unlike LocationKdTree, the median is only looked at on the way back up, since by then the near side has
+        // usually found a close place and the median can be rejected without any trigonometry
+        if (queryBelow) {
+            search(from, middle, !byLatitude);
+            consider(middle);
+            if (reaches(middle, byLatitude, true)) {
+                search(middle + 1, to, !byLatitude);
+            }
+        } else {
+            search(middle + 1, to, !byLatitude);
+            consider(middle);
+            if (reaches(middle, byLatitude, false)) {
+                search(from, middle, !byLatitude);
+            }
+        }
+    }
+
+    /**
+     * Return whether a place on the far side of a splitting line could beat the best one.
+     * <p>
+     * Across a line of longitude the far side starts at the splitting meridian going the short way, or at the
+     * antimeridian going the long way.
+     *
+     * @param middle the tree position whose coordinate is the splitting line
+     * @param byLatitude whether the line is a line of latitude
+     * @param queryBelow whether the query is south or west of the line
+     * @return false if everything on the far side is farther than the best place
+     */
+    private boolean reaches(final int middle, final boolean byLatitude, final boolean queryBelow) {
+        if (byLatitude) {
+            return Math.abs(queryLatitude - places.get(middle * PLACE_FIELDS)) <= latitudeReach;
+        }
+        double around;
+        if (queryBelow) {
+            around = queryLongitude - Locator.MIN_LONGITUDE;
+        } else {
+            around = Locator.MAX_LONGITUDE - queryLongitude;
+        }
+        double split = places.get(middle * PLACE_FIELDS + LONGITUDE_FIELD);
+        return Math.min(Math.abs(split - queryLongitude), around) <= longitudeReach;
+    }
+
+    /**
+     * Consider a place as the nearest.
+     *
+     * @param position the tree position of the place
+     */
+    private void consider(final int position) {
+        int record = position * PLACE_FIELDS;
+        double latitude = places.get(record);
+        if (Math.abs(latitude - queryLatitude) > latitudeReach) {
+            // Too far north or south, whatever the longitude
+            return;
+        }
+        double longitudeDifference = Math.abs(places.get(record + LONGITUDE_FIELD) - queryLongitude);
+        if (Math.min(longitudeDifference, FULL_CIRCLE - longitudeDifference) > longitudeReach) {
+            return;
+        }
+        double sinHalfLatitude = Math.sin((Math.toRadians(latitude) - queryPhi) / 2);
+        double sinHalfLongitude = Math.sin(Math.toRadians(longitudeDifference) / 2);
+        double haversine = sinHalfLatitude * sinHalfLatitude
+            + queryCosine * places.get(record + COSINE_FIELD) * sinHalfLongitude * sinHalfLongitude;
+        if (haversine < bestHaversine || (bestPosition == NONE && haversine <= bestHaversine)) {
+            setBest(position, haversine);
+        }
+    }
+
+    /**
+     * Close the file.
+     *
+     * @throws IOException if the file cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+
+    /**
+     * Collects parsed places and arranges them into a tree before they are written.
+     */
+    private static final class Builder {
+
+        /** Latitude of each place. */
+        private double[] latitudes = new double[INITIAL_CAPACITY];
+
+        /** Longitude of each place. */
+        private double[] longitudes = new double[INITIAL_CAPACITY];
+
+        /** Index of each place's name, in tree order once built. */
+        private int[] order = new int[INITIAL_CAPACITY];
+
+        /** Offset of each name within the name bytes, in the order the places were parsed. */
+        private int[] nameStarts = new int[INITIAL_CAPACITY + 1];
+
+        /** Every name, in UTF-8, in the order the places were parsed. */
+        private byte[] nameBytes = new byte[INITIAL_CAPACITY];
+
+        /** Number of places. */
+        private int count = 0;
+
+        /**
+         * Add a place, unless its position is invalid.
+         *
+         * @param name the name of the place
+         * @param latitude the latitude of the place
+         * @param longitude the longitude of the place
+         * @throws IOException if there are too many places to fit in one file
+         */
+        void add(final String name, final double latitude, final double longitude) throws IOException {
+            if (!GeoMath.isValidPosition(latitude, longitude)) {
+                return;
+            }
+            byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+            int start = nameStarts[count];
+            if ((long) start + bytes.length > Integer.MAX_VALUE - HEADER_SIZE) {
+                throw new IOException("gazetteer is too large to map");
+            }
+            if (count + 1 == order.length) {
+                int grown = order.length * 2;
+                latitudes = Arrays.copyOf(latitudes, grown);
+                longitudes = Arrays.copyOf(longitudes, grown);
+                order = Arrays.copyOf(order, grown);
+                nameStarts = Arrays.copyOf(nameStarts, grown + 1);
+            }
+            if (start + bytes.length > nameBytes.length) {
+                nameBytes = Arrays.copyOf(nameBytes, (int) Math.min(Integer.MAX_VALUE,
+                    Math.max((long) nameBytes.length * 2, (long) start + bytes.length)));
+            }
+            System.arraycopy(bytes, 0, nameBytes, start, bytes.length);
+            latitudes[count] = latitude;
+            longitudes[count] = longitude;
+            order[count] = count;
+            nameStarts[count + 1] = start + bytes.length;
+            count++;
+        }
+
+        /**
+         * Arrange a range of places into a subtree, as LocationKdTree does.
+         *
+         * @param from the first place in the range
+         * @param to one past the last place in the range
+         * @param byLatitude whether this level splits on latitude
+         */
+        void build(final int from, final int to, final boolean byLatitude) {
+            if (to - from <= LEAF_SIZE) {
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            select(from, to - 1, middle, byLatitude);
+            build(from, middle, !byLatitude);
+            build(middle + 1, to, !byLatitude);
+        }
+
+        /**
+         * Rearrange a range so that the place at a position is the one that would be there if the range were sorted.
+         *
+         * @param first the first position in the range
+         * @param last the last position in the range
+         * @param target the position to fill
+         * @param byLatitude whether to compare latitudes or longitudes
+         */
+        private void select(final int first, final int last, final int target, final boolean byLatitude) {
+            double[] keys = longitudes;
+            if (byLatitude) {
+                keys = latitudes;
+            }
+            int low = first;
+            int high = last;
+            while (low < high) {
+                double pivot = keys[(low + high) >>> 1];
+                int i = low;
+                int j = high;
+                while (i <= j) {
+                    while (keys[i] < pivot) {
+                        i++;
+                    }
+                    while (keys[j] > pivot) {
+                        j--;
+                    }
+                    if (i <= j) {
+                        swap(i, j);
+                        i++;
+                        j--;
+                    }
+                }
+                if (target <= j) {
+                    high = j;
+                } else if (target >= i) {
+                    low = i;
+                } else {
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Swap two places in tree order.
+         *
+         * @param first the first position
+         * @param second the second position
+         */
+        private void swap(final int first, final int second) {
+            double latitude = latitudes[first];
+            latitudes[first] = latitudes[second];
+            latitudes[second] = latitude;
+            double longitude = longitudes[first];
+            longitudes[first] = longitudes[second];
+            longitudes[second] = longitude;
+            int index = order[first];
+            order[first] = order[second];
+            order[second] = index;
+        }
+
+        /**
+         * Write the places, in tree order, to a gazetteer file.
+         *
+         * @param target the file to write
+         * @throws IOException if the file cannot be written, or would be too large to map
+         */
+        void write(final File target) throws IOException {
+            long namesSize = nameStarts[count];
+            long length = fileSize(count, namesSize);
+            if (length > Integer.MAX_VALUE) {
+                throw new IOException("gazetteer is too large to map");
+            }
+            try (RandomAccessFile output = new RandomAccessFile(target, "rw")) {
+                output.setLength(0);
+                MappedByteBuffer buffer = output.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, length);
+                buffer.order(ByteOrder.LITTLE_ENDIAN);
+                buffer.position(HEADER_SIZE);
+                for (int i = 0; i < count; i++) {
+                    buffer.putDouble(latitudes[i]);
+                    buffer.putDouble(longitudes[i]);
+                    buffer.putDouble(Math.cos(Math.toRadians(latitudes[i])));
+                }
+                int offset = 0;
+                for (int i = 0; i < count; i++) {
+                    buffer.putInt(offset);
+                    offset += nameStarts[order[i] + 1] - nameStarts[order[i]];
+                }
+                buffer.putInt(offset);
+                for (int i = 0; i < count; i++) {
+                    buffer.put(nameBytes, nameStarts[order[i]], nameStarts[order[i] + 1] - nameStarts[order[i]]);
+                }
+                // Only mark the file as a gazetteer once everything else is in place
+                buffer.putInt(VERSION_OFFSET, VERSION);
+                buffer.putInt(COUNT_OFFSET, count);
+                buffer.putLong(NAMES_SIZE_OFFSET, namesSize);
+                buffer.putInt(0, MAGIC);
+                buffer.force();
+            }
+        }
+    }
+}
@@ -0,0 +1,428 @@
+package edu.illinois.cs.cs125.spring2019.mp0.lib;
+
+import java.util.Arrays;
+
+/**
+ * A uniform grid over latitude and longitude for finding positions within a distance of a point.
+ * <p>
+ * Locator.beenHere only finds exact matches. To answer "have I been within R meters of here?" without checking every
+ * stored position, we divide the globe into square cells a fixed number of degrees on a side and keep a list of the
+ * positions that fall in each cell. A radius query works out which cells could possibly contain a match, checks only
+ * the positions in those cells using the haversine formula, and never looks at the rest of the history.
+ * <p>
+ * Positions are identified by an int id between 0 and the capacity of the index, such as their index in a location
+ * ring. Only non-empty cells are stored, numbered densely and found through a LongIntTable keyed by cell number, and
+ * each cell's positions form a doubly-linked list threaded through primitive arrays. That makes insert and remove
+ * O(1) and avoids allocating an object per position. Positions within a cell are kept in the order they were inserted.
+ * <p>
+ * Cells work best when they are about the size of the radius you plan to query with. Much smaller cells mean each
+ * query visits many empty cells; much larger cells mean each query checks many positions that are too far away.
+ */
+public final class GeoGridIndex {
+
+    /** Marks the end of a cell list or a missing cell. */
+    private static final int NONE = -1;
+
+    /** Number of cells to make room for at first. */
+    private static final int INITIAL_CELLS = 16;
+
+    /** Size of each cell, in degrees. Chosen so that a whole number of cells wraps around the globe. */
+    private final double cellDegrees;
+
+    /** Number of rows of cells, from south to north. */
+    private final int rows;
+
+    /** Number of columns of cells, from west to east. */
+    private final int columns;
+
+    /** Latitude of each stored position. */
+    private final double[] latitudes;
+
+    /** Longitude of each stored position. */
+    private final double[] longitudes;
+
+    /** Whether each id is currently stored. */
+    private final boolean[] present;
+
+    /** Next position in the same cell, in insertion order. */
+    private final int[] next;
+
+    /** Previous position in the same cell, in insertion order. */
+    private final int[] previous;
+
+    /** Number of positions currently stored. */
+    private int size = 0;
+
+    /** Non-empty cell with each cell number. */
+    private final LongIntTable cellTable = new LongIntTable();
+
+    /** Cell number of each non-empty cell. */
+    private long[] cellKeys;
+
+    /** Oldest position in each non-empty cell. */
+    private int[] cellHeads;
+
+    /** Newest position in each non-empty cell. */
+    private int[] cellTails;
+
+    /** Number of positions in each non-empty cell. */
+    private int[] cellSizes;
+
+    /** Number of non-empty cells, which are numbered from 0. */
+    private int cellCount = 0;
+
+    /**
+     * Create a new empty index.
+     *
+     * @param capacity the number of ids the index can hold; ids run from 0 to capacity - 1
+     * @param requestedCellDegrees the approximate size of each cell, in degrees
+     */
+    public GeoGridIndex(final int capacity, final double requestedCellDegrees) {
+        if (!(requestedCellDegrees > 0)) {
+            throw new IllegalArgumentException("cell size must be positive");
+        }
+        double fullCircle = Locator.MAX_LONGITUDE - Locator.MIN_LONGITUDE;
+        double halfCircle = Locator.MAX_LATITUDE - Locator.MIN_LATITUDE;
+        columns = (int) Math.min(Integer.MAX_VALUE, Math.ceil(fullCircle / requestedCellDegrees));
+        cellDegrees = fullCircle / columns;
+        rows = (int) Math.ceil(halfCircle / cellDegrees);
+
+        latitudes = new double[capacity];
+        longitudes = new double[capacity];
+        present = new boolean[capacity];
+        next = new int[capacity];
+        previous = new int[capacity];
+
+        cellKeys = new long[INITIAL_CELLS];
+        cellHeads = new int[INITIAL_CELLS];
+        cellTails = new int[INITIAL_CELLS];
+        cellSizes = new int[INITIAL_CELLS];
+    }
+
+    /**
+     * Create a new empty index with cells sized for queries of a particular radius.
+     *
+     * @param capacity the number of ids the index can hold; ids run from 0 to capacity - 1
+     * @param radiusMeters the radius you expect to query with, in meters
+     * @return the new index
+     */
+    public static GeoGridIndex forRadius(final int capacity, final double radiusMeters) {
+        return new GeoGridIndex(capacity, GeoMath.metersToDegrees(radiusMeters));
+    }
+
+    /**
+     * Add a position to the index.
+     *
+     * @param id the id of the position, which must not already be stored
+     * @param latitude the latitude of the position
+     * @param longitude the longitude of the position
+     * @throws IllegalStateException if the id is already stored
+     */
+    public void insert(final int id, final double latitude, final double longitude) {
+        if (present[id]) {
+            throw new IllegalStateException("id " + id + " is already in the index");
+        }
+        present[id] = true;
+        latitudes[id] = latitude;
+        longitudes[id] = longitude;
+        size++;
+
+        long key = cellOf(latitude, longitude);
+        int cell = cellTable.get(key, NONE);
+        next[id] = NONE;
+        if (cell == NONE) {
+            cell = addCell(key);
+            cellHeads[cell] = id;
+            previous[id] = NONE;
+        } else {
+            next[cellTails[cell]] = id;
+            previous[id] = cellTails[cell];
+        }
+        cellTails[cell] = id;
+        cellSizes[cell]++;
+    }
+
+    /**
+     * Remove a position from the index.
+     *
+     * @param id the id of the position to remove
+     * @return true if the id was stored, false if there was nothing to remove
+     */
+    public boolean remove(final int id) {
+        if (!present[id]) {
+            return false;
+        }
+        present[id] = false;
+        size--;
+
+        int cell = cellTable.get(cellOf(latitudes[id], longitudes[id]), NONE);
+        if (previous[id] == NONE) {
+            cellHeads[cell] = next[id];
+        } else {
+            next[previous[id]] = next[id];
+        }
+        if (next[id] == NONE) {
+            cellTails[cell] = previous[id];
+        } else {
+            previous[next[id]] = previous[id];
+        }
+        cellSizes[cell]--;
+        if (cellSizes[cell] == 0) {
+            deleteCell(cell);
+        }
+        return true;
+    }
+
+    /**
+     * Return whether an id is currently stored.
+     *
+     * @param id the id to check
+     * @return true if the id is stored
+     */
+    public boolean contains(final int id) {
+        return present[id];
+    }
+
+    /**
+     * Return the number of positions currently stored.
+     *
+     * @return the number of positions
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Return the size of each cell, in degrees.
+     *
+     * @return the cell size
+     */
+    public double getCellDegrees() {
+        return cellDegrees;
+    }
+
+    /**
+     * Determine whether any stored position is within a distance of a point.
+     *
+     * @param latitude the latitude of the point
+     * @param longitude the longitude of the point
+     * @param radiusMeters the distance, in meters
+     * @return true if at least one stored position is within the distance
+     */
+    public boolean anyWithin(final double latitude, final double longitude, final double radiusMeters) {
+        return search(latitude, longitude, radiusMeters, null, NONE) != NONE;
+    }
+
+    /**
+     * Determine whether any stored position other than one id is within a distance of a point.
+     *
+     * @param latitude the latitude of the point
+     * @param longitude the longitude of the point
+     * @param radiusMeters the distance, in meters
+     * @param excludeId an id to ignore, usually the id of the point itself
+     * @return true if at least one other stored position is within the distance
+     */
+    public boolean anyWithin(final double latitude, final double longitude, final double radiusMeters,
+                             final int excludeId) {
+        return search(latitude, longitude, radiusMeters, null, excludeId) != NONE;
+    }
+
+    /**
+     * Find every stored position within a distance of a point.
+     *
+     * @param latitude the latitude of the point
+     * @param longitude the longitude of the point
+     * @param radiusMeters the distance, in meters
+     * @param result list to append the ids of matching positions to, in no particular order
+     * @return the number of ids appended
+     */
+    public int queryRadius(final double latitude, final double longitude, final double radiusMeters,
+                           final IntList result) {
+        int before = result.size();
+        search(latitude, longitude, radiusMeters, result, NONE);
+        return result.size() - before;
+    }
+
+    /**
+     * Visit every cell that could hold a position within a distance of a point.
+     *
+     * @param latitude the latitude of the point
+     * @param longitude the longitude of the point
+     * @param radiusMeters the distance, in meters
+     * @param result list to append matches to, or null to stop at the first match
+     * @param excludeId an id to ignore, or NONE
+     * @return the first match found if result is null, otherwise NONE
+     */
+    private int search(final double latitude, final double longitude, final double radiusMeters,
+                       final IntList result, final int excludeId) {
+        if (size == 0 || !(radiusMeters >= 0)) {
+            return NONE;
+        }
+        double latitudeSpan = GeoMath.metersToDegrees(radiusMeters);
+        int firstRow = row(latitude - latitudeSpan);
+        int lastRow = row(latitude + latitudeSpan);
+
+        double longitudeSpan = GeoMath.longitudeSpan(latitude, radiusMeters);
+        long firstColumn = (long) Math.floor((longitude - longitudeSpan - Locator.MIN_LONGITUDE) / cellDegrees);
+        long lastColumn = (long) Math.floor((longitude + longitudeSpan - Locator.MIN_LONGITUDE) / cellDegrees);
+        if (lastColumn - firstColumn + 1 >= columns) {
+            firstColumn = 0;
+            lastColumn = columns - 1;
+        }
+
+        long columnCount = lastColumn - firstColumn + 1;
+        if ((lastRow - firstRow + 1) * columnCount > cellCount) {
+            // Cheaper to walk the non-empty cells than to probe for every candidate cell
+            for (int cell = 0; cell < cellCount; cell++) {
+                long key = cellKeys[cell];
+                long row = key / columns;
+                if (row >= firstRow && row <= lastRow
+                    && Math.floorMod(key % columns - firstColumn, (long) columns) < columnCount) {
+                    int match = searchCell(cell, latitude, longitude, radiusMeters, result, excludeId);
+                    if (match != NONE) {
+                        return match;
+                    }
+                }
+            }
+            return NONE;
+        }
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (long column = firstColumn; column <= lastColumn; column++) {
+                int cell = cellTable.get((long) row * columns + Math.floorMod(column, (long) columns), NONE);
+                if (cell != NONE) {
+                    int match = searchCell(cell, latitude, longitude, radiusMeters, result, excludeId);
+                    if (match != NONE) {
+                        return match;
+                    }
+                }
+            }
+        }
+        return NONE;
+    }
+
+    /**
+     * Check every position in one non-empty cell against a query.
+     *
+     * @param cell the cell
+     * @param latitude the latitude of the point
+     * @param longitude the longitude of the point
+     * @param radiusMeters the distance, in meters
+     * @param result list to append matches to, or null to stop at the first match
+     * @param excludeId an id to ignore, or NONE
+     * @return the first match found if result is null, otherwise NONE
+     */
+    private int searchCell(final int cell, final double latitude, final double longitude,
+                           final double radiusMeters, final IntList result, final int excludeId) {
+        for (int id = cellHeads[cell]; id != NONE; id = next[id]) {
+            if (id != excludeId
+                && GeoMath.haversine(latitude, longitude, latitudes[id], longitudes[id]) <= radiusMeters) {
+                if (result == null) {
+                    return id;
+                }
+                result.add(id);
+            }
+        }
+        return NONE;
+    }
+
+    /**
+     * Return the oldest position still stored in the cell containing a point.
+     *
+     * @param latitude the latitude of the point
+     * @param longitude the longitude of the point
+     * @return the id of the earliest inserted position in the same cell, or -1 if the cell is empty
+     */
+    public int oldestInCell(final double latitude, final double longitude) {
+        int cell = cellTable.get(cellOf(latitude, longitude), NONE);
+        if (cell == NONE) {
+            return NONE;
+        }
+        return cellHeads[cell];
+    }
+
+    /**
+     * Return the newest position stored in the cell containing a point.
+     *
+     * @param latitude the latitude of the point
+     * @param longitude the longitude of the point
+     * @return the id of the most recently inserted position in the same cell, or -1 if the cell is empty
+     */
+    public int newestInCell(final double latitude, final double longitude) {
+        int cell = cellTable.get(cellOf(latitude, longitude), NONE);
+        if (cell == NONE) {
+            return NONE;
+        }
+        return cellTails[cell];
+    }
+
+    /**
+     * Return the row of cells containing a latitude, clamped to the grid.
+     *
+     * @param latitude the latitude
+     * @return the row number
+     */
+    private int row(final double latitude) {
+        double row = Math.floor((latitude - Locator.MIN_LATITUDE) / cellDegrees);
+        return (int) Math.max(0, Math.min(rows - 1, row));
+    }
+
+    /**
+     * Return the number of the cell containing a position.
+     *
+     * @param latitude the latitude of the position
+     * @param longitude the longitude of the position
+     * @return the cell number
+     */
+    private long cellOf(final double latitude, final double longitude) {
+        long column = (long) Math.floor((longitude - Locator.MIN_LONGITUDE) / cellDegrees);
+        return (long) row(latitude) * columns + Math.floorMod(column, (long) columns);
+    }
+
+    /**
+     * Start a new empty cell.
+     *
+     * @param key the cell number
+     * @return the new cell
+     */
+    private int addCell(final long key) {
+        int cell = cellCount;
+        if (cell == cellKeys.length) {
+            cellKeys = Arrays.copyOf(cellKeys, cell * 2);
+            cellHeads = Arrays.copyOf(cellHeads, cell * 2);
+            cellTails = Arrays.copyOf(cellTails, cell * 2);
+            cellSizes = Arrays.copyOf(cellSizes, cell * 2);
+        }
+        cellKeys[cell] = key;
+        cellSizes[cell] = 0;
+        cellTable.put(key, cell);
+        cellCount++;
+        return cell;
+    }
+
+    /**
+     * Forget a cell that has just become empty, moving the last cell into its number so that cells stay dense.
+     *
+     * @param cell the empty cell
+     */
+    private void deleteCell(final int cell) {
+        cellTable.remove(cellKeys[cell], NONE);
+        cellCount--;
+        if (cell != cellCount) {
+            cellKeys[cell] = cellKeys[cellCount];
+            cellHeads[cell] = cellHeads[cellCount];
+            cellTails[cell] = cellTails[cellCount];
+            cellSizes[cell] = cellSizes[cellCount];
+            cellTable.put(cellKeys[cell], cell);
+        }
+    }
+
+    /**
+     * Remove every position from the index.
+     */
+    public void clear() {
+        Arrays.fill(present, false);
+        cellTable.clear();
+        size = 0;
+        cellCount = 0;
+    }
+}
@@ -0,0 +1,113 @@
+package edu.illinois.cs.cs125.spring2019.mp0.lib;
+
+/**
+ * Helper functions for working with positions and distances on the surface of the Earth.
+ * <p>
+ * The MP0 app mostly works in decimal degrees, which translate to different physical distances depending on where you
+ * are on the globe. When we need real distances we use the haversine formula, which treats the Earth as a sphere.
+ * That is accurate to within about half a percent, which is plenty for our purposes.
+ */
+public final class GeoMath {
+
+    /** Mean radius of the Earth, in meters. */
+    public static final double EARTH_RADIUS_METERS = 6371008.8;
+
+    /** Meters per degree of latitude, or per degree along any great circle. */
+    public static final double METERS_PER_DEGREE = Math.toRadians(EARTH_RADIUS_METERS);
+
+    /** Private constructor: this class only contains static helpers. */
+    private GeoMath() { }
+
+    /**
+     * Compute the great-circle distance between two positions using the haversine formula.
+     *
+     * @param latitude1 latitude of the first position
+     * @param longitude1 longitude of the first position
+     * @param latitude2 latitude of the second position
+     * @param longitude2 longitude of the second position
+     * @return the distance between the two positions, in meters
+     */
+    public static double haversine(final double latitude1, final double longitude1,
+                                   final double latitude2, final double longitude2) {
+        double phi1 = Math.toRadians(latitude1);
+        double phi2 = Math.toRadians(latitude2);
+        double sinHalfLatitude = Math.sin((phi2 - phi1) / 2);
+        double sinHalfLongitude = Math.sin(Math.toRadians(longitude2 - longitude1) / 2);
+        double a = sinHalfLatitude * sinHalfLatitude
+            + Math.cos(phi1) * Math.cos(phi2) * sinHalfLongitude * sinHalfLongitude;
+        return 2 * EARTH_RADIUS_METERS * Math.asin(Math.sqrt(Math.min(1.0, a)));
+    }
+
+    /**
+     * Convert a distance along the surface of the Earth to the angle it covers, in degrees.
+     * <p>
+     * This is also the largest possible change in latitude when moving that distance.
+     *
+     * @param meters the distance, in meters
+     * @return the angle, in degrees
+     */
+    public static double metersToDegrees(final double meters) {
+        return Math.toDegrees(meters / EARTH_RADIUS_METERS);
+    }
+
+    /**
+     * Return the largest change in longitude possible when moving a distance from a latitude.
+     *
+     * @param latitude the starting latitude
+     * @param meters the distance, in meters
+     * @return the largest change in longitude, in degrees, or 180 if the distance can reach a pole or wrap around
+     */
+    public static double longitudeSpan(final double latitude, final double meters) {
+        double angle = meters / EARTH_RADIUS_METERS;
+        double maxLongitude = Locator.MAX_LONGITUDE;
+        if (angle >= Math.PI / 2) {
+            return maxLongitude;
+        }
+        double ratio = Math.sin(angle) / Math.cos(Math.toRadians(latitude));
+        if (!(ratio < 1.0)) {
+            return maxLongitude;
+        }
+        return Math.toDegrees(Math.asin(ratio));
+    }
+
+    /**
+     * Return whether a position is valid: both coordinates are numbers within the ranges Locator allows.
+     *
+     * @param latitude the latitude of the position
+     * @param longitude the longitude of the position
+     * @return true if both coordinates are in range
+     */
+    public static boolean isValidPosition(final double latitude, final double longitude) {
+        return latitude >= Locator.MIN_LATITUDE && latitude <= Locator.MAX_LATITUDE
+            && longitude >= Locator.MIN_LONGITUDE && longitude <= Locator.MAX_LONGITUDE;
+    }
+
+    /**
+     * Check that a position is valid.
+     *
+     * @param latitude the latitude of the position
+     * @param longitude the longitude of the position
+     * @throws IllegalArgumentException if it is not
+     */
+    public static void checkPosition(final double latitude, final double longitude) {
+        if (!isValidPosition(latitude, longitude)) {
+            throw new IllegalArgumentException("invalid position: " + latitude + ", " + longitude);
+        }
+    }
+
+    /**
+     * Bring a longitude or longitude difference back into the range -180 to 180.
+     *
+     * @param value the longitude, at most one full circle out of range
+     * @return the same direction, between -180 and 180
+     */
+    public static double wrapLongitude(final double value) {
+        double fullCircle = Locator.MAX_LONGITUDE - Locator.MIN_LONGITUDE;
+        if (value > Locator.MAX_LONGITUDE) {
+            return value - fullCircle;
+        } else if (value < Locator.MIN_LONGITUDE) {
+            return value + fullCircle;
+        }
+        return value;
+    }
+}
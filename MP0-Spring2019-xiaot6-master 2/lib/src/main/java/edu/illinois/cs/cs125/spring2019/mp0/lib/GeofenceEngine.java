@@ -0,0 +1,411 @@
+package edu.illinois.cs.cs125.spring2019.mp0.lib;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Finds which of many polygonal geofences contain a position, and reports when a moving device enters or leaves them.
+ * <p>
+ * Testing a position against every fence costs time proportional to the number of fences. Instead, the engine lays a
+ * uniform grid over the globe and records, for each cell, which fences' bounding boxes overlap it. A position is then
+ * only tested against the fences listed for its own cell: first against their bounding boxes, and then with a ray
+ * casting point-in-polygon test. The cell lists are stored in compressed form, as one sorted array of cell numbers,
+ * one array of offsets, and one array of fence ids, so lookups do not allocate and the index stays compact.
+ * <p>
+ * Fences are polygons given as arrays of vertex latitudes and longitudes, treated as straight lines in the
+ * latitude-longitude plane. They must not cross the antimeridian. Points exactly on a fence's edge may be reported as
+ * either inside or outside.
+ * <p>
+ * The index is rebuilt the first time the engine is queried after a fence is added. Once built it is never changed,
+ * so any number of threads can query the engine at once, each with its own Tracker.
+ */
+public final class GeofenceEngine {
+
+    /** Default size of each grid cell, in degrees. */
+    public static final double DEFAULT_CELL_DEGREES = 0.01;
+
+    /** Fewest vertices a fence can have. */
+    private static final int MIN_VERTICES = 3;
+
+    /** Bits used by the fence id in each packed cell and fence pair. */
+    private static final int FENCE_BITS = 32;
+
+    /** Mask selecting the fence id from a packed cell and fence pair. */
+    private static final long FENCE_MASK = 0xFFFFFFFFL;
+
+    /** Size of each cell, in degrees. */
+    private final double cellDegrees;
+
+    /** Number of rows of cells. */
+    private final int rows;
+
+    /** Number of columns of cells. */
+    private final int columns;
+
+    /** Vertex latitudes of each fence. */
+    private final List<double[]> fenceLatitudes = new ArrayList<>();
+
+    /** Vertex longitudes of each fence. */
+    private final List<double[]> fenceLongitudes = new ArrayList<>();
+
+    /** The current index, or null if a fence has been added since it was built. */
+    private volatile Index index = null;
+
+    /**
+     * Create a new engine with no fences and the default cell size.
+     */
+    public GeofenceEngine() {
+        this(DEFAULT_CELL_DEGREES);
+    }
+
+    /**
+     * Create a new engine with no fences.
+     * <p>
+     * Cells about the size of a typical fence work best.
+     *
+     * @param requestedCellDegrees the approximate size of each cell, in degrees
+     */
+    public GeofenceEngine(final double requestedCellDegrees) {
+        if (!(requestedCellDegrees > 0)) {
+            throw new IllegalArgumentException("cell size must be positive");
+        }
+        double fullCircle = Locator.MAX_LONGITUDE - Locator.MIN_LONGITUDE;
+        double halfCircle = Locator.MAX_LATITUDE - Locator.MIN_LATITUDE;
+        double requestedColumns = Math.ceil(fullCircle / requestedCellDegrees);
+        if (requestedColumns * Math.ceil(halfCircle / (fullCircle / requestedColumns)) > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("cell size is too small: " + requestedCellDegrees);
+        }
+        columns = (int) requestedColumns;
+        cellDegrees = fullCircle / columns;
+        rows = (int) Math.ceil(halfCircle / cellDegrees);
+    }
+
+    /**
+     * Add a fence.
+     *
+     * @param latitudes the latitudes of the fence's vertices, in order around the polygon
+     * @param longitudes the longitudes of the fence's vertices
+     * @return the id of the new fence, counting up from 0
+     * @throws IllegalArgumentException if there are fewer than three vertices or a vertex is not valid
+     */
+    public synchronized int addFence(final double[] latitudes, final double[] longitudes) {
+        if (latitudes.length != longitudes.length || latitudes.length < MIN_VERTICES) {
+            throw new IllegalArgumentException("a fence needs matching arrays of at least three vertices");
+        }
+        for (int i = 0; i < latitudes.length; i++) {
+            if (!GeoMath.isValidPosition(latitudes[i], longitudes[i])) {
+                throw new IllegalArgumentException("invalid vertex: " + latitudes[i] + ", " + longitudes[i]);
+            }
+        }
+        fenceLatitudes.add(latitudes.clone());
+        fenceLongitudes.add(longitudes.clone());
+        index = null;
+        return fenceLatitudes.size() - 1;
+    }
+
+    /**
+     * Return the number of fences.
+     *
+     * @return the number of fences added so far
+     */
+    public synchronized int fenceCount() {
+        return fenceLatitudes.size();
+    }
+
+    /**
+     * Find every fence containing a position.
+     *
+     * @param latitude the latitude of the position
+     * @param longitude the longitude of the position
+     * @param result list to append the ids of the containing fences to, in increasing order
+     * @return the number of ids appended
+     */
+    public int containing(final double latitude, final double longitude, final IntList result) {
+        return currentIndex().containing(latitude, longitude, result);
+    }
+
+    /**
+     * Return the index, building it if needed.
+     *
+     * @return an up-to-date index
+     */
+    private Index currentIndex() {
+        Index current = index;
+        if (current == null) {
+            synchronized (this) {
+                current = index;
+                if (current == null) {
+                    current = new Index();
+                    index = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Return the row of cells containing a latitude, clamped to the grid.
+     *
+     * @param latitude the latitude
+     * @return the row number
+     */
+    private int row(final double latitude) {
+        double row = Math.floor((latitude - Locator.MIN_LATITUDE) / cellDegrees);
+        return (int) Math.max(0, Math.min(rows - 1, row));
+    }
+
+    /**
+     * Return the column of cells containing a longitude, clamped to the grid.
+     *
+     * @param longitude the longitude
+     * @return the column number
+     */
+    private int column(final double longitude) {
+        double column = Math.floor((longitude - Locator.MIN_LONGITUDE) / cellDegrees);
+        return (int) Math.max(0, Math.min(columns - 1, column));
+    }
+
+    /**
+     * Test whether a point lies inside a polygon by counting how many edges a ray from it crosses.
+     *
+     * @param latitudes the latitudes of the polygon's vertices
+     * @param longitudes the longitudes of the polygon's vertices
+     * @param latitude the latitude of the point
+     * @param longitude the longitude of the point
+     * @return true if the ray crosses an odd number of edges
+     */
+    private static boolean inside(final double[] latitudes, final double[] longitudes,
+                                  final double latitude, final double longitude) {
+        boolean inside = false;
+        for (int i = 0, j = latitudes.length - 1; i < latitudes.length; j = i++) {
+            if ((latitudes[i] > latitude) != (latitudes[j] > latitude)
+                && longitude < (longitudes[j] - longitudes[i]) * (latitude - latitudes[i])
+                / (latitudes[j] - latitudes[i]) + longitudes[i]) {
+                inside = !inside;
+            }
+        }
+        return inside;
+    }
+
+    /**
+     * Create a tracker that follows one device through the fences.
+     *
+     * @return a new tracker whose device starts out inside no fences
+     */
+    public Tracker newTracker() {
+        return new Tracker();
+    }
+
+    /**
+     * Receives enter and exit events from a Tracker.
+     */
+    public interface Listener {
+        /**
+         * Called when a device moves into a fence.
+         *
+         * @param fence the id of the fence
+         * @param latitude the latitude of the position inside the fence
+         * @param longitude the longitude of the position inside the fence
+         */
+        void onEnter(int fence, double latitude, double longitude);
+
+        /**
+         * Called when a device moves out of a fence.
+         *
+         * @param fence the id of the fence
+         * @param latitude the latitude of the position outside the fence
+         * @param longitude the longitude of the position outside the fence
+         */
+        void onExit(int fence, double latitude, double longitude);
+    }
+
+    /**
+     * Follows one device, remembering which fences its previous position was inside.
+     * <p>
+     * A tracker is not safe to share between threads, but separate trackers can be used from separate threads.
+     */
+    public final class Tracker {
+
+        /** Fences containing the previous position, in increasing order. */
+        private IntList inside = new IntList();
+
+        /** Fences containing the new position, in increasing order. */
+        private IntList next = new IntList();
+
+        /** Create a tracker whose device starts out inside no fences. */
+        private Tracker() { }
+
+        /**
+         * Move the device to a new position and report the fences it entered and left.
+         * <p>
+         * Events are reported in increasing order of fence id.
+         *
+         * @param latitude the latitude of the new position
+         * @param longitude the longitude of the new position
+         * @param listener the listener to report events to
+         */
+        public void update(final double latitude, final double longitude, final Listener listener) {
+            next.clear();
+            containing(latitude, longitude, next);
+            int i = 0;
+            int j = 0;
+            while (i < inside.size() || j < next.size()) {
+                int before = Integer.MAX_VALUE;
+                if (i < inside.size()) {
+                    before = inside.get(i);
+                }
+                int after = Integer.MAX_VALUE;
+                if (j < next.size()) {
+                    after = next.get(j);
+                }
+                if (before == after) {
+                    i++;
+                    j++;
+                } else if (before < after) {
+                    listener.onExit(before, latitude, longitude);
+                    i++;
+                } else {
+                    listener.onEnter(after, latitude, longitude);
+                    j++;
+                }
+            }
+            IntList swap = inside;
+            inside = next;
+            next = swap;
+        }
+
+        /**
+         * Return the fences containing the device's most recent position.
+         *
+         * @return a new array of fence ids in increasing order
+         */
+        public int[] getInside() {
+            return inside.toArray();
+        }
+    }
+
+    /**
+     * An immutable grid index over the fences that existed when it was built.
+     */
+    private final class Index {
+
+        /** Vertex latitudes of each fence. */
+        private final double[][] latitudes;
+
+        /** Vertex longitudes of each fence. */
+        private final double[][] longitudes;
+
+        /** Bounding box of each fence: minimum latitude, maximum latitude, minimum longitude, maximum longitude. */
+        private final double[] boxes;
+
+        /** Numbers of the non-empty cells, in increasing order. */
+        private final long[] cells;
+
+        /** Offset of each cell's first fence in the fences array, plus a final offset marking the end. */
+        private final int[] starts;
+
+        /** Fence ids overlapping each cell, grouped by cell and in increasing order within each cell. */
+        private final int[] fences;
+
+        /**
+         * Build an index over the current fences. Must be called while holding the engine's lock.
+         */
+        Index() {
+            int count = fenceLatitudes.size();
+            latitudes = fenceLatitudes.toArray(new double[count][]);
+            longitudes = fenceLongitudes.toArray(new double[count][]);
+            boxes = new double[count * Locator.DIRECTIONS];
+
+            long pairCount = 0;
+            for (int fence = 0; fence < count; fence++) {
+                double minLatitude = Locator.MAX_LATITUDE;
+                double maxLatitude = Locator.MIN_LATITUDE;
+                double minLongitude = Locator.MAX_LONGITUDE;
+                double maxLongitude = Locator.MIN_LONGITUDE;
+                for (int i = 0; i < latitudes[fence].length; i++) {
+                    minLatitude = Math.min(minLatitude, latitudes[fence][i]);
+                    maxLatitude = Math.max(maxLatitude, latitudes[fence][i]);
+                    minLongitude = Math.min(minLongitude, longitudes[fence][i]);
+                    maxLongitude = Math.max(maxLongitude, longitudes[fence][i]);
+                }
+                int box = fence * Locator.DIRECTIONS;
+                boxes[box + Locator.SOUTH] = minLatitude;
+                boxes[box + Locator.NORTH] = maxLatitude;
+                boxes[box + Locator.WEST] = minLongitude;
+                boxes[box + Locator.EAST] = maxLongitude;
+                pairCount += (long) (row(maxLatitude) - row(minLatitude) + 1)
+                    * (column(maxLongitude) - column(minLongitude) + 1);
+            }
+            if (pairCount > Integer.MAX_VALUE) {
+                throw new IllegalStateException("fences cover too many cells; use a larger cell size");
+            }
+
+            // Pack each cell and fence pair into one long so a single sort groups fences by cell
+            long[] pairs = new long[(int) pairCount];
+            int pair = 0;
+            for (int fence = 0; fence < count; fence++) {
+                int box = fence * Locator.DIRECTIONS;
+                int lastRow = row(boxes[box + Locator.NORTH]);
+                int firstColumn = column(boxes[box + Locator.WEST]);
+                int lastColumn = column(boxes[box + Locator.EAST]);
+                for (int row = row(boxes[box + Locator.SOUTH]); row <= lastRow; row++) {
+                    for (int column = firstColumn; column <= lastColumn; column++) {
+                        pairs[pair++] = ((long) row * columns + column) << FENCE_BITS | fence;
+                    }
+                }
+            }
+            Arrays.sort(pairs);
+
+            int cellCount = 0;
+            for (int i = 0; i < pairs.length; i++) {
+                if (i == 0 || pairs[i] >>> FENCE_BITS != pairs[i - 1] >>> FENCE_BITS) {
+                    cellCount++;
+                }
+            }
+            cells = new long[cellCount];
+            starts = new int[cellCount + 1];
+            fences = new int[pairs.length];
+            int cell = -1;
+            for (int i = 0; i < pairs.length; i++) {
+                long key = pairs[i] >>> FENCE_BITS;
+                if (cell == -1 || key != cells[cell]) {
+                    cell++;
+                    cells[cell] = key;
+                    starts[cell] = i;
+                }
+                fences[i] = (int) (pairs[i] & FENCE_MASK);
+            }
+            starts[cellCount] = pairs.length;
+        }
+
+        /**
+         * Find every fence containing a position.
+         *
+         * @param latitude the latitude of the position
+         * @param longitude the longitude of the position
+         * @param result list to append the ids of the containing fences to, in increasing order
+         * @return the number of ids appended
+         */
+        int containing(final double latitude, final double longitude, final IntList result) {
+            if (!GeoMath.isValidPosition(latitude, longitude)) {
+                return 0;
+            }
+            int cell = Arrays.binarySearch(cells, (long) row(latitude) * columns + column(longitude));
+            if (cell < 0) {
+                return 0;
+            }
+            int before = result.size();
+            for (int i = starts[cell]; i < starts[cell + 1]; i++) {
+                int fence = fences[i];
+                int box = fence * Locator.DIRECTIONS;
+                if (latitude >= boxes[box + Locator.SOUTH] && latitude <= boxes[box + Locator.NORTH]
+                    && longitude >= boxes[box + Locator.WEST] && longitude <= boxes[box + Locator.EAST]
+                    && inside(latitudes[fence], longitudes[fence], latitude, longitude)) {
+                    result.add(fence);
+                }
+            }
+            return result.size() - before;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package edu.illinois.cs.cs125.spring2019.mp0.lib;
+
+import java.util.Arrays;
+
+/**
+ * A growable list of ints.
+ * <p>
+ * Queries that return a variable number of indices append them to one of these. Callers that run many queries can
+ * clear and reuse the same list, so that once it has grown large enough queries don't allocate at all.
+ */
+public final class IntList {
+
+    /** Number of values to make room for when no size hint is given. */
+    private static final int DEFAULT_CAPACITY = 16;
+
+    /** Storage for the values. */
+    private int[] values;
+
+    /** Number of values in the list. */
+    private int size = 0;
+
+    /**
+     * Create a new empty list.
+     */
+    public IntList() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Create a new empty list with room for a number of values.
+     *
+     * @param capacity the number of values to make room for
+     */
+    public IntList(final int capacity) {
+        values = new int[Math.max(capacity, 1)];
+    }
+
+    /**
+     * Append a value to the end of the list.
+     *
+     * @param value the value to append
+     */
+    public void add(final int value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, values.length * 2);
+        }
+        values[size++] = value;
+    }
+
+    /**
+     * Return the value at a position in the list.
+     *
+     * @param position the position to read
+     * @return the value at that position
+     */
+    public int get(final int position) {
+        if (position < 0 || position >= size) {
+            throw new IndexOutOfBoundsException("position " + position + " of " + size);
+        }
+        return values[position];
+    }
+
+    /**
+     * Return the number of values in the list.
+     *
+     * @return the number of values
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Remove every value from the list, keeping its storage.
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Sort the values in the list in ascending order.
+     */
+    public void sort() {
+        Arrays.sort(values, 0, size);
+    }
+
+    /**
+     * Copy the values in the list to a new array.
+     *
+     * @return an array containing the values in order
+     */
+    public int[] toArray() {
+        return Arrays.copyOf(values, size);
+    }
+}
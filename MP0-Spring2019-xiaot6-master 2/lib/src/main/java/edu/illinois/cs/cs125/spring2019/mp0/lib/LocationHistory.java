@@ -0,0 +1,417 @@
+package edu.illinois.cs.cs125.spring2019.mp0.lib;
+
+import java.util.Arrays;
+
+/**
+ * A fixed-size ring of location measurements that keeps its extremes up to date as new measurements arrive.
+ * <p>
+ * Measurements are stored using the same three arrays used by the Locator helpers: latitudes, longitudes, and an
+ * array of booleans indicating which slots are valid. Each new measurement overwrites the oldest one once the ring is
+ * full.
+ * <p>
+ * Rather than scanning the whole ring each time we want the position furthest north, south, east, or west, we keep
+ * one small tournament tree per direction. Each leaf of a tree holds a slot index (or -1 if the slot cannot win) and
+ * each inner node holds the better of its two children. Adding a measurement only replays the matches on the path
+ * from its leaf to the root, so an update costs O(log n) and reading an extreme costs O(1).
+ * <p>
+ * We also keep a CoordinateIndex of every valid measurement, so checking whether we've been somewhere before is
+ * an O(1) lookup rather than a scan of the ring, and marking every repeated location is O(n) rather than O(n^2).
+ * Each measurement is tagged with its slot in that index, which lets every add also report the other slot, if any,
+ * whose beenHere result it changed.
+ * <p>
+ * Ties and invalid values are handled exactly like Locator.farthestNorth: the lowest index wins, not the oldest
+ * measurement, and a value sitting on the far boundary (a latitude of exactly -90.0 when looking north, for example)
+ * never wins.
+ *
+ * @see Locator#farthestNorth(double[], double[], boolean[])
+ */
+public final class LocationHistory {
+
+    /** Tree index for the position furthest north. */
+    private static final int NORTH = Locator.NORTH;
+
+    /** Tree index for the position furthest south. */
+    private static final int SOUTH = Locator.SOUTH;
+
+    /** Tree index for the position furthest east. */
+    private static final int EAST = Locator.EAST;
+
+    /** Tree index for the position furthest west. */
+    private static final int WEST = Locator.WEST;
+
+    /** Number of directions we track. */
+    private static final int DIRECTIONS = Locator.DIRECTIONS;
+
+    /** Array of latitude measurements. */
+    private final double[] latitudes;
+
+    /** Array of longitude measurements. */
+    private final double[] longitudes;
+
+    /** Array to save whether the location at an index is valid or not. */
+    private final boolean[] validLocations;
+
+    /**
+     * Tournament trees, one per direction.
+     * <p>
+     * Each tree uses the usual implicit layout: the leaf for slot i is stored at capacity + i and the children of
+     * node j are stored at 2j and 2j + 1, so the root is at 1. Because the comparison is a total order on (value,
+     * index) pairs the tree does not need to be padded to a power of two.
+     */
+    private final int[][] trees;
+
+    /** Counts of each valid coordinate pair currently in the ring. */
+    private final CoordinateIndex coordinates;
+
+    /** Index of the most recent measurement, or -1 if we haven't received any yet. */
+    private int currentIndex = -1;
+
+    /** Number of valid measurements currently stored. */
+    private int size = 0;
+
+    /** Number of measurements added since the history was created. */
+    private long addCount = 0;
+
+    /** Slot that stopped being a repeat because of the most recent add, or -1. */
+    private int lostRepeat = -1;
+
+    /** Slot that became a repeat because of the most recent add, or -1. */
+    private int gainedRepeat = -1;
+
+    /**
+     * Create a new empty location history.
+     *
+     * @param capacity the number of measurements to keep before overwriting the oldest one
+     */
+    public LocationHistory(final int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        latitudes = new double[capacity];
+        longitudes = new double[capacity];
+        validLocations = new boolean[capacity];
+        trees = new int[DIRECTIONS][2 * capacity];
+        coordinates = new CoordinateIndex(capacity);
+        for (int[] tree : trees) {
+            Arrays.fill(tree, -1);
+        }
+    }
+
+    /**
+     * Add a new measurement to the ring, overwriting the oldest one if the ring is full.
+     *
+     * @param latitude latitude of the new location
+     * @param longitude longitude of the new location
+     * @return the index that the new measurement was stored at
+     */
+    public int add(final double latitude, final double longitude) {
+        currentIndex = (currentIndex + 1) % latitudes.length;
+        lostRepeat = -1;
+        if (validLocations[currentIndex]) {
+            double oldLatitude = latitudes[currentIndex];
+            double oldLongitude = longitudes[currentIndex];
+            if (coordinates.remove(oldLatitude, oldLongitude, currentIndex) == 1) {
+                lostRepeat = coordinates.soleTag(oldLatitude, oldLongitude);
+            }
+        } else {
+            size++;
+        }
+        gainedRepeat = coordinates.soleTag(latitude, longitude);
+        if (gainedRepeat == lostRepeat) {
+            // The new measurement replaced one at the same spot, so the other slot is still a repeat
+            gainedRepeat = -1;
+            lostRepeat = -1;
+        }
+        coordinates.add(latitude, longitude, currentIndex);
+        addCount++;
+        latitudes[currentIndex] = latitude;
+        longitudes[currentIndex] = longitude;
+        validLocations[currentIndex] = true;
+        updateTrees(currentIndex);
+        return currentIndex;
+    }
+
+    /**
+     * Replay the matches on the path from a slot's leaf to the root of each tree.
+     *
+     * @param index the slot that changed
+     */
+    private void updateTrees(final int index) {
+        int capacity = latitudes.length;
+        int node = capacity + index;
+        for (int direction = 0; direction < DIRECTIONS; direction++) {
+            int leaf = -1;
+            if (validLocations[index] && canWin(direction, index)) {
+                leaf = index;
+            }
+            trees[direction][node] = leaf;
+        }
+        for (int parent = node / 2; parent >= 1; parent /= 2) {
+            for (int direction = 0; direction < DIRECTIONS; direction++) {
+                int[] tree = trees[direction];
+                tree[parent] = better(direction, tree[2 * parent], tree[2 * parent + 1]);
+            }
+        }
+    }
+
+    /**
+     * Whether a valid slot can be chosen at all for a direction.
+     * <p>
+     * Mirrors the strict comparison against the starting boundary in Locator.farthestNorth, which also rules out NaN.
+     *
+     * @param direction the direction being tracked
+     * @param index the slot to check
+     * @return true if the slot may be returned as an extreme
+     */
+    private boolean canWin(final int direction, final int index) {
+        switch (direction) {
+            case NORTH:
+                return latitudes[index] > Locator.MIN_LATITUDE;
+            case SOUTH:
+                return latitudes[index] < Locator.MAX_LATITUDE;
+            case EAST:
+                return longitudes[index] > Locator.MIN_LONGITUDE;
+            case WEST:
+                return longitudes[index] < Locator.MAX_LONGITUDE;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Play one match: return whichever of two slots is further in the given direction.
+     *
+     * @param direction the direction being tracked
+     * @param first the first slot, or -1
+     * @param second the second slot, or -1
+     * @return the winning slot, preferring the lower index on ties, or -1 if neither can win
+     */
+    private int better(final int direction, final int first, final int second) {
+        if (first == -1) {
+            return second;
+        } else if (second == -1) {
+            return first;
+        }
+        double firstValue = score(direction, first);
+        double secondValue = score(direction, second);
+        if (firstValue > secondValue || (firstValue == secondValue && first < second)) {
+            return first;
+        }
+        return second;
+    }
+
+    /**
+     * Return a value that is larger the further a slot lies in the given direction.
+     *
+     * @param direction the direction being tracked
+     * @param index the slot to score
+     * @return the slot's latitude or longitude, negated for south and west
+     */
+    private double score(final int direction, final int index) {
+        switch (direction) {
+            case NORTH:
+                return latitudes[index];
+            case SOUTH:
+                return -latitudes[index];
+            case EAST:
+                return longitudes[index];
+            default:
+                return -longitudes[index];
+        }
+    }
+
+    /**
+     * Return the index of the valid measurement furthest north.
+     *
+     * @return the same index Locator.farthestNorth would return for the backing arrays, or -1 if there is none
+     */
+    public int farthestNorth() {
+        return trees[NORTH][1];
+    }
+
+    /**
+     * Return the index of the valid measurement furthest south.
+     *
+     * @return the index of the lowest latitude, preferring the lowest index on ties, or -1 if there is none
+     */
+    public int farthestSouth() {
+        return trees[SOUTH][1];
+    }
+
+    /**
+     * Return the index of the valid measurement furthest east.
+     *
+     * @return the index of the highest longitude, preferring the lowest index on ties, or -1 if there is none
+     */
+    public int farthestEast() {
+        return trees[EAST][1];
+    }
+
+    /**
+     * Return the index of the valid measurement furthest west.
+     *
+     * @return the index of the lowest longitude, preferring the lowest index on ties, or -1 if there is none
+     */
+    public int farthestWest() {
+        return trees[WEST][1];
+    }
+
+    /**
+     * Determine whether another valid measurement in the ring is at exactly the same spot as the one at an index.
+     *
+     * @param index the index of the measurement to compare against
+     * @return the same result Locator.beenHere would return for the backing arrays
+     */
+    public boolean beenHere(final int index) {
+        int others = coordinates.count(latitudes[index], longitudes[index]);
+        if (validLocations[index]) {
+            others--;
+        }
+        return others > 0;
+    }
+
+    /**
+     * Return the slot, other than the current one, that stopped being a repeat because of the most recent add.
+     * <p>
+     * This happens when the overwritten measurement shared its spot with exactly one other measurement.
+     *
+     * @return the slot whose beenHere result changed from true to false, or -1 if there is none
+     */
+    public int getLostRepeat() {
+        return lostRepeat;
+    }
+
+    /**
+     * Return the slot, other than the current one, that became a repeat because of the most recent add.
+     * <p>
+     * This happens when the new measurement is at the same spot as exactly one other measurement.
+     *
+     * @return the slot whose beenHere result changed from false to true, or -1 if there is none
+     */
+    public int getGainedRepeat() {
+        return gainedRepeat;
+    }
+
+    /**
+     * Return the number of measurements added since the history was created.
+     * <p>
+     * Callers that follow changes one add at a time can use this to tell whether they missed any.
+     *
+     * @return the number of calls to add so far
+     */
+    public long getAddCount() {
+        return addCount;
+    }
+
+    /**
+     * Determine for every index whether we've been there before, in a single pass over the ring.
+     *
+     * @return an array holding beenHere(i) at each index i
+     */
+    public boolean[] beenHereAll() {
+        return beenHereAll(new boolean[latitudes.length]);
+    }
+
+    /**
+     * Determine for every index whether we've been there before, writing into an existing array.
+     *
+     * @param result an array at least as long as the capacity of the ring to store the results in
+     * @return the passed array, holding beenHere(i) at each index i
+     */
+    public boolean[] beenHereAll(final boolean[] result) {
+        for (int i = 0; i < latitudes.length; i++) {
+            result[i] = beenHere(i);
+        }
+        return result;
+    }
+
+    /**
+     * Return the number of measurements the ring can hold.
+     *
+     * @return the capacity of the ring
+     */
+    public int getCapacity() {
+        return latitudes.length;
+    }
+
+    /**
+     * Return the number of valid measurements currently stored.
+     *
+     * @return the number of valid measurements
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Return the index of the most recent measurement.
+     *
+     * @return the index of the most recent measurement, or -1 if we haven't received any yet
+     */
+    public int getCurrentIndex() {
+        return currentIndex;
+    }
+
+    /**
+     * Return the latitude stored at an index.
+     *
+     * @param index the index to read
+     * @return the latitude stored at that index
+     */
+    public double getLatitude(final int index) {
+        return latitudes[index];
+    }
+
+    /**
+     * Return the longitude stored at an index.
+     *
+     * @param index the index to read
+     * @return the longitude stored at that index
+     */
+    public double getLongitude(final int index) {
+        return longitudes[index];
+    }
+
+    /**
+     * Return whether the measurement at an index is valid.
+     *
+     * @param index the index to read
+     * @return true if the index holds a valid measurement
+     */
+    public boolean isValid(final int index) {
+        return validLocations[index];
+    }
+
+    /**
+     * Return the backing array of latitudes, for use with the Locator helpers.
+     * <p>
+     * The array is shared with this history and must not be modified.
+     *
+     * @return the array of latitude measurements
+     */
+    public double[] getLatitudes() {
+        return latitudes;
+    }
+
+    /**
+     * Return the backing array of longitudes, for use with the Locator helpers.
+     * <p>
+     * The array is shared with this history and must not be modified.
+     *
+     * @return the array of longitude measurements
+     */
+    public double[] getLongitudes() {
+        return longitudes;
+    }
+
+    /**
+     * Return the backing array of validity flags, for use with the Locator helpers.
+     * <p>
+     * The array is shared with this history and must not be modified.
+     *
+     * @return the array of validity flags
+     */
+    public boolean[] getValidLocations() {
+        return validLocations;
+    }
+}
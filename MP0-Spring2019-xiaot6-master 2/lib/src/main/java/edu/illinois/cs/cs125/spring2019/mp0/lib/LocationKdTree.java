@@ -0,0 +1,432 @@
+package edu.illinois.cs.cs125.spring2019.mp0.lib;
+
+/**
+ * A static two-dimensional k-d tree over a location history, for nearest-neighbour and map viewport queries.
+ * <p>
+ * The tree is bulk-loaded from the same latitude, longitude, and validity arrays used by the Locator helpers. Only
+ * valid positions are included. Rather than allocating a node object per position, the tree is stored implicitly: the
+ * positions are reordered so that for any range of the arrays the median element sits in the middle, everything before
+ * it is on one side of its splitting line, and everything after it is on the other. Ranges alternate between splitting
+ * on latitude and splitting on longitude at each level. That needs only three primitive arrays.
+ * <p>
+ * The tree does not change as new positions arrive. Instead call rebuild periodically; it reuses the existing storage
+ * when possible. Building takes O(n log n) time.
+ * <p>
+ * Nearest-neighbour distances use the haversine formula. Subtrees are skipped using lower bounds on the distance to
+ * anything on the far side of a splitting line, which account for wrapping around the antimeridian, so results are
+ * exact.
+ * <p>
+ * Queries keep their working state inside the tree, so a tree should only be queried by one thread at a time.
+ */
+public final class LocationKdTree {
+
+    /** Marks an empty result. */
+    private static final int NONE = -1;
+
+    /** Ranges this small are scanned directly rather than split further. */
+    private static final int LEAF_SIZE = 8;
+
+    /** Latitude of each position, in tree order. */
+    private double[] treeLatitudes = new double[0];
+
+    /** Longitude of each position, in tree order. */
+    private double[] treeLongitudes = new double[0];
+
+    /** Index of each position in the arrays the tree was built from, in tree order. */
+    private int[] treeIndices = new int[0];
+
+    /** Number of positions in the tree. */
+    private int size = 0;
+
+    /** Scratch space for the distances of the current best neighbours during a query. */
+    private double[] bestDistances = new double[0];
+
+    /** Scratch space for the tree positions of the current best neighbours during a query. */
+    private int[] bestPositions = new int[0];
+
+    /** Number of neighbours found so far during a query. */
+    private int bestCount = 0;
+
+    /** Southern edge of the box for the current range query. */
+    private double boxMinLatitude;
+
+    /** Northern edge of the box for the current range query. */
+    private double boxMaxLatitude;
+
+    /** Western edge of the box for the current range query. */
+    private double boxMinLongitude;
+
+    /** Eastern edge of the box for the current range query. */
+    private double boxMaxLongitude;
+
+    /**
+     * Create a tree from a set of positions.
+     *
+     * @param latitudes the array containing latitude measurements
+     * @param longitudes the array containing longitude measurements
+     * @param validLocations the array containing whether the location at an index is valid or not
+     */
+    public LocationKdTree(final double[] latitudes, final double[] longitudes, final boolean[] validLocations) {
+        rebuild(latitudes, longitudes, validLocations);
+    }
+
+    /**
+     * Rebuild the tree from a new set of positions, reusing storage when it is large enough.
+     *
+     * @param latitudes the array containing latitude measurements
+     * @param longitudes the array containing longitude measurements
+     * @param validLocations the array containing whether the location at an index is valid or not
+     */
+    public void rebuild(final double[] latitudes, final double[] longitudes, final boolean[] validLocations) {
+        int count = 0;
+        for (int i = 0; i < latitudes.length; i++) {
+            if (validLocations[i]) {
+                count++;
+            }
+        }
+        if (treeIndices.length < count) {
+            treeLatitudes = new double[count];
+            treeLongitudes = new double[count];
+            treeIndices = new int[count];
+        }
+        size = 0;
+        for (int i = 0; i < latitudes.length; i++) {
+            if (validLocations[i]) {
+                treeLatitudes[size] = latitudes[i];
+                treeLongitudes[size] = longitudes[i];
+                treeIndices[size] = i;
+                size++;
+            }
+        }
+        build(0, size, true);
+    }
+
+    /**
+     * Arrange a range of positions into a subtree.
+     *
+     * @param from the first position in the range
+     * @param to one past the last position in the range
+     * @param byLatitude whether this level splits on latitude
+     */
+    private void build(final int from, final int to, final boolean byLatitude) {
+        if (to - from <= LEAF_SIZE) {
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        select(from, to - 1, middle, byLatitude);
+        build(from, middle, !byLatitude);
+        build(middle + 1, to, !byLatitude);
+    }
+
+    /**
+     * Rearrange a range so that the element at a position is the one that would be there if the range were sorted,
+     * with smaller elements before it and larger ones after.
+     *
+     * @param first the first position in the range
+     * @param last the last position in the range
+     * @param target the position to fill
+     * @param byLatitude whether to compare latitudes or longitudes
+     */
+    private void select(final int first, final int last, final int target, final boolean byLatitude) {
+        double[] keys = treeLongitudes;
+        if (byLatitude) {
+            keys = treeLatitudes;
+        }
+        int low = first;
+        int high = last;
+        while (low < high) {
+            double pivot = keys[(low + high) >>> 1];
+            int i = low;
+            int j = high;
+            while (i <= j) {
+                while (keys[i] < pivot) {
+                    i++;
+                }
+                while (keys[j] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    swap(i, j);
+                    i++;
+                    j--;
+                }
+            }
+            if (target <= j) {
+                high = j;
+            } else if (target >= i) {
+                low = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Swap two positions in tree order.
+     *
+     * @param first the first position
+     * @param second the second position
+     */
+    private void swap(final int first, final int second) {
+        double latitude = treeLatitudes[first];
+        treeLatitudes[first] = treeLatitudes[second];
+        treeLatitudes[second] = latitude;
+        double longitude = treeLongitudes[first];
+        treeLongitudes[first] = treeLongitudes[second];
+        treeLongitudes[second] = longitude;
+        int index = treeIndices[first];
+        treeIndices[first] = treeIndices[second];
+        treeIndices[second] = index;
+    }
+
+    /**
+     * Return the number of positions in the tree.
+     *
+     * @return the number of valid positions the tree was last built from
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Find the position nearest to a point.
+     *
+     * @param latitude the latitude of the point
+     * @param longitude the longitude of the point
+     * @return the index of the nearest position in the arrays the tree was built from, or -1 if the tree is empty
+     */
+    public int nearest(final double latitude, final double longitude) {
+        int[] result = new int[1];
+        if (nearest(latitude, longitude, 1, result, null) == 0) {
+            return NONE;
+        }
+        return result[0];
+    }
+
+    /**
+     * Find the k positions nearest to a point.
+     *
+     * @param latitude the latitude of the point
+     * @param longitude the longitude of the point
+     * @param k the number of positions to find
+     * @param indices array to store the indices of the nearest positions in, nearest first
+     * @param distances array to store their distances in meters in, or null if they aren't needed
+     * @return the number of positions found, which is less than k only if the tree holds fewer than k positions
+     */
+    public int nearest(final double latitude, final double longitude, final int k,
+                       final int[] indices, final double[] distances) {
+        if (bestDistances.length < k) {
+            bestDistances = new double[k];
+            bestPositions = new int[k];
+        }
+        bestCount = 0;
+        if (k > 0) {
+            search(0, size, true, latitude, longitude, k);
+        }
+        for (int i = 0; i < bestCount; i++) {
+            indices[i] = treeIndices[bestPositions[i]];
+            if (distances != null) {
+                distances[i] = bestDistances[i];
+            }
+        }
+        return bestCount;
+    }
+
+    /**
+     * Search a subtree for nearer neighbours.
+     *
+     * @param from the first position in the subtree
+     * @param to one past the last position in the subtree
+     * @param byLatitude whether this level splits on latitude
+     * @param latitude the latitude of the query point
+     * @param longitude the longitude of the query point
+     * @param k the number of neighbours wanted
+     */
+    private void search(final int from, final int to, final boolean byLatitude,
+                        final double latitude, final double longitude, final int k) {
+        if (to - from <= LEAF_SIZE) {
+            for (int i = from; i < to; i++) {
+                offer(i, GeoMath.haversine(latitude, longitude, treeLatitudes[i], treeLongitudes[i]), k);
+            }
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        offer(middle, GeoMath.haversine(latitude, longitude, treeLatitudes[middle], treeLongitudes[middle]), k);
+
+        boolean queryBelow;
+        double bound;
+        if (byLatitude) {
+            queryBelow = latitude < treeLatitudes[middle];
+            bound = latitudeBound(latitude, treeLatitudes[middle]);
+        } else {
+            queryBelow = longitude < treeLongitudes[middle];
+            bound = longitudeBound(latitude, longitude, treeLongitudes[middle], queryBelow);
+        }
+        if (queryBelow) {
+            search(from, middle, !byLatitude, latitude, longitude, k);
+            if (bestCount < k || bound <= bestDistances[bestCount - 1]) {
+                search(middle + 1, to, !byLatitude, latitude, longitude, k);
+            }
+        } else {
+            search(middle + 1, to, !byLatitude, latitude, longitude, k);
+            if (bestCount < k || bound <= bestDistances[bestCount - 1]) {
+                search(from, middle, !byLatitude, latitude, longitude, k);
+            }
+        }
+    }
+
+    /**
+     * Lower bound on the distance from a point to anything on the other side of a line of latitude.
+     *
+     * @param latitude the latitude of the point
+     * @param split the latitude of the splitting line
+     * @return the distance in meters along a meridian to the splitting line
+     */
+    private static double latitudeBound(final double latitude, final double split) {
+        return Math.toRadians(Math.abs(latitude - split)) * GeoMath.EARTH_RADIUS_METERS;
+    }
+
+    /**
+     * Lower bound on the distance from a point to anything on the other side of a line of longitude.
+     * <p>
+     * Going the short way, the other side starts at the splitting meridian. Going the long way, it starts at the
+     * antimeridian. Either way, the distance to a meridian that is a longitude difference d away is at least
+     * asin(cos(latitude) sin(d)) radians, reaching its maximum at d = 90 degrees.
+     *
+     * @param latitude the latitude of the point
+     * @param longitude the longitude of the point
+     * @param split the longitude of the splitting line
+     * @param queryBelow whether the point is west of the splitting line
+     * @return the lower bound, in meters
+     */
+    private static double longitudeBound(final double latitude, final double longitude, final double split,
+                                         final boolean queryBelow) {
+        double direct = Math.abs(split - longitude);
+        double around;
+        if (queryBelow) {
+            around = longitude - Locator.MIN_LONGITUDE;
+        } else {
+            around = Locator.MAX_LONGITUDE - longitude;
+        }
+        double difference = Math.toRadians(Math.min(Math.min(direct, around), Locator.MAX_LATITUDE));
+        double sine = Math.cos(Math.toRadians(latitude)) * Math.sin(difference);
+        return Math.asin(Math.max(0.0, Math.min(1.0, sine))) * GeoMath.EARTH_RADIUS_METERS;
+    }
+
+    /**
+     * Consider a position as one of the nearest neighbours, keeping the best k sorted by distance.
+     *
+     * @param position the tree position to consider
+     * @param distance its distance from the query point
+     * @param k the number of neighbours wanted
+     */
+    private void offer(final int position, final double distance, final int k) {
+        if (bestCount == k && !(distance < bestDistances[k - 1])) {
+            return;
+        }
+        int i = bestCount;
+        if (bestCount < k) {
+            bestCount++;
+        } else {
+            i = k - 1;
+        }
+        while (i > 0 && bestDistances[i - 1] > distance) {
+            bestDistances[i] = bestDistances[i - 1];
+            bestPositions[i] = bestPositions[i - 1];
+            i--;
+        }
+        bestDistances[i] = distance;
+        bestPositions[i] = position;
+    }
+
+    /**
+     * Find every position inside a latitude and longitude box, such as the area shown in a map viewport.
+     * <p>
+     * If minLongitude is greater than maxLongitude the box is taken to wrap across the antimeridian.
+     *
+     * @param minLatitude the southern edge of the box
+     * @param maxLatitude the northern edge of the box
+     * @param minLongitude the western edge of the box
+     * @param maxLongitude the eastern edge of the box
+     * @param result list to append the indices of matching positions to, in no particular order
+     * @return the number of indices appended
+     */
+    public int range(final double minLatitude, final double maxLatitude,
+                     final double minLongitude, final double maxLongitude, final IntList result) {
+        int before = result.size();
+        boxMinLatitude = minLatitude;
+        boxMaxLatitude = maxLatitude;
+        if (minLongitude <= maxLongitude) {
+            rangeWithin(minLongitude, maxLongitude, result);
+        } else {
+            rangeWithin(minLongitude, Locator.MAX_LONGITUDE, result);
+            rangeWithin(Locator.MIN_LONGITUDE, maxLongitude, result);
+        }
+        return result.size() - before;
+    }
+
+    /**
+     * Collect every position inside the current box between two longitudes that do not wrap.
+     *
+     * @param minLongitude the western edge of the box
+     * @param maxLongitude the eastern edge of the box
+     * @param result list to append matches to
+     */
+    private void rangeWithin(final double minLongitude, final double maxLongitude, final IntList result) {
+        boxMinLongitude = minLongitude;
+        boxMaxLongitude = maxLongitude;
+        range(0, size, true, result);
+    }
+
+    /**
+     * Collect every position of a subtree inside the current box.
+     *
+     * @param from the first position in the subtree
+     * @param to one past the last position in the subtree
+     * @param byLatitude whether this level splits on latitude
+     * @param result list to append matches to
+     */
+    private void range(final int from, final int to, final boolean byLatitude, final IntList result) {
+        if (to - from <= LEAF_SIZE) {
+            for (int i = from; i < to; i++) {
+                if (inside(i)) {
+                    result.add(treeIndices[i]);
+                }
+            }
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        if (inside(middle)) {
+            result.add(treeIndices[middle]);
+        }
+        double split;
+        double low;
+        double high;
+        if (byLatitude) {
+            split = treeLatitudes[middle];
+            low = boxMinLatitude;
+            high = boxMaxLatitude;
+        } else {
+            split = treeLongitudes[middle];
+            low = boxMinLongitude;
+            high = boxMaxLongitude;
+        }
+        if (low <= split) {
+            range(from, middle, !byLatitude, result);
+        }
+        if (high >= split) {
+            range(middle + 1, to, !byLatitude, result);
+        }
+    }
+
+    /**
+     * Return whether a position is inside the current box.
+     *
+     * @param position the tree position to check
+     * @return true if the position is inside the box, including its edges
+     */
+    private boolean inside(final int position) {
+        return treeLatitudes[position] >= boxMinLatitude && treeLatitudes[position] <= boxMaxLatitude
+            && treeLongitudes[position] >= boxMinLongitude && treeLongitudes[position] <= boxMaxLongitude;
+    }
+}
@@ -0,0 +1,192 @@
+package edu.illinois.cs.cs125.spring2019.mp0.lib;
+
+/**
+ * The per-measurement logic of the MP0 app, without any Android or map code.
+ * <p>
+ * The app used to store each new measurement, work out the position furthest north and the repeated positions, and
+ * redraw its markers all inside MainActivity, so that logic could only run with a map attached. The processor owns the
+ * location history and the marker state, and turns each measurement into a short list of render instructions: which
+ * slots need their marker replaced, and with what kind of marker. MainActivity carries those out on the GoogleMap,
+ * while tests and the ReplayDriver can carry them out on anything else, or ignore them.
+ */
+public final class LocationProcessor {
+
+    /**
+     * Carries out render instructions.
+     */
+    public interface Renderer {
+        /**
+         * Replace the marker shown for a slot.
+         * <p>
+         * Any marker currently shown for the slot should be removed first. If the category is
+         * MarkerStateTracker.NONE, no new marker should be shown.
+         *
+         * @param index the slot whose marker changed
+         * @param category the slot's new MarkerStateTracker category
+         * @param latitude the latitude of the slot's measurement
+         * @param longitude the longitude of the slot's measurement
+         */
+        void drawMarker(int index, int category, double latitude, double longitude);
+    }
+
+    /** History of location measurements. */
+    private final LocationHistory history;
+
+    /** Which kind of marker each slot was last rendered with. */
+    private final MarkerStateTracker markerStateTracker;
+
+    /** Visits per map tile of the measurements in the history. */
+    private final VisitHeatmap heatmap = new VisitHeatmap();
+
+    /** Latitude each slot is counted at in the heatmap. */
+    private final double[] countedLatitudes;
+
+    /** Longitude each slot is counted at in the heatmap. */
+    private final double[] countedLongitudes;
+
+    /** Whether each slot is counted in the heatmap. */
+    private final boolean[] counted;
+
+    /** History add count the heatmap was last brought up to date with. */
+    private long heatmapAdds = 0;
+
+    /**
+     * Create a new processor with an empty history.
+     *
+     * @param capacity the number of measurements to keep
+     */
+    public LocationProcessor(final int capacity) {
+        history = new LocationHistory(capacity);
+        markerStateTracker = new MarkerStateTracker(history);
+        countedLatitudes = new double[capacity];
+        countedLongitudes = new double[capacity];
+        counted = new boolean[capacity];
+    }
+
+    /**
+     * Record a new measurement without rendering it.
+     * <p>
+     * The next call to render brings every marker up to date, however many measurements were added in between.
+     *
+     * @param latitude latitude of the new location
+     * @param longitude longitude of the new location
+     * @return the slot the measurement was stored at
+     */
+    public int add(final double latitude, final double longitude) {
+        int index = history.add(latitude, longitude);
+        updateHeatmap();
+        return index;
+    }
+
+    /**
+     * Send the render instructions needed to bring the markers up to date with the history.
+     *
+     * @param renderer the renderer to send instructions to
+     * @return the number of instructions sent
+     */
+    public int render(final Renderer renderer) {
+        updateHeatmap();
+        IntList changed = markerStateTracker.update();
+        for (int i = 0; i < changed.size(); i++) {
+            int index = changed.get(i);
+            renderer.drawMarker(index, markerStateTracker.getCategory(index),
+                history.getLatitude(index), history.getLongitude(index));
+        }
+        return changed.size();
+    }
+
+    /**
+     * Record a new measurement and render it.
+     *
+     * @param latitude latitude of the new location
+     * @param longitude longitude of the new location
+     * @param renderer the renderer to send instructions to
+     * @return the number of instructions sent
+     */
+    public int process(final double latitude, final double longitude, final Renderer renderer) {
+        add(latitude, longitude);
+        return render(renderer);
+    }
+
+    /**
+     * Return whether any measurement has been recorded.
+     *
+     * @return true if the history holds a measurement
+     */
+    public boolean hasLocation() {
+        return history.getCurrentIndex() != -1;
+    }
+
+    /**
+     * Return the latitude of the most recent measurement.
+     *
+     * @return the most recent latitude
+     * @throws IllegalStateException if no measurement has been recorded
+     */
+    public double getCurrentLatitude() {
+        if (!hasLocation()) {
+            throw new IllegalStateException("no measurement has been recorded");
+        }
+        return history.getLatitude(history.getCurrentIndex());
+    }
+
+    /**
+     * Return the longitude of the most recent measurement.
+     *
+     * @return the most recent longitude
+     * @throws IllegalStateException if no measurement has been recorded
+     */
+    public double getCurrentLongitude() {
+        if (!hasLocation()) {
+            throw new IllegalStateException("no measurement has been recorded");
+        }
+        return history.getLongitude(history.getCurrentIndex());
+    }
+
+    /**
+     * Return the history the processor records into.
+     * <p>
+     * Measurements added to it directly, such as ones replayed from a TrackLog, are picked up by the next render.
+     *
+     * @return the processor's history
+     */
+    public LocationHistory getHistory() {
+        return history;
+    }
+
+    /**
+     * Return the visit heatmap of the measurements in the history.
+     * <p>
+     * The heatmap is kept up to date as measurements are added, and a measurement evicted from the history stops being
+     * counted. Positions outside the valid range of latitudes and longitudes are not counted.
+     *
+     * @return the processor's heatmap
+     */
+    public VisitHeatmap getHeatmap() {
+        updateHeatmap();
+        return heatmap;
+    }
+
+    /**
+     * Bring the heatmap up to date with the slots overwritten since it was last updated.
+     */
+    private void updateHeatmap() {
+        long adds = history.getAddCount();
+        int capacity = counted.length;
+        int overwritten = (int) Math.min(adds - heatmapAdds, capacity);
+        int current = history.getCurrentIndex();
+        heatmapAdds = adds;
+        for (int back = overwritten - 1; back >= 0; back--) {
+            int index = (current - back + capacity) % capacity;
+            if (counted[index]) {
+                heatmap.remove(countedLatitudes[index], countedLongitudes[index]);
+            }
+            countedLatitudes[index] = history.getLatitude(index);
+            countedLongitudes[index] = history.getLongitude(index);
+            counted[index] = GeoMath.isValidPosition(countedLatitudes[index], countedLongitudes[index]);
+            if (counted[index]) {
+                heatmap.add(countedLatitudes[index], countedLongitudes[index]);
+            }
+        }
+    }
+}
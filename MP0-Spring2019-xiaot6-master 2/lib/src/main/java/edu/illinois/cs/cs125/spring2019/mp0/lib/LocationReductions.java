@@ -0,0 +1,382 @@
+package edu.illinois.cs.cs125.spring2019.mp0.lib;
+
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Runs Locator-style reductions over very large location arrays in parallel.
+ * <p>
+ * The arrays are split in half recursively until each piece is no larger than a fixed chunk size. Each chunk is
+ * reduced on its own by a task in a ForkJoinPool, and then neighbouring results are merged back together, left before
+ * right. Because the chunk boundaries depend only on the array length and the chunk size, and never on the number of
+ * threads or on which task finishes first, every run over the same arrays produces exactly the same result.
+ * <p>
+ * Extremes are merged by keeping the left result unless the right one is strictly further, so they match
+ * Locator.extremes (and Locator.farthestNorth) exactly, including returning the first index on ties.
+ */
+public final class LocationReductions {
+
+    /** Default number of positions reduced by a single task. */
+    public static final int DEFAULT_CHUNK_SIZE = 65536;
+
+    /** Reductions that can be requested. */
+    public enum Reduction {
+        /** The index furthest north, south, east, and west, as returned by Locator.extremes. */
+        EXTREMES,
+        /** The smallest and largest valid latitude and longitude. */
+        BOUNDING_BOX,
+        /** The mean valid latitude and longitude. */
+        CENTROID,
+        /** The number of valid positions for which Locator.beenHere would return true. */
+        REPEAT_COUNT
+    }
+
+    /** The pool that runs our tasks. */
+    private final ForkJoinPool pool;
+
+    /** Largest number of positions reduced by a single task. */
+    private final int chunkSize;
+
+    /**
+     * Create a new reduction engine that uses the common pool and the default chunk size.
+     */
+    public LocationReductions() {
+        this(ForkJoinPool.commonPool(), DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Create a new reduction engine.
+     *
+     * @param setPool the pool to run tasks in
+     * @param setChunkSize the largest number of positions reduced by a single task
+     */
+    public LocationReductions(final ForkJoinPool setPool, final int setChunkSize) {
+        if (setChunkSize < 1) {
+            throw new IllegalArgumentException("chunk size must be positive");
+        }
+        pool = setPool;
+        chunkSize = setChunkSize;
+    }
+
+    /**
+     * Run a set of reductions over location arrays in a single parallel pass.
+     *
+     * @param latitudes array of latitude measurements
+     * @param longitudes array of longitude measurements
+     * @param validLocations the array containing whether the location at an index is valid or not
+     * @param reductions the reductions to compute
+     * @return a summary holding the requested results
+     */
+    public Summary reduce(final double[] latitudes, final double[] longitudes, final boolean[] validLocations,
+                          final Set<Reduction> reductions) {
+        if (longitudes.length != latitudes.length || validLocations.length != latitudes.length) {
+            throw new IllegalArgumentException("arrays must all be the same length");
+        }
+        EnumSet<Reduction> requested = EnumSet.noneOf(Reduction.class);
+        requested.addAll(reductions);
+        return pool.invoke(new ReduceTask(latitudes, longitudes, validLocations, requested, 0, latitudes.length));
+    }
+
+    /**
+     * Determine which positions are the furthest in each direction.
+     *
+     * @param latitudes array of latitude measurements
+     * @param longitudes array of longitude measurements
+     * @param validLocations the array containing whether the location at an index is valid or not
+     * @return the same array Locator.extremes would return
+     */
+    public int[] extremes(final double[] latitudes, final double[] longitudes, final boolean[] validLocations) {
+        return reduce(latitudes, longitudes, validLocations, EnumSet.of(Reduction.EXTREMES)).getExtremes();
+    }
+
+    /**
+     * Determine which position is the furthest north.
+     *
+     * @param latitudes array of latitude measurements
+     * @param longitudes array of longitude measurements
+     * @param validLocations the array containing whether the location at an index is valid or not
+     * @return the same index Locator.farthestNorth would return
+     */
+    public int farthestNorth(final double[] latitudes, final double[] longitudes, final boolean[] validLocations) {
+        return extremes(latitudes, longitudes, validLocations)[Locator.NORTH];
+    }
+
+    /**
+     * Count the valid positions that share their exact location with another valid position.
+     *
+     * @param latitudes array of latitude measurements
+     * @param longitudes array of longitude measurements
+     * @param validLocations the array containing whether the location at an index is valid or not
+     * @return the number of indices for which Locator.beenHere would return true
+     */
+    public int repeatCount(final double[] latitudes, final double[] longitudes, final boolean[] validLocations) {
+        return reduce(latitudes, longitudes, validLocations, EnumSet.of(Reduction.REPEAT_COUNT)).getRepeatCount();
+    }
+
+    /**
+     * The results of a parallel reduction.
+     * <p>
+     * Results for reductions that were not requested are left at their empty values.
+     */
+    public static final class Summary {
+
+        /** Number of valid positions seen. */
+        private int validCount = 0;
+
+        /** Indices furthest north, south, east, and west. */
+        private final int[] extremes = {-1, -1, -1, -1};
+
+        /** Smallest valid latitude. */
+        private double minLatitude = Double.POSITIVE_INFINITY;
+
+        /** Largest valid latitude. */
+        private double maxLatitude = Double.NEGATIVE_INFINITY;
+
+        /** Smallest valid longitude. */
+        private double minLongitude = Double.POSITIVE_INFINITY;
+
+        /** Largest valid longitude. */
+        private double maxLongitude = Double.NEGATIVE_INFINITY;
+
+        /** Sum of valid latitudes. */
+        private double latitudeSum = 0.0;
+
+        /** Sum of valid longitudes. */
+        private double longitudeSum = 0.0;
+
+        /** Counts of each valid position, used to find repeats. Null unless repeats were requested. */
+        private CoordinateIndex coordinates = null;
+
+        /**
+         * Return the number of valid positions.
+         *
+         * @return the number of valid positions
+         */
+        public int getValidCount() {
+            return validCount;
+        }
+
+        /**
+         * Return the indices furthest in each direction.
+         *
+         * @return a new array holding the indices at positions Locator.NORTH, SOUTH, EAST, and WEST
+         */
+        public int[] getExtremes() {
+            return extremes.clone();
+        }
+
+        /**
+         * Return the bounding box of the valid positions.
+         *
+         * @return a new array of the minimum latitude, maximum latitude, minimum longitude, and maximum longitude,
+         * which are infinite if there were no valid positions
+         */
+        public double[] getBoundingBox() {
+            return new double[] {minLatitude, maxLatitude, minLongitude, maxLongitude};
+        }
+
+        /**
+         * Return the mean of the valid positions.
+         * <p>
+         * This is a plain average of latitudes and longitudes, which is fine for traces that don't cross the
+         * antimeridian.
+         *
+         * @return a new array of the mean latitude and mean longitude, which are NaN if there were no valid positions
+         */
+        public double[] getCentroid() {
+            return new double[] {latitudeSum / validCount, longitudeSum / validCount};
+        }
+
+        /**
+         * Return the number of valid positions that share their location with another valid position.
+         *
+         * @return the repeat count, or 0 if repeats were not requested
+         */
+        public int getRepeatCount() {
+            if (coordinates == null) {
+                return 0;
+            }
+            return coordinates.repeatCount();
+        }
+    }
+
+    /**
+     * Task that reduces one range of the arrays, splitting it if it is too large.
+     */
+    private final class ReduceTask extends RecursiveTask<Summary> {
+
+        /** Serialization version, required because RecursiveTask is serializable. */
+        private static final long serialVersionUID = 1L;
+
+        /** Array of latitude measurements. */
+        private final double[] latitudes;
+
+        /** Array of longitude measurements. */
+        private final double[] longitudes;
+
+        /** Array of validity flags. */
+        private final boolean[] validLocations;
+
+        /** The reductions to compute. */
+        private final EnumSet<Reduction> reductions;
+
+        /** First index of the range. */
+        private final int from;
+
+        /** One past the last index of the range. */
+        private final int to;
+
+        /**
+         * Create a task for a range of the arrays.
+         *
+         * @param setLatitudes array of latitude measurements
+         * @param setLongitudes array of longitude measurements
+         * @param setValidLocations array of validity flags
+         * @param setReductions the reductions to compute
+         * @param setFrom first index of the range
+         * @param setTo one past the last index of the range
+         */
+        ReduceTask(final double[] setLatitudes, final double[] setLongitudes, final boolean[] setValidLocations,
+                   final EnumSet<Reduction> setReductions, final int setFrom, final int setTo) {
+            latitudes = setLatitudes;
+            longitudes = setLongitudes;
+            validLocations = setValidLocations;
+            reductions = setReductions;
+            from = setFrom;
+            to = setTo;
+        }
+
+        @Override
+        protected Summary compute() {
+            if (to - from <= chunkSize) {
+                return reduceChunk();
+            }
+            int middle = (from + to) >>> 1;
+            ReduceTask left = new ReduceTask(latitudes, longitudes, validLocations, reductions, from, middle);
+            ReduceTask right = new ReduceTask(latitudes, longitudes, validLocations, reductions, middle, to);
+            left.fork();
+            Summary rightSummary = right.compute();
+            return merge(left.join(), rightSummary);
+        }
+
+        /**
+         * Reduce this task's range sequentially.
+         *
+         * @return the summary of the range
+         */
+        private Summary reduceChunk() {
+            Summary summary = new Summary();
+            boolean wantExtremes = reductions.contains(Reduction.EXTREMES);
+            boolean wantBox = reductions.contains(Reduction.BOUNDING_BOX);
+            boolean wantCentroid = reductions.contains(Reduction.CENTROID);
+            if (reductions.contains(Reduction.REPEAT_COUNT)) {
+                summary.coordinates = new CoordinateIndex(to - from);
+            }
+            double maximumLatitude = Locator.MIN_LATITUDE;
+            double minimumLatitude = Locator.MAX_LATITUDE;
+            double maximumLongitude = Locator.MIN_LONGITUDE;
+            double minimumLongitude = Locator.MAX_LONGITUDE;
+            for (int i = from; i < to; i++) {
+                if (!validLocations[i]) {
+                    continue;
+                }
+                double latitude = latitudes[i];
+                double longitude = longitudes[i];
+                summary.validCount++;
+                if (wantExtremes) {
+                    if (latitude > maximumLatitude) {
+                        maximumLatitude = latitude;
+                        summary.extremes[Locator.NORTH] = i;
+                    }
+                    if (latitude < minimumLatitude) {
+                        minimumLatitude = latitude;
+                        summary.extremes[Locator.SOUTH] = i;
+                    }
+                    if (longitude > maximumLongitude) {
+                        maximumLongitude = longitude;
+                        summary.extremes[Locator.EAST] = i;
+                    }
+                    if (longitude < minimumLongitude) {
+                        minimumLongitude = longitude;
+                        summary.extremes[Locator.WEST] = i;
+                    }
+                }
+                if (wantBox) {
+                    if (latitude < summary.minLatitude) {
+                        summary.minLatitude = latitude;
+                    }
+                    if (latitude > summary.maxLatitude) {
+                        summary.maxLatitude = latitude;
+                    }
+                    if (longitude < summary.minLongitude) {
+                        summary.minLongitude = longitude;
+                    }
+                    if (longitude > summary.maxLongitude) {
+                        summary.maxLongitude = longitude;
+                    }
+                }
+                if (wantCentroid) {
+                    summary.latitudeSum += latitude;
+                    summary.longitudeSum += longitude;
+                }
+                if (summary.coordinates != null) {
+                    summary.coordinates.add(latitude, longitude);
+                }
+            }
+            return summary;
+        }
+
+        /**
+         * Merge the summaries of two neighbouring ranges.
+         *
+         * @param left the summary of the lower range
+         * @param right the summary of the higher range
+         * @return the combined summary
+         */
+        private Summary merge(final Summary left, final Summary right) {
+            left.validCount += right.validCount;
+            left.extremes[Locator.NORTH] = pick(left.extremes[Locator.NORTH], right.extremes[Locator.NORTH],
+                latitudes, 1.0);
+            left.extremes[Locator.SOUTH] = pick(left.extremes[Locator.SOUTH], right.extremes[Locator.SOUTH],
+                latitudes, -1.0);
+            left.extremes[Locator.EAST] = pick(left.extremes[Locator.EAST], right.extremes[Locator.EAST],
+                longitudes, 1.0);
+            left.extremes[Locator.WEST] = pick(left.extremes[Locator.WEST], right.extremes[Locator.WEST],
+                longitudes, -1.0);
+            left.minLatitude = Math.min(left.minLatitude, right.minLatitude);
+            left.maxLatitude = Math.max(left.maxLatitude, right.maxLatitude);
+            left.minLongitude = Math.min(left.minLongitude, right.minLongitude);
+            left.maxLongitude = Math.max(left.maxLongitude, right.maxLongitude);
+            left.latitudeSum += right.latitudeSum;
+            left.longitudeSum += right.longitudeSum;
+            if (left.coordinates != null) {
+                // Fold the smaller index into the larger one
+                if (left.coordinates.distinct() < right.coordinates.distinct()) {
+                    right.coordinates.addAll(left.coordinates);
+                    left.coordinates = right.coordinates;
+                } else {
+                    left.coordinates.addAll(right.coordinates);
+                }
+            }
+            return left;
+        }
+
+        /**
+         * Choose between the extreme of a lower range and the extreme of a higher range.
+         *
+         * @param lower the index chosen in the lower range, or -1
+         * @param higher the index chosen in the higher range, or -1
+         * @param values the values being compared
+         * @param sign 1 to prefer larger values, -1 to prefer smaller ones
+         * @return the higher index only if it is strictly further, so that the first index wins on ties
+         */
+        private int pick(final int lower, final int higher, final double[] values, final double sign) {
+            if (lower == -1 || (higher != -1 && sign * values[higher] > sign * values[lower])) {
+                return higher;
+            }
+            return lower;
+        }
+    }
+}
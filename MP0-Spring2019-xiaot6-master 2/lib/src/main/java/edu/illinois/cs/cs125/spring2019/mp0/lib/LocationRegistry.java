@@ -0,0 +1,346 @@
+package edu.illinois.cs.cs125.spring2019.mp0.lib;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Keeps a LocationHistory for each of many devices and lets many threads update and read them at once.
+ * <p>
+ * The MP0 app tracks a single device. Running the same logic for a fleet means keeping one history per device and
+ * recording measurements from many threads. Devices are found through a ConcurrentHashMap, and each device is guarded
+ * by one of a fixed number of StampedLocks chosen by hashing its id. Lock striping keeps memory use independent of the
+ * number of devices while still letting writers to different stripes proceed in parallel.
+ * <p>
+ * Snapshots and farthestNorth read optimistically: they copy what they need without taking the lock and then check
+ * that no writer touched the stripe in the meantime, retrying a few times before falling back to a read lock. So
+ * dashboards that poll the registry see a consistent view of each device without holding up writers.
+ */
+public final class LocationRegistry {
+
+    /** Default number of lock stripes. */
+    public static final int DEFAULT_STRIPES = 64;
+
+    /** Number of optimistic attempts before a read takes the lock. */
+    private static final int OPTIMISTIC_ATTEMPTS = 4;
+
+    /** Number of measurements kept for each device. */
+    private final int historySize;
+
+    /** History of each device. */
+    private final ConcurrentHashMap<String, LocationHistory> histories = new ConcurrentHashMap<>();
+
+    /** Locks guarding the histories, shared by devices whose ids hash to the same stripe. */
+    private final StampedLock[] locks;
+
+    /**
+     * Create a new empty registry with the default number of stripes.
+     *
+     * @param setHistorySize the number of measurements to keep for each device
+     */
+    public LocationRegistry(final int setHistorySize) {
+        this(setHistorySize, DEFAULT_STRIPES);
+    }
+
+    /**
+     * Create a new empty registry.
+     *
+     * @param setHistorySize the number of measurements to keep for each device
+     * @param stripes the number of locks to spread devices across
+     */
+    public LocationRegistry(final int setHistorySize, final int stripes) {
+        if (setHistorySize < 1 || stripes < 1) {
+            throw new IllegalArgumentException("history size and stripes must be positive");
+        }
+        historySize = setHistorySize;
+        locks = new StampedLock[stripes];
+        for (int i = 0; i < stripes; i++) {
+            locks[i] = new StampedLock();
+        }
+    }
+
+    /**
+     * Return the lock guarding a device.
+     *
+     * @param deviceId the device
+     * @return the device's stripe lock
+     */
+    private StampedLock lockFor(final String deviceId) {
+        int hash = deviceId.hashCode();
+        hash ^= hash >>> (Integer.SIZE / 2);
+        return locks[Math.floorMod(hash, locks.length)];
+    }
+
+    /**
+     * Record a new measurement for a device, creating its history if this is the first one.
+     *
+     * @param deviceId the device that took the measurement
+     * @param latitude latitude of the new location
+     * @param longitude longitude of the new location
+     * @return the index in the device's history that the measurement was stored at
+     */
+    public int record(final String deviceId, final double latitude, final double longitude) {
+        StampedLock lock = lockFor(deviceId);
+        while (true) {
+            LocationHistory history = histories.computeIfAbsent(deviceId, unused -> new LocationHistory(historySize));
+            long stamp = lock.writeLock();
+            try {
+                // The device may have been removed before we got the lock, in which case its history is gone
+                if (histories.get(deviceId) == history) {
+                    return history.add(latitude, longitude);
+                }
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+    }
+
+    /**
+     * Return the index of a device's valid measurement furthest north.
+     *
+     * @param deviceId the device
+     * @return the same index Locator.farthestNorth would return for the device's history, or -1 if the device is
+     * unknown or has no valid measurements
+     */
+    public int farthestNorth(final String deviceId) {
+        LocationHistory history = histories.get(deviceId);
+        if (history == null) {
+            return -1;
+        }
+        StampedLock lock = lockFor(deviceId);
+        long stamp = lock.tryOptimisticRead();
+        int index = history.farthestNorth();
+        if (lock.validate(stamp)) {
+            return index;
+        }
+        stamp = lock.readLock();
+        try {
+            return history.farthestNorth();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Determine whether another valid measurement in a device's history is at the same spot as the one at an index.
+     *
+     * @param deviceId the device
+     * @param index the index of the measurement to compare against
+     * @return the same result Locator.beenHere would return for the device's history, or false if the device is
+     * unknown
+     */
+    public boolean beenHere(final String deviceId, final int index) {
+        LocationHistory history = histories.get(deviceId);
+        if (history == null) {
+            return false;
+        }
+        StampedLock lock = lockFor(deviceId);
+        long stamp = lock.readLock();
+        try {
+            return history.beenHere(index);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Take a consistent copy of a device's history.
+     *
+     * @param deviceId the device
+     * @return a snapshot of the device's history, or null if the device is unknown
+     */
+    public Snapshot snapshot(final String deviceId) {
+        LocationHistory history = histories.get(deviceId);
+        if (history == null) {
+            return null;
+        }
+        StampedLock lock = lockFor(deviceId);
+        Snapshot snapshot = new Snapshot(historySize);
+        for (int attempt = 0; attempt < OPTIMISTIC_ATTEMPTS; attempt++) {
+            long stamp = lock.tryOptimisticRead();
+            if (stamp != 0) {
+                snapshot.copy(history);
+                if (lock.validate(stamp)) {
+                    return snapshot;
+                }
+            }
+        }
+        long stamp = lock.readLock();
+        try {
+            snapshot.copy(history);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+        return snapshot;
+    }
+
+    /**
+     * Take a snapshot of every device.
+     * <p>
+     * Each device's snapshot is consistent on its own, but snapshots of different devices may be taken at slightly
+     * different times.
+     *
+     * @return a new map from device id to snapshot
+     */
+    public Map<String, Snapshot> snapshotAll() {
+        Map<String, Snapshot> snapshots = new HashMap<>();
+        for (String deviceId : histories.keySet()) {
+            snapshots.put(deviceId, snapshot(deviceId));
+        }
+        return snapshots;
+    }
+
+    /**
+     * Forget a device and its history.
+     * <p>
+     * This takes the device's write lock, so a measurement recorded at the same time either lands in the history
+     * before it is forgotten or starts a new one.
+     *
+     * @param deviceId the device to forget
+     * @return true if the device was known
+     */
+    public boolean remove(final String deviceId) {
+        StampedLock lock = lockFor(deviceId);
+        long stamp = lock.writeLock();
+        try {
+            return histories.remove(deviceId) != null;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Return the number of devices with a history.
+     *
+     * @return the number of devices
+     */
+    public int deviceCount() {
+        return histories.size();
+    }
+
+    /**
+     * A copy of one device's history at a single point in time.
+     */
+    public static final class Snapshot {
+
+        /** Array of latitude measurements. */
+        private final double[] latitudes;
+
+        /** Array of longitude measurements. */
+        private final double[] longitudes;
+
+        /** Array to save whether the location at an index is valid or not. */
+        private final boolean[] validLocations;
+
+        /** Index of the most recent measurement, or -1. */
+        private int currentIndex;
+
+        /** Index of the valid measurement furthest north, or -1. */
+        private int farthestNorth;
+
+        /** Number of measurements added to the history when the snapshot was taken. */
+        private long addCount;
+
+        /**
+         * Create an empty snapshot.
+         *
+         * @param capacity the capacity of the history being copied
+         */
+        Snapshot(final int capacity) {
+            latitudes = new double[capacity];
+            longitudes = new double[capacity];
+            validLocations = new boolean[capacity];
+        }
+
+        /**
+         * Copy the state of a history into this snapshot.
+         *
+         * @param history the history to copy
+         */
+        void copy(final LocationHistory history) {
+            int capacity = latitudes.length;
+            System.arraycopy(history.getLatitudes(), 0, latitudes, 0, capacity);
+            System.arraycopy(history.getLongitudes(), 0, longitudes, 0, capacity);
+            System.arraycopy(history.getValidLocations(), 0, validLocations, 0, capacity);
+            currentIndex = history.getCurrentIndex();
+            farthestNorth = history.farthestNorth();
+            addCount = history.getAddCount();
+        }
+
+        /**
+         * Return the number of measurements the history can hold.
+         *
+         * @return the capacity of the history
+         */
+        public int getCapacity() {
+            return latitudes.length;
+        }
+
+        /**
+         * Return the index of the most recent measurement.
+         *
+         * @return the index of the most recent measurement, or -1 if there were none
+         */
+        public int getCurrentIndex() {
+            return currentIndex;
+        }
+
+        /**
+         * Return the number of measurements ever recorded for the device when the snapshot was taken.
+         *
+         * @return the number of measurements recorded
+         */
+        public long getAddCount() {
+            return addCount;
+        }
+
+        /**
+         * Return the index of the valid measurement furthest north.
+         *
+         * @return the same index Locator.farthestNorth would return for the copied arrays
+         */
+        public int farthestNorth() {
+            return farthestNorth;
+        }
+
+        /**
+         * Determine for every index whether another valid measurement is at the same spot.
+         *
+         * @return a new array holding Locator.beenHere for each index of the copied arrays
+         */
+        public boolean[] beenHereAll() {
+            return Locator.beenHereAll(latitudes, longitudes, validLocations);
+        }
+
+        /**
+         * Return the latitude stored at an index.
+         *
+         * @param index the index to read
+         * @return the latitude stored at that index
+         */
+        public double getLatitude(final int index) {
+            return latitudes[index];
+        }
+
+        /**
+         * Return the longitude stored at an index.
+         *
+         * @param index the index to read
+         * @return the longitude stored at that index
+         */
+        public double getLongitude(final int index) {
+            return longitudes[index];
+        }
+
+        /**
+         * Return whether the measurement at an index is valid.
+         *
+         * @param index the index to read
+         * @return true if the index holds a valid measurement
+         */
+        public boolean isValid(final int index) {
+            return validLocations[index];
+        }
+    }
+}
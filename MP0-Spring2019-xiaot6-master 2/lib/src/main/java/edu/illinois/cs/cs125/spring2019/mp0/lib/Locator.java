@@ -1,6 +1,6 @@
 package edu.illinois.cs.cs125.spring2019.mp0.lib;
 
-import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * A class that runs implements several helper functions on location data.
@@ -23,8 +23,20 @@ public class Locator {
     /** Minimum valid longitude. */
     public static final double MIN_LONGITUDE = -180.0;
 
-    /** Random number generator for use by this class. */
-    private static Random random = new Random();
+    /** Position of the index furthest north in the array returned by extremes. */
+    public static final int NORTH = 0;
+
+    /** Position of the index furthest south in the array returned by extremes. */
+    public static final int SOUTH = 1;
+
+    /** Position of the index furthest east in the array returned by extremes. */
+    public static final int EAST = 2;
+
+    /** Position of the index furthest west in the array returned by extremes. */
+    public static final int WEST = 3;
+
+    /** Number of values in the array returned by extremes. */
+    public static final int DIRECTIONS = 4;
 
     /**
      * Determine which of a set of positions is the furthest north.
@@ -63,6 +75,75 @@ public class Locator {
 
 
 
+    /**
+     * Determine which of a set of positions are the furthest north, south, east, and west, in a single pass.
+     * <p>
+     * This follows the same rules as farthestNorth for every direction: invalid locations are skipped, the
+     * <i>first</i> index wins on ties, and a position sitting on the far boundary never wins (so a latitude of exactly
+     * -90.0 is never furthest north, and a longitude of exactly 180.0 is never furthest west). Reading each array once
+     * rather than four times matters for very large traces, where the scan is limited by memory bandwidth.
+     *
+     * @param latitudes array of previous latitude measurements
+     * @param longitudes array of previous longitude measurements
+     * @param validLocations the array containing whether the location at an index is valid or not
+     * @return an array holding the index furthest in each direction at positions NORTH, SOUTH, EAST, and WEST, with
+     * -1 for any direction that has no valid position
+     */
+    public static int[] extremes(final double[] latitudes, final double[] longitudes,
+                                 final boolean[] validLocations) {
+        return extremes(latitudes, longitudes, validLocations, new int[DIRECTIONS]);
+    }
+
+    /**
+     * Determine which of a set of positions are the furthest in each direction, writing into an existing array.
+     *
+     * @param latitudes array of previous latitude measurements
+     * @param longitudes array of previous longitude measurements
+     * @param validLocations the array containing whether the location at an index is valid or not
+     * @param result an array of at least four ints to store the results in
+     * @return the passed array, holding the index furthest in each direction at positions NORTH, SOUTH, EAST, and WEST
+     * @see #extremes(double[], double[], boolean[])
+     */
+    public static int[] extremes(final double[] latitudes, final double[] longitudes,
+                                 final boolean[] validLocations, final int[] result) {
+        int north = -1;
+        int south = -1;
+        int east = -1;
+        int west = -1;
+        double maximumLatitude = MIN_LATITUDE;
+        double minimumLatitude = MAX_LATITUDE;
+        double maximumLongitude = MIN_LONGITUDE;
+        double minimumLongitude = MAX_LONGITUDE;
+        for (int i = 0; i < latitudes.length; i++) {
+            if (!validLocations[i]) {
+                continue;
+            }
+            double latitude = latitudes[i];
+            double longitude = longitudes[i];
+            if (latitude > maximumLatitude) {
+                maximumLatitude = latitude;
+                north = i;
+            }
+            if (latitude < minimumLatitude) {
+                minimumLatitude = latitude;
+                south = i;
+            }
+            if (longitude > maximumLongitude) {
+                maximumLongitude = longitude;
+                east = i;
+            }
+            if (longitude < minimumLongitude) {
+                minimumLongitude = longitude;
+                west = i;
+            }
+        }
+        result[NORTH] = north;
+        result[SOUTH] = south;
+        result[EAST] = east;
+        result[WEST] = west;
+        return result;
+    }
+
     /**
      * Determine whether you've already been in this exact spot.
      * <p>
@@ -94,6 +175,37 @@ public class Locator {
         return false;
     }
 
+    /**
+     * Determine for every index whether you've already been in that exact spot.
+     * <p>
+     * Calling beenHere once for each index compares every location against every other one, which takes time
+     * proportional to the square of the number of locations. This function instead counts each valid location once
+     * using a CoordinateIndex and then answers every index with a single lookup, so it takes linear time.
+     *
+     * @param latitudes the array containing previous latitude measurements
+     * @param longitudes the array containing previous longitude measurements
+     * @param validLocations the array containing whether the location at an index is valid or not
+     * @return an array holding the result of beenHere at each index
+     */
+    public static boolean[] beenHereAll(final double[] latitudes, final double[] longitudes,
+                                        final boolean[] validLocations) {
+        CoordinateIndex coordinates = new CoordinateIndex(latitudes.length);
+        for (int i = 0; i < latitudes.length; i++) {
+            if (validLocations[i]) {
+                coordinates.add(latitudes[i], longitudes[i]);
+            }
+        }
+        boolean[] result = new boolean[latitudes.length];
+        for (int i = 0; i < latitudes.length; i++) {
+            int others = coordinates.count(latitudes[i], longitudes[i]);
+            if (validLocations[i]) {
+                others--;
+            }
+            result[i] = others > 0;
+        }
+        return result;
+    }
+
 
 
 
@@ -123,36 +235,29 @@ public class Locator {
     public static double[] nextRandomLocation(final double currentLatitude, final double currentLongitude,
                                        final double transitionProbability,
                                        final double latitudeChange, final double longitudeChange) {
-        double reLatitude;
-        double reLongitude;
-        double r    =   random.nextDouble();
-        double reLa =   currentLatitude + latitudeChange;
-        double reLo =   currentLongitude + longitudeChange;
-        if (r > transitionProbability) {
-            reLatitude = currentLatitude;
-        }   else {
-            if (reLa >= MAX_LATITUDE) {
-                reLatitude = MAX_LATITUDE;
-            } else if (reLa <= MIN_LATITUDE) {
-                reLatitude = MIN_LATITUDE;
-            } else {
-                reLatitude = reLa;
-            }
+        if (ThreadLocalRandom.current().nextDouble() > transitionProbability) {
+            return new double[] {currentLatitude, currentLongitude};
         }
-        if (r   > transitionProbability) {
-            reLongitude = currentLongitude;
-        }   else    {
-            if (reLo >= MAX_LONGITUDE) {
-                reLongitude = MAX_LONGITUDE;
-            } else if (reLo <=  MIN_LONGITUDE) {
-                reLongitude = MIN_LONGITUDE;
-            } else {
-                reLongitude = reLo;
-            }
-        }
-
-
+        return new double[] {
+            clamp(currentLatitude + latitudeChange, MIN_LATITUDE, MAX_LATITUDE),
+            clamp(currentLongitude + longitudeChange, MIN_LONGITUDE, MAX_LONGITUDE)
+        };
+    }
 
-        return new double[] {reLatitude, reLongitude};
+    /**
+     * Bound a value to a range.
+     *
+     * @param value the value to bound
+     * @param minimum the smallest allowed value
+     * @param maximum the largest allowed value
+     * @return the value, or the nearest end of the range if it falls outside
+     */
+    static double clamp(final double value, final double minimum, final double maximum) {
+        if (value >= maximum) {
+            return maximum;
+        } else if (value <= minimum) {
+            return minimum;
+        }
+        return value;
     }
 }
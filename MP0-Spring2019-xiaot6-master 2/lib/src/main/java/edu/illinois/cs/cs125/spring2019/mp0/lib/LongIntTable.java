@@ -0,0 +1,292 @@
+package edu.illinois.cs.cs125.spring2019.mp0.lib;
+
+import java.util.Arrays;
+
+/**
+ * A hash map from long keys to int values, stored in primitive arrays.
+ * <p>
+ * Indexes keyed by coordinate bits or grid cell numbers use this instead of a HashMap of boxed keys. It uses open
+ * addressing with linear probing, so looking up, adding, and removing a key all take expected O(1) time and never
+ * allocate once the table is large enough. Removing a key shifts later entries of its probe run back instead of
+ * leaving a tombstone, so lookups stay fast however many keys come and go.
+ * <p>
+ * Keys are often grid cell numbers or coordinate bits, whose low bits are mostly zero or follow a pattern, so every
+ * key is put through a full 64-bit finalizer before it picks a slot.
+ * <p>
+ * Callers that need to walk every entry can loop over the slots from 0 to capacity() - 1, reading those that are
+ * occupied. Any change to the table may move entries between slots.
+ */
+final class LongIntTable {
+
+    /** Number of slots to start with when no size hint is given. */
+    private static final int DEFAULT_EXPECTED = 16;
+
+    /** First multiplier of the 64-bit finalizer used to spread hash bits. */
+    private static final long MIX_FIRST = 0xFF51AFD7ED558CCDL;
+
+    /** Second multiplier of the 64-bit finalizer used to spread hash bits. */
+    private static final long MIX_SECOND = 0xC4CEB9FE1A85EC53L;
+
+    /** Shift used by the finalizer to fold high bits into low bits. */
+    private static final int MIX_SHIFT = 33;
+
+    /** Key in each slot. */
+    private long[] keys;
+
+    /** Value in each slot. */
+    private int[] values;
+
+    /** Whether each slot holds an entry. */
+    private boolean[] occupied;
+
+    /** Number of entries. */
+    private int size = 0;
+
+    /**
+     * Create a new empty table.
+     */
+    LongIntTable() {
+        this(DEFAULT_EXPECTED);
+    }
+
+    /**
+     * Create a new empty table sized to hold a number of entries without growing.
+     *
+     * @param expected the number of entries we expect to store
+     */
+    LongIntTable(final int expected) {
+        int tableSize = Integer.highestOneBit(Math.max(expected, 2) * 2 - 1) * 2;
+        keys = new long[tableSize];
+        values = new int[tableSize];
+        occupied = new boolean[tableSize];
+    }
+
+    /**
+     * Return the value stored for a key.
+     *
+     * @param key the key to look up
+     * @param absent the value to return if the key is not present
+     * @return the key's value, or absent
+     */
+    int get(final long key, final int absent) {
+        int slot = find(key);
+        if (!occupied[slot]) {
+            return absent;
+        }
+        return values[slot];
+    }
+
+    /**
+     * Store a value for a key, replacing any value it had.
+     *
+     * @param key the key to store
+     * @param value the value to store
+     */
+    void put(final long key, final int value) {
+        int slot = find(key);
+        if (!occupied[slot]) {
+            insert(slot, key, value);
+            return;
+        }
+        values[slot] = value;
+    }
+
+    /**
+     * Add to the value of a key, treating a missing key as having a value of zero and removing a key whose value
+     * reaches zero. This lets the table count occurrences with a single probe per update.
+     *
+     * @param key the key to update
+     * @param delta the amount to add
+     * @return the key's new value
+     */
+    int addTo(final long key, final int delta) {
+        int slot = find(key);
+        if (!occupied[slot]) {
+            if (delta != 0) {
+                insert(slot, key, delta);
+            }
+            return delta;
+        }
+        int value = values[slot] + delta;
+        if (value == 0) {
+            deleteSlot(slot);
+        } else {
+            values[slot] = value;
+        }
+        return value;
+    }
+
+    /**
+     * Remove a key.
+     *
+     * @param key the key to remove
+     * @param absent the value to return if the key is not present
+     * @return the value the key had, or absent
+     */
+    int remove(final long key, final int absent) {
+        int slot = find(key);
+        if (!occupied[slot]) {
+            return absent;
+        }
+        int value = values[slot];
+        deleteSlot(slot);
+        return value;
+    }
+
+    /**
+     * Return the number of entries.
+     *
+     * @return the number of keys stored
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Remove every entry, keeping the current table size.
+     */
+    void clear() {
+        Arrays.fill(occupied, false);
+        size = 0;
+    }
+
+    /**
+     * Return the number of slots, for walking every entry.
+     *
+     * @return the number of slots
+     */
+    int capacity() {
+        return occupied.length;
+    }
+
+    /**
+     * Return whether a slot holds an entry.
+     *
+     * @param slot the slot, from 0 to capacity() - 1
+     * @return true if the slot holds an entry
+     */
+    boolean isOccupied(final int slot) {
+        return occupied[slot];
+    }
+
+    /**
+     * Return the key of the entry in a slot.
+     *
+     * @param slot an occupied slot
+     * @return its key
+     */
+    long keyAt(final int slot) {
+        return keys[slot];
+    }
+
+    /**
+     * Return the value of the entry in a slot.
+     *
+     * @param slot an occupied slot
+     * @return its value
+     */
+    int valueAt(final int slot) {
+        return values[slot];
+    }
+
+    /**
+     * Return the home slot for a key.
+     *
+     * @param key the key
+     * @return the first slot to probe
+     */
+    private int home(final long key) {
+        return (int) mix(key) & (occupied.length - 1);
+    }
+
+    /**
+     * Spread the bits of a key, so that every bit of the key affects every bit of the result.
+     * <p>
+     * Callers with wider keys can use this to combine them into a long key that is unlikely to collide.
+     *
+     * @param key the key
+     * @return the mixed bits
+     */
+    static long mix(final long key) {
+        long hash = (key ^ (key >>> MIX_SHIFT)) * MIX_FIRST;
+        hash = (hash ^ (hash >>> MIX_SHIFT)) * MIX_SECOND;
+        return hash ^ (hash >>> MIX_SHIFT);
+    }
+
+    /**
+     * Find the slot holding a key, or the empty slot where it would be inserted.
+     *
+     * @param key the key
+     * @return the slot index
+     */
+    private int find(final long key) {
+        int mask = occupied.length - 1;
+        int slot = home(key);
+        while (occupied[slot] && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Store a new entry in the empty slot find returned for its key, growing the table if it is getting full.
+     *
+     * @param slot the empty slot
+     * @param key the key
+     * @param value the value
+     */
+    private void insert(final int slot, final long key, final int value) {
+        keys[slot] = key;
+        values[slot] = value;
+        occupied[slot] = true;
+        size++;
+        if (size * 2 > occupied.length) {
+            grow();
+        }
+    }
+
+    /**
+     * Empty a slot, shifting later entries of the same probe run back so that lookups still find them.
+     *
+     * @param emptied the slot to empty
+     */
+    private void deleteSlot(final int emptied) {
+        int mask = occupied.length - 1;
+        occupied[emptied] = false;
+        size--;
+        int hole = emptied;
+        int slot = (hole + 1) & mask;
+        while (occupied[slot]) {
+            int wanted = home(keys[slot]);
+            // Move the entry into the hole unless its home lies cyclically between the hole and its current slot
+            if (((slot - wanted) & mask) >= ((slot - hole) & mask)) {
+                keys[hole] = keys[slot];
+                values[hole] = values[slot];
+                occupied[hole] = true;
+                occupied[slot] = false;
+                hole = slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /**
+     * Double the size of the table and reinsert every entry.
+     */
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        boolean[] oldOccupied = occupied;
+        keys = new long[oldOccupied.length * 2];
+        values = new int[oldOccupied.length * 2];
+        occupied = new boolean[oldOccupied.length * 2];
+        for (int i = 0; i < oldOccupied.length; i++) {
+            if (oldOccupied[i]) {
+                int slot = find(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+                occupied[slot] = true;
+            }
+        }
+    }
+}
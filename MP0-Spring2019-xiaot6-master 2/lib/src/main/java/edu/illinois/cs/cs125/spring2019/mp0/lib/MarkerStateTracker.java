@@ -0,0 +1,163 @@
+package edu.illinois.cs.cs125.spring2019.mp0.lib;
+
+/**
+ * Remembers which kind of map marker each slot of a location history shows, and reports only the slots that change.
+ * <p>
+ * The MP0 app shows one marker per valid slot: one color for the position furthest north, one for the current
+ * position, one for positions we've been at before, and one for everything else. Redrawing every marker on every
+ * update costs time proportional to the size of the history, even though a single new measurement can only change a
+ * handful of slots: the slot it overwrote, the previous current slot, the previous and new position furthest north,
+ * and at most two slots whose beenHere result flipped. After each add, update checks just those slots and returns the
+ * ones whose category differs from what was last reported, so redraw work is proportional to what actually changed.
+ * <p>
+ * The slot holding the new measurement is always reported, even if its category is unchanged, because its position
+ * has moved.
+ */
+public final class MarkerStateTracker {
+
+    /** Category of a slot that holds no valid measurement and shows no marker. */
+    public static final int NONE = 0;
+
+    /** Category of an ordinary valid slot. */
+    public static final int NORMAL = 1;
+
+    /** Category of a slot at a spot we've been at before. */
+    public static final int BEEN_HERE = 2;
+
+    /** Category of the slot holding the most recent measurement. */
+    public static final int CURRENT = 3;
+
+    /** Category of the slot furthest north. */
+    public static final int NORTH = 4;
+
+    /** The history being followed. */
+    private final LocationHistory history;
+
+    /** The category last reported for each slot. */
+    private final int[] categories;
+
+    /** Slots whose category changed in the most recent update. */
+    private final IntList changed = new IntList();
+
+    /** Value of the history's add count at the most recent update. */
+    private long seenAdds = 0;
+
+    /** Current slot at the most recent update, or -1. */
+    private int previousCurrent = -1;
+
+    /** Slot furthest north at the most recent update, or -1. */
+    private int previousNorth = -1;
+
+    /**
+     * Create a tracker for a location history, with every slot starting out showing no marker.
+     *
+     * @param setHistory the history to follow
+     */
+    public MarkerStateTracker(final LocationHistory setHistory) {
+        history = setHistory;
+        categories = new int[setHistory.getCapacity()];
+    }
+
+    /**
+     * Return the category a slot should currently have.
+     * <p>
+     * When more than one category applies, the position furthest north wins, then the current position, then
+     * positions we've been at before.
+     *
+     * @param index the slot to categorize
+     * @return the slot's category
+     */
+    private int categorize(final int index) {
+        if (!history.isValid(index)) {
+            return NONE;
+        } else if (index == history.farthestNorth()) {
+            return NORTH;
+        } else if (index == history.getCurrentIndex()) {
+            return CURRENT;
+        } else if (history.beenHere(index)) {
+            return BEEN_HERE;
+        }
+        return NORMAL;
+    }
+
+    /**
+     * Bring the tracker up to date with the history and return the slots whose category changed.
+     * <p>
+     * Call this after each add. If more than one measurement was added since the last update, for example while
+     * replaying a saved track, every slot is checked instead.
+     *
+     * @return a list of changed slots, each reported once, which is reused by the next update
+     */
+    public IntList update() {
+        long adds = history.getAddCount();
+        if (adds - seenAdds != 1) {
+            return refresh();
+        }
+        seenAdds = adds;
+        changed.clear();
+        int current = history.getCurrentIndex();
+        int north = history.farthestNorth();
+        categories[current] = categorize(current);
+        changed.add(current);
+        check(previousCurrent);
+        check(previousNorth);
+        check(north);
+        check(history.getLostRepeat());
+        check(history.getGainedRepeat());
+        previousCurrent = current;
+        previousNorth = north;
+        return changed;
+    }
+
+    /**
+     * Check every slot against the history and return the slots whose category changed.
+     * <p>
+     * Slots that were overwritten since the last update are also reported, since their positions have moved.
+     *
+     * @return a list of changed slots, each reported once, which is reused by the next update
+     */
+    public IntList refresh() {
+        long adds = history.getAddCount();
+        int capacity = categories.length;
+        int overwritten = (int) Math.min(adds - seenAdds, capacity);
+        int current = history.getCurrentIndex();
+        seenAdds = adds;
+        changed.clear();
+        for (int i = 0; i < capacity; i++) {
+            int category = categorize(i);
+            if (category != categories[i] || (current - i + capacity) % capacity < overwritten) {
+                categories[i] = category;
+                changed.add(i);
+            }
+        }
+        previousCurrent = current;
+        previousNorth = history.farthestNorth();
+        return changed;
+    }
+
+    /**
+     * Recompute one slot's category and record it as changed if it differs from the last one reported.
+     *
+     * @param index the slot to check, or -1 to do nothing
+     */
+    private void check(final int index) {
+        if (index == -1) {
+            return;
+        }
+        int category = categorize(index);
+        if (category != categories[index]) {
+            categories[index] = category;
+            changed.add(index);
+        }
+    }
+
+    /**
+     * Return the category last reported for a slot.
+     *
+     * @param index the slot to look up
+     * @return one of NONE, NORMAL, BEEN_HERE, CURRENT, or NORTH
+     */
+    public int getCategory(final int index) {
+        return categories[index];
+    }
+}
@@ -0,0 +1,283 @@
+package edu.illinois.cs.cs125.spring2019.mp0.lib;
+
+/**
+ * A compact store of location measurements that packs each one into a single long.
+ * <p>
+ * The Locator helpers work on two arrays of doubles plus an array of booleans, which costs 17 bytes for each
+ * measurement. Here each latitude and longitude is instead rounded to a whole number of ten-millionths of a degree
+ * (about a centimeter at the equator) and stored as a 32-bit integer: the latitude in the high half of a long and the
+ * longitude in the low half. Validity is kept in a bitset. That brings each measurement down to a little over 8 bytes,
+ * and checking whether two measurements are at the same spot becomes a single long comparison.
+ * <p>
+ * Because values are rounded, two measurements that differ by less than the resolution are considered equal. Use
+ * importFrom and exportTo to move measurements to and from the array layout used by the rest of the library.
+ */
+public final class PackedLocationStore {
+
+    /** Number of fixed-point units per degree. */
+    private static final double UNITS_PER_DEGREE = 1e7;
+
+    /** Smallest difference in degrees that the store can represent. */
+    public static final double RESOLUTION = 1.0 / UNITS_PER_DEGREE;
+
+    /** Number of bits used for each half of a packed value. */
+    private static final int HALF_BITS = 32;
+
+    /** Mask selecting the low half of a packed value. */
+    private static final long LOW_MASK = 0xFFFFFFFFL;
+
+    /** Number of bits in each word of the validity bitset. */
+    private static final int WORD_BITS = 64;
+
+    /** Shift converting an index to a word of the validity bitset. */
+    private static final int WORD_SHIFT = 6;
+
+    /** Fixed-point value of the minimum valid latitude, which never counts as furthest north. */
+    private static final int MIN_LATITUDE_UNITS = toUnits(Locator.MIN_LATITUDE);
+
+    /** Packed measurements, one per index. */
+    private final long[] packed;
+
+    /** Bitset recording which indices hold valid measurements. */
+    private final long[] valid;
+
+    /**
+     * Create a new store with every index marked as invalid.
+     *
+     * @param capacity the number of measurements the store can hold
+     */
+    public PackedLocationStore(final int capacity) {
+        packed = new long[capacity];
+        valid = new long[(capacity + WORD_BITS - 1) / WORD_BITS];
+    }
+
+    /**
+     * Pack a latitude and longitude into a single long.
+     *
+     * @param latitude the latitude to pack, between -90 and 90
+     * @param longitude the longitude to pack, between -180 and 180
+     * @return the packed value
+     * @throws IllegalArgumentException if either value is outside the valid range or NaN
+     */
+    public static long pack(final double latitude, final double longitude) {
+        if (!(latitude >= Locator.MIN_LATITUDE && latitude <= Locator.MAX_LATITUDE)) {
+            throw new IllegalArgumentException("invalid latitude: " + latitude);
+        }
+        if (!(longitude >= Locator.MIN_LONGITUDE && longitude <= Locator.MAX_LONGITUDE)) {
+            throw new IllegalArgumentException("invalid longitude: " + longitude);
+        }
+        return ((long) toUnits(latitude) << HALF_BITS) | (toUnits(longitude) & LOW_MASK);
+    }
+
+    /**
+     * Return the latitude stored in a packed value.
+     *
+     * @param value the packed value
+     * @return the latitude, rounded to the store's resolution
+     */
+    public static double unpackLatitude(final long value) {
+        return fromUnits(latitudeUnits(value));
+    }
+
+    /**
+     * Return the longitude stored in a packed value.
+     *
+     * @param value the packed value
+     * @return the longitude, rounded to the store's resolution
+     */
+    public static double unpackLongitude(final long value) {
+        return fromUnits((int) value);
+    }
+
+    /**
+     * Convert degrees to fixed-point units.
+     *
+     * @param degrees the value in degrees
+     * @return the nearest whole number of units
+     */
+    static int toUnits(final double degrees) {
+        return (int) Math.round(degrees * UNITS_PER_DEGREE);
+    }
+
+    /**
+     * Convert fixed-point units to degrees.
+     *
+     * @param units the value in units
+     * @return the value in degrees
+     */
+    static double fromUnits(final int units) {
+        return units / UNITS_PER_DEGREE;
+    }
+
+    /**
+     * Return the latitude of a packed value in fixed-point units.
+     *
+     * @param value the packed value
+     * @return the latitude in units
+     */
+    private static int latitudeUnits(final long value) {
+        return (int) (value >> HALF_BITS);
+    }
+
+    /**
+     * Store a measurement at an index and mark it as valid.
+     *
+     * @param index the index to store at
+     * @param latitude the latitude of the measurement
+     * @param longitude the longitude of the measurement
+     */
+    public void set(final int index, final double latitude, final double longitude) {
+        setPacked(index, pack(latitude, longitude));
+    }
+
+    /**
+     * Store an already packed measurement at an index and mark it as valid.
+     *
+     * @param index the index to store at
+     * @param value the packed measurement
+     */
+    public void setPacked(final int index, final long value) {
+        packed[index] = value;
+        valid[index >>> WORD_SHIFT] |= 1L << index;
+    }
+
+    /**
+     * Mark the measurement at an index as invalid.
+     *
+     * @param index the index to clear
+     */
+    public void invalidate(final int index) {
+        packed[index] = 0L;
+        valid[index >>> WORD_SHIFT] &= ~(1L << index);
+    }
+
+    /**
+     * Return whether the measurement at an index is valid.
+     *
+     * @param index the index to check
+     * @return true if the index holds a valid measurement
+     */
+    public boolean isValid(final int index) {
+        return (valid[index >>> WORD_SHIFT] & (1L << index)) != 0;
+    }
+
+    /**
+     * Return the packed measurement at an index.
+     *
+     * @param index the index to read
+     * @return the packed measurement, or 0 if the index is invalid
+     */
+    public long getPacked(final int index) {
+        return packed[index];
+    }
+
+    /**
+     * Return the latitude stored at an index.
+     *
+     * @param index the index to read
+     * @return the latitude stored at that index
+     */
+    public double getLatitude(final int index) {
+        return unpackLatitude(packed[index]);
+    }
+
+    /**
+     * Return the longitude stored at an index.
+     *
+     * @param index the index to read
+     * @return the longitude stored at that index
+     */
+    public double getLongitude(final int index) {
+        return unpackLongitude(packed[index]);
+    }
+
+    /**
+     * Return the number of measurements the store can hold.
+     *
+     * @return the capacity of the store
+     */
+    public int getCapacity() {
+        return packed.length;
+    }
+
+    /**
+     * Determine which valid measurement is the furthest north.
+     *
+     * @return the index of the valid measurement furthest north, the first one on ties, or -1 if there is none
+     * @see Locator#farthestNorth(double[], double[], boolean[])
+     */
+    public int farthestNorth() {
+        int index = -1;
+        int maximum = MIN_LATITUDE_UNITS;
+        for (int i = 0; i < packed.length; i++) {
+            int latitude = latitudeUnits(packed[i]);
+            if (latitude > maximum && isValid(i)) {
+                maximum = latitude;
+                index = i;
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Determine whether another valid measurement is at the same spot as the one at an index.
+     *
+     * @param currentIndex the index of the measurement to compare against
+     * @return true if the store contains another valid measurement equal to the one at currentIndex
+     * @see Locator#beenHere(int, double[], double[], boolean[])
+     */
+    public boolean beenHere(final int currentIndex) {
+        long current = packed[currentIndex];
+        for (int i = 0; i < packed.length; i++) {
+            if (packed[i] == current && i != currentIndex && isValid(i)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Replace the contents of the store with measurements in the array layout used by Locator.
+     * <p>
+     * Indices past the end of the passed arrays are marked invalid.
+     *
+     * @param latitudes the array containing latitude measurements
+     * @param longitudes the array containing longitude measurements
+     * @param validLocations the array containing whether the location at an index is valid or not
+     * @throws IllegalArgumentException if the arrays are longer than the store, or a valid value is out of range
+     */
+    public void importFrom(final double[] latitudes, final double[] longitudes, final boolean[] validLocations) {
+        if (latitudes.length > packed.length) {
+            throw new IllegalArgumentException("arrays are larger than the store");
+        }
+        for (int i = 0; i < packed.length; i++) {
+            if (i < latitudes.length && validLocations[i]) {
+                set(i, latitudes[i], longitudes[i]);
+            } else {
+                invalidate(i);
+            }
+        }
+    }
+
+    /**
+     * Copy the contents of the store into the array layout used by Locator.
+     * <p>
+     * Invalid indices are written as 0.0 and false.
+     *
+     * @param latitudes the array to store latitude measurements in
+     * @param longitudes the array to store longitude measurements in
+     * @param validLocations the array to store whether the location at an index is valid or not in
+     * @throws IllegalArgumentException if the arrays are shorter than the store
+     */
+    public void exportTo(final double[] latitudes, final double[] longitudes, final boolean[] validLocations) {
+        if (latitudes.length < packed.length || longitudes.length < packed.length
+            || validLocations.length < packed.length) {
+            throw new IllegalArgumentException("arrays are smaller than the store");
+        }
+        for (int i = 0; i < packed.length; i++) {
+            latitudes[i] = getLatitude(i);
+            longitudes[i] = getLongitude(i);
+            validLocations[i] = isValid(i);
+        }
+    }
+}
@@ -0,0 +1,959 @@
+package edu.illinois.cs.cs125.spring2019.mp0.lib;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Finds frequently visited places in a location history by clustering its positions with DBSCAN.
+ * <p>
+ * DBSCAN calls a position a core position if at least a minimum number of positions, counting itself, lie within a
+ * radius of it. Core positions within the radius of each other belong to the same place, positions within the radius
+ * of a core position join its place, and everything else is noise. Done naively, that means comparing every pair of
+ * positions. Instead positions are bucketed into a grid of cells half the radius across, so that:
+ * <ul>
+ * <li>neighbours of a position can only be in the few cells around its own,</li>
+ * <li>every position in a cell holding at least the minimum number of positions is a core position, with no distance
+ * checks at all, and</li>
+ * <li>all core positions in a cell belong to the same place, so places can be found by linking cells rather than
+ * positions.</li>
+ * </ul>
+ * Month-long histories spend most of their positions in a few dense cells, so the work is close to linear in the
+ * number of positions.
+ * <p>
+ * Positions can be added one at a time as they arrive. Each add only looks at the cells around the new position:
+ * it updates neighbour counts, promotes positions that just became core positions, and merges the places they link.
+ * Because adding positions never splits a place, the result is always the same as clustering everything from scratch,
+ * except that a position within reach of two places may be attached to either. addAll adds many positions at once and
+ * then reclusters from scratch, splitting the grid into regions of cells that are processed in parallel in a
+ * ForkJoinPool.
+ * <p>
+ * A clusterer is not safe to use from more than one thread at a time.
+ */
+public final class PlaceClusterer {
+
+    /** Returned for positions that don't belong to any place. */
+    public static final int NOISE = -1;
+
+    /** Default number of cells handled by a single parallel task. */
+    public static final int DEFAULT_CHUNK_CELLS = 1024;
+
+    /** Marks a missing position or cell. */
+    private static final int NONE = -1;
+
+    /** Number of positions to make room for at first. */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /** Number of cells across the radius, so that any two positions in one cell are within the radius. */
+    private static final int CELLS_PER_RADIUS = 2;
+
+    /** Millimeters per meter, the resolution distances are sorted at. */
+    private static final double MILLIMETERS_PER_METER = 1000.0;
+
+    /** Task phase that finds core positions. */
+    private static final int FIND_CORES = 0;
+
+    /** Task phase that finds pairs of cells whose core positions link them into one place. */
+    private static final int LINK_CELLS = 1;
+
+    /** Task phase that attaches non-core positions to a nearby core position. */
+    private static final int ATTACH_BORDERS = 2;
+
+    /** Distance within which positions are neighbours, in meters. */
+    private final double radiusMeters;
+
+    /** Number of neighbours, counting itself, that make a position a core position. */
+    private final int minPoints;
+
+    /** The pool that runs addAll's tasks. */
+    private final ForkJoinPool pool;
+
+    /** Largest number of cells handled by a single task. */
+    private final int chunkCells;
+
+    /** Size of each cell, in degrees. */
+    private final double cellDegrees;
+
+    /** Number of rows of cells. */
+    private final int rows;
+
+    /** Number of columns of cells. */
+    private final int columns;
+
+    /** Latitude of each position. */
+    private double[] latitudes = new double[INITIAL_CAPACITY];
+
+    /** Longitude of each position. */
+    private double[] longitudes = new double[INITIAL_CAPACITY];
+
+    /** Cell holding each position. */
+    private int[] cellOf = new int[INITIAL_CAPACITY];
+
+    /** Number of positions within the radius of each non-core position, counting itself. */
+    private int[] counts = new int[INITIAL_CAPACITY];
+
+    /** Whether each position is a core position. */
+    private boolean[] core = new boolean[INITIAL_CAPACITY];
+
+    /** Union-find parent of each core position; the root of each place is its lowest core position. */
+    private int[] parents = new int[INITIAL_CAPACITY];
+
+    /** Core position each non-core position is attached to, or NONE. */
+    private int[] owners = new int[INITIAL_CAPACITY];
+
+    /** Number of positions. */
+    private int size = 0;
+
+    /** Positions in each cell, in the order they were added. */
+    private final List<IntList> cellPositions = new ArrayList<>();
+
+    /** Cell number of each cell. */
+    private long[] cellKeys = new long[INITIAL_CAPACITY];
+
+    /** Cell with each cell number. */
+    private final LongIntTable cellTable = new LongIntTable();
+
+    /** Scratch list of neighbouring cells. */
+    private final IntList neighbours = new IntList();
+
+    /** Scratch list of positions that just became core positions. */
+    private final IntList promoted = new IntList();
+
+    /**
+     * Create an empty clusterer that runs addAll in the common pool.
+     *
+     * @param setRadiusMeters the distance within which positions are neighbours, in meters
+     * @param setMinPoints the number of neighbours, counting itself, that make a position a core position
+     */
+    public PlaceClusterer(final double setRadiusMeters, final int setMinPoints) {
+        this(setRadiusMeters, setMinPoints, ForkJoinPool.commonPool(), DEFAULT_CHUNK_CELLS);
+    }
+
+    /**
+     * Create an empty clusterer.
+     *
+     * @param setRadiusMeters the distance within which positions are neighbours, in meters
+     * @param setMinPoints the number of neighbours, counting itself, that make a position a core position
+     * @param setPool the pool to run addAll's tasks in
+     * @param setChunkCells the largest number of cells handled by a single task
+     */
+    public PlaceClusterer(final double setRadiusMeters, final int setMinPoints, final ForkJoinPool setPool,
+                          final int setChunkCells) {
+        if (!(setRadiusMeters > 0) || setMinPoints < 1 || setChunkCells < 1) {
+            throw new IllegalArgumentException("radius, minimum points and chunk size must be positive");
+        }
+        radiusMeters = setRadiusMeters;
+        minPoints = setMinPoints;
+        pool = setPool;
+        chunkCells = setChunkCells;
+
+        double fullCircle = Locator.MAX_LONGITUDE - Locator.MIN_LONGITUDE;
+        double halfCircle = Locator.MAX_LATITUDE - Locator.MIN_LATITUDE;
+        double requestedDegrees = GeoMath.metersToDegrees(radiusMeters) / CELLS_PER_RADIUS;
+        columns = (int) Math.min(Integer.MAX_VALUE, Math.ceil(fullCircle / requestedDegrees));
+        cellDegrees = fullCircle / columns;
+        rows = (int) Math.ceil(halfCircle / cellDegrees);
+    }
+
+    /**
+     * Add a position and update the places.
+     *
+     * @param latitude the latitude of the position
+     * @param longitude the longitude of the position
+     * @return the id of the position, counting up from 0
+     * @throws IllegalArgumentException if the position is not valid
+     */
+    public int add(final double latitude, final double longitude) {
+        int id = append(latitude, longitude);
+        int cell = cellOf[id];
+        IntList members = cellPositions.get(cell);
+        promoted.clear();
+        if (members.size() == minPoints) {
+            // The cell just became dense, so all of its positions are now core positions in the same place, including
+            // any that already were; link relies on that
+            for (int i = 0; i < members.size(); i++) {
+                promote(members.get(i));
+                union(members.get(i), members.get(0));
+            }
+        } else if (members.size() > minPoints) {
+            promote(id);
+            union(id, members.get(0));
+        }
+
+        // Count our neighbours, and count ourselves as a neighbour of theirs
+        neighbourCells(cell, neighbours);
+        for (int n = 0; n < neighbours.size(); n++) {
+            IntList others = cellPositions.get(neighbours.get(n));
+            boolean dense = others.size() >= minPoints;
+            if (dense && core[id] || distanceToCell(id, neighbours.get(n)) > radiusMeters) {
+                continue;
+            }
+            for (int i = 0; i < others.size(); i++) {
+                int other = others.get(i);
+                if (other == id || !withinRadius(id, other)) {
+                    continue;
+                }
+                if (!core[id]) {
+                    counts[id]++;
+                    if (core[other] && owners[id] == NONE) {
+                        owners[id] = other;
+                    }
+                    if (counts[id] >= minPoints) {
+                        promote(id);
+                    }
+                }
+                if (!dense && !core[other]) {
+                    counts[other]++;
+                    if (counts[other] >= minPoints) {
+                        promote(other);
+                    }
+                }
+                if (dense && core[id]) {
+                    break;
+                }
+            }
+        }
+
+        for (int i = 0; i < promoted.size(); i++) {
+            link(promoted.get(i));
+        }
+        return id;
+    }
+
+    /**
+     * Mark a position as a core position, if it isn't already.
+     *
+     * @param id the position
+     */
+    private void promote(final int id) {
+        if (!core[id]) {
+            core[id] = true;
+            owners[id] = NONE;
+            promoted.add(id);
+        }
+    }
+
+    /**
+     * Merge a new core position's place with the core positions near it, and attach nearby non-core positions.
+     *
+     * @param id the new core position
+     */
+    private void link(final int id) {
+        neighbourCells(cellOf[id], neighbours);
+        for (int n = 0; n < neighbours.size(); n++) {
+            IntList others = cellPositions.get(neighbours.get(n));
+            if (others.size() >= minPoints) {
+                // Every position in a dense cell is a core position in the same place, so one link is enough
+                if (find(id) == find(others.get(0)) || distanceToCell(id, neighbours.get(n)) > radiusMeters) {
+                    continue;
+                }
+                for (int i = 0; i < others.size(); i++) {
+                    if (withinRadius(id, others.get(i))) {
+                        union(id, others.get(i));
+                        break;
+                    }
+                }
+                continue;
+            } else if (distanceToCell(id, neighbours.get(n)) > radiusMeters) {
+                continue;
+            }
+            for (int i = 0; i < others.size(); i++) {
+                int other = others.get(i);
+                if (other == id || !withinRadius(id, other)) {
+                    continue;
+                }
+                if (core[other]) {
+                    union(id, other);
+                } else if (owners[other] == NONE) {
+                    owners[other] = id;
+                }
+            }
+        }
+    }
+
+    /**
+     * Add many positions and recluster everything in parallel.
+     *
+     * @param newLatitudes the latitudes of the positions
+     * @param newLongitudes the longitudes of the positions
+     * @return the id of the first added position
+     * @throws IllegalArgumentException if the arrays have different lengths or a position is not valid
+     */
+    public int addAll(final double[] newLatitudes, final double[] newLongitudes) {
+        if (newLatitudes.length != newLongitudes.length) {
+            throw new IllegalArgumentException("arrays have different lengths");
+        }
+        for (int i = 0; i < newLatitudes.length; i++) {
+            GeoMath.checkPosition(newLatitudes[i], newLongitudes[i]);
+        }
+        int first = size;
+        for (int i = 0; i < newLatitudes.length; i++) {
+            append(newLatitudes[i], newLongitudes[i]);
+        }
+        recluster();
+        return first;
+    }
+
+    /**
+     * Recompute every position's state from scratch, processing regions of cells in parallel.
+     */
+    private void recluster() {
+        int cellCount = cellPositions.size();
+        boolean[] cellHasCore = new boolean[cellCount];
+        pool.invoke(new CellTask(FIND_CORES, cellHasCore, 0, cellCount));
+        IntList links = pool.invoke(new CellTask(LINK_CELLS, cellHasCore, 0, cellCount));
+
+        // Merge linked cells, then point every core position at the lowest core position in its place
+        int[] cellParents = new int[cellCount];
+        for (int cell = 0; cell < cellCount; cell++) {
+            cellParents[cell] = cell;
+        }
+        for (int i = 0; i < links.size(); i += 2) {
+            int left = findCell(cellParents, links.get(i));
+            int right = findCell(cellParents, links.get(i + 1));
+            cellParents[Math.max(left, right)] = Math.min(left, right);
+        }
+        int[] roots = newEmptyTable(cellCount);
+        for (int id = 0; id < size; id++) {
+            if (core[id]) {
+                int root = findCell(cellParents, cellOf[id]);
+                if (roots[root] == NONE) {
+                    roots[root] = id;
+                }
+                parents[id] = roots[root];
+            } else {
+                parents[id] = id;
+            }
+        }
+        pool.invoke(new CellTask(ATTACH_BORDERS, cellHasCore, 0, cellCount));
+    }
+
+    /**
+     * Find the root of a cell in the cell union-find used by recluster.
+     *
+     * @param cellParents the parent of each cell
+     * @param cell the cell
+     * @return the root cell
+     */
+    private static int findCell(final int[] cellParents, final int cell) {
+        int current = cell;
+        while (cellParents[current] != current) {
+            cellParents[current] = cellParents[cellParents[current]];
+            current = cellParents[current];
+        }
+        return current;
+    }
+
+    /**
+     * Store a new position in its cell without updating any places.
+     *
+     * @param latitude the latitude of the position
+     * @param longitude the longitude of the position
+     * @return the id of the position
+     */
+    private int append(final double latitude, final double longitude) {
+        GeoMath.checkPosition(latitude, longitude);
+        if (size == latitudes.length) {
+            int capacity = latitudes.length * 2;
+            latitudes = Arrays.copyOf(latitudes, capacity);
+            longitudes = Arrays.copyOf(longitudes, capacity);
+            cellOf = Arrays.copyOf(cellOf, capacity);
+            counts = Arrays.copyOf(counts, capacity);
+            core = Arrays.copyOf(core, capacity);
+            parents = Arrays.copyOf(parents, capacity);
+            owners = Arrays.copyOf(owners, capacity);
+        }
+        int id = size++;
+        latitudes[id] = latitude;
+        longitudes[id] = longitude;
+        counts[id] = 1;
+        core[id] = false;
+        parents[id] = id;
+        owners[id] = NONE;
+        int cell = findOrAddCell(latitude, longitude);
+        cellOf[id] = cell;
+        cellPositions.get(cell).add(id);
+        return id;
+    }
+
+    /**
+     * Return whether two positions are within the radius of each other.
+     *
+     * @param first the first position
+     * @param second the second position
+     * @return true if they are neighbours
+     */
+    private boolean withinRadius(final int first, final int second) {
+        return GeoMath.haversine(latitudes[first], longitudes[first], latitudes[second], longitudes[second])
+            <= radiusMeters;
+    }
+
+    /**
+     * Return a lower bound on the distance from a position to anywhere in a cell.
+     * <p>
+     * This uses the haversine formula with the latitude and longitude differences to the nearest edges of the cell,
+     * and the cosine of the most poleward latitude involved, each of which can only make the distance smaller.
+     *
+     * @param id the position
+     * @param cell the cell
+     * @return the lower bound, in meters
+     */
+    private double distanceToCell(final int id, final int cell) {
+        double south = Locator.MIN_LATITUDE + (cellKeys[cell] / columns) * cellDegrees;
+        double west = Locator.MIN_LONGITUDE + (cellKeys[cell] % columns) * cellDegrees;
+        double latitude = latitudes[id];
+        double latitudeGap = Math.max(0, Math.max(south - latitude, latitude - (south + cellDegrees)));
+
+        double fullCircle = Locator.MAX_LONGITUDE - Locator.MIN_LONGITUDE;
+        double offset = longitudes[id] - west;
+        offset -= Math.floor(offset / fullCircle) * fullCircle;
+        double longitudeGap = 0;
+        if (offset > cellDegrees) {
+            longitudeGap = Math.min(offset - cellDegrees, fullCircle - offset);
+        }
+
+        double poleward = Math.max(Math.abs(latitude), Math.max(Math.abs(south), Math.abs(south + cellDegrees)));
+        double cosine = Math.cos(Math.toRadians(Math.min(Locator.MAX_LATITUDE, poleward)));
+        double latitudeHalf = Math.sin(Math.toRadians(latitudeGap) / 2);
+        double longitudeHalf = Math.sin(Math.toRadians(longitudeGap) / 2);
+        double a = latitudeHalf * latitudeHalf + cosine * cosine * longitudeHalf * longitudeHalf;
+        return 2 * GeoMath.EARTH_RADIUS_METERS * Math.asin(Math.sqrt(Math.min(1.0, a)));
+    }
+
+    /**
+     * Find the root of a core position's place.
+     *
+     * @param id the core position
+     * @return the lowest core position in the same place
+     */
+    private int find(final int id) {
+        int current = id;
+        while (parents[current] != current) {
+            parents[current] = parents[parents[current]];
+            current = parents[current];
+        }
+        return current;
+    }
+
+    /**
+     * Merge the places of two core positions.
+     *
+     * @param first the first core position
+     * @param second the second core position
+     */
+    private void union(final int first, final int second) {
+        int left = find(first);
+        int right = find(second);
+        if (left < right) {
+            parents[right] = left;
+        } else if (right < left) {
+            parents[left] = right;
+        }
+    }
+
+    /**
+     * Return the place a position belongs to.
+     * <p>
+     * Places are identified by their lowest core position. That never changes for a position once it is in a place,
+     * except when two places merge.
+     *
+     * @param id the position
+     * @return the lowest core position in the same place, or NOISE if the position isn't in a place
+     */
+    public int getPlace(final int id) {
+        if (id < 0 || id >= size) {
+            throw new IndexOutOfBoundsException("position " + id + " of " + size);
+        }
+        if (core[id]) {
+            return find(id);
+        } else if (owners[id] != NONE) {
+            return find(owners[id]);
+        }
+        return NOISE;
+    }
+
+    /**
+     * Return whether a position is a core position.
+     *
+     * @param id the position
+     * @return true if at least the minimum number of positions are within the radius of it
+     */
+    public boolean isCore(final int id) {
+        if (id < 0 || id >= size) {
+            throw new IndexOutOfBoundsException("position " + id + " of " + size);
+        }
+        return core[id];
+    }
+
+    /**
+     * Number every place and return which place each position belongs to.
+     *
+     * @return a new array holding, for each position, a place number counting up from 0 in order of each place's first
+     * position, or NOISE
+     */
+    public int[] getLabels() {
+        int[] labels = new int[size];
+        int[] numbers = newEmptyTable(size);
+        int places = 0;
+        for (int id = 0; id < size; id++) {
+            int place = getPlace(id);
+            if (place == NOISE) {
+                labels[id] = NOISE;
+                continue;
+            }
+            if (numbers[place] == NONE) {
+                numbers[place] = places++;
+            }
+            labels[id] = numbers[place];
+        }
+        return labels;
+    }
+
+    /**
+     * Summarize every place.
+     *
+     * @return a new list of places, in the same order as the numbers returned by getLabels
+     */
+    public List<Place> getPlaces() {
+        int[] labels = getLabels();
+        List<Place> places = new ArrayList<>();
+        for (int id = 0; id < size; id++) {
+            if (labels[id] == NOISE) {
+                continue;
+            }
+            if (labels[id] == places.size()) {
+                places.add(new Place());
+            }
+            Place place = places.get(labels[id]);
+            place.latitude += latitudes[id];
+            place.longitude += longitudes[id];
+            place.size++;
+        }
+        for (Place place : places) {
+            place.latitude /= place.size;
+            place.longitude /= place.size;
+        }
+        return places;
+    }
+
+    /**
+     * Return the number of positions.
+     *
+     * @return the number of positions added
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Return the latitude of a position.
+     *
+     * @param id the position
+     * @return its latitude
+     */
+    public double getLatitude(final int id) {
+        return latitudes[id];
+    }
+
+    /**
+     * Return the longitude of a position.
+     *
+     * @param id the position
+     * @return its longitude
+     */
+    public double getLongitude(final int id) {
+        return longitudes[id];
+    }
+
+    /**
+     * List the cells that could hold a position within the radius of some position in a cell, including the cell.
+     *
+     * @param cell the cell
+     * @param result list to replace with the neighbouring cells
+     */
+    private void neighbourCells(final int cell, final IntList result) {
+        result.clear();
+        long key = cellKeys[cell];
+        double south = Locator.MIN_LATITUDE + (key / columns) * cellDegrees - GeoMath.metersToDegrees(radiusMeters);
+        double north = south + cellDegrees + 2 * GeoMath.metersToDegrees(radiusMeters);
+        int firstRow = row(south);
+        int lastRow = row(north);
+
+        double poleward = Math.min(Locator.MAX_LATITUDE, Math.max(Math.abs(south), Math.abs(north)));
+        double longitudeSpan = GeoMath.longitudeSpan(poleward, radiusMeters);
+        double west = Locator.MIN_LONGITUDE + (key % columns) * cellDegrees - longitudeSpan;
+        long firstColumn = (long) Math.floor((west - Locator.MIN_LONGITUDE) / cellDegrees);
+        long lastColumn = (long) Math.floor((west + cellDegrees + 2 * longitudeSpan - Locator.MIN_LONGITUDE)
+            / cellDegrees);
+        if (lastColumn - firstColumn + 1 >= columns) {
+            firstColumn = 0;
+            lastColumn = columns - 1;
+        }
+
+        long columnCount = lastColumn - firstColumn + 1;
+        if ((lastRow - firstRow + 1) * columnCount > cellPositions.size()) {
+            // Cheaper to check every cell than to probe for every candidate cell
+            for (int other = 0; other < cellPositions.size(); other++) {
+                long otherKey = cellKeys[other];
+                long otherRow = otherKey / columns;
+                if (otherRow >= firstRow && otherRow <= lastRow
+                    && Math.floorMod(otherKey % columns - firstColumn, (long) columns) < columnCount) {
+                    result.add(other);
+                }
+            }
+            return;
+        }
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (long column = firstColumn; column <= lastColumn; column++) {
+                int other = cellTable.get((long) row * columns + Math.floorMod(column, (long) columns), NONE);
+                if (other != NONE) {
+                    result.add(other);
+                }
+            }
+        }
+    }
+
+    /**
+     * Return the row of cells containing a latitude, clamped to the grid.
+     *
+     * @param latitude the latitude
+     * @return the row number
+     */
+    private int row(final double latitude) {
+        double row = Math.floor((latitude - Locator.MIN_LATITUDE) / cellDegrees);
+        return (int) Math.max(0, Math.min(rows - 1, row));
+    }
+
+    /**
+     * Return the cell containing a position, creating it if needed.
+     *
+     * @param latitude the latitude of the position
+     * @param longitude the longitude of the position
+     * @return the cell
+     */
+    private int findOrAddCell(final double latitude, final double longitude) {
+        long column = (long) Math.floor((longitude - Locator.MIN_LONGITUDE) / cellDegrees);
+        long key = (long) row(latitude) * columns + Math.floorMod(column, (long) columns);
+        int cell = cellTable.get(key, NONE);
+        if (cell != NONE) {
+            return cell;
+        }
+        cell = cellPositions.size();
+        cellPositions.add(new IntList());
+        if (cell == cellKeys.length) {
+            cellKeys = Arrays.copyOf(cellKeys, cell * 2);
+        }
+        cellKeys[cell] = key;
+        cellTable.put(key, cell);
+        return cell;
+    }
+
+    /**
+     * Create an int array filled with NONE.
+     *
+     * @param length the length of the array
+     * @return the new array
+     */
+    private static int[] newEmptyTable(final int length) {
+        int[] table = new int[length];
+        Arrays.fill(table, NONE);
+        return table;
+    }
+
+    /**
+     * A frequently visited place.
+     */
+    public static final class Place {
+
+        /** Mean latitude of the place's positions. */
+        private double latitude;
+
+        /** Mean longitude of the place's positions. */
+        private double longitude;
+
+        /** Number of positions in the place. */
+        private int size;
+
+        /**
+         * Return the latitude of the place's center.
+         *
+         * @return the mean latitude of its positions
+         */
+        public double getLatitude() {
+            return latitude;
+        }
+
+        /**
+         * Return the longitude of the place's center.
+         *
+         * @return the mean longitude of its positions
+         */
+        public double getLongitude() {
+            return longitude;
+        }
+
+        /**
+         * Return the number of positions in the place.
+         *
+         * @return the number of positions
+         */
+        public int size() {
+            return size;
+        }
+    }
+
+    /**
+     * Task that runs one phase of recluster over a range of cells, splitting it if it is too large.
+     * <p>
+     * Each task only writes the state of positions in its own cells, so tasks never interfere with each other.
+     */
+    private final class CellTask extends RecursiveTask<IntList> {
+
+        /** Serialization version, required because RecursiveTask is serializable. */
+        private static final long serialVersionUID = 1L;
+
+        /** The phase to run. */
+        private final int phase;
+
+        /** Whether each cell has a core position, written by the first phase and read by the others. */
+        private final boolean[] cellHasCore;
+
+        /** First cell of the range. */
+        private final int from;
+
+        /** One past the last cell of the range. */
+        private final int to;
+
+        /**
+         * Create a task for a range of cells.
+         *
+         * @param setPhase the phase to run
+         * @param setCellHasCore whether each cell has a core position
+         * @param setFrom first cell of the range
+         * @param setTo one past the last cell of the range
+         */
+        CellTask(final int setPhase, final boolean[] setCellHasCore, final int setFrom, final int setTo) {
+            phase = setPhase;
+            cellHasCore = setCellHasCore;
+            from = setFrom;
+            to = setTo;
+        }
+
+        @Override
+        protected IntList compute() {
+            if (to - from <= chunkCells) {
+                IntList links = new IntList();
+                IntList cells = new IntList();
+                for (int cell = from; cell < to; cell++) {
+                    neighbourCells(cell, cells);
+                    if (phase == FIND_CORES) {
+                        findCores(cell, cells);
+                    } else if (phase == LINK_CELLS) {
+                        linkCells(cell, cells, links);
+                    } else {
+                        attachBorders(cell, cells);
+                    }
+                }
+                return links;
+            }
+            int middle = (from + to) >>> 1;
+            CellTask left = new CellTask(phase, cellHasCore, from, middle);
+            CellTask right = new CellTask(phase, cellHasCore, middle, to);
+            left.fork();
+            IntList rightLinks = right.compute();
+            IntList links = left.join();
+            for (int i = 0; i < rightLinks.size(); i++) {
+                links.add(rightLinks.get(i));
+            }
+            return links;
+        }
+
+        /**
+         * Find the core positions in a cell.
+         *
+         * @param cell the cell
+         * @param cells the cell's neighbouring cells
+         */
+        private void findCores(final int cell, final IntList cells) {
+            IntList members = cellPositions.get(cell);
+            boolean dense = members.size() >= minPoints;
+            for (int i = 0; i < members.size(); i++) {
+                int id = members.get(i);
+                owners[id] = NONE;
+                counts[id] = 0;
+                core[id] = dense;
+                for (int n = 0; n < cells.size() && !core[id]; n++) {
+                    if (distanceToCell(id, cells.get(n)) > radiusMeters) {
+                        continue;
+                    }
+                    IntList others = cellPositions.get(cells.get(n));
+                    for (int j = 0; j < others.size(); j++) {
+                        if (withinRadius(id, others.get(j))) {
+                            counts[id]++;
+                            if (counts[id] >= minPoints) {
+                                core[id] = true;
+                                break;
+                            }
+                        }
+                    }
+                }
+                if (core[id]) {
+                    cellHasCore[cell] = true;
+                }
+            }
+        }
+
+        /**
+         * Find the later cells whose core positions are within the radius of this cell's core positions.
+         *
+         * @param cell the cell
+         * @param cells the cell's neighbouring cells
+         * @param links list to append pairs of linked cells to
+         */
+        private void linkCells(final int cell, final IntList cells, final IntList links) {
+            if (!cellHasCore[cell]) {
+                return;
+            }
+            for (int n = 0; n < cells.size(); n++) {
+                int other = cells.get(n);
+                if (other <= cell || !cellHasCore[other]) {
+                    continue;
+                }
+                if (probe(cell, other)) {
+                    links.add(cell);
+                    links.add(other);
+                    continue;
+                }
+                long[] near = closestFirst(cell, other);
+                long[] otherNear = closestFirst(other, cell);
+                search:
+                for (long first : near) {
+                    for (long second : otherNear) {
+                        if (withinRadius((int) first, (int) second)) {
+                            links.add(cell);
+                            links.add(other);
+                            break search;
+                        }
+                    }
+                }
+            }
+        }
+
+        /**
+         * Quickly check whether the core positions of two cells that face each other are within the radius.
+         * <p>
+         * This tries a single pair: the core position in the first cell nearest the center of the second, and the core
+         * position in the second cell nearest that one, using flat distances that need no trigonometry. In dense areas
+         * that pair almost always links the cells, saving the full search.
+         *
+         * @param cell the first cell
+         * @param other the second cell
+         * @return true if the pair tried is within the radius; false says nothing
+         */
+        private boolean probe(final int cell, final int other) {
+            double centerLatitude = Locator.MIN_LATITUDE + (cellKeys[other] / columns) * cellDegrees + cellDegrees / 2;
+            double centerLongitude = Locator.MIN_LONGITUDE + (cellKeys[other] % columns) * cellDegrees
+                + cellDegrees / 2;
+            double cosine = Math.cos(Math.toRadians(centerLatitude));
+            int first = nearest(cellPositions.get(cell), centerLatitude, centerLongitude, cosine);
+            int second = nearest(cellPositions.get(other), latitudes[first], longitudes[first], cosine);
+            return withinRadius(first, second);
+        }
+
+        /**
+         * Find the core position in a list nearest a point, using flat distances.
+         *
+         * @param members the positions to search, at least one of them a core position
+         * @param latitude the latitude of the point
+         * @param longitude the longitude of the point
+         * @param cosine the cosine of a latitude near the positions, to scale longitude differences by
+         * @return the nearest core position
+         */
+        private int nearest(final IntList members, final double latitude, final double longitude,
+                            final double cosine) {
+            double fullCircle = Locator.MAX_LONGITUDE - Locator.MIN_LONGITUDE;
+            int best = NONE;
+            double bestDistance = Double.POSITIVE_INFINITY;
+            for (int i = 0; i < members.size(); i++) {
+                int id = members.get(i);
+                if (!core[id]) {
+                    continue;
+                }
+                double north = latitudes[id] - latitude;
+                double east = Math.abs(longitudes[id] - longitude);
+                east = Math.min(east, fullCircle - east) * cosine;
+                double distance = north * north + east * east;
+                if (distance < bestDistance) {
+                    bestDistance = distance;
+                    best = id;
+                }
+            }
+            return best;
+        }
+
+        /**
+         * List the core positions in a cell that could be within the radius of another cell, closest first.
+         * <p>
+         * Linking two dense cells could otherwise compare every pair of their positions. Usually only a corner or
+         * edge of each cell is near enough to the other, and a pair within the radius turns up among the first few
+         * positions tried.
+         *
+         * @param cell the cell to list positions from
+         * @param other the other cell
+         * @return the positions, each packed with its distance to the other cell in the high bits, in order
+         */
+        private long[] closestFirst(final int cell, final int other) {
+            IntList members = cellPositions.get(cell);
+            long[] near = new long[members.size()];
+            int count = 0;
+            for (int i = 0; i < members.size(); i++) {
+                int id = members.get(i);
+                double distance = distanceToCell(id, other);
+                if (core[id] && distance <= radiusMeters) {
+                    near[count++] = (long) Math.min(Integer.MAX_VALUE, distance * MILLIMETERS_PER_METER)
+                        << Integer.SIZE | id;
+                }
+            }
+            near = Arrays.copyOf(near, count);
+            Arrays.sort(near);
+            return near;
+        }
+
+        /**
+         * Attach each non-core position in a cell to its nearest core position within the radius.
+         *
+         * @param cell the cell
+         * @param cells the cell's neighbouring cells
+         */
+        private void attachBorders(final int cell, final IntList cells) {
+            IntList members = cellPositions.get(cell);
+            for (int i = 0; i < members.size(); i++) {
+                int id = members.get(i);
+                if (core[id]) {
+                    continue;
+                }
+                double nearest = radiusMeters;
+                for (int n = 0; n < cells.size(); n++) {
+                    if (!cellHasCore[cells.get(n)] || distanceToCell(id, cells.get(n)) > radiusMeters) {
+                        continue;
+                    }
+                    IntList others = cellPositions.get(cells.get(n));
+                    for (int j = 0; j < others.size(); j++) {
+                        int other = others.get(j);
+                        if (!core[other]) {
+                            continue;
+                        }
+                        double distance = GeoMath.haversine(latitudes[id], longitudes[id],
+                            latitudes[other], longitudes[other]);
+                        if (distance < nearest || distance == nearest && (owners[id] == NONE || other < owners[id])) {
+                            nearest = distance;
+                            owners[id] = other;
+                        }
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,331 @@
+package edu.illinois.cs.cs125.spring2019.mp0.lib;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Feeds recorded or synthetic measurements through a LocationProcessor and measures how long each update takes.
+ * <p>
+ * The driver replays measurements either as fast as possible or at a fixed rate. When a rate is set, each measurement
+ * has a scheduled time, and its latency is measured from that scheduled time rather than from when the processor
+ * actually got to it. So if one slow update makes the following ones late, they are all charged for the wait, just as
+ * a real stream of location updates would be, instead of the delay disappearing from the numbers.
+ * <p>
+ * Run it from the command line to load-test the update path on a plain JVM:
+ * <pre>java ... edu.illinois.cs.cs125.spring2019.mp0.lib.ReplayDriver [fixes] [rate] [capacity] [track log]</pre>
+ * A rate of 0 replays as fast as possible. Without a track log, fixes follow the same kind of random walk the app
+ * uses when wandering.
+ */
+public final class ReplayDriver {
+
+    /** Default number of measurements kept by the processor, matching the app. */
+    public static final int DEFAULT_CAPACITY = 720;
+
+    /** Default number of synthetic measurements to replay from the command line. */
+    private static final int DEFAULT_FIXES = 1000000;
+
+    /** Fraction of the command line fixes used to warm up, as a divisor. */
+    private static final int WARMUP_DIVISOR = 10;
+
+    /** Most fixes used to warm up from the command line. */
+    private static final int MAX_WARMUP = 100000;
+
+    /** Fraction of the updates at the median. */
+    private static final double P50 = 0.5;
+
+    /** Fraction of the updates at the 99th percentile. */
+    private static final double P99 = 0.99;
+
+    /** Index of the capacity argument. */
+    private static final int CAPACITY_ARGUMENT = 2;
+
+    /** Index of the track log argument. */
+    private static final int TRACK_LOG_ARGUMENT = 3;
+
+    /** The processor to feed. */
+    private final LocationProcessor processor;
+
+    /** Renderer to send the processor's instructions to. */
+    private LocationProcessor.Renderer renderer = (index, category, latitude, longitude) -> { };
+
+    /** Time between scheduled updates in nanoseconds, or 0 to replay as fast as possible. */
+    private long periodNanos = 0;
+
+    /** Number of initial updates to run without measuring them. */
+    private int warmup = 0;
+
+    /**
+     * Create a driver for a processor.
+     *
+     * @param setProcessor the processor to feed
+     */
+    public ReplayDriver(final LocationProcessor setProcessor) {
+        processor = setProcessor;
+    }
+
+    /**
+     * Set the rate to replay measurements at.
+     *
+     * @param fixesPerSecond updates per second, or 0 to replay as fast as possible
+     * @return this driver
+     */
+    public ReplayDriver setRate(final double fixesPerSecond) {
+        if (!(fixesPerSecond >= 0)) {
+            throw new IllegalArgumentException("rate must not be negative");
+        }
+        if (fixesPerSecond == 0) {
+            periodNanos = 0;
+        } else {
+            periodNanos = Math.max(1, Math.round(TimeUnit.SECONDS.toNanos(1) / fixesPerSecond));
+        }
+        return this;
+    }
+
+    /**
+     * Set the renderer that receives the processor's instructions.
+     * <p>
+     * By default instructions are discarded, so only the processor itself is measured.
+     *
+     * @param setRenderer the renderer to use
+     * @return this driver
+     */
+    public ReplayDriver setRenderer(final LocationProcessor.Renderer setRenderer) {
+        renderer = setRenderer;
+        return this;
+    }
+
+    /**
+     * Set how many updates to run before measuring, to give the JIT compiler time to warm up.
+     *
+     * @param setWarmup the number of unmeasured updates at the start of each replay
+     * @return this driver
+     */
+    public ReplayDriver setWarmup(final int setWarmup) {
+        if (setWarmup < 0) {
+            throw new IllegalArgumentException("warmup must not be negative");
+        }
+        warmup = setWarmup;
+        return this;
+    }
+
+    /**
+     * Replay measurements from arrays.
+     *
+     * @param latitudes the latitudes to replay, in order
+     * @param longitudes the longitudes to replay
+     * @return the measured latencies
+     */
+    public Result replay(final double[] latitudes, final double[] longitudes) {
+        if (latitudes.length != longitudes.length) {
+            throw new IllegalArgumentException("arrays have different lengths");
+        }
+        int skip = Math.min(warmup, latitudes.length);
+        for (int i = 0; i < skip; i++) {
+            processor.process(latitudes[i], longitudes[i], renderer);
+        }
+
+        long[] latencies = new long[latitudes.length - skip];
+        long instructions = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < latencies.length; i++) {
+            long begin = System.nanoTime();
+            if (periodNanos > 0) {
+                begin = start + i * periodNanos;
+                for (long wait = begin - System.nanoTime(); wait > 0; wait = begin - System.nanoTime()) {
+                    LockSupport.parkNanos(wait);
+                }
+            }
+            instructions += processor.process(latitudes[skip + i], longitudes[skip + i], renderer);
+            latencies[i] = System.nanoTime() - begin;
+        }
+        long elapsed = System.nanoTime() - start;
+        return new Result(latencies, elapsed, instructions);
+    }
+
+    /**
+     * Replay every measurement in a track log.
+     *
+     * @param trackLog the log to replay
+     * @return the measured latencies
+     */
+    public Result replay(final TrackLog trackLog) {
+        double[] latitudes = new double[trackLog.size()];
+        double[] longitudes = new double[trackLog.size()];
+        trackLog.read(0, trackLog.size(), null, latitudes, longitudes, 0);
+        return replay(latitudes, longitudes);
+    }
+
+    /**
+     * Replay a synthetic random walk like the one the app uses when wandering.
+     *
+     * @param count the number of measurements to replay
+     * @param seed the seed for the walk
+     * @return the measured latencies
+     */
+    public Result replaySynthetic(final int count, final long seed) {
+        double[] latitudes = new double[count];
+        double[] longitudes = new double[count];
+        if (count > 0) {
+            latitudes[0] = WalkerSimulation.WANDER_LATITUDE;
+            longitudes[0] = WalkerSimulation.WANDER_LONGITUDE;
+        }
+        WalkerSimulation.fillRandomWalk(latitudes, longitudes, WalkerSimulation.WANDER_PROBABILITY,
+            WalkerSimulation.WANDER_LATITUDE_CHANGE, WalkerSimulation.WANDER_LONGITUDE_CHANGE, seed);
+        return replay(latitudes, longitudes);
+    }
+
+    /**
+     * Replay measurements from the command line and print the latencies.
+     *
+     * @param args number of fixes, rate, processor capacity, and optionally a track log to replay instead of a
+     *             synthetic walk
+     * @throws IOException if the track log could not be read
+     */
+    public static void main(final String[] args) throws IOException {
+        int fixes = DEFAULT_FIXES;
+        if (args.length > 0) {
+            fixes = Integer.parseInt(args[0]);
+        }
+        double rate = 0;
+        if (args.length > 1) {
+            rate = Double.parseDouble(args[1]);
+        }
+        int capacity = DEFAULT_CAPACITY;
+        if (args.length > CAPACITY_ARGUMENT) {
+            capacity = Integer.parseInt(args[CAPACITY_ARGUMENT]);
+        }
+        ReplayDriver driver = new ReplayDriver(new LocationProcessor(capacity))
+            .setRate(rate)
+            .setWarmup(Math.min(fixes / WARMUP_DIVISOR, MAX_WARMUP));
+        Result result;
+        if (args.length > TRACK_LOG_ARGUMENT) {
+            try (TrackLog trackLog = new TrackLog(new File(args[TRACK_LOG_ARGUMENT]))) {
+                result = driver.replay(trackLog);
+            }
+        } else {
+            result = driver.replaySynthetic(fixes, System.nanoTime());
+        }
+        System.out.println(result);
+    }
+
+    /**
+     * Latencies measured by one replay.
+     */
+    public static final class Result {
+
+        /** Latency of each measured update in nanoseconds, in increasing order. */
+        private final long[] latencies;
+
+        /** Time the measured updates took in total, in nanoseconds. */
+        private final long elapsedNanos;
+
+        /** Number of render instructions the measured updates produced. */
+        private final long instructions;
+
+        /**
+         * Create a result.
+         *
+         * @param setLatencies the latency of each update, which this result takes ownership of
+         * @param setElapsedNanos the total time taken
+         * @param setInstructions the number of render instructions produced
+         */
+        Result(final long[] setLatencies, final long setElapsedNanos, final long setInstructions) {
+            latencies = setLatencies;
+            Arrays.sort(latencies);
+            elapsedNanos = setElapsedNanos;
+            instructions = setInstructions;
+        }
+
+        /**
+         * Return the number of measured updates.
+         *
+         * @return the number of updates
+         */
+        public int getCount() {
+            return latencies.length;
+        }
+
+        /**
+         * Return the latency that a given fraction of updates took no longer than.
+         *
+         * @param fraction the fraction of updates, between 0 and 1
+         * @return the latency in nanoseconds, using the nearest-rank method, or 0 if nothing was measured
+         */
+        public long getPercentile(final double fraction) {
+            if (!(fraction >= 0 && fraction <= 1)) {
+                throw new IllegalArgumentException("fraction must be between 0 and 1");
+            }
+            if (latencies.length == 0) {
+                return 0;
+            }
+            int rank = (int) Math.ceil(fraction * latencies.length);
+            return latencies[Math.max(0, rank - 1)];
+        }
+
+        /**
+         * Return the median latency.
+         *
+         * @return the median latency in nanoseconds
+         */
+        public long getP50() {
+            return getPercentile(P50);
+        }
+
+        /**
+         * Return the 99th percentile latency.
+         *
+         * @return the 99th percentile latency in nanoseconds
+         */
+        public long getP99() {
+            return getPercentile(P99);
+        }
+
+        /**
+         * Return the longest latency.
+         *
+         * @return the longest latency in nanoseconds, or 0 if nothing was measured
+         */
+        public long getMax() {
+            return getPercentile(1);
+        }
+
+        /**
+         * Return the total time the measured updates took, including any time spent waiting for their schedule.
+         *
+         * @return the elapsed time in nanoseconds
+         */
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        /**
+         * Return the number of render instructions the measured updates produced.
+         *
+         * @return the number of instructions
+         */
+        public long getInstructions() {
+            return instructions;
+        }
+
+        /**
+         * Return the achieved update rate.
+         *
+         * @return updates per second
+         */
+        public double getThroughput() {
+            if (elapsedNanos == 0) {
+                return 0;
+            }
+            return latencies.length * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d updates, %.0f/s, p50 %d ns, p99 %d ns, max %d ns, %d render instructions",
+                getCount(), getThroughput(), getP50(), getP99(), getMax(), instructions);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package edu.illinois.cs.cs125.spring2019.mp0.lib;
+
+/**
+ * Tracks the largest or smallest value in a sliding window.
+ * <p>
+ * Values are added in order, each with a sequence number, and leave the window oldest first. The queue holds the
+ * values that are larger (or smaller) than every value added after them, oldest first. A new value removes the values
+ * it beats from the back; values that leave the window are removed from the front. So the front is always the
+ * window's extreme, and each value is added and removed at most once, for constant amortized time per value.
+ * <p>
+ * TripStats uses these for the extremes of its time window, and TrajectorySearch for the bounding box of a band that
+ * slides along a track.
+ */
+final class SlidingExtreme {
+
+    /** Sequence number of each queued value, in a ring. */
+    private final long[] sequences;
+
+    /** Each queued value, in a ring. */
+    private final double[] values;
+
+    /** Whether this tracks the largest value rather than the smallest. */
+    private final boolean largest;
+
+    /** Ring position of the front of the queue. */
+    private int head = 0;
+
+    /** Number of queued values. */
+    private int count = 0;
+
+    /**
+     * Create an empty queue.
+     *
+     * @param capacity the largest number of values the window can hold
+     * @param setLargest true to track the largest value, false for the smallest
+     */
+    SlidingExtreme(final int capacity, final boolean setLargest) {
+        sequences = new long[Math.max(capacity, 1)];
+        values = new double[Math.max(capacity, 1)];
+        largest = setLargest;
+    }
+
+    /**
+     * Add the newest value in the window.
+     *
+     * @param sequence the value's sequence number, larger than any added before
+     * @param value the value
+     */
+    void push(final long sequence, final double value) {
+        while (count > 0) {
+            double back = values[(head + count - 1) % values.length];
+            if (largest && back > value || !largest && back < value) {
+                break;
+            }
+            count--;
+        }
+        int tail = (head + count) % values.length;
+        sequences[tail] = sequence;
+        values[tail] = value;
+        count++;
+    }
+
+    /**
+     * Remove values that have left the window.
+     *
+     * @param oldest the sequence number of the oldest value still in the window
+     */
+    void expire(final long oldest) {
+        while (count > 0 && sequences[head] < oldest) {
+            head = (head + 1) % values.length;
+            count--;
+        }
+    }
+
+    /**
+     * Return the extreme value in the window.
+     *
+     * @return the extreme value, or NaN if the window is empty
+     */
+    double get() {
+        if (count == 0) {
+            return Double.NaN;
+        }
+        return values[head];
+    }
+}
@@ -0,0 +1,231 @@
+package edu.illinois.cs.cs125.spring2019.mp0.lib;
+
+/**
+ * Detects stops as fixes arrive: times when a device stays within a radius of one spot for at least a minimum time.
+ * <p>
+ * The detector keeps one candidate stop: the fixes since the device last moved away, summarized by their centroid and
+ * the times of the first and last of them. Each new fix within the radius of the centroid joins the candidate, and once
+ * the candidate has lasted long enough a stop starts. The first fix outside the radius ends any stop and begins a new
+ * candidate. So every fix costs a constant amount of work and the detector needs a constant amount of memory, however
+ * long the device stays put, and events are reported on the fix that causes them rather than by a later pass over the
+ * history.
+ * <p>
+ * Distances to the centroid are measured on a flat projection around the candidate's first fix, which is accurate to
+ * well under a meter at the radii stops are detected with, and avoids any trigonometry per fix. A single wild fix ends
+ * a stop, so fixes should be smoothed first, for example by FixFilter.
+ * <p>
+ * A detector follows one device and is not safe to share between threads.
+ */
+public final class StopDetector {
+
+    /**
+     * Receives stop events from a detector.
+     */
+    public interface Listener {
+        /**
+         * Called when the device has stayed put for long enough to count as stopped.
+         *
+         * @param startMillis the time of the first fix of the stop
+         * @param latitude the latitude of the centroid of the stop's fixes so far
+         * @param longitude the longitude of the centroid of the stop's fixes so far
+         */
+        void onStopStart(long startMillis, double latitude, double longitude);
+
+        /**
+         * Called when the device moves away from where it stopped, or the detector is finished during a stop.
+         *
+         * @param startMillis the time of the first fix of the stop
+         * @param endMillis the time of the last fix of the stop
+         * @param latitude the latitude of the centroid of all the stop's fixes
+         * @param longitude the longitude of the centroid of all the stop's fixes
+         */
+        void onStopEnd(long startMillis, long endMillis, double latitude, double longitude);
+    }
+
+    /** Square of the stop radius, in square meters. */
+    private final double radiusSquared;
+
+    /** Shortest time a stop can last, in milliseconds. */
+    private final long minDurationMillis;
+
+    /** Number of fixes in the candidate stop, or 0 before the first fix. */
+    private long count = 0;
+
+    /** Latitude of the centroid of the candidate's fixes. */
+    private double centroidLatitude;
+
+    /** Longitude of the centroid of the candidate's fixes. */
+    private double centroidLongitude;
+
+    /** Meters per degree of longitude around the candidate's first fix. */
+    private double metersPerDegreeEast;
+
+    /** Time of the candidate's first fix. */
+    private long startMillis;
+
+    /** Time of the candidate's last fix. */
+    private long endMillis;
+
+    /** Whether the candidate has lasted long enough to be a stop. */
+    private boolean stopped = false;
+
+    /** Number of stops started. */
+    private long stops = 0;
+
+    /**
+     * Create a detector.
+     *
+     * @param radiusMeters how far from its centroid a stop's fixes can be, in meters
+     * @param setMinDurationMillis the shortest time a stop can last, in milliseconds
+     */
+    public StopDetector(final double radiusMeters, final long setMinDurationMillis) {
+        if (!(radiusMeters > 0) || Double.isInfinite(radiusMeters)) {
+            throw new IllegalArgumentException("radius must be positive");
+        }
+        if (setMinDurationMillis < 0) {
+            throw new IllegalArgumentException("minimum duration must not be negative");
+        }
+        radiusSquared = radiusMeters * radiusMeters;
+        minDurationMillis = setMinDurationMillis;
+    }
+
+    /**
+     * Offer a new fix to the detector and report any stop that starts or ends.
+     * <p>
+     * Fixes older than the previous one are ignored. A fix that ends a stop can start the next one straight away if
+     * the minimum duration is 0.
+     *
+     * @param timeMillis the time of the fix, in milliseconds
+     * @param latitude the latitude of the fix
+     * @param longitude the longitude of the fix
+     * @param listener the listener to report events to
+     * @return true if the device is stopped after this fix
+     * @throws IllegalArgumentException if the position is not valid
+     */
+    public boolean update(final long timeMillis, final double latitude, final double longitude,
+                          final Listener listener) {
+        GeoMath.checkPosition(latitude, longitude);
+        if (count > 0 && timeMillis < endMillis) {
+            return stopped;
+        }
+
+        double longitudeChange = GeoMath.wrapLongitude(longitude - centroidLongitude);
+        double north = (latitude - centroidLatitude) * GeoMath.METERS_PER_DEGREE;
+        double east = longitudeChange * metersPerDegreeEast;
+        if (count > 0 && north * north + east * east <= radiusSquared) {
+            count++;
+            centroidLatitude += (latitude - centroidLatitude) / count;
+            centroidLongitude = GeoMath.wrapLongitude(centroidLongitude + longitudeChange / count);
+            endMillis = timeMillis;
+        } else {
+            if (stopped) {
+                stopped = false;
+                listener.onStopEnd(startMillis, endMillis, centroidLatitude, centroidLongitude);
+            }
+            count = 1;
+            centroidLatitude = latitude;
+            centroidLongitude = longitude;
+            metersPerDegreeEast = GeoMath.METERS_PER_DEGREE * Math.cos(Math.toRadians(latitude));
+            startMillis = timeMillis;
+            endMillis = timeMillis;
+        }
+        if (!stopped && endMillis - startMillis >= minDurationMillis) {
+            stopped = true;
+            stops++;
+            listener.onStopStart(startMillis, centroidLatitude, centroidLongitude);
+        }
+        return stopped;
+    }
+
+    /**
+     * End the track, reporting the end of any stop in progress, so that the detector can be used for another track.
+     *
+     * @param listener the listener to report events to
+     */
+    public void finish(final Listener listener) {
+        if (stopped) {
+            stopped = false;
+            listener.onStopEnd(startMillis, endMillis, centroidLatitude, centroidLongitude);
+        }
+        count = 0;
+    }
+
+    /**
+     * Run a whole track through the detector and finish it, for example one read from a TrackLog.
+     *
+     * @param times the time of each fix, in milliseconds
+     * @param latitudes the latitude of each fix
+     * @param longitudes the longitude of each fix
+     * @param listener the listener to report events to
+     * @return the number of stops the track contained
+     */
+    public long detect(final long[] times, final double[] latitudes, final double[] longitudes,
+                       final Listener listener) {
+        if (times.length != latitudes.length || times.length != longitudes.length) {
+            throw new IllegalArgumentException("arrays have different lengths");
+        }
+        long before = stops;
+        for (int i = 0; i < times.length; i++) {
+            update(times[i], latitudes[i], longitudes[i], listener);
+        }
+        finish(listener);
+        return stops - before;
+    }
+
+    /**
+     * Return whether the device is stopped.
+     *
+     * @return true if the most recent fix belongs to a stop
+     */
+    public boolean isStopped() {
+        return stopped;
+    }
+
+    /**
+     * Return the latitude of the current stop, or of the candidate stop if the device is moving.
+     *
+     * @return the latitude of the centroid of the fixes since the device last moved away
+     * @throws IllegalStateException if there has been no fix since the detector was created or finished
+     */
+    public double getLatitude() {
+        if (count == 0) {
+            throw new IllegalStateException("no fix has been offered");
+        }
+        return centroidLatitude;
+    }
+
+    /**
+     * Return the longitude of the current stop, or of the candidate stop if the device is moving.
+     *
+     * @return the longitude of the centroid of the fixes since the device last moved away
+     * @throws IllegalStateException if there has been no fix since the detector was created or finished
+     */
+    public double getLongitude() {
+        if (count == 0) {
+            throw new IllegalStateException("no fix has been offered");
+        }
+        return centroidLongitude;
+    }
+
+    /**
+     * Return when the current stop, or candidate stop, began.
+     *
+     * @return the time of its first fix, in milliseconds
+     * @throws IllegalStateException if there has been no fix since the detector was created or finished
+     */
+    public long getStartMillis() {
+        if (count == 0) {
+            throw new IllegalStateException("no fix has been offered");
+        }
+        return startMillis;
+    }
+
+    /**
+     * Return the number of stops started.
+     *
+     * @return the number of stop-start events reported
+     */
+    public long getStops() {
+        return stops;
+    }
+}
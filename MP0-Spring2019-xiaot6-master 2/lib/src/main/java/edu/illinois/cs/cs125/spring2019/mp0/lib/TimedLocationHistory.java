@@ -0,0 +1,302 @@
+package edu.illinois.cs.cs125.spring2019.mp0.lib;
+
+/**
+ * A ring of timestamped location measurements that answers "have I been near here recently?"
+ * <p>
+ * Locator.beenHere has no notion of time: "been here" means anywhere in the history, however old. This ring keeps only
+ * measurements from a sliding time window, such as the last hour, and indexes them in a GeoGridIndex so that asking
+ * whether we've been within R meters of a point in the last T minutes only looks at nearby measurements.
+ * <p>
+ * Measurements must be added in time order. They are stored first in, first out, so expiring old measurements as the
+ * window slides only ever removes from the oldest end of the ring: each measurement is expired at most once, which
+ * makes expiry O(1) amortized per add. A measurement also leaves early if the ring fills up before it expires.
+ * <p>
+ * Because the grid keeps the measurements in each cell in the order they were added, the first and last visit to a
+ * cell within the window are also O(1) lookups.
+ */
+public final class TimedLocationHistory {
+
+    /** Returned by the visit time lookups when a cell has no measurements in the window. */
+    public static final long NO_VISIT = Long.MIN_VALUE;
+
+    /** Marks that there is no measurement. */
+    private static final int NONE = -1;
+
+    /** Length of the time window, in milliseconds. */
+    private final long windowMillis;
+
+    /** Time of each stored measurement. */
+    private final long[] times;
+
+    /** Latitude of each stored measurement. */
+    private final double[] latitudes;
+
+    /** Longitude of each stored measurement. */
+    private final double[] longitudes;
+
+    /** Grid of the stored measurements, keyed by slot. */
+    private final GeoGridIndex grid;
+
+    /** Scratch list for radius queries. */
+    private final IntList matches = new IntList();
+
+    /** Slot of the oldest stored measurement. */
+    private int oldest = 0;
+
+    /** Number of stored measurements. */
+    private int size = 0;
+
+    /** Time of the most recent measurement, or NO_VISIT if there hasn't been one. */
+    private long latestTime = NO_VISIT;
+
+    /**
+     * Create a new empty history.
+     *
+     * @param capacity the largest number of measurements to keep, however recent
+     * @param setWindowMillis how long to keep measurements for, in milliseconds
+     * @param radiusMeters the radius you expect to query with, used to size the grid cells
+     */
+    public TimedLocationHistory(final int capacity, final long setWindowMillis, final double radiusMeters) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        if (setWindowMillis < 0) {
+            throw new IllegalArgumentException("window must not be negative");
+        }
+        windowMillis = setWindowMillis;
+        times = new long[capacity];
+        latitudes = new double[capacity];
+        longitudes = new double[capacity];
+        grid = GeoGridIndex.forRadius(capacity, radiusMeters);
+    }
+
+    /**
+     * Add a new measurement, expiring measurements that have fallen out of the window.
+     *
+     * @param timeMillis the time of the measurement, which must not be earlier than the previous one
+     * @param latitude the latitude of the measurement
+     * @param longitude the longitude of the measurement
+     * @return the slot the measurement was stored at
+     * @throws IllegalArgumentException if the time goes backwards or the position is not valid
+     */
+    public int add(final long timeMillis, final double latitude, final double longitude) {
+        if (timeMillis < latestTime) {
+            throw new IllegalArgumentException("measurements must be added in time order");
+        }
+        GeoMath.checkPosition(latitude, longitude);
+        latestTime = timeMillis;
+        expire(timeMillis);
+        if (size == times.length) {
+            removeOldest();
+        }
+        int slot = (oldest + size) % times.length;
+        times[slot] = timeMillis;
+        latitudes[slot] = latitude;
+        longitudes[slot] = longitude;
+        grid.insert(slot, latitude, longitude);
+        size++;
+        return slot;
+    }
+
+    /**
+     * Remove every measurement that is older than the window as of a given time.
+     * <p>
+     * add does this automatically; call it directly to slide the window when no new measurements are arriving.
+     *
+     * @param nowMillis the current time
+     */
+    public void expire(final long nowMillis) {
+        long cutoff = nowMillis - windowMillis;
+        while (size > 0 && times[oldest] < cutoff) {
+            removeOldest();
+        }
+    }
+
+    /**
+     * Remove the oldest stored measurement.
+     */
+    private void removeOldest() {
+        grid.remove(oldest);
+        oldest = (oldest + 1) % times.length;
+        size--;
+    }
+
+    /**
+     * Determine whether any stored measurement since a given time is within a distance of a point.
+     *
+     * @param latitude the latitude of the point
+     * @param longitude the longitude of the point
+     * @param radiusMeters the distance, in meters
+     * @param sinceMillis only consider measurements at or after this time
+     * @return true if a recent enough measurement is within the distance
+     */
+    public boolean beenNear(final double latitude, final double longitude, final double radiusMeters,
+                            final long sinceMillis) {
+        return findNear(latitude, longitude, radiusMeters, sinceMillis, NONE);
+    }
+
+    /**
+     * Determine whether the most recent measurement revisits somewhere we've been within a recent period.
+     *
+     * @param radiusMeters how close an earlier measurement must be to count as the same place
+     * @param lookbackMillis how far back before the most recent measurement to look, in milliseconds
+     * @return true if another stored measurement within the period is within the distance of the most recent one
+     */
+    public boolean revisited(final double radiusMeters, final long lookbackMillis) {
+        if (size == 0) {
+            return false;
+        }
+        int newest = getNewestIndex();
+        return findNear(latitudes[newest], longitudes[newest], radiusMeters, latestTime - lookbackMillis, newest);
+    }
+
+    /**
+     * Search the grid for a recent enough measurement near a point.
+     *
+     * @param latitude the latitude of the point
+     * @param longitude the longitude of the point
+     * @param radiusMeters the distance, in meters
+     * @param sinceMillis only consider measurements at or after this time
+     * @param excludeSlot a slot to ignore, or NONE
+     * @return true if a match was found
+     */
+    private boolean findNear(final double latitude, final double longitude, final double radiusMeters,
+                             final long sinceMillis, final int excludeSlot) {
+        if (size == 0) {
+            return false;
+        }
+        if (sinceMillis <= times[oldest]) {
+            // Every stored measurement is recent enough, so the grid can stop at the first match
+            return grid.anyWithin(latitude, longitude, radiusMeters, excludeSlot);
+        }
+        matches.clear();
+        grid.queryRadius(latitude, longitude, radiusMeters, matches);
+        for (int i = 0; i < matches.size(); i++) {
+            int slot = matches.get(i);
+            if (slot != excludeSlot && times[slot] >= sinceMillis) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Return the time we first visited the grid cell containing a point, within the window.
+     *
+     * @param latitude the latitude of the point
+     * @param longitude the longitude of the point
+     * @return the time of the oldest stored measurement in the same cell, or NO_VISIT if there is none
+     */
+    public long firstVisitInCell(final double latitude, final double longitude) {
+        int slot = grid.oldestInCell(latitude, longitude);
+        if (slot == NONE) {
+            return NO_VISIT;
+        }
+        return times[slot];
+    }
+
+    /**
+     * Return the time we last visited the grid cell containing a point, within the window.
+     *
+     * @param latitude the latitude of the point
+     * @param longitude the longitude of the point
+     * @return the time of the newest stored measurement in the same cell, or NO_VISIT if there is none
+     */
+    public long lastVisitInCell(final double latitude, final double longitude) {
+        int slot = grid.newestInCell(latitude, longitude);
+        if (slot == NONE) {
+            return NO_VISIT;
+        }
+        return times[slot];
+    }
+
+    /**
+     * Return the size of the grid cells used by the visit time lookups.
+     *
+     * @return the size of each cell, in degrees
+     */
+    public double getCellDegrees() {
+        return grid.getCellDegrees();
+    }
+
+    /**
+     * Return the number of measurements currently stored.
+     *
+     * @return the number of measurements in the window
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Return the largest number of measurements the ring can hold.
+     *
+     * @return the capacity of the ring
+     */
+    public int getCapacity() {
+        return times.length;
+    }
+
+    /**
+     * Return the length of the time window.
+     *
+     * @return the window, in milliseconds
+     */
+    public long getWindowMillis() {
+        return windowMillis;
+    }
+
+    /**
+     * Return the slot of the most recent measurement.
+     *
+     * @return the slot, or -1 if the ring is empty
+     */
+    public int getNewestIndex() {
+        if (size == 0) {
+            return NONE;
+        }
+        return (oldest + size - 1) % times.length;
+    }
+
+    /**
+     * Return the slot of the oldest stored measurement.
+     *
+     * @return the slot, or -1 if the ring is empty
+     */
+    public int getOldestIndex() {
+        if (size == 0) {
+            return NONE;
+        }
+        return oldest;
+    }
+
+    /**
+     * Return the time stored at a slot.
+     *
+     * @param index the slot to read
+     * @return the time of the measurement, in milliseconds
+     */
+    public long getTime(final int index) {
+        return times[index];
+    }
+
+    /**
+     * Return the latitude stored at a slot.
+     *
+     * @param index the slot to read
+     * @return the latitude of the measurement
+     */
+    public double getLatitude(final int index) {
+        return latitudes[index];
+    }
+
+    /**
+     * Return the longitude stored at a slot.
+     *
+     * @param index the slot to read
+     * @return the longitude of the measurement
+     */
+    public double getLongitude(final int index) {
+        return longitudes[index];
+    }
+}
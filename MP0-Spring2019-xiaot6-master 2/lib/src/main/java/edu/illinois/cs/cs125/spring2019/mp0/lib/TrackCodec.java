@@ -0,0 +1,606 @@
+package edu.illinois.cs.cs125.spring2019.mp0.lib;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * A compact columnar format for archiving location histories.
+ * <p>
+ * Raw latitude and longitude doubles cost 16 bytes per measurement. Consecutive measurements along a track are close
+ * together, though, and usually change by about the same amount each time. So each coordinate is first rounded to the
+ * same fixed-point resolution PackedLocationStore uses, and then each column stores only the change in the change
+ * from one measurement to the next (the delta of the delta), written as a zigzag variable-length integer. A track
+ * moving at a steady speed, or not moving at all, compresses to about two bytes per measurement.
+ * <p>
+ * Measurements are grouped into blocks of a fixed size. Each block stores its latitude column followed by its
+ * longitude column and can be decoded on its own, and a footer at the end of the data records where every block
+ * starts. An Encoder writes the format to a stream one measurement at a time, a StreamDecoder reads it back from a
+ * stream one block at a time, and a BlockDecoder jumps straight to any range of measurements in data that is already
+ * in memory or memory-mapped. Both decoders write directly into caller-provided arrays.
+ * <p>
+ * Because values are rounded, decoded coordinates match PackedLocationStore.unpackLatitude and unpackLongitude of the
+ * original values, not necessarily the original values themselves.
+ */
+public final class TrackCodec {
+
+    /** Identifies encoded track data: "MP0C" in ASCII. */
+    private static final int MAGIC = 0x4D503043;
+
+    /** Version of the format. */
+    private static final int VERSION = 1;
+
+    /** Default number of measurements per block. */
+    public static final int DEFAULT_BLOCK_SIZE = 1024;
+
+    /** Size of the header holding the magic number, the version, and the block size. */
+    private static final int HEADER_SIZE = 12;
+
+    /** Size of the trailer holding the footer offset and the magic number. */
+    private static final int TRAILER_SIZE = 12;
+
+    /** Bits of payload in each byte of a variable-length integer. */
+    private static final int VARINT_BITS = 7;
+
+    /** Mask selecting the payload of a byte of a variable-length integer. */
+    private static final int VARINT_MASK = 0x7F;
+
+    /** Largest number of bytes in a variable-length integer. */
+    private static final int MAX_VARINT_BYTES = 10;
+
+    /** Flag marking that more bytes of a variable-length integer follow. */
+    private static final int VARINT_MORE = 0x80;
+
+    /** Shift that moves the sign bit of a long to the bottom for zigzag encoding. */
+    private static final int SIGN_SHIFT = 63;
+
+    /** Bits to shift the latitude out of a packed value. */
+    private static final int HALF_BITS = 32;
+
+    /** Number of block offsets an encoder has room for before it first grows the array holding them. */
+    private static final int INITIAL_BLOCKS = 128;
+
+    /** Static helpers only. */
+    private TrackCodec() { }
+
+    /**
+     * Encode a whole track in memory.
+     *
+     * @param latitudes the latitudes to encode
+     * @param longitudes the longitudes to encode
+     * @param blockSize the number of measurements per block
+     * @return the encoded track
+     */
+    public static byte[] encode(final double[] latitudes, final double[] longitudes, final int blockSize) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try {
+            Encoder encoder = new Encoder(bytes, blockSize);
+            encoder.append(latitudes, longitudes, 0, latitudes.length);
+            encoder.finish();
+        } catch (IOException e) {
+            throw new IllegalStateException("writing to memory cannot fail", e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Write a zigzag variable-length integer to a growable byte array.
+     *
+     * @param bytes the array to write to
+     * @param position the position to write at
+     * @param value the value to write
+     * @return the array, which may have been replaced by a larger copy
+     */
+    private static byte[] writeVarint(final byte[] bytes, final int[] position, final long value) {
+        byte[] out = bytes;
+        if (position[0] + MAX_VARINT_BYTES > out.length) {
+            out = Arrays.copyOf(out, out.length * 2);
+        }
+        long zigzag = (value << 1) ^ (value >> SIGN_SHIFT);
+        while ((zigzag & ~VARINT_MASK) != 0) {
+            out[position[0]++] = (byte) ((zigzag & VARINT_MASK) | VARINT_MORE);
+            zigzag >>>= VARINT_BITS;
+        }
+        out[position[0]++] = (byte) zigzag;
+        return out;
+    }
+
+    /**
+     * Read an unsigned variable-length integer from a stream.
+     *
+     * @param in the stream to read from
+     * @return the value read
+     * @throws IOException if the stream ends or cannot be read
+     */
+    private static long readUnsignedVarint(final InputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0;; shift += VARINT_BITS) {
+            int next = in.read();
+            if (next < 0) {
+                throw new EOFException("track data ends in the middle of a number");
+            }
+            value |= (long) (next & VARINT_MASK) << shift;
+            if ((next & VARINT_MORE) == 0) {
+                return value;
+            }
+        }
+    }
+
+    /**
+     * Decode one column of a block, storing only the part that falls in a requested range.
+     *
+     * @param buffer the buffer to read from, positioned at the start of the column
+     * @param count the number of values in the column
+     * @param skip the number of leading values to decode without storing
+     * @param take the number of values to store after those
+     * @param out the array to store values in
+     * @param offset the position in the array to store the first value at
+     */
+    private static void decodeColumn(final ByteBuffer buffer, final int count, final int skip, final int take,
+                                     final double[] out, final int offset) {
+        long previous = 0;
+        long delta = 0;
+        int end = skip + take;
+        for (int i = 0; i < count; i++) {
+            // Read a zigzag variable-length integer
+            long zigzag = 0;
+            int shift = 0;
+            byte next;
+            do {
+                next = buffer.get();
+                zigzag |= (long) (next & VARINT_MASK) << shift;
+                shift += VARINT_BITS;
+            } while ((next & VARINT_MORE) != 0);
+            long value = (zigzag >>> 1) ^ -(zigzag & 1);
+            if (i == 0) {
+                previous = value;
+            } else {
+                if (i == 1) {
+                    delta = value;
+                } else {
+                    delta += value;
+                }
+                previous += delta;
+            }
+            if (i >= skip && i < end) {
+                out[offset + i - skip] = PackedLocationStore.fromUnits((int) previous);
+            }
+        }
+    }
+
+    /**
+     * Writes a track in the encoded format to a stream, one block at a time.
+     * <p>
+     * Call finish once every measurement has been appended to write the last block and the footer.
+     */
+    public static final class Encoder {
+
+        /** The stream we write to. */
+        private final DataOutputStream out;
+
+        /** Number of measurements per block. */
+        private final int blockSize;
+
+        /** Latitudes of the block being filled, in fixed-point units. */
+        private final int[] latitudeUnits;
+
+        /** Longitudes of the block being filled, in fixed-point units. */
+        private final int[] longitudeUnits;
+
+        /** Number of measurements in the block being filled. */
+        private int pending = 0;
+
+        /** Scratch space the next block is encoded into. */
+        private byte[] scratch;
+
+        /** Offset of the start of each block written so far. */
+        private long[] blockOffsets = new long[INITIAL_BLOCKS];
+
+        /** Number of blocks written so far. */
+        private int blockCount = 0;
+
+        /** Number of measurements appended so far. */
+        private long count = 0;
+
+        /** Number of bytes written so far. */
+        private long written = 0;
+
+        /** Whether finish has been called. */
+        private boolean finished = false;
+
+        /**
+         * Start writing a track to a stream.
+         *
+         * @param setOut the stream to write to
+         * @param setBlockSize the number of measurements per block
+         * @throws IOException if the header cannot be written
+         */
+        public Encoder(final OutputStream setOut, final int setBlockSize) throws IOException {
+            if (setBlockSize < 1) {
+                throw new IllegalArgumentException("block size must be positive");
+            }
+            out = new DataOutputStream(setOut);
+            blockSize = setBlockSize;
+            latitudeUnits = new int[setBlockSize];
+            longitudeUnits = new int[setBlockSize];
+            scratch = new byte[Math.max(MAX_VARINT_BYTES, setBlockSize * 2 * 2)];
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(blockSize);
+            written = HEADER_SIZE;
+        }
+
+        /**
+         * Append one measurement.
+         *
+         * @param latitude the latitude of the measurement
+         * @param longitude the longitude of the measurement
+         * @throws IOException if a full block cannot be written
+         * @throws IllegalArgumentException if either value is outside the valid range or NaN
+         */
+        public void append(final double latitude, final double longitude) throws IOException {
+            if (finished) {
+                throw new IllegalStateException("encoder is already finished");
+            }
+            long packed = PackedLocationStore.pack(latitude, longitude);
+            latitudeUnits[pending] = (int) (packed >> HALF_BITS);
+            longitudeUnits[pending] = (int) packed;
+            pending++;
+            count++;
+            if (pending == blockSize) {
+                writeBlock();
+            }
+        }
+
+        /**
+         * Append a range of measurements from arrays.
+         *
+         * @param latitudes array of latitudes
+         * @param longitudes array of longitudes
+         * @param offset the position of the first measurement to append
+         * @param length the number of measurements to append
+         * @throws IOException if a full block cannot be written
+         */
+        public void append(final double[] latitudes, final double[] longitudes, final int offset, final int length)
+            throws IOException {
+            for (int i = offset; i < offset + length; i++) {
+                append(latitudes[i], longitudes[i]);
+            }
+        }
+
+        /**
+         * Encode and write the pending block.
+         *
+         * @throws IOException if the block cannot be written
+         */
+        private void writeBlock() throws IOException {
+            int[] position = {0};
+            encodeColumn(latitudeUnits, position);
+            encodeColumn(longitudeUnits, position);
+            if (blockCount == blockOffsets.length) {
+                blockOffsets = Arrays.copyOf(blockOffsets, blockCount * 2);
+            }
+            blockOffsets[blockCount++] = written;
+            written += writeUnsignedVarint(pending) + writeUnsignedVarint(position[0]) + position[0];
+            out.write(scratch, 0, position[0]);
+            pending = 0;
+        }
+
+        /**
+         * Encode one column of the pending block into the scratch space.
+         *
+         * @param units the column's values in fixed-point units
+         * @param position the position in the scratch space to write at, which is advanced
+         */
+        private void encodeColumn(final int[] units, final int[] position) {
+            long previous = 0;
+            long delta = 0;
+            for (int i = 0; i < pending; i++) {
+                long value = units[i];
+                if (i == 0) {
+                    scratch = writeVarint(scratch, position, value);
+                } else if (i == 1) {
+                    delta = value - previous;
+                    scratch = writeVarint(scratch, position, delta);
+                } else {
+                    long nextDelta = value - previous;
+                    scratch = writeVarint(scratch, position, nextDelta - delta);
+                    delta = nextDelta;
+                }
+                previous = value;
+            }
+        }
+
+        /**
+         * Write an unsigned variable-length integer to the stream.
+         *
+         * @param value the value to write, which must not be negative
+         * @return the number of bytes written
+         * @throws IOException if the stream cannot be written
+         */
+        private int writeUnsignedVarint(final long value) throws IOException {
+            long remaining = value;
+            int bytes = 1;
+            while ((remaining & ~VARINT_MASK) != 0) {
+                out.write((int) ((remaining & VARINT_MASK) | VARINT_MORE));
+                remaining >>>= VARINT_BITS;
+                bytes++;
+            }
+            out.write((int) remaining);
+            return bytes;
+        }
+
+        /**
+         * Return the number of measurements appended so far.
+         *
+         * @return the number of measurements
+         */
+        public long size() {
+            return count;
+        }
+
+        /**
+         * Write the last partial block and the footer, and flush the stream.
+         * <p>
+         * The underlying stream is left open.
+         *
+         * @throws IOException if the data cannot be written
+         */
+        public void finish() throws IOException {
+            if (finished) {
+                return;
+            }
+            if (pending > 0) {
+                writeBlock();
+            }
+            written += writeUnsignedVarint(0);
+            long footer = written;
+            out.writeInt(blockCount);
+            out.writeLong(count);
+            for (int i = 0; i < blockCount; i++) {
+                out.writeLong(blockOffsets[i]);
+            }
+            out.writeLong(footer);
+            out.writeInt(MAGIC);
+            out.flush();
+            finished = true;
+        }
+    }
+
+    /**
+     * Reads encoded track data from a stream, one block at a time.
+     */
+    public static final class StreamDecoder {
+
+        /** The stream we read from. */
+        private final DataInputStream in;
+
+        /** Number of measurements per full block. */
+        private final int blockSize;
+
+        /** Scratch space each block is read into. */
+        private byte[] scratch = new byte[0];
+
+        /** Whether we've reached the end of the blocks. */
+        private boolean done = false;
+
+        /**
+         * Start reading a track from a stream.
+         *
+         * @param setIn the stream to read from
+         * @throws IOException if the header cannot be read or is not valid
+         */
+        public StreamDecoder(final InputStream setIn) throws IOException {
+            in = new DataInputStream(setIn);
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("not encoded track data");
+            }
+            blockSize = in.readInt();
+            if (blockSize < 1) {
+                throw new IOException("invalid block size: " + blockSize);
+            }
+        }
+
+        /**
+         * Return the number of measurements in each full block.
+         * <p>
+         * Arrays passed to readBlock need room for this many measurements.
+         *
+         * @return the block size
+         */
+        public int getBlockSize() {
+            return blockSize;
+        }
+
+        /**
+         * Decode the next block into arrays.
+         *
+         * @param latitudes array to store latitudes in
+         * @param longitudes array to store longitudes in
+         * @param offset the position in the arrays to store the first measurement at
+         * @return the number of measurements decoded, or -1 once every block has been read
+         * @throws IOException if the stream cannot be read or is corrupt
+         */
+        public int readBlock(final double[] latitudes, final double[] longitudes, final int offset)
+            throws IOException {
+            if (done) {
+                return -1;
+            }
+            long count = readUnsignedVarint(in);
+            if (count == 0) {
+                done = true;
+                return -1;
+            }
+            long length = readUnsignedVarint(in);
+            if (count > blockSize || length > count * 2 * MAX_VARINT_BYTES) {
+                throw new IOException("corrupt block header");
+            }
+            if (scratch.length < length) {
+                scratch = new byte[(int) length];
+            }
+            in.readFully(scratch, 0, (int) length);
+            ByteBuffer buffer = ByteBuffer.wrap(scratch, 0, (int) length);
+            decodeColumn(buffer, (int) count, 0, (int) count, latitudes, offset);
+            decodeColumn(buffer, (int) count, 0, (int) count, longitudes, offset);
+            return (int) count;
+        }
+    }
+
+    /**
+     * Decodes any range of measurements from encoded track data held in a buffer.
+     * <p>
+     * The buffer can be a memory-mapped file, so a large archive can be opened without reading it. A decoder keeps its
+     * own view of the buffer, so separate decoders over the same buffer can be used from separate threads, but a
+     * single decoder should only be used by one thread at a time.
+     */
+    public static final class BlockDecoder {
+
+        /** Our view of the encoded data. */
+        private final ByteBuffer buffer;
+
+        /** Number of measurements per full block. */
+        private final int blockSize;
+
+        /** Total number of measurements. */
+        private final long count;
+
+        /** Offset of the start of each block. */
+        private final long[] blockOffsets;
+
+        /**
+         * Open encoded track data held in a buffer.
+         *
+         * @param data the buffer holding the data, from its position to its limit
+         * @throws IllegalArgumentException if the data is not a valid encoded track
+         */
+        public BlockDecoder(final ByteBuffer data) {
+            buffer = data.slice();
+            int limit = buffer.limit();
+            if (limit < HEADER_SIZE + TRAILER_SIZE || buffer.getInt(0) != MAGIC
+                || buffer.getInt(Integer.BYTES) != VERSION || buffer.getInt(limit - Integer.BYTES) != MAGIC) {
+                throw new IllegalArgumentException("not encoded track data");
+            }
+            blockSize = buffer.getInt(2 * Integer.BYTES);
+            long footer = buffer.getLong(limit - TRAILER_SIZE);
+            long offsetsEnd = limit - TRAILER_SIZE;
+            if (footer < HEADER_SIZE || footer > offsetsEnd - Integer.BYTES - Long.BYTES) {
+                throw new IllegalArgumentException("corrupt footer");
+            }
+            int blocks = buffer.getInt((int) footer);
+            if (blocks < 0 || (long) blocks * Long.BYTES != offsetsEnd - footer - Integer.BYTES - Long.BYTES) {
+                throw new IllegalArgumentException("corrupt footer");
+            }
+            count = buffer.getLong((int) footer + Integer.BYTES);
+            blockOffsets = new long[blocks];
+            for (int i = 0; i < blocks; i++) {
+                blockOffsets[i] = buffer.getLong((int) footer + Integer.BYTES + Long.BYTES + i * Long.BYTES);
+            }
+        }
+
+        /**
+         * Open encoded track data held in an array.
+         *
+         * @param data the encoded data
+         */
+        public BlockDecoder(final byte[] data) {
+            this(ByteBuffer.wrap(data));
+        }
+
+        /**
+         * Return the total number of measurements.
+         *
+         * @return the number of measurements
+         */
+        public long size() {
+            return count;
+        }
+
+        /**
+         * Return the number of blocks.
+         *
+         * @return the number of blocks
+         */
+        public int getBlockCount() {
+            return blockOffsets.length;
+        }
+
+        /**
+         * Return the number of measurements in each full block.
+         *
+         * @return the block size
+         */
+        public int getBlockSize() {
+            return blockSize;
+        }
+
+        /**
+         * Decode a range of measurements into arrays.
+         * <p>
+         * Only the blocks that overlap the range are read.
+         *
+         * @param from the index of the first measurement to decode
+         * @param length the number of measurements to decode
+         * @param latitudes array to store latitudes in
+         * @param longitudes array to store longitudes in
+         * @param offset the position in the arrays to store the first measurement at
+         */
+        public void decode(final long from, final int length,
+                           final double[] latitudes, final double[] longitudes, final int offset) {
+            if (from < 0 || length < 0 || from + length > count) {
+                throw new IndexOutOfBoundsException("range " + from + "+" + length + " of " + count);
+            }
+            int stored = 0;
+            while (stored < length) {
+                long index = from + stored;
+                int block = (int) (index / blockSize);
+                int skip = (int) (index % blockSize);
+                stored += decodeBlock(block, skip, length - stored, latitudes, longitudes, offset + stored);
+            }
+        }
+
+        /**
+         * Decode part of one block into arrays.
+         *
+         * @param block the block to decode
+         * @param skip the number of leading measurements of the block to skip
+         * @param limit the largest number of measurements to store
+         * @param latitudes array to store latitudes in
+         * @param longitudes array to store longitudes in
+         * @param offset the position in the arrays to store the first measurement at
+         * @return the number of measurements stored
+         */
+        private int decodeBlock(final int block, final int skip, final int limit,
+                                final double[] latitudes, final double[] longitudes, final int offset) {
+            buffer.position((int) blockOffsets[block]);
+            int blockCount = (int) readUnsignedVarint(buffer);
+            readUnsignedVarint(buffer);
+            int take = Math.min(limit, blockCount - skip);
+            decodeColumn(buffer, blockCount, skip, take, latitudes, offset);
+            decodeColumn(buffer, blockCount, skip, take, longitudes, offset);
+            return take;
+        }
+
+        /**
+         * Read an unsigned variable-length integer from the buffer.
+         *
+         * @param in the buffer to read from
+         * @return the value read
+         */
+        private static long readUnsignedVarint(final ByteBuffer in) {
+            long value = 0;
+            for (int shift = 0;; shift += VARINT_BITS) {
+                byte next = in.get();
+                value |= (long) (next & VARINT_MASK) << shift;
+                if ((next & VARINT_MORE) == 0) {
+                    return value;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,259 @@
+package edu.illinois.cs.cs125.spring2019.mp0.lib;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * An append-only log of location measurements stored in a memory-mapped file.
+ * <p>
+ * Location arrays live on the heap, so the app forgets where it has been every time it restarts. A track log keeps a
+ * copy of every measurement on disk using fixed-size records: a 32-byte header followed by one 24-byte record per
+ * measurement holding the time in milliseconds, the latitude, and the longitude. Because records are fixed-size, the
+ * last n measurements can be found without reading anything else, and the whole file is accessed through a single
+ * memory mapping rather than parsed.
+ * <p>
+ * Appends are crash-safe: each record is written in full before the record count in the header is updated, so a
+ * process that dies part way through an append leaves a log that simply ends at the previous record. Call force to
+ * also protect recent records against the device losing power.
+ * <p>
+ * A single mapping can cover at most 2GB, which is about 89 million records.
+ */
+public final class TrackLog implements Closeable {
+
+    /** Identifies a track log file: "MP0T" in ASCII. */
+    private static final int MAGIC = 0x4D503054;
+
+    /** Version of the file layout. */
+    private static final int VERSION = 1;
+
+    /** Size of the file header, in bytes. */
+    private static final int HEADER_SIZE = 32;
+
+    /** Offset of the file layout version in the header. */
+    private static final int VERSION_OFFSET = 4;
+
+    /** Offset of the record size in the header. */
+    private static final int RECORD_SIZE_OFFSET = 8;
+
+    /** Offset of the number of committed records in the header. */
+    private static final int COUNT_OFFSET = 16;
+
+    /** Size of each record, in bytes. */
+    public static final int RECORD_SIZE = 24;
+
+    /** Offset of the latitude within a record. */
+    private static final int LATITUDE_OFFSET = 8;
+
+    /** Offset of the longitude within a record. */
+    private static final int LONGITUDE_OFFSET = 16;
+
+    /** Number of records to make room for in a new file. */
+    private static final int INITIAL_CAPACITY = 4096;
+
+    /** The open file. */
+    private final RandomAccessFile file;
+
+    /** The channel used to map the file. */
+    private final FileChannel channel;
+
+    /** The current mapping of the file. */
+    private MappedByteBuffer buffer;
+
+    /** Number of records the current mapping has room for. */
+    private int capacity;
+
+    /** Number of committed records. */
+    private int size;
+
+    /**
+     * Open a track log, creating it if it does not exist.
+     *
+     * @param path the file to open
+     * @throws IOException if the file cannot be opened or is not a track log
+     */
+    public TrackLog(final File path) throws IOException {
+        file = new RandomAccessFile(path, "rw");
+        channel = file.getChannel();
+        try {
+            long length = channel.size();
+            if (length == 0) {
+                map(INITIAL_CAPACITY);
+                buffer.putInt(0, MAGIC);
+                buffer.putInt(VERSION_OFFSET, VERSION);
+                buffer.putInt(RECORD_SIZE_OFFSET, RECORD_SIZE);
+                buffer.putLong(COUNT_OFFSET, 0L);
+                size = 0;
+            } else {
+                if (length < HEADER_SIZE) {
+                    throw new IOException("track log is truncated: " + path);
+                }
+                map((int) Math.min(Integer.MAX_VALUE, (length - HEADER_SIZE) / RECORD_SIZE));
+                if (buffer.getInt(0) != MAGIC || buffer.getInt(VERSION_OFFSET) != VERSION
+                    || buffer.getInt(RECORD_SIZE_OFFSET) != RECORD_SIZE) {
+                    throw new IOException("not a track log: " + path);
+                }
+                long count = buffer.getLong(COUNT_OFFSET);
+                if (count < 0 || count > capacity) {
+                    throw new IOException("track log header is corrupt: " + path);
+                }
+                size = (int) count;
+            }
+        } catch (IOException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Map enough of the file to hold a number of records, growing the file if needed.
+     *
+     * @param records the number of records to make room for
+     * @throws IOException if the file cannot be mapped, or would be too large to map
+     */
+    private void map(final int records) throws IOException {
+        long bytes = HEADER_SIZE + (long) records * RECORD_SIZE;
+        if (bytes > Integer.MAX_VALUE) {
+            throw new IOException("track log is too large to map");
+        }
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, bytes);
+        capacity = records;
+    }
+
+    /**
+     * Append a measurement to the log.
+     *
+     * @param timeMillis the time of the measurement, in milliseconds since the epoch
+     * @param latitude the latitude of the measurement
+     * @param longitude the longitude of the measurement
+     * @throws IOException if the log needs to grow and cannot
+     */
+    public void append(final long timeMillis, final double latitude, final double longitude) throws IOException {
+        if (size == capacity) {
+            long grown = Math.max(INITIAL_CAPACITY, (long) capacity * 2);
+            map((int) Math.min(grown, (Integer.MAX_VALUE - HEADER_SIZE) / RECORD_SIZE));
+            if (size == capacity) {
+                throw new IOException("track log is full");
+            }
+        }
+        int offset = HEADER_SIZE + size * RECORD_SIZE;
+        buffer.putLong(offset, timeMillis);
+        buffer.putDouble(offset + LATITUDE_OFFSET, latitude);
+        buffer.putDouble(offset + LONGITUDE_OFFSET, longitude);
+        // Only count the record once it has been completely written
+        size++;
+        buffer.putLong(COUNT_OFFSET, size);
+    }
+
+    /**
+     * Return the number of records in the log.
+     *
+     * @return the number of committed records
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Return the time of a record.
+     *
+     * @param index the index of the record, from 0 for the oldest
+     * @return the time of the measurement, in milliseconds since the epoch
+     */
+    public long getTime(final int index) {
+        return buffer.getLong(recordOffset(index));
+    }
+
+    /**
+     * Return the latitude of a record.
+     *
+     * @param index the index of the record, from 0 for the oldest
+     * @return the latitude of the measurement
+     */
+    public double getLatitude(final int index) {
+        return buffer.getDouble(recordOffset(index) + LATITUDE_OFFSET);
+    }
+
+    /**
+     * Return the longitude of a record.
+     *
+     * @param index the index of the record, from 0 for the oldest
+     * @return the longitude of the measurement
+     */
+    public double getLongitude(final int index) {
+        return buffer.getDouble(recordOffset(index) + LONGITUDE_OFFSET);
+    }
+
+    /**
+     * Return the byte offset of a record.
+     *
+     * @param index the index of the record
+     * @return the offset of the start of the record in the file
+     */
+    private int recordOffset(final int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("record " + index + " of " + size);
+        }
+        return HEADER_SIZE + index * RECORD_SIZE;
+    }
+
+    /**
+     * Replay the most recent measurements into a location history, oldest first.
+     * <p>
+     * Finding where to start takes constant time; only the replayed records are read.
+     *
+     * @param history the history to add measurements to
+     * @param count the largest number of measurements to replay
+     * @return the number of measurements replayed
+     */
+    public int replayInto(final LocationHistory history, final int count) {
+        int replay = Math.min(Math.min(count, size), history.getCapacity());
+        for (int index = size - replay; index < size; index++) {
+            history.add(getLatitude(index), getLongitude(index));
+        }
+        return replay;
+    }
+
+    /**
+     * Copy a range of records into primitive arrays.
+     *
+     * @param from the index of the first record to copy
+     * @param count the number of records to copy
+     * @param times array to store times in, or null if they aren't needed
+     * @param latitudes array to store latitudes in
+     * @param longitudes array to store longitudes in
+     * @param offset the position in the arrays to store the first record at
+     */
+    public void read(final int from, final int count, final long[] times,
+                     final double[] latitudes, final double[] longitudes, final int offset) {
+        for (int i = 0; i < count; i++) {
+            int record = recordOffset(from + i);
+            if (times != null) {
+                times[offset + i] = buffer.getLong(record);
+            }
+            latitudes[offset + i] = buffer.getDouble(record + LATITUDE_OFFSET);
+            longitudes[offset + i] = buffer.getDouble(record + LONGITUDE_OFFSET);
+        }
+    }
+
+    /**
+     * Make sure every committed record has been written to the storage device.
+     */
+    public void force() {
+        buffer.force();
+    }
+
+    /**
+     * Flush the log and close the file.
+     *
+     * @throws IOException if the file cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        buffer.force();
+        file.close();
+    }
+}
@@ -0,0 +1,511 @@
+package edu.illinois.cs.cs125.spring2019.mp0.lib;
+
+import java.util.Arrays;
+
+/**
+ * Drops the positions of a track that add little to its shape, so there are fewer markers to draw and store.
+ * <p>
+ * A long walk recorded every few seconds is mostly runs of positions along nearly straight lines. Three ways of
+ * thinning it out are provided, all taking a tolerance in meters and returning the indices of the positions kept,
+ * always including the first and last:
+ * <ul>
+ * <li>douglasPeucker keeps the position furthest from the line between the ends if it is further than the tolerance,
+ * and repeats on both halves. Every dropped position ends up within the tolerance of the segment between the kept
+ * positions either side of it.</li>
+ * <li>visvalingamWhyatt repeatedly drops the position whose triangle with its neighbours has the smallest area, until
+ * every remaining triangle is at least the square of the tolerance. It tends to give smoother shapes.</li>
+ * <li>A TrackSimplifier object decides online, as each position arrives. It keeps a window of the positions since the
+ * last kept one, and keeps the previous position as soon as the window can no longer be replaced by a single
+ * segment within the tolerance, so it makes the same promise as douglasPeucker. The window has a maximum size, so each
+ * position costs bounded time.</li>
+ * </ul>
+ * Distances are measured in a flat projection around each segment, which is accurate for segments up to many
+ * kilometers long away from the poles.
+ */
+public final class TrackSimplifier {
+
+    /** Returned by offer and finish when no position was newly kept. */
+    public static final int NONE = -1;
+
+    /** Default largest number of positions waiting in the online window. */
+    public static final int DEFAULT_MAX_WINDOW = 256;
+
+    /** Number of stack slots douglasPeucker starts with. */
+    private static final int INITIAL_STACK_SIZE = 64;
+
+    /** Farthest distance a dropped position may be from the segment that replaces it, in meters. */
+    private final double toleranceMeters;
+
+    /** Latitudes of the positions since the last kept one, starting with the kept one. */
+    private final double[] windowLatitudes;
+
+    /** Longitudes of the positions since the last kept one, starting with the kept one. */
+    private final double[] windowLongitudes;
+
+    /** Number of positions in the window, including the last kept one. */
+    private int windowSize = 0;
+
+    /** Number of positions offered so far. */
+    private int offered = 0;
+
+    /** Number of positions kept so far. */
+    private int kept = 0;
+
+    /**
+     * Create an online simplifier with the default window size.
+     *
+     * @param setToleranceMeters how far a dropped position may be from the segment that replaces it, in meters
+     */
+    public TrackSimplifier(final double setToleranceMeters) {
+        this(setToleranceMeters, DEFAULT_MAX_WINDOW);
+    }
+
+    /**
+     * Create an online simplifier.
+     *
+     * @param setToleranceMeters how far a dropped position may be from the segment that replaces it, in meters
+     * @param maxWindow the largest number of positions to hold back before keeping one anyway
+     */
+    public TrackSimplifier(final double setToleranceMeters, final int maxWindow) {
+        if (!(setToleranceMeters >= 0) || maxWindow < 1) {
+            throw new IllegalArgumentException("tolerance must not be negative and the window must be positive");
+        }
+        toleranceMeters = setToleranceMeters;
+        // One more slot for the last kept position at the start of the window
+        windowLatitudes = new double[maxWindow + 1];
+        windowLongitudes = new double[maxWindow + 1];
+    }
+
+    /**
+     * Offer the next position of the track.
+     * <p>
+     * The first position is kept straight away. After that, a position is only known to be needed once a later one
+     * arrives, so each call can only keep an earlier position. Call finish after the last position to keep it too.
+     *
+     * @param latitude the latitude of the position
+     * @param longitude the longitude of the position
+     * @return the index of a position that is now known to be kept, counting offered positions from 0, or NONE
+     * @throws IllegalArgumentException if the position is not valid
+     */
+    public int offer(final double latitude, final double longitude) {
+        GeoMath.checkPosition(latitude, longitude);
+        int index = offered++;
+        if (windowSize == 0) {
+            windowLatitudes[0] = latitude;
+            windowLongitudes[0] = longitude;
+            windowSize = 1;
+            kept++;
+            return index;
+        }
+        boolean fits = windowSize < windowLatitudes.length;
+        for (int i = 1; i < windowSize && fits; i++) {
+            fits = segmentDistance(windowLatitudes[i], windowLongitudes[i], windowLatitudes[0], windowLongitudes[0],
+                latitude, longitude) <= toleranceMeters;
+        }
+        if (fits) {
+            windowLatitudes[windowSize] = latitude;
+            windowLongitudes[windowSize] = longitude;
+            windowSize++;
+            return NONE;
+        }
+        // The previous position starts a new window
+        windowLatitudes[0] = windowLatitudes[windowSize - 1];
+        windowLongitudes[0] = windowLongitudes[windowSize - 1];
+        windowLatitudes[1] = latitude;
+        windowLongitudes[1] = longitude;
+        windowSize = 2;
+        kept++;
+        return index - 1;
+    }
+
+    /**
+     * Keep the last position offered, and start a new track.
+     *
+     * @return the index of the last position, if it wasn't already kept, or NONE
+     */
+    public int finish() {
+        int last = NONE;
+        if (windowSize > 1) {
+            last = offered - 1;
+            kept++;
+        }
+        windowSize = 0;
+        return last;
+    }
+
+    /**
+     * Return the number of positions offered so far.
+     *
+     * @return the number of positions offered, across every track
+     */
+    public int getOffered() {
+        return offered;
+    }
+
+    /**
+     * Return the number of positions kept so far.
+     *
+     * @return the number of positions kept, across every track
+     */
+    public int getKept() {
+        return kept;
+    }
+
+    /**
+     * Simplify a track with the Douglas-Peucker algorithm.
+     *
+     * @param latitudes the latitudes of the track
+     * @param longitudes the longitudes of the track
+     * @param toleranceMeters how far a dropped position may be from the segment that replaces it, in meters
+     * @return the indices of the positions kept, in increasing order
+     * @throws IllegalArgumentException if the arrays have different lengths or a position is not valid
+     */
+    public static int[] douglasPeucker(final double[] latitudes, final double[] longitudes,
+                                       final double toleranceMeters) {
+        checkTrack(latitudes, longitudes);
+        int count = latitudes.length;
+        if (count <= 2) {
+            return range(count);
+        }
+        boolean[] keep = new boolean[count];
+        keep[0] = true;
+        keep[count - 1] = true;
+
+        // Ranges still to split, as pairs of kept indices
+        int[] stack = new int[INITIAL_STACK_SIZE];
+        stack[0] = 0;
+        stack[1] = count - 1;
+        int pendingSize = 2;
+        while (pendingSize > 0) {
+            int last = stack[--pendingSize];
+            int first = stack[--pendingSize];
+            int farthest = NONE;
+            double farthestDistance = toleranceMeters;
+            for (int i = first + 1; i < last; i++) {
+                double distance = segmentDistance(latitudes[i], longitudes[i], latitudes[first], longitudes[first],
+                    latitudes[last], longitudes[last]);
+                if (distance > farthestDistance) {
+                    farthest = i;
+                    farthestDistance = distance;
+                }
+            }
+            if (farthest == NONE) {
+                continue;
+            }
+            keep[farthest] = true;
+            if (pendingSize + 2 * 2 > stack.length) {
+                stack = Arrays.copyOf(stack, stack.length * 2);
+            }
+            stack[pendingSize++] = first;
+            stack[pendingSize++] = farthest;
+            stack[pendingSize++] = farthest;
+            stack[pendingSize++] = last;
+        }
+        return indicesOf(keep);
+    }
+
+    /**
+     * Simplify a track with the Visvalingam-Whyatt algorithm.
+     * <p>
+     * Dropping a position changes the triangles of its neighbours. A neighbour's new triangle is never counted as
+     * smaller than the one just dropped, so positions are dropped in order of increasing area.
+     *
+     * @param latitudes the latitudes of the track
+     * @param longitudes the longitudes of the track
+     * @param toleranceMeters the side of the square whose area a triangle must reach to be kept, in meters
+     * @return the indices of the positions kept, in increasing order
+     * @throws IllegalArgumentException if the arrays have different lengths or a position is not valid
+     */
+    public static int[] visvalingamWhyatt(final double[] latitudes, final double[] longitudes,
+                                          final double toleranceMeters) {
+        checkTrack(latitudes, longitudes);
+        int count = latitudes.length;
+        if (count <= 2) {
+            return range(count);
+        }
+        int[] previous = new int[count];
+        int[] next = new int[count];
+        AreaHeap heap = new AreaHeap(count);
+        for (int i = 0; i < count; i++) {
+            previous[i] = i - 1;
+            next[i] = i + 1;
+        }
+        for (int i = 1; i < count - 1; i++) {
+            heap.push(i, triangleArea(latitudes, longitudes, i - 1, i, i + 1));
+        }
+
+        boolean[] keep = new boolean[count];
+        Arrays.fill(keep, true);
+        double threshold = toleranceMeters * toleranceMeters;
+        while (heap.size() > 0 && heap.minArea() < threshold) {
+            double area = heap.minArea();
+            int dropped = heap.pop();
+            keep[dropped] = false;
+            int before = previous[dropped];
+            int after = next[dropped];
+            next[before] = after;
+            previous[after] = before;
+            if (before > 0) {
+                heap.update(before, Math.max(area,
+                    triangleArea(latitudes, longitudes, previous[before], before, after)));
+            }
+            if (after < count - 1) {
+                heap.update(after, Math.max(area,
+                    triangleArea(latitudes, longitudes, before, after, next[after])));
+            }
+        }
+        return indicesOf(keep);
+    }
+
+    /**
+     * Return the area of the triangle formed by three positions of a track.
+     *
+     * @param latitudes the latitudes of the track
+     * @param longitudes the longitudes of the track
+     * @param first the first corner
+     * @param middle the middle corner, which the projection is centered on
+     * @param last the last corner
+     * @return the area, in square meters
+     */
+    private static double triangleArea(final double[] latitudes, final double[] longitudes, final int first,
+                                       final int middle, final int last) {
+        double scale = GeoMath.METERS_PER_DEGREE * Math.cos(Math.toRadians(latitudes[middle]));
+        double firstNorth = (latitudes[first] - latitudes[middle]) * GeoMath.METERS_PER_DEGREE;
+        double firstEast = GeoMath.wrapLongitude(longitudes[first] - longitudes[middle]) * scale;
+        double lastNorth = (latitudes[last] - latitudes[middle]) * GeoMath.METERS_PER_DEGREE;
+        double lastEast = GeoMath.wrapLongitude(longitudes[last] - longitudes[middle]) * scale;
+        return Math.abs(firstEast * lastNorth - firstNorth * lastEast) / 2;
+    }
+
+    /**
+     * Return the distance from a position to a segment.
+     *
+     * @param latitude the latitude of the position
+     * @param longitude the longitude of the position
+     * @param startLatitude the latitude of the start of the segment
+     * @param startLongitude the longitude of the start of the segment
+     * @param endLatitude the latitude of the end of the segment
+     * @param endLongitude the longitude of the end of the segment
+     * @return the distance from the position to the nearest point of the segment, in meters
+     */
+    static double segmentDistance(final double latitude, final double longitude, final double startLatitude,
+                                  final double startLongitude, final double endLatitude, final double endLongitude) {
+        double scale = GeoMath.METERS_PER_DEGREE * Math.cos(Math.toRadians(startLatitude));
+        double north = (latitude - startLatitude) * GeoMath.METERS_PER_DEGREE;
+        double east = GeoMath.wrapLongitude(longitude - startLongitude) * scale;
+        double segmentNorth = (endLatitude - startLatitude) * GeoMath.METERS_PER_DEGREE;
+        double segmentEast = GeoMath.wrapLongitude(endLongitude - startLongitude) * scale;
+        double lengthSquared = segmentNorth * segmentNorth + segmentEast * segmentEast;
+        double along = 0;
+        if (lengthSquared > 0) {
+            along = Math.max(0, Math.min(1, (north * segmentNorth + east * segmentEast) / lengthSquared));
+        }
+        return Math.hypot(north - along * segmentNorth, east - along * segmentEast);
+    }
+
+    /**
+     * Return the indices of the true entries of an array.
+     *
+     * @param keep whether each position is kept
+     * @return the indices of the kept positions, in increasing order
+     */
+    private static int[] indicesOf(final boolean[] keep) {
+        IntList indices = new IntList();
+        for (int i = 0; i < keep.length; i++) {
+            if (keep[i]) {
+                indices.add(i);
+            }
+        }
+        return indices.toArray();
+    }
+
+    /**
+     * Return the indices of every position of a short track.
+     *
+     * @param count the number of positions
+     * @return 0 to count - 1
+     */
+    private static int[] range(final int count) {
+        int[] indices = new int[count];
+        for (int i = 0; i < count; i++) {
+            indices[i] = i;
+        }
+        return indices;
+    }
+
+    /**
+     * Check that a track is valid.
+     *
+     * @param latitudes the latitudes of the track
+     * @param longitudes the longitudes of the track
+     * @throws IllegalArgumentException if the arrays have different lengths or a position is not valid
+     */
+    private static void checkTrack(final double[] latitudes, final double[] longitudes) {
+        if (latitudes.length != longitudes.length) {
+            throw new IllegalArgumentException("arrays have different lengths");
+        }
+        for (int i = 0; i < latitudes.length; i++) {
+            GeoMath.checkPosition(latitudes[i], longitudes[i]);
+        }
+    }
+
+    /**
+     * A binary min-heap of positions by triangle area, whose areas can be changed in place.
+     * <p>
+     * Equal areas are ordered by index, so the result never depends on the order of heap operations.
+     */
+    private static final class AreaHeap {
+
+        /** Positions in heap order. */
+        private final int[] heap;
+
+        /** Where each position is in the heap, or NONE. */
+        private final int[] slots;
+
+        /** Current area of each position. */
+        private final double[] areas;
+
+        /** Number of positions in the heap. */
+        private int size = 0;
+
+        /**
+         * Create an empty heap.
+         *
+         * @param capacity one more than the largest position that will be added
+         */
+        AreaHeap(final int capacity) {
+            heap = new int[capacity];
+            slots = new int[capacity];
+            areas = new double[capacity];
+            Arrays.fill(slots, NONE);
+        }
+
+        /**
+         * Return the number of positions in the heap.
+         *
+         * @return the number of positions
+         */
+        int size() {
+            return size;
+        }
+
+        /**
+         * Add a position.
+         *
+         * @param position the position
+         * @param area its triangle's area
+         */
+        void push(final int position, final double area) {
+            areas[position] = area;
+            heap[size] = position;
+            slots[position] = size;
+            size++;
+            siftUp(size - 1);
+        }
+
+        /**
+         * Return the smallest area in the heap.
+         *
+         * @return the smallest area
+         */
+        double minArea() {
+            return areas[heap[0]];
+        }
+
+        /**
+         * Remove the position with the smallest area.
+         *
+         * @return the position removed
+         */
+        int pop() {
+            int top = heap[0];
+            slots[top] = NONE;
+            size--;
+            if (size > 0) {
+                heap[0] = heap[size];
+                slots[heap[0]] = 0;
+                siftDown(0);
+            }
+            return top;
+        }
+
+        /**
+         * Change the area of a position in the heap.
+         *
+         * @param position the position
+         * @param area its new area
+         */
+        void update(final int position, final double area) {
+            areas[position] = area;
+            siftUp(slots[position]);
+            siftDown(slots[position]);
+        }
+
+        /**
+         * Return whether one position should come out of the heap before another.
+         *
+         * @param first the first position
+         * @param second the second position
+         * @return true if the first has a smaller area, or the same area and a lower index
+         */
+        private boolean before(final int first, final int second) {
+            return areas[first] < areas[second] || areas[first] == areas[second] && first < second;
+        }
+
+        /**
+         * Move the position in a slot up until its parent comes before it.
+         *
+         * @param start the slot
+         */
+        private void siftUp(final int start) {
+            int slot = start;
+            while (slot > 0) {
+                int parent = (slot - 1) / 2;
+                if (!before(heap[slot], heap[parent])) {
+                    break;
+                }
+                swap(slot, parent);
+                slot = parent;
+            }
+        }
+
+        /**
+         * Move the position in a slot down until it comes before its children.
+         *
+         * @param start the slot
+         */
+        private void siftDown(final int start) {
+            int slot = start;
+            while (true) {
+                int smallest = slot;
+                int left = 2 * slot + 1;
+                int right = left + 1;
+                if (left < size && before(heap[left], heap[smallest])) {
+                    smallest = left;
+                }
+                if (right < size && before(heap[right], heap[smallest])) {
+                    smallest = right;
+                }
+                if (smallest == slot) {
+                    return;
+                }
+                swap(slot, smallest);
+                slot = smallest;
+            }
+        }
+
+        /**
+         * Swap the positions in two slots.
+         *
+         * @param first the first slot
+         * @param second the second slot
+         */
+        private void swap(final int first, final int second) {
+            int position = heap[first];
+            heap[first] = heap[second];
+            heap[second] = position;
+            slots[heap[first]] = first;
+            slots[heap[second]] = second;
+        }
+    }
+}
@@ -0,0 +1,890 @@
+package edu.illinois.cs.cs125.spring2019.mp0.lib;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures how similar two tracks are, and finds the stored tracks most similar to a new one.
+ * <p>
+ * Tracks are pairs of latitude and longitude arrays, as used by Locator. Two distances are supported, both built on
+ * pairing up the positions of the two tracks in order, where each position may be paired with several consecutive
+ * positions of the other track:
+ * <ul>
+ * <li>dynamic time warping (DTW) adds up the haversine distances of the pairs, and</li>
+ * <li>the discrete Frechet distance takes the largest of them,</li>
+ * </ul>
+ * each using the pairing that makes the result smallest. Finding it takes a table with one entry per pair of
+ * positions. A band limits how far the pairing may drift from the diagonal, where both tracks are the same fraction of
+ * the way along, to a number of positions either side; that both speeds things up and stops a track being matched to
+ * a small part of the other.
+ * <p>
+ * search looks through a corpus of stored tracks for the closest k. Most tracks can be rejected without filling in
+ * the table, using lower bounds that are cheap to compute:
+ * <ol>
+ * <li>the distance between the tracks' bounding boxes, which every pair is at least as far apart as, along with the
+ * distances between their first and last positions, which are always paired;</li>
+ * <li>LB_Keogh: each position of the longer track is paired with something in its band, so it is at least as far from
+ * the other track as the bounding box of the positions in that band; and</li>
+ * <li>early abandoning: once every entry in a row of the table is worse than the current kth best distance, so is the
+ * final result.</li>
+ * </ol>
+ * The corpus is split into chunks that are searched in parallel in a ForkJoinPool. The chunks share the best k
+ * distances any of them has found, so a good match found in one chunk helps the others reject tracks.
+ */
+public final class TrajectorySearch {
+
+    /** Band to use for an unconstrained pairing. */
+    public static final int UNBANDED = Integer.MAX_VALUE;
+
+    /** Default number of tracks searched by a single task. */
+    public static final int DEFAULT_CHUNK_SIZE = 64;
+
+    /** Track distances that can be searched by. */
+    public enum Metric {
+        /** Dynamic time warping: the smallest possible sum of paired distances. */
+        DTW,
+        /** Discrete Frechet distance: the smallest possible largest paired distance. */
+        FRECHET
+    }
+
+    /** The pool that runs our tasks. */
+    private final ForkJoinPool pool;
+
+    /** Largest number of tracks searched by a single task. */
+    private final int chunkSize;
+
+    /** Latitudes of each stored track. */
+    private final List<double[]> trackLatitudes = new ArrayList<>();
+
+    /** Longitudes of each stored track. */
+    private final List<double[]> trackLongitudes = new ArrayList<>();
+
+    /** Bounding box of each stored track, indexed by the Locator direction constants. */
+    private final List<double[]> trackBoxes = new ArrayList<>();
+
+    /**
+     * Create an empty corpus that is searched in the common pool.
+     */
+    public TrajectorySearch() {
+        this(ForkJoinPool.commonPool(), DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Create an empty corpus.
+     *
+     * @param setPool the pool to run searches in
+     * @param setChunkSize the largest number of tracks searched by a single task
+     */
+    public TrajectorySearch(final ForkJoinPool setPool, final int setChunkSize) {
+        if (setChunkSize < 1) {
+            throw new IllegalArgumentException("chunk size must be positive");
+        }
+        pool = setPool;
+        chunkSize = setChunkSize;
+    }
+
+    /**
+     * Add a track to the corpus.
+     *
+     * @param latitudes the latitudes of the track's positions, which are copied
+     * @param longitudes the longitudes of the track's positions, which are copied
+     * @return the index of the track, counting up from 0
+     * @throws IllegalArgumentException if the track is empty, the arrays have different lengths, or a position is
+     * not valid
+     */
+    public synchronized int add(final double[] latitudes, final double[] longitudes) {
+        double[] box = boundingBox(latitudes, longitudes);
+        trackLatitudes.add(latitudes.clone());
+        trackLongitudes.add(longitudes.clone());
+        trackBoxes.add(box);
+        return trackBoxes.size() - 1;
+    }
+
+    /**
+     * Return the number of tracks in the corpus.
+     *
+     * @return the number of tracks added
+     */
+    public synchronized int size() {
+        return trackBoxes.size();
+    }
+
+    /**
+     * Find the stored tracks closest to a query track.
+     * <p>
+     * Tracks at the same distance are ordered by index, so the result doesn't depend on how the search was split up.
+     *
+     * @param latitudes the latitudes of the query track
+     * @param longitudes the longitudes of the query track
+     * @param count the number of tracks to return
+     * @param metric the track distance to use
+     * @param band how many positions either side of the diagonal a pairing may use, or UNBANDED
+     * @return the closest tracks and how many were rejected at each stage
+     * @throws IllegalArgumentException if the query is not a valid track, or the count or band is negative
+     */
+    public Result search(final double[] latitudes, final double[] longitudes, final int count, final Metric metric,
+                         final int band) {
+        if (count < 0 || band < 0) {
+            throw new IllegalArgumentException("count and band must not be negative");
+        }
+        double[] box = boundingBox(latitudes, longitudes);
+        Query query = new Query(latitudes, longitudes, box, count, metric, band);
+        synchronized (this) {
+            query.tracks = trackBoxes.size();
+            query.trackLatitudes = trackLatitudes.toArray(new double[0][]);
+            query.trackLongitudes = trackLongitudes.toArray(new double[0][]);
+            query.trackBoxes = trackBoxes.toArray(new double[0][]);
+        }
+        if (count == 0 || query.tracks == 0) {
+            return new Result(count);
+        }
+        return pool.invoke(new SearchTask(query, 0, query.tracks));
+    }
+
+    /**
+     * Compute the dynamic time warping distance between two tracks.
+     *
+     * @param firstLatitudes the latitudes of the first track
+     * @param firstLongitudes the longitudes of the first track
+     * @param secondLatitudes the latitudes of the second track
+     * @param secondLongitudes the longitudes of the second track
+     * @param band how many positions either side of the diagonal the pairing may use, or UNBANDED
+     * @return the smallest possible sum of haversine distances between paired positions, in meters
+     * @throws IllegalArgumentException if either track is not valid, or the band is negative
+     */
+    public static double dtw(final double[] firstLatitudes, final double[] firstLongitudes,
+                             final double[] secondLatitudes, final double[] secondLongitudes, final int band) {
+        checkPair(firstLatitudes, firstLongitudes, secondLatitudes, secondLongitudes, band);
+        return distance(firstLatitudes, firstLongitudes, secondLatitudes, secondLongitudes, Metric.DTW, band,
+            Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Compute the discrete Frechet distance between two tracks.
+     *
+     * @param firstLatitudes the latitudes of the first track
+     * @param firstLongitudes the longitudes of the first track
+     * @param secondLatitudes the latitudes of the second track
+     * @param secondLongitudes the longitudes of the second track
+     * @param band how many positions either side of the diagonal the pairing may use, or UNBANDED
+     * @return the smallest possible largest haversine distance between paired positions, in meters
+     * @throws IllegalArgumentException if either track is not valid, or the band is negative
+     */
+    public static double frechet(final double[] firstLatitudes, final double[] firstLongitudes,
+                                 final double[] secondLatitudes, final double[] secondLongitudes, final int band) {
+        checkPair(firstLatitudes, firstLongitudes, secondLatitudes, secondLongitudes, band);
+        return distance(firstLatitudes, firstLongitudes, secondLatitudes, secondLongitudes, Metric.FRECHET, band,
+            Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Check the arguments of a distance between two tracks.
+     *
+     * @param firstLatitudes the latitudes of the first track
+     * @param firstLongitudes the longitudes of the first track
+     * @param secondLatitudes the latitudes of the second track
+     * @param secondLongitudes the longitudes of the second track
+     * @param band how many positions either side of the diagonal the pairing may use
+     * @throws IllegalArgumentException if either track is not valid, or the band is negative
+     */
+    private static void checkPair(final double[] firstLatitudes, final double[] firstLongitudes,
+                                  final double[] secondLatitudes, final double[] secondLongitudes, final int band) {
+        checkTrack(firstLatitudes, firstLongitudes);
+        checkTrack(secondLatitudes, secondLongitudes);
+        if (band < 0) {
+            throw new IllegalArgumentException("band must not be negative");
+        }
+    }
+
+    /**
+     * Compute a track distance, giving up as soon as it is certain to be more than a cutoff.
+     * <p>
+     * The tracks and band must already have been checked, since search calls this for every candidate.
+     * <p>
+     * The longer track goes down the rows of the table and the shorter one across the columns, so the diagonal never
+     * climbs more than one column per row and the band always leaves a connected path.
+     *
+     * @param firstLatitudes the latitudes of the first track
+     * @param firstLongitudes the longitudes of the first track
+     * @param secondLatitudes the latitudes of the second track
+     * @param secondLongitudes the longitudes of the second track
+     * @param metric the distance to compute
+     * @param band how many positions either side of the diagonal the pairing may use
+     * @param cutoff the distance beyond which the exact result doesn't matter
+     * @return the distance, or positive infinity if it is more than the cutoff
+     */
+    private static double distance(final double[] firstLatitudes, final double[] firstLongitudes,
+                                   final double[] secondLatitudes, final double[] secondLongitudes,
+                                   final Metric metric, final int band, final double cutoff) {
+        double[] rowLatitudes = firstLatitudes;
+        double[] rowLongitudes = firstLongitudes;
+        double[] columnLatitudes = secondLatitudes;
+        double[] columnLongitudes = secondLongitudes;
+        if (secondLatitudes.length > firstLatitudes.length) {
+            rowLatitudes = secondLatitudes;
+            rowLongitudes = secondLongitudes;
+            columnLatitudes = firstLatitudes;
+            columnLongitudes = firstLongitudes;
+        }
+        int columns = columnLatitudes.length;
+
+        double[] previous = new double[columns];
+        double[] current = new double[columns];
+        Arrays.fill(previous, Double.POSITIVE_INFINITY);
+        int previousFirst = 0;
+        int previousLast = -1;
+        for (int row = 0; row < rowLatitudes.length; row++) {
+            int first = windowStart(row, rowLatitudes.length, columns, band);
+            int last = windowEnd(row, rowLatitudes.length, columns, band);
+            double rowBest = Double.POSITIVE_INFINITY;
+            for (int column = first; column <= last; column++) {
+                double cost = GeoMath.haversine(rowLatitudes[row], rowLongitudes[row],
+                    columnLatitudes[column], columnLongitudes[column]);
+                double best = Double.POSITIVE_INFINITY;
+                if (row == 0 && column == 0) {
+                    best = 0;
+                }
+                if (column >= previousFirst && column <= previousLast) {
+                    best = Math.min(best, previous[column]);
+                }
+                if (column - 1 >= previousFirst && column - 1 <= previousLast) {
+                    best = Math.min(best, previous[column - 1]);
+                }
+                if (column > first) {
+                    best = Math.min(best, current[column - 1]);
+                }
+                if (metric == Metric.DTW) {
+                    current[column] = best + cost;
+                } else {
+                    current[column] = Math.max(best, cost);
+                }
+                rowBest = Math.min(rowBest, current[column]);
+            }
+            if (rowBest > cutoff) {
+                return Double.POSITIVE_INFINITY;
+            }
+            double[] swap = previous;
+            previous = current;
+            current = swap;
+            previousFirst = first;
+            previousLast = last;
+        }
+        return previous[columns - 1];
+    }
+
+    /**
+     * Return the position along the diagonal of the table, in columns.
+     *
+     * @param row the row
+     * @param rows the number of rows
+     * @param columns the number of columns, no more than the number of rows
+     * @return the column the diagonal passes through
+     */
+    private static double diagonal(final int row, final int rows, final int columns) {
+        if (rows == 1) {
+            return 0;
+        }
+        return (double) row * (columns - 1) / (rows - 1);
+    }
+
+    /**
+     * Return the first column of a row that lies within the band.
+     *
+     * @param row the row
+     * @param rows the number of rows
+     * @param columns the number of columns, no more than the number of rows
+     * @param band how many positions either side of the diagonal the pairing may use
+     * @return the first column in the band
+     */
+    private static int windowStart(final int row, final int rows, final int columns, final int band) {
+        return (int) Math.max(0, Math.floor(diagonal(row, rows, columns)) - band);
+    }
+
+    /**
+     * Return the last column of a row that lies within the band.
+     *
+     * @param row the row
+     * @param rows the number of rows
+     * @param columns the number of columns, no more than the number of rows
+     * @param band how many positions either side of the diagonal the pairing may use
+     * @return the last column in the band
+     */
+    private static int windowEnd(final int row, final int rows, final int columns, final int band) {
+        return (int) Math.min(columns - 1, Math.ceil(diagonal(row, rows, columns)) + (double) band);
+    }
+
+    /**
+     * Compute the LB_Keogh lower bound on a track distance.
+     * <p>
+     * Each position of the longer track is paired with at least one position in its band of the shorter track, so
+     * its distance to the bounding box of that band bounds its share of the result from below. The boxes slide along
+     * the shorter track as the band does, so their edges are kept up to date with monotonic queues.
+     *
+     * @param firstLatitudes the latitudes of the first track
+     * @param firstLongitudes the longitudes of the first track
+     * @param secondLatitudes the latitudes of the second track
+     * @param secondLongitudes the longitudes of the second track
+     * @param metric the distance to bound
+     * @param band how many positions either side of the diagonal the pairing may use
+     * @param cutoff the bound beyond which the exact result doesn't matter
+     * @return a lower bound on the distance, which is more than the cutoff if the distance is
+     */
+    static double keogh(final double[] firstLatitudes, final double[] firstLongitudes,
+                        final double[] secondLatitudes, final double[] secondLongitudes,
+                        final Metric metric, final int band, final double cutoff) {
+        double[] rowLatitudes = firstLatitudes;
+        double[] rowLongitudes = firstLongitudes;
+        double[] columnLatitudes = secondLatitudes;
+        double[] columnLongitudes = secondLongitudes;
+        if (secondLatitudes.length > firstLatitudes.length) {
+            rowLatitudes = secondLatitudes;
+            rowLongitudes = secondLongitudes;
+            columnLatitudes = firstLatitudes;
+            columnLongitudes = firstLongitudes;
+        }
+        int rows = rowLatitudes.length;
+        int columns = columnLatitudes.length;
+        SlidingExtreme north = new SlidingExtreme(columns, true);
+        SlidingExtreme south = new SlidingExtreme(columns, false);
+        SlidingExtreme east = new SlidingExtreme(columns, true);
+        SlidingExtreme west = new SlidingExtreme(columns, false);
+
+        double bound = 0;
+        int next = 0;
+        for (int row = 0; row < rows; row++) {
+            int first = windowStart(row, rows, columns, band);
+            int last = windowEnd(row, rows, columns, band);
+            for (; next <= last; next++) {
+                north.push(next, columnLatitudes[next]);
+                south.push(next, columnLatitudes[next]);
+                east.push(next, columnLongitudes[next]);
+                west.push(next, columnLongitudes[next]);
+            }
+            north.expire(first);
+            south.expire(first);
+            east.expire(first);
+            west.expire(first);
+            double gap = pointToBox(rowLatitudes[row], rowLongitudes[row], north.get(), south.get(), east.get(),
+                west.get());
+            if (metric == Metric.DTW) {
+                bound += gap;
+            } else {
+                bound = Math.max(bound, gap);
+            }
+            if (bound > cutoff) {
+                return bound;
+            }
+        }
+        return bound;
+    }
+
+    /**
+     * Compute a lower bound on a track distance from the tracks' bounding boxes and ends, in constant time.
+     *
+     * @param query the query being searched for
+     * @param track the stored track
+     * @return a lower bound on the distance between the query and the track
+     */
+    private static double boxBound(final Query query, final int track) {
+        double[] latitudes = query.trackLatitudes[track];
+        double[] longitudes = query.trackLongitudes[track];
+        int last = latitudes.length - 1;
+        int queryLast = query.latitudes.length - 1;
+        double start = GeoMath.haversine(query.latitudes[0], query.longitudes[0], latitudes[0], longitudes[0]);
+        double end = GeoMath.haversine(query.latitudes[queryLast], query.longitudes[queryLast],
+            latitudes[last], longitudes[last]);
+        double boxes = boxToBox(query.box, query.trackBoxes[track]);
+        if (query.metric == Metric.FRECHET) {
+            return Math.max(boxes, Math.max(start, end));
+        }
+        // A pairing has at least as many pairs as the longer track has positions
+        double spread = boxes * Math.max(latitudes.length, query.latitudes.length);
+        if (last == 0 && queryLast == 0) {
+            return Math.max(spread, start);
+        }
+        return Math.max(spread, start + end);
+    }
+
+    /**
+     * Return a lower bound on the distance from a position to anywhere in a latitude and longitude box.
+     *
+     * @param latitude the latitude of the position
+     * @param longitude the longitude of the position
+     * @param north the northern edge of the box
+     * @param south the southern edge of the box
+     * @param east the eastern edge of the box
+     * @param west the western edge of the box
+     * @return the lower bound, in meters
+     */
+    private static double pointToBox(final double latitude, final double longitude, final double north,
+                                     final double south, final double east, final double west) {
+        double latitudeGap = Math.max(0, Math.max(south - latitude, latitude - north));
+        double longitudeGap = intervalGap(longitude, longitude, west, east);
+        double poleward = Math.max(Math.abs(latitude), Math.max(Math.abs(north), Math.abs(south)));
+        return boundFromGaps(latitudeGap, longitudeGap, poleward);
+    }
+
+    /**
+     * Return a lower bound on the distance between any two positions in two bounding boxes.
+     *
+     * @param first the first box, indexed by the Locator direction constants
+     * @param second the second box, indexed by the Locator direction constants
+     * @return the lower bound, in meters
+     */
+    private static double boxToBox(final double[] first, final double[] second) {
+        double latitudeGap = Math.max(0, Math.max(second[Locator.SOUTH] - first[Locator.NORTH],
+            first[Locator.SOUTH] - second[Locator.NORTH]));
+        double longitudeGap = intervalGap(first[Locator.WEST], first[Locator.EAST],
+            second[Locator.WEST], second[Locator.EAST]);
+        double poleward = Math.max(Math.max(Math.abs(first[Locator.NORTH]), Math.abs(first[Locator.SOUTH])),
+            Math.max(Math.abs(second[Locator.NORTH]), Math.abs(second[Locator.SOUTH])));
+        return boundFromGaps(latitudeGap, longitudeGap, poleward);
+    }
+
+    /**
+     * Return the smallest longitude difference between two ranges of longitudes, going either way around.
+     *
+     * @param firstWest the western end of the first range
+     * @param firstEast the eastern end of the first range
+     * @param secondWest the western end of the second range
+     * @param secondEast the eastern end of the second range
+     * @return the gap between the ranges in degrees, or 0 if they overlap
+     */
+    private static double intervalGap(final double firstWest, final double firstEast, final double secondWest,
+                                      final double secondEast) {
+        if (firstWest <= secondEast && secondWest <= firstEast) {
+            return 0;
+        }
+        double fullCircle = Locator.MAX_LONGITUDE - Locator.MIN_LONGITUDE;
+        double eastward = secondWest - firstEast;
+        eastward -= Math.floor(eastward / fullCircle) * fullCircle;
+        double westward = firstWest - secondEast;
+        westward -= Math.floor(westward / fullCircle) * fullCircle;
+        return Math.min(eastward, westward);
+    }
+
+    /**
+     * Turn latitude and longitude gaps into a lower bound on the haversine distance.
+     * <p>
+     * The haversine formula only grows with the latitude and longitude differences and with the cosines of the two
+     * latitudes, and both cosines are at least the cosine of the most poleward latitude involved.
+     *
+     * @param latitudeGap the smallest possible latitude difference, in degrees
+     * @param longitudeGap the smallest possible longitude difference, in degrees
+     * @param poleward the largest possible absolute latitude
+     * @return the lower bound, in meters
+     */
+    private static double boundFromGaps(final double latitudeGap, final double longitudeGap, final double poleward) {
+        if (latitudeGap == 0 && longitudeGap == 0) {
+            return 0;
+        }
+        double cosine = Math.cos(Math.toRadians(Math.min(Locator.MAX_LATITUDE, poleward)));
+        double latitudeHalf = Math.sin(Math.toRadians(latitudeGap) / 2);
+        double longitudeHalf = Math.sin(Math.toRadians(longitudeGap) / 2);
+        double a = latitudeHalf * latitudeHalf + cosine * cosine * longitudeHalf * longitudeHalf;
+        return 2 * GeoMath.EARTH_RADIUS_METERS * Math.asin(Math.sqrt(Math.min(1.0, a)));
+    }
+
+    /**
+     * Check that a track is valid and compute its bounding box.
+     *
+     * @param latitudes the latitudes of the track
+     * @param longitudes the longitudes of the track
+     * @return the bounding box, indexed by the Locator direction constants
+     * @throws IllegalArgumentException if the track is not valid
+     */
+    private static double[] boundingBox(final double[] latitudes, final double[] longitudes) {
+        checkTrack(latitudes, longitudes);
+        double[] box = new double[Locator.DIRECTIONS];
+        box[Locator.NORTH] = Locator.MIN_LATITUDE;
+        box[Locator.SOUTH] = Locator.MAX_LATITUDE;
+        box[Locator.EAST] = Locator.MIN_LONGITUDE;
+        box[Locator.WEST] = Locator.MAX_LONGITUDE;
+        for (int i = 0; i < latitudes.length; i++) {
+            box[Locator.NORTH] = Math.max(box[Locator.NORTH], latitudes[i]);
+            box[Locator.SOUTH] = Math.min(box[Locator.SOUTH], latitudes[i]);
+            box[Locator.EAST] = Math.max(box[Locator.EAST], longitudes[i]);
+            box[Locator.WEST] = Math.min(box[Locator.WEST], longitudes[i]);
+        }
+        return box;
+    }
+
+    /**
+     * Check that a track is valid.
+     *
+     * @param latitudes the latitudes of the track
+     * @param longitudes the longitudes of the track
+     * @throws IllegalArgumentException if the track is empty, the arrays have different lengths, or a position is
+     * not valid
+     */
+    private static void checkTrack(final double[] latitudes, final double[] longitudes) {
+        if (latitudes.length != longitudes.length || latitudes.length == 0) {
+            throw new IllegalArgumentException("a track needs matching, non-empty latitude and longitude arrays");
+        }
+        for (int i = 0; i < latitudes.length; i++) {
+            GeoMath.checkPosition(latitudes[i], longitudes[i]);
+        }
+    }
+
+    /**
+     * A stored track found by a search.
+     */
+    public static final class Match {
+
+        /** Index of the track in the corpus. */
+        private final int index;
+
+        /** Distance from the query to the track. */
+        private final double distance;
+
+        /**
+         * Create a match.
+         *
+         * @param setIndex the index of the track in the corpus
+         * @param setDistance the distance from the query to the track
+         */
+        Match(final int setIndex, final double setDistance) {
+            index = setIndex;
+            distance = setDistance;
+        }
+
+        /**
+         * Return which track matched.
+         *
+         * @return the index of the track in the corpus
+         */
+        public int getIndex() {
+            return index;
+        }
+
+        /**
+         * Return how far the track is from the query.
+         *
+         * @return the distance, in meters
+         */
+        public double getDistance() {
+            return distance;
+        }
+
+        /**
+         * Return whether this match should be listed before another.
+         *
+         * @param other the other match
+         * @return true if this match is closer, or as close with a lower index
+         */
+        boolean before(final Match other) {
+            return distance < other.distance || distance == other.distance && index < other.index;
+        }
+    }
+
+    /**
+     * The result of a search.
+     */
+    public static final class Result {
+
+        /** The closest tracks found so far, closest first. */
+        private final List<Match> matches = new ArrayList<>();
+
+        /** The number of tracks to keep. */
+        private final int count;
+
+        /** Number of tracks rejected by their bounding boxes and ends. */
+        private int boxRejected;
+
+        /** Number of tracks rejected by LB_Keogh. */
+        private int keoghRejected;
+
+        /** Number of tracks whose table was abandoned part of the way through. */
+        private int abandoned;
+
+        /** Number of tracks whose table was filled in completely. */
+        private int computed;
+
+        /**
+         * Create an empty result.
+         *
+         * @param setCount the number of tracks to keep
+         */
+        Result(final int setCount) {
+            count = setCount;
+        }
+
+        /**
+         * Offer a track, keeping it if it is among the closest.
+         *
+         * @param match the track and its distance
+         */
+        void offer(final Match match) {
+            int position = matches.size();
+            while (position > 0 && match.before(matches.get(position - 1))) {
+                position--;
+            }
+            if (position >= count) {
+                return;
+            }
+            matches.add(position, match);
+            if (matches.size() > count) {
+                matches.remove(count);
+            }
+        }
+
+        /**
+         * Return the distance a track must beat to be kept.
+         *
+         * @return the kth best distance, or positive infinity if fewer than k tracks have been kept
+         */
+        double threshold() {
+            if (matches.size() < count) {
+                return Double.POSITIVE_INFINITY;
+            }
+            return matches.get(count - 1).getDistance();
+        }
+
+        /**
+         * Merge in the result of searching a later part of the corpus.
+         *
+         * @param other the other result
+         * @return this result
+         */
+        Result merge(final Result other) {
+            for (Match match : other.matches) {
+                offer(match);
+            }
+            boxRejected += other.boxRejected;
+            keoghRejected += other.keoghRejected;
+            abandoned += other.abandoned;
+            computed += other.computed;
+            return this;
+        }
+
+        /**
+         * Return the closest tracks.
+         *
+         * @return up to the requested number of tracks, closest first, and by index among equally close tracks
+         */
+        public List<Match> getMatches() {
+            return Collections.unmodifiableList(matches);
+        }
+
+        /**
+         * Return how many tracks were rejected by their bounding boxes and ends.
+         *
+         * @return the number of tracks rejected in constant time
+         */
+        public int getBoxRejected() {
+            return boxRejected;
+        }
+
+        /**
+         * Return how many tracks were rejected by LB_Keogh.
+         *
+         * @return the number of tracks rejected in time proportional to their length
+         */
+        public int getKeoghRejected() {
+            return keoghRejected;
+        }
+
+        /**
+         * Return how many tracks were rejected part of the way through computing their distance.
+         *
+         * @return the number of abandoned tracks
+         */
+        public int getAbandoned() {
+            return abandoned;
+        }
+
+        /**
+         * Return how many tracks had their distance computed in full.
+         *
+         * @return the number of tracks fully compared
+         */
+        public int getComputed() {
+            return computed;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d matches; rejected %d by box, %d by LB_Keogh, %d abandoned; %d computed",
+                matches.size(), boxRejected, keoghRejected, abandoned, computed);
+        }
+    }
+
+    /**
+     * A search in progress: the query, a snapshot of the corpus, and the best distances found by any task.
+     */
+    private static final class Query {
+
+        /** Latitudes of the query track. */
+        private final double[] latitudes;
+
+        /** Longitudes of the query track. */
+        private final double[] longitudes;
+
+        /** Bounding box of the query track. */
+        private final double[] box;
+
+        /** Number of tracks to find. */
+        private final int count;
+
+        /** Distance to search by. */
+        private final Metric metric;
+
+        /** How many positions either side of the diagonal a pairing may use. */
+        private final int band;
+
+        /** The best distances found by any task so far, closest first. */
+        private final double[] best;
+
+        /** Bits of the kth best distance found by any task so far, readable without locking. */
+        private final AtomicLong shared = new AtomicLong(Double.doubleToLongBits(Double.POSITIVE_INFINITY));
+
+        /** Number of tracks in the snapshot. */
+        private int tracks;
+
+        /** Latitudes of each track in the snapshot. */
+        private double[][] trackLatitudes;
+
+        /** Longitudes of each track in the snapshot. */
+        private double[][] trackLongitudes;
+
+        /** Bounding box of each track in the snapshot. */
+        private double[][] trackBoxes;
+
+        /**
+         * Create a query.
+         *
+         * @param setLatitudes the latitudes of the query track
+         * @param setLongitudes the longitudes of the query track
+         * @param setBox the bounding box of the query track
+         * @param setCount the number of tracks to find
+         * @param setMetric the distance to search by
+         * @param setBand how many positions either side of the diagonal a pairing may use
+         */
+        Query(final double[] setLatitudes, final double[] setLongitudes, final double[] setBox, final int setCount,
+              final Metric setMetric, final int setBand) {
+            latitudes = setLatitudes;
+            longitudes = setLongitudes;
+            box = setBox;
+            count = setCount;
+            metric = setMetric;
+            band = setBand;
+            best = new double[count];
+            Arrays.fill(best, Double.POSITIVE_INFINITY);
+        }
+
+        /**
+         * Record a distance computed by any task, lowering the shared kth best distance if it is among the best.
+         * <p>
+         * The shared distances are a subset of all the distances, so their kth best is never better than the true
+         * one, and it is safe to reject tracks that are further away.
+         *
+         * @param distance the distance from the query to a track
+         */
+        synchronized void record(final double distance) {
+            int position = best.length;
+            while (position > 0 && distance < best[position - 1]) {
+                position--;
+            }
+            if (position == best.length) {
+                return;
+            }
+            System.arraycopy(best, position, best, position + 1, best.length - position - 1);
+            best[position] = distance;
+            shared.set(Double.doubleToLongBits(best[best.length - 1]));
+        }
+
+        /**
+         * Return the kth best distance found by any task so far.
+         *
+         * @return the distance a track must not exceed to be among the results
+         */
+        double shared() {
+            return Double.longBitsToDouble(shared.get());
+        }
+    }
+
+    /**
+     * Task that searches a range of the corpus, splitting it if it is too large.
+     */
+    private final class SearchTask extends RecursiveTask<Result> {
+
+        /** Serialization version, required because RecursiveTask is serializable. */
+        private static final long serialVersionUID = 1L;
+
+        /** The search in progress. */
+        private final Query query;
+
+        /** First track of the range. */
+        private final int from;
+
+        /** One past the last track of the range. */
+        private final int to;
+
+        /**
+         * Create a task for a range of tracks.
+         *
+         * @param setQuery the search in progress
+         * @param setFrom first track of the range
+         * @param setTo one past the last track of the range
+         */
+        SearchTask(final Query setQuery, final int setFrom, final int setTo) {
+            query = setQuery;
+            from = setFrom;
+            to = setTo;
+        }
+
+        @Override
+        protected Result compute() {
+            if (to - from <= chunkSize) {
+                Result result = new Result(query.count);
+                for (int track = from; track < to; track++) {
+                    compare(track, result);
+                }
+                return result;
+            }
+            int middle = (from + to) >>> 1;
+            SearchTask left = new SearchTask(query, from, middle);
+            SearchTask right = new SearchTask(query, middle, to);
+            left.fork();
+            Result rightResult = right.compute();
+            return left.join().merge(rightResult);
+        }
+
+        /**
+         * Compare one stored track against the query, rejecting it as cheaply as possible.
+         * <p>
+         * A track exactly at the cutoff is never rejected, so ties are kept and then broken by index.
+         *
+         * @param track the index of the track
+         * @param result the results for this task's range
+         */
+        private void compare(final int track, final Result result) {
+            double cutoff = Math.min(result.threshold(), query.shared());
+            if (boxBound(query, track) > cutoff) {
+                result.boxRejected++;
+                return;
+            }
+            double[] latitudes = query.trackLatitudes[track];
+            double[] longitudes = query.trackLongitudes[track];
+            if (keogh(query.latitudes, query.longitudes, latitudes, longitudes, query.metric, query.band,
+                cutoff) > cutoff) {
+                result.keoghRejected++;
+                return;
+            }
+            double distance = distance(query.latitudes, query.longitudes, latitudes, longitudes, query.metric,
+                query.band, cutoff);
+            if (distance == Double.POSITIVE_INFINITY) {
+                result.abandoned++;
+                return;
+            }
+            result.computed++;
+            result.offer(new Match(track, distance));
+            query.record(distance);
+        }
+    }
+}
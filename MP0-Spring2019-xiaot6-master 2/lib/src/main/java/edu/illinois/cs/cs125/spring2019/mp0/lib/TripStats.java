@@ -0,0 +1,303 @@
+package edu.illinois.cs.cs125.spring2019.mp0.lib;
+
+/**
+ * Summary statistics over a sliding window of a trip's measurements, updated in constant time per measurement.
+ * <p>
+ * A trip summary shows the distance travelled, the bounding box, the average speed, and the largest distance from
+ * where the trip started. Recomputing those from the full history costs time proportional to its size on every
+ * request. This accumulator keeps them up to date as measurements are added and as the oldest ones are evicted, so
+ * that the window matches a LocationHistory ring of the same capacity.
+ * <p>
+ * The distance is a running sum of the haversine lengths of consecutive segments. Segments are added and later
+ * subtracted again as the window slides, millions of times over a long trip, so the sum uses Neumaier's compensated
+ * summation to keep rounding error from building up. The bounding box and the largest displacement use monotonic
+ * queues: each holds the measurements that could still become the window's extreme, in order, so the current extreme
+ * is always at the front and each measurement is pushed and popped at most once.
+ * <p>
+ * The trip's start is its first measurement since creation or the last reset, and stays the same when that
+ * measurement leaves the window. Bounding boxes that cross the antimeridian are not handled specially.
+ */
+public final class TripStats {
+
+    /** Milliseconds per second. */
+    private static final double MILLIS_PER_SECOND = 1000.0;
+
+    /** Time of each measurement in the window, indexed by sequence number modulo capacity. */
+    private final long[] times;
+
+    /** Latitude of each measurement in the window. */
+    private final double[] latitudes;
+
+    /** Longitude of each measurement in the window. */
+    private final double[] longitudes;
+
+    /** Length of the segment from the previous measurement to each measurement, in meters. */
+    private final double[] segments;
+
+    /** Southernmost latitude in the window. */
+    private final SlidingExtreme minLatitude;
+
+    /** Northernmost latitude in the window. */
+    private final SlidingExtreme maxLatitude;
+
+    /** Westernmost longitude in the window. */
+    private final SlidingExtreme minLongitude;
+
+    /** Easternmost longitude in the window. */
+    private final SlidingExtreme maxLongitude;
+
+    /** Largest distance from the start in the window. */
+    private final SlidingExtreme maxDisplacement;
+
+    /** Sequence number of the oldest measurement in the window. */
+    private long oldest = 0;
+
+    /** Sequence number the next measurement will get. */
+    private long next = 0;
+
+    /** Running total of the segment lengths in the window, in meters. */
+    private double distance = 0.0;
+
+    /** Rounding error lost from the running total so far. */
+    private double compensation = 0.0;
+
+    /** Latitude of the trip's first measurement. */
+    private double startLatitude = Double.NaN;
+
+    /** Longitude of the trip's first measurement. */
+    private double startLongitude = Double.NaN;
+
+    /**
+     * Create an empty accumulator.
+     *
+     * @param capacity the number of measurements in the window, usually the capacity of the matching history
+     */
+    public TripStats(final int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        times = new long[capacity];
+        latitudes = new double[capacity];
+        longitudes = new double[capacity];
+        segments = new double[capacity];
+        minLatitude = new SlidingExtreme(capacity, false);
+        maxLatitude = new SlidingExtreme(capacity, true);
+        minLongitude = new SlidingExtreme(capacity, false);
+        maxLongitude = new SlidingExtreme(capacity, true);
+        maxDisplacement = new SlidingExtreme(capacity, true);
+    }
+
+    /**
+     * Add a new measurement, evicting the oldest one if the window is full.
+     *
+     * @param timeMillis the time of the measurement, which must not be earlier than the previous one
+     * @param latitude the latitude of the measurement
+     * @param longitude the longitude of the measurement
+     * @throws IllegalArgumentException if the time goes backwards or the position is not valid
+     */
+    public void add(final long timeMillis, final double latitude, final double longitude) {
+        GeoMath.checkPosition(latitude, longitude);
+        if (size() > 0 && timeMillis < times[slot(next - 1)]) {
+            throw new IllegalArgumentException("measurements must be added in time order");
+        }
+        if (size() == times.length) {
+            evictOldest();
+        }
+        if (Double.isNaN(startLatitude)) {
+            startLatitude = latitude;
+            startLongitude = longitude;
+        }
+
+        int slot = slot(next);
+        times[slot] = timeMillis;
+        latitudes[slot] = latitude;
+        longitudes[slot] = longitude;
+        segments[slot] = 0.0;
+        if (size() > 0) {
+            int previous = slot(next - 1);
+            segments[slot] = GeoMath.haversine(latitudes[previous], longitudes[previous], latitude, longitude);
+            accumulate(segments[slot]);
+        }
+        minLatitude.push(next, latitude);
+        maxLatitude.push(next, latitude);
+        minLongitude.push(next, longitude);
+        maxLongitude.push(next, longitude);
+        maxDisplacement.push(next, GeoMath.haversine(startLatitude, startLongitude, latitude, longitude));
+        next++;
+    }
+
+    /**
+     * Remove the oldest measurement from the window.
+     * <p>
+     * add does this automatically once the window is full; call it directly to keep the window in step with a
+     * history that is shrinking for some other reason.
+     *
+     * @throws IllegalStateException if the window is empty
+     */
+    public void evictOldest() {
+        if (size() == 0) {
+            throw new IllegalStateException("the window is empty");
+        }
+        oldest++;
+        if (size() <= 1) {
+            // With no segments left the total is exactly zero, so drop any leftover rounding error
+            distance = 0.0;
+            compensation = 0.0;
+        } else {
+            // The new oldest measurement's segment led from the one just evicted
+            accumulate(-segments[slot(oldest)]);
+        }
+        minLatitude.expire(oldest);
+        maxLatitude.expire(oldest);
+        minLongitude.expire(oldest);
+        maxLongitude.expire(oldest);
+        maxDisplacement.expire(oldest);
+    }
+
+    /**
+     * Forget every measurement and start a new trip.
+     */
+    public void reset() {
+        oldest = next;
+        distance = 0.0;
+        compensation = 0.0;
+        startLatitude = Double.NaN;
+        startLongitude = Double.NaN;
+        minLatitude.expire(oldest);
+        maxLatitude.expire(oldest);
+        minLongitude.expire(oldest);
+        maxLongitude.expire(oldest);
+        maxDisplacement.expire(oldest);
+    }
+
+    /**
+     * Add a value to the running distance using Neumaier's compensated summation.
+     *
+     * @param value the value to add, which may be negative
+     */
+    private void accumulate(final double value) {
+        double sum = distance + value;
+        if (Math.abs(distance) >= Math.abs(value)) {
+            compensation += (distance - sum) + value;
+        } else {
+            compensation += (value - sum) + distance;
+        }
+        distance = sum;
+    }
+
+    /**
+     * Return the array slot for a sequence number.
+     *
+     * @param sequence the sequence number
+     * @return the slot holding that measurement
+     */
+    private int slot(final long sequence) {
+        return (int) (sequence % times.length);
+    }
+
+    /**
+     * Return the number of measurements in the window.
+     *
+     * @return the number of measurements
+     */
+    public int size() {
+        return (int) (next - oldest);
+    }
+
+    /**
+     * Return the distance travelled within the window.
+     *
+     * @return the total length of the segments between consecutive measurements in the window, in meters
+     */
+    public double getDistance() {
+        return distance + compensation;
+    }
+
+    /**
+     * Return the time between the oldest and newest measurements in the window.
+     *
+     * @return the duration in milliseconds, or 0 if the window is empty
+     */
+    public long getDurationMillis() {
+        if (size() == 0) {
+            return 0;
+        }
+        return times[slot(next - 1)] - times[slot(oldest)];
+    }
+
+    /**
+     * Return the average speed over the window.
+     *
+     * @return the distance divided by the duration, in meters per second, or 0 if no time has passed
+     */
+    public double getAverageSpeed() {
+        long duration = getDurationMillis();
+        if (duration == 0) {
+            return 0.0;
+        }
+        return getDistance() / (duration / MILLIS_PER_SECOND);
+    }
+
+    /**
+     * Return the southern edge of the window's bounding box.
+     *
+     * @return the smallest latitude in the window, or NaN if it is empty
+     */
+    public double getMinLatitude() {
+        return minLatitude.get();
+    }
+
+    /**
+     * Return the northern edge of the window's bounding box.
+     *
+     * @return the largest latitude in the window, or NaN if it is empty
+     */
+    public double getMaxLatitude() {
+        return maxLatitude.get();
+    }
+
+    /**
+     * Return the western edge of the window's bounding box.
+     *
+     * @return the smallest longitude in the window, or NaN if it is empty
+     */
+    public double getMinLongitude() {
+        return minLongitude.get();
+    }
+
+    /**
+     * Return the eastern edge of the window's bounding box.
+     *
+     * @return the largest longitude in the window, or NaN if it is empty
+     */
+    public double getMaxLongitude() {
+        return maxLongitude.get();
+    }
+
+    /**
+     * Return how far the window's measurements got from the start of the trip.
+     *
+     * @return the largest distance from the start to a measurement in the window, in meters, or NaN if it is empty
+     */
+    public double getMaxDisplacement() {
+        return maxDisplacement.get();
+    }
+
+    /**
+     * Return the latitude the trip started at.
+     *
+     * @return the latitude of the first measurement since the last reset, or NaN if there hasn't been one
+     */
+    public double getStartLatitude() {
+        return startLatitude;
+    }
+
+    /**
+     * Return the longitude the trip started at.
+     *
+     * @return the longitude of the first measurement since the last reset, or NaN if there hasn't been one
+     */
+    public double getStartLongitude() {
+        return startLongitude;
+    }
+}
@@ -0,0 +1,288 @@
+package edu.illinois.cs.cs125.spring2019.mp0.lib;
+
+/**
+ * Counts visits per map tile at every zoom level, so a heatmap of any viewport can be drawn without rescanning the
+ * history.
+ * <p>
+ * Tiles follow the web map convention: at zoom level z the Web Mercator square is split into 2^z by 2^z tiles,
+ * numbered from 0 at the west and north. Each tile splits into four at the next level, so the counts form a quadtree,
+ * where each tile's count is the sum of its children's. Adding or removing a position works out its tile at the
+ * deepest level once, then shifts those coordinates down to find its tile at every other level, so an update costs
+ * O(levels).
+ * <p>
+ * Deep levels are mostly empty, so each level keeps only the tiles with visits, in a LongIntTable from tile to count. A
+ * tile whose count drops to zero is deleted, so the tables track what is currently counted rather than everything ever
+ * seen. Reading a viewport costs time proportional to the number of tiles it covers, or to the number of counted tiles
+ * at that level if that is smaller.
+ * <p>
+ * Latitudes beyond the Web Mercator limit of about 85.05 degrees are counted in the nearest row of tiles.
+ */
+public final class VisitHeatmap {
+
+    /** Deepest zoom level that can be tracked, so tile coordinates fit in an int. */
+    public static final int MAX_ZOOM = 30;
+
+    /** Default deepest zoom level, where tiles are a few hundred meters across. */
+    public static final int DEFAULT_MAX_ZOOM = 16;
+
+    /** Latitude of the northern edge of the Web Mercator square. */
+    public static final double MAX_MERCATOR_LATITUDE = 85.0511287798066;
+
+    /** Number of ints appended per tile by getTiles. */
+    public static final int TILE_FIELDS = 3;
+
+    /** Deepest zoom level tracked. */
+    private final int maxZoom;
+
+    /** Counted tiles at each zoom level. */
+    private final LongIntTable[] levels;
+
+    /** Number of positions counted. */
+    private long total = 0;
+
+    /**
+     * Create an empty heatmap with the default deepest zoom level.
+     */
+    public VisitHeatmap() {
+        this(DEFAULT_MAX_ZOOM);
+    }
+
+    /**
+     * Create an empty heatmap.
+     *
+     * @param setMaxZoom the deepest zoom level to track, from 0 to MAX_ZOOM
+     */
+    public VisitHeatmap(final int setMaxZoom) {
+        if (setMaxZoom < 0 || setMaxZoom > MAX_ZOOM) {
+            throw new IllegalArgumentException("zoom must be between 0 and " + MAX_ZOOM);
+        }
+        maxZoom = setMaxZoom;
+        levels = new LongIntTable[maxZoom + 1];
+        for (int zoom = 0; zoom <= maxZoom; zoom++) {
+            levels[zoom] = new LongIntTable();
+        }
+    }
+
+    /**
+     * Count a visit to a position.
+     *
+     * @param latitude the latitude of the position
+     * @param longitude the longitude of the position
+     * @throws IllegalArgumentException if the position is not valid
+     */
+    public void add(final double latitude, final double longitude) {
+        GeoMath.checkPosition(latitude, longitude);
+        int x = tileX(maxZoom, longitude);
+        int y = tileY(maxZoom, latitude);
+        for (int zoom = maxZoom; zoom >= 0; zoom--) {
+            levels[zoom].addTo(key(x >>> (maxZoom - zoom), y >>> (maxZoom - zoom)), 1);
+        }
+        total++;
+    }
+
+    /**
+     * Stop counting a visit to a position, such as when it is evicted from a history.
+     *
+     * @param latitude the latitude of the position
+     * @param longitude the longitude of the position
+     * @throws IllegalArgumentException if the position is not valid
+     * @throws IllegalStateException if no visit to the position's tile is being counted
+     */
+    public void remove(final double latitude, final double longitude) {
+        GeoMath.checkPosition(latitude, longitude);
+        int x = tileX(maxZoom, longitude);
+        int y = tileY(maxZoom, latitude);
+        if (levels[maxZoom].get(key(x, y), 0) == 0) {
+            throw new IllegalStateException("no visit is counted at " + latitude + ", " + longitude);
+        }
+        for (int zoom = maxZoom; zoom >= 0; zoom--) {
+            levels[zoom].addTo(key(x >>> (maxZoom - zoom), y >>> (maxZoom - zoom)), -1);
+        }
+        total--;
+    }
+
+    /**
+     * Forget every visit.
+     */
+    public void clear() {
+        for (int zoom = 0; zoom <= maxZoom; zoom++) {
+            levels[zoom] = new LongIntTable();
+        }
+        total = 0;
+    }
+
+    /**
+     * Return the number of visits counted in a tile.
+     *
+     * @param zoom the zoom level, from 0 to the deepest level tracked
+     * @param x the tile's column
+     * @param y the tile's row
+     * @return the number of visits to positions in the tile
+     */
+    public int getCount(final int zoom, final int x, final int y) {
+        checkZoom(zoom);
+        long side = 1L << zoom;
+        if (x < 0 || x >= side || y < 0 || y >= side) {
+            return 0;
+        }
+        return levels[zoom].get(key(x, y), 0);
+    }
+
+    /**
+     * List the tiles with visits that overlap a viewport.
+     * <p>
+     * Each tile is appended to the result as TILE_FIELDS ints: its column, its row, and its count. A viewport whose
+     * western edge is east of its eastern edge crosses the antimeridian.
+     *
+     * @param zoom the zoom level, from 0 to the deepest level tracked
+     * @param north the northern edge of the viewport
+     * @param south the southern edge of the viewport
+     * @param east the eastern edge of the viewport
+     * @param west the western edge of the viewport
+     * @param result list to append the tiles to, in no particular order
+     * @return the number of tiles appended
+     */
+    public int getTiles(final int zoom, final double north, final double south, final double east,
+                        final double west, final IntList result) {
+        checkZoom(zoom);
+        GeoMath.checkPosition(north, east);
+        GeoMath.checkPosition(south, west);
+        if (south > north) {
+            throw new IllegalArgumentException("south edge is north of north edge");
+        }
+        long side = 1L << zoom;
+        int firstRow = tileY(zoom, north);
+        int lastRow = tileY(zoom, south);
+        int firstColumn = tileX(zoom, west);
+        int lastColumn = tileX(zoom, east);
+        long columns = Math.floorMod((long) lastColumn - firstColumn, side) + 1;
+        if (west > east && firstColumn == lastColumn) {
+            // Crossing the antimeridian within a single column still goes all the way round
+            columns = side;
+        }
+
+        LongIntTable level = levels[zoom];
+        int found = 0;
+        if ((long) (lastRow - firstRow + 1) * columns > level.size()) {
+            // Cheaper to check every counted tile than to probe for every tile in the viewport
+            for (int slot = 0; slot < level.capacity(); slot++) {
+                if (!level.isOccupied(slot)) {
+                    continue;
+                }
+                int x = (int) (level.keyAt(slot) >>> Integer.SIZE);
+                int y = (int) level.keyAt(slot);
+                if (y >= firstRow && y <= lastRow && Math.floorMod((long) x - firstColumn, side) < columns) {
+                    appendTile(result, x, y, level.valueAt(slot));
+                    found++;
+                }
+            }
+            return found;
+        }
+        for (int y = firstRow; y <= lastRow; y++) {
+            for (long column = 0; column < columns; column++) {
+                int x = (int) ((firstColumn + column) % side);
+                int count = level.get(key(x, y), 0);
+                if (count > 0) {
+                    appendTile(result, x, y, count);
+                    found++;
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Append a tile to a getTiles result.
+     *
+     * @param result the result list
+     * @param x the tile's column
+     * @param y the tile's row
+     * @param count the tile's count
+     */
+    private static void appendTile(final IntList result, final int x, final int y, final int count) {
+        result.add(x);
+        result.add(y);
+        result.add(count);
+    }
+
+    /**
+     * Return the number of visits counted.
+     *
+     * @return the number of positions added and not removed
+     */
+    public long getTotal() {
+        return total;
+    }
+
+    /**
+     * Return the deepest zoom level tracked.
+     *
+     * @return the deepest zoom level
+     */
+    public int getMaxZoom() {
+        return maxZoom;
+    }
+
+    /**
+     * Return the number of tiles with visits at a zoom level.
+     *
+     * @param zoom the zoom level, from 0 to the deepest level tracked
+     * @return the number of tiles with a nonzero count
+     */
+    public int getTileCount(final int zoom) {
+        checkZoom(zoom);
+        return levels[zoom].size();
+    }
+
+    /**
+     * Return the column of the tile containing a longitude.
+     *
+     * @param zoom the zoom level
+     * @param longitude the longitude
+     * @return the tile column, from 0 at the antimeridian going east
+     */
+    public static int tileX(final int zoom, final double longitude) {
+        long side = 1L << zoom;
+        double fullCircle = Locator.MAX_LONGITUDE - Locator.MIN_LONGITUDE;
+        long x = (long) Math.floor((longitude - Locator.MIN_LONGITUDE) / fullCircle * side);
+        return (int) Math.max(0, Math.min(side - 1, x));
+    }
+
+    /**
+     * Return the row of the tile containing a latitude.
+     *
+     * @param zoom the zoom level
+     * @param latitude the latitude, clamped to the Web Mercator square
+     * @return the tile row, from 0 at the north
+     */
+    public static int tileY(final int zoom, final double latitude) {
+        long side = 1L << zoom;
+        double radians = Math.toRadians(Locator.clamp(latitude, -MAX_MERCATOR_LATITUDE, MAX_MERCATOR_LATITUDE));
+        double mercator = Math.log(Math.tan(radians) + 1 / Math.cos(radians));
+        long y = (long) Math.floor((1 - mercator / Math.PI) / 2 * side);
+        return (int) Math.max(0, Math.min(side - 1, y));
+    }
+
+    /**
+     * Pack tile coordinates into a table key.
+     *
+     * @param x the tile column
+     * @param y the tile row
+     * @return the key
+     */
+    private static long key(final int x, final int y) {
+        return (long) x << Integer.SIZE | y;
+    }
+
+    /**
+     * Check that a zoom level is tracked.
+     *
+     * @param zoom the zoom level
+     * @throws IllegalArgumentException if it is not
+     */
+    private void checkZoom(final int zoom) {
+        if (zoom < 0 || zoom > maxZoom) {
+            throw new IllegalArgumentException("zoom must be between 0 and " + maxZoom);
+        }
+    }
+}
@@ -0,0 +1,634 @@
+package edu.illinois.cs.cs125.spring2019.mp0.lib;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Runs many independent random walkers in parallel and aggregates statistics about where they went.
+ * <p>
+ * Each walker starts from the same position and takes the same kind of step as fillRandomWalk: with the
+ * transition probability it moves by uniformly drawn latitude and longitude changes, bounded to the valid range, and
+ * otherwise it stays put. For every walker the simulation records the first step at which it reached the northern and
+ * southern latitude bounds, and for every step it counts which cell of a latitude and longitude grid the walker was
+ * in.
+ * <p>
+ * Every walker draws from its own random stream, derived only from the seed and the walker's number. Walkers are
+ * grouped into fixed-size chunks that run as tasks in a ForkJoinPool, and their counts are summed, so a run produces
+ * exactly the same result for a given seed no matter how many threads the pool has. Chunks keep their own hitting time
+ * histograms, but the occupancy grid can be large, so each thread that runs chunks adds into one grid of its own and
+ * those grids are summed once the run is over.
+ * <p>
+ * Configure a simulation with the set methods, which return the simulation so that calls can be chained, and then
+ * call run.
+ */
+public final class WalkerSimulation {
+
+    /** Default number of walkers simulated by a single task. */
+    public static final int DEFAULT_CHUNK_SIZE = 4096;
+
+    /** Default size of an occupancy grid cell, in degrees. */
+    public static final double DEFAULT_CELL_DEGREES = 1.0;
+
+    /** Largest number of cells in the occupancy grid, which is about 32 MB of counts per thread at 0.125 degrees. */
+    public static final int MAX_CELLS = 4 * 1024 * 1024;
+
+    /** Default number of bins in each hitting time histogram. */
+    public static final int DEFAULT_HITTING_TIME_BINS = 100;
+
+    /** Latitude the app's wandering starts from, at Siebel Center, for synthetic walks passed to fillRandomWalk. */
+    static final double WANDER_LATITUDE = 40.092802;
+
+    /** Longitude the app's wandering starts from, at Siebel Center, for synthetic walks passed to fillRandomWalk. */
+    static final double WANDER_LONGITUDE = -88.220097;
+
+    /** Probability that the app's wandering moves at each step. */
+    static final double WANDER_PROBABILITY = 0.5;
+
+    /** Largest latitude change in one step of the app's wandering. */
+    static final double WANDER_LATITUDE_CHANGE = 0.001;
+
+    /** Largest longitude change in one step of the app's wandering. */
+    static final double WANDER_LONGITUDE_CHANGE = 0.002;
+
+    /** Golden ratio increment used to spread walker numbers across seeds. */
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    /** First multiplier of the mixing function. */
+    private static final long MIX_FIRST = 0xBF58476D1CE4E5B9L;
+
+    /** Second multiplier of the mixing function. */
+    private static final long MIX_SECOND = 0x94D049BB133111EBL;
+
+    /** First shift of the mixing function. */
+    private static final int SHIFT_FIRST = 30;
+
+    /** Second shift of the mixing function. */
+    private static final int SHIFT_SECOND = 27;
+
+    /** Final shift of the mixing function. */
+    private static final int SHIFT_FINAL = 31;
+
+    /** Number of walkers to simulate. */
+    private final int walkers;
+
+    /** Number of steps each walker takes. */
+    private final int steps;
+
+    /** Latitude every walker starts from. */
+    private double startLatitude = 0.0;
+
+    /** Longitude every walker starts from. */
+    private double startLongitude = 0.0;
+
+    /** Probability that a walker moves at each step. */
+    private double transitionProbability = 1.0;
+
+    /** Largest latitude change in one step. */
+    private double maxLatitudeChange = 1.0;
+
+    /** Largest longitude change in one step. */
+    private double maxLongitudeChange = 1.0;
+
+    /** Seed that all walker streams are derived from. */
+    private long seed = 0L;
+
+    /** Size of an occupancy grid cell, in degrees. */
+    private double cellDegrees = DEFAULT_CELL_DEGREES;
+
+    /** Number of bins in each hitting time histogram. */
+    private int hittingTimeBins = DEFAULT_HITTING_TIME_BINS;
+
+    /** The pool that runs our tasks. */
+    private ForkJoinPool pool = ForkJoinPool.commonPool();
+
+    /** Largest number of walkers simulated by a single task. */
+    private int chunkSize = DEFAULT_CHUNK_SIZE;
+
+    /**
+     * Create a new simulation.
+     *
+     * @param setWalkers the number of walkers to simulate
+     * @param setSteps the number of steps each walker takes
+     */
+    public WalkerSimulation(final int setWalkers, final int setSteps) {
+        if (setWalkers < 0 || setSteps < 0) {
+            throw new IllegalArgumentException("walkers and steps must not be negative");
+        }
+        walkers = setWalkers;
+        steps = setSteps;
+    }
+
+    /**
+     * Set the position every walker starts from.
+     *
+     * @param latitude the starting latitude
+     * @param longitude the starting longitude
+     * @return this simulation
+     */
+    public WalkerSimulation setStart(final double latitude, final double longitude) {
+        if (!GeoMath.isValidPosition(latitude, longitude)) {
+            throw new IllegalArgumentException("invalid starting position");
+        }
+        startLatitude = latitude;
+        startLongitude = longitude;
+        return this;
+    }
+
+    /**
+     * Set how walkers move.
+     *
+     * @param setTransitionProbability the probability that a walker moves at each step
+     * @param setMaxLatitudeChange the largest amount the latitude can change in one step
+     * @param setMaxLongitudeChange the largest amount the longitude can change in one step
+     * @return this simulation
+     */
+    public WalkerSimulation setMovement(final double setTransitionProbability,
+                                        final double setMaxLatitudeChange, final double setMaxLongitudeChange) {
+        transitionProbability = setTransitionProbability;
+        maxLatitudeChange = setMaxLatitudeChange;
+        maxLongitudeChange = setMaxLongitudeChange;
+        return this;
+    }
+
+    /**
+     * Set the seed that all walker streams are derived from.
+     *
+     * @param setSeed the seed
+     * @return this simulation
+     */
+    public WalkerSimulation setSeed(final long setSeed) {
+        seed = setSeed;
+        return this;
+    }
+
+    /**
+     * Set the size of the cells of the occupancy grid.
+     * <p>
+     * Every thread running the simulation holds a whole grid, so the grid can have at most MAX_CELLS cells.
+     *
+     * @param setCellDegrees the size of a cell, in degrees
+     * @return this simulation
+     * @throws IllegalArgumentException if the size is not positive or the grid would have more than MAX_CELLS cells
+     */
+    public WalkerSimulation setCellDegrees(final double setCellDegrees) {
+        if (!(setCellDegrees > 0) || Math.ceil(Locator.MAX_LATITUDE * 2 / setCellDegrees)
+            * Math.ceil(Locator.MAX_LONGITUDE * 2 / setCellDegrees) > MAX_CELLS) {
+            throw new IllegalArgumentException("invalid cell size: " + setCellDegrees);
+        }
+        cellDegrees = setCellDegrees;
+        return this;
+    }
+
+    /**
+     * Set the number of bins in each hitting time histogram.
+     *
+     * @param setHittingTimeBins the number of bins
+     * @return this simulation
+     */
+    public WalkerSimulation setHittingTimeBins(final int setHittingTimeBins) {
+        if (setHittingTimeBins < 1) {
+            throw new IllegalArgumentException("there must be at least one bin");
+        }
+        hittingTimeBins = setHittingTimeBins;
+        return this;
+    }
+
+    /**
+     * Set the pool that runs the simulation and how much work each task does.
+     *
+     * @param setPool the pool to run tasks in
+     * @param setChunkSize the largest number of walkers simulated by a single task
+     * @return this simulation
+     */
+    public WalkerSimulation setPool(final ForkJoinPool setPool, final int setChunkSize) {
+        if (setChunkSize < 1) {
+            throw new IllegalArgumentException("chunk size must be positive");
+        }
+        pool = setPool;
+        chunkSize = setChunkSize;
+        return this;
+    }
+
+    /**
+     * Run the simulation.
+     *
+     * @return the aggregated results
+     */
+    public Result run() {
+        Shape shape = new Shape(steps, hittingTimeBins, cellDegrees);
+        ConcurrentMap<Thread, long[]> grids = new ConcurrentHashMap<>();
+        Result result = pool.invoke(new WalkTask(shape, grids, 0, walkers));
+        // Every task has been joined, so the grids are complete and visible here
+        for (long[] grid : grids.values()) {
+            if (result.occupancy == null) {
+                result.occupancy = grid;
+            } else {
+                for (int i = 0; i < grid.length; i++) {
+                    result.occupancy[i] += grid[i];
+                }
+            }
+        }
+        if (result.occupancy == null) {
+            result.occupancy = new long[shape.cells()];
+        }
+        return result;
+    }
+
+    /**
+     * Fill arrays with a random walk that starts from the first position in them.
+     * <p>
+     * This is the batch version of Locator.nextRandomLocation, for generating long wandering traces without allocating
+     * anything per step. The caller stores the starting position at index 0 of both arrays. At every following index,
+     * with probability transitionProbability the walk moves by a latitude change drawn uniformly from
+     * [-maxLatitudeChange, maxLatitudeChange) and a longitude change drawn the same way, bounded to the valid range
+     * exactly as Locator.nextRandomLocation does. Otherwise it stays where it was.
+     * <p>
+     * A SplittableRandom is not safe to share between threads. Give each thread its own, for example by calling split
+     * on a seeded generator once per thread before starting them; the walks are then reproducible from the seed.
+     *
+     * @param latitudes array holding the starting latitude at index 0, to fill with the walk's latitudes
+     * @param longitudes array holding the starting longitude at index 0, to fill with the walk's longitudes
+     * @param transitionProbability the probability that the position changes at each step
+     * @param maxLatitudeChange the largest amount the latitude can change in one step
+     * @param maxLongitudeChange the largest amount the longitude can change in one step
+     * @param random the random number generator to draw from
+     * @throws IllegalArgumentException if the arrays have different lengths
+     */
+    public static void fillRandomWalk(final double[] latitudes, final double[] longitudes,
+                                      final double transitionProbability,
+                                      final double maxLatitudeChange, final double maxLongitudeChange,
+                                      final SplittableRandom random) {
+        if (latitudes.length != longitudes.length) {
+            throw new IllegalArgumentException("arrays have different lengths");
+        }
+        for (int i = 1; i < latitudes.length; i++) {
+            double latitude = latitudes[i - 1];
+            double longitude = longitudes[i - 1];
+            if (random.nextDouble() < transitionProbability) {
+                latitude = Locator.clamp(latitude + (random.nextDouble() * 2 - 1) * maxLatitudeChange,
+                    Locator.MIN_LATITUDE, Locator.MAX_LATITUDE);
+                longitude = Locator.clamp(longitude + (random.nextDouble() * 2 - 1) * maxLongitudeChange,
+                    Locator.MIN_LONGITUDE, Locator.MAX_LONGITUDE);
+            }
+            latitudes[i] = latitude;
+            longitudes[i] = longitude;
+        }
+    }
+
+    /**
+     * Fill arrays with a random walk that is reproducible from a seed.
+     *
+     * @param latitudes array holding the starting latitude at index 0, to fill with the walk's latitudes
+     * @param longitudes array holding the starting longitude at index 0, to fill with the walk's longitudes
+     * @param transitionProbability the probability that the position changes at each step
+     * @param maxLatitudeChange the largest amount the latitude can change in one step
+     * @param maxLongitudeChange the largest amount the longitude can change in one step
+     * @param seed the seed for the random number generator
+     * @see #fillRandomWalk(double[], double[], double, double, double, SplittableRandom)
+     */
+    public static void fillRandomWalk(final double[] latitudes, final double[] longitudes,
+                                      final double transitionProbability,
+                                      final double maxLatitudeChange, final double maxLongitudeChange,
+                                      final long seed) {
+        fillRandomWalk(latitudes, longitudes, transitionProbability, maxLatitudeChange, maxLongitudeChange,
+            new SplittableRandom(seed));
+    }
+
+    /**
+     * Derive the seed of one walker's random stream.
+     *
+     * @param rootSeed the simulation seed
+     * @param walker the walker's number
+     * @return a well-mixed seed for that walker
+     */
+    static long walkerSeed(final long rootSeed, final long walker) {
+        long z = rootSeed + (walker + 1) * GOLDEN_GAMMA;
+        z = (z ^ (z >>> SHIFT_FIRST)) * MIX_FIRST;
+        z = (z ^ (z >>> SHIFT_SECOND)) * MIX_SECOND;
+        return z ^ (z >>> SHIFT_FINAL);
+    }
+
+    /**
+     * Sizes of the histograms in a result, fixed when a run starts.
+     */
+    private static final class Shape {
+
+        /** Number of steps each walker takes. */
+        private final int steps;
+
+        /** Number of hitting time bins. */
+        private final int bins;
+
+        /** Number of steps covered by each hitting time bin. */
+        private final int binWidth;
+
+        /** Size of an occupancy grid cell, in degrees. */
+        private final double cellDegrees;
+
+        /** Number of rows in the occupancy grid. */
+        private final int rows;
+
+        /** Number of columns in the occupancy grid. */
+        private final int columns;
+
+        /**
+         * Compute the shape of a run.
+         *
+         * @param setSteps the number of steps each walker takes
+         * @param setBins the number of hitting time bins
+         * @param setCellDegrees the size of an occupancy grid cell
+         */
+        Shape(final int setSteps, final int setBins, final double setCellDegrees) {
+            steps = setSteps;
+            bins = setBins;
+            binWidth = Math.max(1, (int) (((long) setSteps + setBins - 1) / setBins));
+            cellDegrees = setCellDegrees;
+            rows = (int) Math.ceil(Locator.MAX_LATITUDE * 2 / setCellDegrees);
+            columns = (int) Math.ceil(Locator.MAX_LONGITUDE * 2 / setCellDegrees);
+        }
+
+        /**
+         * Return the number of cells in the occupancy grid.
+         *
+         * @return the number of rows times the number of columns
+         */
+        int cells() {
+            return rows * columns;
+        }
+
+        /**
+         * Return the occupancy grid cell containing a position.
+         *
+         * @param latitude the latitude of the position
+         * @param longitude the longitude of the position
+         * @return the row-major index of the cell
+         */
+        int cell(final double latitude, final double longitude) {
+            int row = Math.min(rows - 1, (int) ((latitude - Locator.MIN_LATITUDE) / cellDegrees));
+            int column = Math.min(columns - 1, (int) ((longitude - Locator.MIN_LONGITUDE) / cellDegrees));
+            return row * columns + column;
+        }
+    }
+
+    /**
+     * The aggregated results of a simulation.
+     */
+    public static final class Result {
+
+        /** The sizes of the histograms. */
+        private final Shape shape;
+
+        /** Number of walkers simulated. */
+        private long walkers = 0;
+
+        /** Histogram of the first step at which walkers reached the northern bound. */
+        private final long[] northHittingTimes;
+
+        /** Histogram of the first step at which walkers reached the southern bound. */
+        private final long[] southHittingTimes;
+
+        /** Number of walkers that never reached the northern bound. */
+        private long northMisses = 0;
+
+        /** Number of walkers that never reached the southern bound. */
+        private long southMisses = 0;
+
+        /**
+         * Number of walker steps that ended in each grid cell, row-major from the south-west corner.
+         * <p>
+         * This is only filled in on the result of a whole run. Results for single tasks leave it null.
+         */
+        private long[] occupancy;
+
+        /**
+         * Create an empty result.
+         *
+         * @param setShape the sizes of the histograms
+         */
+        Result(final Shape setShape) {
+            shape = setShape;
+            northHittingTimes = new long[setShape.bins];
+            southHittingTimes = new long[setShape.bins];
+        }
+
+        /**
+         * Add another result into this one.
+         *
+         * @param other the result to add
+         */
+        void add(final Result other) {
+            walkers += other.walkers;
+            northMisses += other.northMisses;
+            southMisses += other.southMisses;
+            for (int i = 0; i < northHittingTimes.length; i++) {
+                northHittingTimes[i] += other.northHittingTimes[i];
+                southHittingTimes[i] += other.southHittingTimes[i];
+            }
+        }
+
+        /**
+         * Return the number of walkers simulated.
+         *
+         * @return the number of walkers
+         */
+        public long getWalkers() {
+            return walkers;
+        }
+
+        /**
+         * Return the number of steps each walker took.
+         *
+         * @return the number of steps
+         */
+        public int getSteps() {
+            return shape.steps;
+        }
+
+        /**
+         * Return the number of steps covered by each hitting time bin.
+         * <p>
+         * Bin b counts walkers that first reached the bound at a step from b * width + 1 to (b + 1) * width.
+         *
+         * @return the width of a bin, in steps
+         */
+        public int getBinWidth() {
+            return shape.binWidth;
+        }
+
+        /**
+         * Return the histogram of when walkers first reached a latitude bound.
+         *
+         * @param direction Locator.NORTH or Locator.SOUTH
+         * @return a new array of walker counts per bin
+         */
+        public long[] getHittingTimes(final int direction) {
+            if (direction == Locator.NORTH) {
+                return northHittingTimes.clone();
+            } else if (direction == Locator.SOUTH) {
+                return southHittingTimes.clone();
+            }
+            throw new IllegalArgumentException("hitting times are only kept for north and south");
+        }
+
+        /**
+         * Return the number of walkers that never reached a latitude bound.
+         *
+         * @param direction Locator.NORTH or Locator.SOUTH
+         * @return the number of walkers
+         */
+        public long getMisses(final int direction) {
+            if (direction == Locator.NORTH) {
+                return northMisses;
+            } else if (direction == Locator.SOUTH) {
+                return southMisses;
+            }
+            throw new IllegalArgumentException("hitting times are only kept for north and south");
+        }
+
+        /**
+         * Return the number of walker steps that ended in the grid cell containing a position.
+         *
+         * @param latitude the latitude of the position
+         * @param longitude the longitude of the position
+         * @return the number of steps
+         */
+        public long getOccupancy(final double latitude, final double longitude) {
+            return occupancy[shape.cell(latitude, longitude)];
+        }
+
+        /**
+         * Return the whole occupancy grid.
+         *
+         * @return a new row-major array of step counts, starting from the cell at the south-west corner
+         */
+        public long[] getOccupancy() {
+            return occupancy.clone();
+        }
+
+        /**
+         * Return the number of rows in the occupancy grid.
+         *
+         * @return the number of rows
+         */
+        public int getRows() {
+            return shape.rows;
+        }
+
+        /**
+         * Return the number of columns in the occupancy grid.
+         *
+         * @return the number of columns
+         */
+        public int getColumns() {
+            return shape.columns;
+        }
+
+        /**
+         * Return the size of an occupancy grid cell.
+         *
+         * @return the size of a cell, in degrees
+         */
+        public double getCellDegrees() {
+            return shape.cellDegrees;
+        }
+    }
+
+    /**
+     * Task that simulates a range of walkers, splitting it if it is too large.
+     */
+    private final class WalkTask extends RecursiveTask<Result> {
+
+        /** Serialization version, required because RecursiveTask is serializable. */
+        private static final long serialVersionUID = 1L;
+
+        /** The sizes of the histograms. */
+        private final transient Shape shape;
+
+        /** The occupancy grid of each thread that has run a task of this run. */
+        private final transient ConcurrentMap<Thread, long[]> grids;
+
+        /** First walker of the range. */
+        private final int from;
+
+        /** One past the last walker of the range. */
+        private final int to;
+
+        /**
+         * Create a task for a range of walkers.
+         *
+         * @param setShape the sizes of the histograms
+         * @param setGrids the occupancy grids of the run, by thread
+         * @param setFrom first walker of the range
+         * @param setTo one past the last walker of the range
+         */
+        WalkTask(final Shape setShape, final ConcurrentMap<Thread, long[]> setGrids,
+                 final int setFrom, final int setTo) {
+            shape = setShape;
+            grids = setGrids;
+            from = setFrom;
+            to = setTo;
+        }
+
+        @Override
+        protected Result compute() {
+            if (to - from <= chunkSize) {
+                return walkChunk();
+            }
+            int middle = (from + to) >>> 1;
+            WalkTask left = new WalkTask(shape, grids, from, middle);
+            WalkTask right = new WalkTask(shape, grids, middle, to);
+            left.fork();
+            Result rightResult = right.compute();
+            Result leftResult = left.join();
+            leftResult.add(rightResult);
+            return leftResult;
+        }
+
+        /**
+         * Simulate this task's walkers sequentially, counting their steps in the current thread's occupancy grid.
+         *
+         * @return the hitting times for these walkers
+         */
+        private Result walkChunk() {
+            Result result = new Result(shape);
+            long[] occupancy = grids.computeIfAbsent(Thread.currentThread(), thread -> new long[shape.cells()]);
+            for (int walker = from; walker < to; walker++) {
+                SplittableRandom random = new SplittableRandom(walkerSeed(seed, walker));
+                double latitude = startLatitude;
+                double longitude = startLongitude;
+                int northHit = 0;
+                int southHit = 0;
+                for (int step = 1; step <= steps; step++) {
+                    if (random.nextDouble() < transitionProbability) {
+                        latitude = Locator.clamp(latitude + (random.nextDouble() * 2 - 1) * maxLatitudeChange,
+                            Locator.MIN_LATITUDE, Locator.MAX_LATITUDE);
+                        longitude = Locator.clamp(longitude + (random.nextDouble() * 2 - 1) * maxLongitudeChange,
+                            Locator.MIN_LONGITUDE, Locator.MAX_LONGITUDE);
+                        if (northHit == 0 && latitude == Locator.MAX_LATITUDE) {
+                            northHit = step;
+                        }
+                        if (southHit == 0 && latitude == Locator.MIN_LATITUDE) {
+                            southHit = step;
+                        }
+                    }
+                    occupancy[shape.cell(latitude, longitude)]++;
+                }
+                result.walkers++;
+                if (northHit == 0) {
+                    result.northMisses++;
+                } else {
+                    result.northHittingTimes[(northHit - 1) / shape.binWidth]++;
+                }
+                if (southHit == 0) {
+                    result.southMisses++;
+                } else {
+                    result.southHittingTimes[(southHit - 1) / shape.binWidth]++;
+                }
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package edu.illinois.cs.cs125.spring2019.mp0.lib;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Test suite for the CoordinateIndex class.
+ */
+public class CoordinateIndexTest {
+    private static Random random = new Random();
+
+    @Test(timeout=100)
+    public void testCountsSimple() {
+        CoordinateIndex index = new CoordinateIndex();
+        Assert.assertEquals(0, index.count(8.0, 8.0));
+        Assert.assertEquals(1, index.add(8.0, 8.0));
+        Assert.assertEquals(2, index.add(8.0, 8.0));
+        Assert.assertEquals(1, index.add(8.0, 7.0));
+        Assert.assertEquals(2, index.distinct());
+        Assert.assertEquals(3, index.size());
+        Assert.assertEquals(1, index.remove(8.0, 8.0));
+        Assert.assertEquals(0, index.remove(8.0, 7.0));
+        Assert.assertEquals(0, index.count(8.0, 7.0));
+        Assert.assertEquals(1, index.distinct());
+
+        // Keys agree with ==, so -0.0 matches 0.0 and NaN matches nothing
+        index.add(0.0, -0.0);
+        Assert.assertEquals(1, index.count(-0.0, 0.0));
+        Assert.assertEquals(0, index.add(Double.NaN, 1.0));
+        Assert.assertEquals(0, index.count(Double.NaN, 1.0));
+
+        try {
+            index.remove(1.0, 1.0);
+            Assert.fail("removing a missing pair should throw");
+        } catch (IllegalStateException expected) { }
+    }
+
+    @Test(timeout=100)
+    public void testSoleTagSimple() {
+        CoordinateIndex index = new CoordinateIndex(1);
+        Assert.assertEquals(-1, index.soleTag(8.0, 8.0));
+        index.add(8.0, 8.0, 5);
+        Assert.assertEquals(5, index.soleTag(8.0, 8.0));
+        index.add(8.0, 8.0, 9);
+        Assert.assertEquals(-1, index.soleTag(8.0, 8.0));
+        // Tags survive the table growing
+        for (int i = 0; i < 100; i++) {
+            index.add(i, -i, i);
+        }
+        Assert.assertEquals(42, index.soleTag(42.0, -42.0));
+        Assert.assertEquals(1, index.remove(8.0, 8.0, 5));
+        Assert.assertEquals(9, index.soleTag(8.0, 8.0));
+        Assert.assertEquals(-1, index.soleTag(Double.NaN, 8.0));
+    }
+
+    @Test(timeout=1000)
+    public void testCountsRandom() {
+        CoordinateIndex index = new CoordinateIndex(1);
+        Map<String, Integer> reference = new HashMap<>();
+        for (int i = 0; i < 100000; i++) {
+            double latitude = random.nextInt(64);
+            double longitude = random.nextInt(64);
+            String key = latitude + "," + longitude;
+            int expected = reference.getOrDefault(key, 0);
+            if (expected > 0 && random.nextBoolean()) {
+                Assert.assertEquals(expected - 1, index.remove(latitude, longitude));
+                reference.put(key, expected - 1);
+            } else {
+                Assert.assertEquals(expected + 1, index.add(latitude, longitude));
+                reference.put(key, expected + 1);
+            }
+        }
+        int distinct = 0;
+        for (Map.Entry<String, Integer> entry : reference.entrySet()) {
+            String[] parts = entry.getKey().split(",");
+            Assert.assertEquals((int) entry.getValue(),
+                index.count(Double.parseDouble(parts[0]), Double.parseDouble(parts[1])));
+            if (entry.getValue() > 0) {
+                distinct++;
+            }
+        }
+        Assert.assertEquals(distinct, index.distinct());
+    }
+
+    @Test(timeout=1000)
+    public void testRoundCoordinates() {
+        // Whole and half degrees have no low bits set, which must not send every key to the same probe run
+        CoordinateIndex index = new CoordinateIndex(1);
+        for (int latitude = -90; latitude < 90; latitude++) {
+            for (int longitude = -1800; longitude < 1800; longitude++) {
+                Assert.assertEquals(1, index.add(latitude, longitude / 2.0));
+            }
+        }
+        Assert.assertEquals(180 * 3600, index.distinct());
+        for (int latitude = -90; latitude < 90; latitude++) {
+            Assert.assertEquals(1, index.count(latitude, 179.5));
+            Assert.assertEquals(0, index.count(latitude, 0.25));
+        }
+    }
+}
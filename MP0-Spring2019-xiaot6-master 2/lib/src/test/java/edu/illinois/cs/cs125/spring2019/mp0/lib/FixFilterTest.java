@@ -0,0 +1,104 @@
+package edu.illinois.cs.cs125.spring2019.mp0.lib;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+
+/**
+ * Test suite for the FixFilter class.
+ */
+public class FixFilterTest {
+    private static Random random = new Random();
+
+    /** Degrees of latitude per meter. */
+    private static final double DEGREES_PER_METER = GeoMath.metersToDegrees(1.0);
+
+    @Test(timeout=100)
+    public void testFilterSimple() {
+        FixFilter filter = new FixFilter(1.0, 10.0, 60000L);
+        Assert.assertEquals(0.0, filter.getDropRate(), 0.0);
+        Assert.assertTrue(Double.isNaN(filter.getLatitude()));
+
+        // The first fix is always admitted as is
+        Assert.assertTrue(filter.offer(0L, 40.0, -88.0, 5.0));
+        Assert.assertEquals(40.0, filter.getLatitude(), 0.0);
+        Assert.assertEquals(-88.0, filter.getLongitude(), 0.0);
+
+        // A fix a meter away is smoothed and dropped
+        Assert.assertFalse(filter.offer(5000L, 40.0 + DEGREES_PER_METER, -88.0, 5.0));
+        Assert.assertTrue(filter.getLatitude() > 40.0 && filter.getLatitude() < 40.0 + DEGREES_PER_METER);
+        // A fix from the past is ignored
+        Assert.assertFalse(filter.offer(1000L, 41.0, -88.0, 5.0));
+        Assert.assertTrue(filter.getLatitude() < 40.0 + DEGREES_PER_METER);
+        // A fix far away pulls the smoothed position far enough to admit it
+        Assert.assertTrue(filter.offer(10000L, 40.0 + 100 * DEGREES_PER_METER, -88.0, 5.0));
+        // Staying still long enough admits a position anyway
+        Assert.assertTrue(filter.offer(70000L, filter.getLatitude(), filter.getLongitude(), 5.0));
+
+        Assert.assertEquals(5, filter.getOffered());
+        Assert.assertEquals(3, filter.getAdmitted());
+        Assert.assertEquals(2, filter.getDropped());
+        Assert.assertEquals(0.4, filter.getDropRate(), 1e-12);
+
+        try {
+            filter.offer(80000L, Double.NaN, 0.0, 5.0);
+            Assert.fail("an invalid position should throw");
+        } catch (IllegalArgumentException expected) { }
+        try {
+            new FixFilter(0.0, 10.0, 1000L);
+            Assert.fail("zero acceleration noise should throw");
+        } catch (IllegalArgumentException expected) { }
+    }
+
+    @Test(timeout=2000)
+    public void testStationaryNoiseIsDropped() {
+        FixFilter filter = new FixFilter();
+        double rawError = 0.0;
+        double smoothedError = 0.0;
+        int fixes = 720;
+        for (int i = 0; i < fixes; i++) {
+            double north = random.nextGaussian() * 8.0;
+            double east = random.nextGaussian() * 8.0;
+            double latitude = 40.0 + north * DEGREES_PER_METER;
+            double longitude = -88.0 + east * DEGREES_PER_METER / Math.cos(Math.toRadians(40.0));
+            filter.offer(i * 5000L, latitude, longitude, 8.0);
+            if (i >= fixes / 2) {
+                rawError += GeoMath.haversine(40.0, -88.0, latitude, longitude);
+                smoothedError += GeoMath.haversine(40.0, -88.0, filter.getLatitude(), filter.getLongitude());
+            }
+        }
+        // An hour of fixes while sitting still should mostly be dropped, leaving about one per minute
+        Assert.assertTrue("drop rate " + filter.getDropRate(), filter.getDropRate() > 0.75);
+        Assert.assertTrue(smoothedError < rawError * 0.95);
+    }
+
+    @Test(timeout=2000)
+    public void testMovingTrackStaysAccurate() {
+        FixFilter filter = new FixFilter();
+        double speed = 1.5;
+        double rawError = 0.0;
+        double smoothedError = 0.0;
+        double lastLatitude = Double.NaN;
+        for (int i = 0; i < 1000; i++) {
+            double north = speed * i * 5.0;
+            double latitude = 40.0 + north * DEGREES_PER_METER;
+            double noisyLatitude = latitude + random.nextGaussian() * 5.0 * DEGREES_PER_METER;
+            double noisyLongitude = -88.0 + random.nextGaussian() * 5.0 * DEGREES_PER_METER;
+            boolean admitted = filter.offer(i * 5000L, noisyLatitude, noisyLongitude, 5.0);
+            if (i >= 100) {
+                rawError += GeoMath.haversine(latitude, -88.0, noisyLatitude, noisyLongitude);
+                smoothedError += GeoMath.haversine(latitude, -88.0, filter.getLatitude(), filter.getLongitude());
+            }
+            if (admitted) {
+                if (!Double.isNaN(lastLatitude)) {
+                    Assert.assertTrue(GeoMath.haversine(lastLatitude, -88.0, filter.getLatitude(), -88.0) < 40.0);
+                }
+                lastLatitude = filter.getLatitude();
+            }
+        }
+        // Walking 7.5 meters between fixes, only some of them are far enough apart to admit
+        Assert.assertTrue("drop rate " + filter.getDropRate(), filter.getDropRate() > 0.4);
+        Assert.assertTrue(smoothedError < rawError);
+    }
+}
@@ -0,0 +1,132 @@
+package edu.illinois.cs.cs125.spring2019.mp0.lib;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+/**
+ * Test suite for the Gazetteer class.
+ */
+public class GazetteerTest {
+    private static Random random = new Random();
+
+    private static File newFile(final String suffix) throws IOException {
+        File file = File.createTempFile("gazetteer", suffix);
+        file.deleteOnExit();
+        return file;
+    }
+
+    private static File writeText(final String text) throws IOException {
+        File file = newFile(".txt");
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+            writer.write(text);
+        }
+        return file;
+    }
+
+    @Test(timeout=1000)
+    public void testGazetteerSimple() throws IOException {
+        // The same columns as a GeoNames dump, most of them left empty
+        File source = writeText("# geonameid\tname\tasciiname\talternatenames\tlatitude\tlongitude\n"
+            + "4888668\tChampaign\tChampaign\t\t40.11642\t-88.24338\tP\tPPL\n"
+            + "4914570\tUrbana\tUrbana\t\t40.11059\t-88.20727\tP\tPPL\n"
+            + "2147714\tSydney\tSydney\t\t-33.86785\t151.20732\tP\tPPLA\n"
+            + "4036284\tAlofi\tAlofi\t\t-19.05952\t-169.92087\tP\tPPLC\n"
+            + "1\tNowhere\tNowhere\t\t91.0\t0.0\n"
+            + "2\tS\u00e3o Paulo\tSao Paulo\t\t-23.5475\t-46.63611\tP\tPPLA\n");
+        File target = newFile(".bin");
+        Assert.assertEquals(5, Gazetteer.compileGeoNames(source, target));
+        try (Gazetteer gazetteer = new Gazetteer(target)) {
+            Assert.assertEquals(5, gazetteer.size());
+            Assert.assertEquals("Urbana", gazetteer.getName(gazetteer.nearest(40.11, -88.2)));
+            int champaign = gazetteer.nearest(40.1, -88.25);
+            Assert.assertEquals("Champaign", gazetteer.getName(champaign));
+            Assert.assertEquals(40.11642, gazetteer.getLatitude(champaign), 0.0);
+            Assert.assertEquals(-88.24338, gazetteer.getLongitude(champaign), 0.0);
+            Assert.assertEquals("S\u00e3o Paulo", gazetteer.getName(gazetteer.nearest(-20.0, -40.0)));
+            // Nearest across the antimeridian
+            Assert.assertEquals("Alofi", gazetteer.getName(gazetteer.nearest(-19.0, 179.0)));
+            Assert.assertEquals(Gazetteer.NONE, gazetteer.nearest(0.0, 0.0, 1000.0));
+            Assert.assertEquals("Sydney", gazetteer.getName(gazetteer.nearest(-34.0, 151.0, 100000.0)));
+            try {
+                gazetteer.nearest(91.0, 0.0);
+                Assert.fail("an invalid position should throw");
+            } catch (IllegalArgumentException expected) { }
+        }
+
+        File csv = writeText("name,latitude,longitude\nHome,40.1,-88.2\nWork,40.2,-88.3\n");
+        Assert.assertEquals(2, Gazetteer.compile(csv, target, ',', 0, 1, 2));
+        try (Gazetteer gazetteer = new Gazetteer(target)) {
+            Assert.assertEquals("Work", gazetteer.getName(gazetteer.nearest(40.3, -88.3)));
+        }
+        Assert.assertEquals(0, Gazetteer.compile(writeText(""), target, ',', 0, 1, 2));
+        try (Gazetteer gazetteer = new Gazetteer(target)) {
+            Assert.assertEquals(Gazetteer.NONE, gazetteer.nearest(0.0, 0.0));
+        }
+    }
+
+    @Test(timeout=10000)
+    public void testMatchesBruteForce() throws IOException {
+        for (int trial = 0; trial < 5; trial++) {
+            int count = random.nextInt(20000) + 1;
+            double[] latitudes = new double[count];
+            double[] longitudes = new double[count];
+            StringBuilder text = new StringBuilder();
+            for (int i = 0; i < count; i++) {
+                latitudes[i] = random.nextDouble() * 180.0 - 90.0;
+                longitudes[i] = random.nextDouble() * 360.0 - 180.0;
+                if (random.nextBoolean()) {
+                    latitudes[i] = Math.round(latitudes[i]);
+                    longitudes[i] = Math.round(longitudes[i] / 10.0) * 10.0;
+                }
+                text.append("place ").append(i).append(',').append(latitudes[i]).append(',')
+                    .append(longitudes[i]).append('\n');
+            }
+            File target = newFile(".bin");
+            Assert.assertEquals(count, Gazetteer.compile(writeText(text.toString()), target, ',', 0, 1, 2));
+            try (Gazetteer gazetteer = new Gazetteer(target)) {
+                for (int query = 0; query < 200; query++) {
+                    double latitude = random.nextDouble() * 180.0 - 90.0;
+                    double longitude = random.nextDouble() * 360.0 - 180.0;
+                    double best = Double.POSITIVE_INFINITY;
+                    for (int i = 0; i < count; i++) {
+                        best = Math.min(best, GeoMath.haversine(latitude, longitude, latitudes[i], longitudes[i]));
+                    }
+                    int found = gazetteer.nearest(latitude, longitude);
+                    int index = Integer.parseInt(gazetteer.getName(found).substring("place ".length()));
+                    Assert.assertEquals(latitudes[index], gazetteer.getLatitude(found), 0.0);
+                    Assert.assertEquals(longitudes[index], gazetteer.getLongitude(found), 0.0);
+                    Assert.assertEquals(best, GeoMath.haversine(latitude, longitude,
+                        latitudes[index], longitudes[index]), 1e-6);
+                }
+            }
+        }
+    }
+
+    @Test(timeout=1000)
+    public void testRejectsOtherFiles() throws IOException {
+        File file = writeText("not a gazetteer at all, just some text that is long enough");
+        try {
+            new Gazetteer(file).close();
+            Assert.fail("a text file should not open as a gazetteer");
+        } catch (IOException expected) { }
+
+        File target = newFile(".bin");
+        Gazetteer.compile(writeText("a,1,2\nb,3,4\n"), target, ',', 0, 1, 2);
+        try (RandomAccessFile raw = new RandomAccessFile(target, "rw")) {
+            raw.setLength(raw.length() - 1);
+        }
+        try {
+            new Gazetteer(target).close();
+            Assert.fail("a truncated gazetteer should not open");
+        } catch (IOException expected) { }
+    }
+}
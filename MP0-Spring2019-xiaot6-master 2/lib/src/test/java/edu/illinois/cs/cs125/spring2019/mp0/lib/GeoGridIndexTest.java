@@ -0,0 +1,90 @@
+package edu.illinois.cs.cs125.spring2019.mp0.lib;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+
+/**
+ * Test suite for the GeoGridIndex class.
+ */
+public class GeoGridIndexTest {
+    private static Random random = new Random();
+
+    @Test(timeout=100)
+    public void testRadiusSimple() {
+        GeoGridIndex index = GeoGridIndex.forRadius(4, 100.0);
+        Assert.assertFalse(index.anyWithin(40.0, -88.0, 100.0));
+        index.insert(0, 40.0, -88.0);
+        index.insert(1, 40.0005, -88.0);
+        index.insert(2, 40.01, -88.0);
+        Assert.assertEquals(3, index.size());
+
+        // 0.0005 degrees of latitude is about 56 meters
+        Assert.assertTrue(index.anyWithin(40.0, -88.0, 60.0, 0));
+        Assert.assertFalse(index.anyWithin(40.0, -88.0, 50.0, 0));
+        IntList result = new IntList();
+        Assert.assertEquals(2, index.queryRadius(40.0, -88.0, 60.0, result));
+
+        Assert.assertEquals(0, index.oldestInCell(40.0, -88.0));
+        Assert.assertTrue(index.remove(1));
+        Assert.assertFalse(index.remove(1));
+        Assert.assertFalse(index.contains(1));
+        Assert.assertFalse(index.anyWithin(40.0, -88.0, 60.0, 0));
+
+        // Matches are found across the antimeridian
+        index.insert(3, 0.0, 179.9999);
+        Assert.assertTrue(index.anyWithin(0.0, -179.9999, 30.0));
+    }
+
+    @Test(timeout=2000)
+    public void testRadiusRandom() {
+        for (int trial = 0; trial < 16; trial++) {
+            int count = 2000;
+            double spread = 2.0;
+            double centerLatitude = random.nextDouble() * 176 - 88;
+            double centerLongitude = random.nextDouble() * 360 - 180;
+            double radius = random.nextDouble() * 50000 + 1;
+            if (trial % 4 == 0) {
+                // Near a pole or the antimeridian, where longitude spans behave badly
+                centerLatitude = 89.0;
+                centerLongitude = 179.5;
+            }
+            GeoGridIndex index = new GeoGridIndex(count, random.nextDouble() * 0.5 + 0.01);
+            double[] latitudes = new double[count];
+            double[] longitudes = new double[count];
+            for (int i = 0; i < count; i++) {
+                latitudes[i] = Math.max(-90, Math.min(90, centerLatitude + random.nextGaussian() * spread));
+                longitudes[i] = wrap(centerLongitude + random.nextGaussian() * spread);
+                index.insert(i, latitudes[i], longitudes[i]);
+            }
+            for (int i = 0; i < count; i += 2) {
+                index.remove(i);
+            }
+            IntList result = new IntList();
+            for (int query = 0; query < 50; query++) {
+                double latitude = Math.max(-90, Math.min(90, centerLatitude + random.nextGaussian() * spread));
+                double longitude = wrap(centerLongitude + random.nextGaussian() * spread);
+                boolean[] expected = new boolean[count];
+                int expectedCount = 0;
+                for (int i = 1; i < count; i += 2) {
+                    if (GeoMath.haversine(latitude, longitude, latitudes[i], longitudes[i]) <= radius) {
+                        expected[i] = true;
+                        expectedCount++;
+                    }
+                }
+                result.clear();
+                Assert.assertEquals(expectedCount, index.queryRadius(latitude, longitude, radius, result));
+                for (int i = 0; i < result.size(); i++) {
+                    Assert.assertTrue(expected[result.get(i)]);
+                }
+                Assert.assertEquals(expectedCount > 0, index.anyWithin(latitude, longitude, radius));
+            }
+        }
+    }
+
+    /** Wrap a longitude into [-180, 180). */
+    private static double wrap(final double longitude) {
+        return ((longitude + 540.0) % 360.0) - 180.0;
+    }
+}
@@ -0,0 +1,185 @@
+package edu.illinois.cs.cs125.spring2019.mp0.lib;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+
+/**
+ * Test suite for the GeofenceEngine class.
+ */
+public class GeofenceEngineTest {
+    private static Random random = new Random();
+
+    /** Records events as strings, such as "+3" for entering fence 3. */
+    private static final class Recorder implements GeofenceEngine.Listener {
+        private final StringBuilder events = new StringBuilder();
+
+        @Override
+        public void onEnter(final int fence, final double latitude, final double longitude) {
+            events.append('+').append(fence).append(' ');
+        }
+
+        @Override
+        public void onExit(final int fence, final double latitude, final double longitude) {
+            events.append('-').append(fence).append(' ');
+        }
+
+        String take() {
+            String result = events.toString().trim();
+            events.setLength(0);
+            return result;
+        }
+    }
+
+    @Test(timeout=100)
+    public void testGeofenceSimple() {
+        GeofenceEngine engine = new GeofenceEngine(0.5);
+        // A square and an L shape that overlap in one corner
+        Assert.assertEquals(0, engine.addFence(new double[] {0.0, 0.0, 1.0, 1.0}, new double[] {0.0, 1.0, 1.0, 0.0}));
+        Assert.assertEquals(1, engine.addFence(new double[] {0.5, 0.5, 3.0, 3.0, 2.0, 2.0},
+            new double[] {0.5, 3.0, 3.0, 2.0, 2.0, 0.5}));
+        Assert.assertEquals(2, engine.fenceCount());
+
+        IntList result = new IntList();
+        Assert.assertEquals(1, engine.containing(0.25, 0.25, result));
+        Assert.assertEquals(0, result.get(0));
+        result.clear();
+        Assert.assertEquals(2, engine.containing(0.75, 0.75, result));
+        Assert.assertArrayEquals(new int[] {0, 1}, result.toArray());
+        result.clear();
+        // Inside the L's bounding box but in its notch
+        Assert.assertEquals(0, engine.containing(2.5, 1.0, result));
+        Assert.assertEquals(1, engine.containing(2.5, 2.5, result));
+        result.clear();
+        Assert.assertEquals(0, engine.containing(Double.NaN, 0.0, result));
+
+        Recorder recorder = new Recorder();
+        GeofenceEngine.Tracker tracker = engine.newTracker();
+        tracker.update(0.25, 0.25, recorder);
+        Assert.assertEquals("+0", recorder.take());
+        tracker.update(0.75, 0.75, recorder);
+        Assert.assertEquals("+1", recorder.take());
+        tracker.update(1.5, 0.75, recorder);
+        Assert.assertEquals("-0", recorder.take());
+        tracker.update(2.5, 1.0, recorder);
+        Assert.assertEquals("-1", recorder.take());
+        tracker.update(0.25, 0.25, recorder);
+        Assert.assertEquals("+0", recorder.take());
+        Assert.assertArrayEquals(new int[] {0}, tracker.getInside());
+
+        // Adding a fence rebuilds the index before the next query
+        engine.addFence(new double[] {0.0, 0.0, 0.4}, new double[] {0.0, 0.4, 0.0});
+        tracker.update(0.1, 0.1, recorder);
+        Assert.assertEquals("+2", recorder.take());
+
+        try {
+            engine.addFence(new double[] {0.0, 1.0}, new double[] {0.0, 1.0});
+            Assert.fail("a fence with two vertices should throw");
+        } catch (IllegalArgumentException expected) { }
+        try {
+            engine.addFence(new double[] {0.0, 1.0, 91.0}, new double[] {0.0, 1.0, 0.0});
+            Assert.fail("an invalid vertex should throw");
+        } catch (IllegalArgumentException expected) { }
+    }
+
+    /**
+     * Create a random star-shaped polygon around a center.
+     *
+     * @param latitude the latitude of the center
+     * @param longitude the longitude of the center
+     * @param size the largest distance from the center to a vertex, in degrees
+     * @return the vertex latitudes followed by the vertex longitudes
+     */
+    private static double[][] randomFence(final double latitude, final double longitude, final double size) {
+        int vertices = random.nextInt(10) + 3;
+        double[] latitudes = new double[vertices];
+        double[] longitudes = new double[vertices];
+        for (int i = 0; i < vertices; i++) {
+            double angle = 2 * Math.PI * (i + random.nextDouble() * 0.9) / vertices;
+            double distance = size * (0.1 + 0.9 * random.nextDouble());
+            latitudes[i] = Math.max(-90.0, Math.min(90.0, latitude + distance * Math.sin(angle)));
+            longitudes[i] = Math.max(-180.0, Math.min(180.0, longitude + distance * Math.cos(angle)));
+        }
+        return new double[][] {latitudes, longitudes};
+    }
+
+    /**
+     * Brute force point-in-polygon check against every fence.
+     */
+    private static boolean inside(final double[][] fence, final double latitude, final double longitude) {
+        double[] latitudes = fence[0];
+        double[] longitudes = fence[1];
+        int crossings = 0;
+        for (int i = 0; i < latitudes.length; i++) {
+            int j = (i + latitudes.length - 1) % latitudes.length;
+            if ((latitudes[i] > latitude) != (latitudes[j] > latitude)) {
+                double crossing = (longitudes[j] - longitudes[i]) * (latitude - latitudes[i])
+                    / (latitudes[j] - latitudes[i]) + longitudes[i];
+                if (longitude < crossing) {
+                    crossings++;
+                }
+            }
+        }
+        return crossings % 2 == 1;
+    }
+
+    @Test(timeout=5000)
+    public void testMatchesBruteForce() {
+        for (int trial = 0; trial < 4; trial++) {
+            GeofenceEngine engine = new GeofenceEngine(0.01 + random.nextDouble() * 0.5);
+            double[][][] fences = new double[random.nextInt(300) + 1][][];
+            for (int fence = 0; fence < fences.length; fence++) {
+                fences[fence] = randomFence(40.0 + random.nextDouble() * 2.0, -88.0 + random.nextDouble() * 2.0,
+                    random.nextDouble() * 0.5);
+                engine.addFence(fences[fence][0], fences[fence][1]);
+            }
+            GeofenceEngine.Tracker tracker = engine.newTracker();
+            boolean[] previous = new boolean[fences.length];
+            IntList result = new IntList();
+            for (int point = 0; point < 2000; point++) {
+                final double latitude = 39.9 + random.nextDouble() * 2.2;
+                final double longitude = -88.1 + random.nextDouble() * 2.2;
+                boolean[] current = new boolean[fences.length];
+                StringBuilder expected = new StringBuilder();
+                for (int fence = 0; fence < fences.length; fence++) {
+                    current[fence] = inside(fences[fence], latitude, longitude);
+                    if (current[fence] && !previous[fence]) {
+                        expected.append('+').append(fence).append(' ');
+                    } else if (!current[fence] && previous[fence]) {
+                        expected.append('-').append(fence).append(' ');
+                    }
+                }
+                result.clear();
+                engine.containing(latitude, longitude, result);
+                int found = 0;
+                for (int fence = 0; fence < fences.length; fence++) {
+                    if (current[fence]) {
+                        Assert.assertEquals(fence, result.get(found++));
+                    }
+                }
+                Assert.assertEquals(found, result.size());
+
+                Recorder recorder = new Recorder();
+                tracker.update(latitude, longitude, recorder);
+                Assert.assertEquals(expected.toString().trim(), recorder.take());
+                previous = current;
+            }
+        }
+    }
+
+    @Test(timeout=5000)
+    public void testManyFences() {
+        GeofenceEngine engine = new GeofenceEngine();
+        for (int fence = 0; fence < 10000; fence++) {
+            double[][] vertices = randomFence(40.0 + random.nextDouble(), -88.0 + random.nextDouble(), 0.005);
+            engine.addFence(vertices[0], vertices[1]);
+        }
+        GeofenceEngine.Tracker tracker = engine.newTracker();
+        Recorder recorder = new Recorder();
+        for (int point = 0; point < 100000; point++) {
+            tracker.update(40.0 + random.nextDouble(), -88.0 + random.nextDouble(), recorder);
+            recorder.take();
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package edu.illinois.cs.cs125.spring2019.mp0.lib;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+
+/**
+ * Test suite for the LocationHistory class.
+ */
+public class LocationHistoryTest {
+    private static Random random = new Random();
+
+    @Test(timeout=100)
+    public void testExtremesSimple() {
+        LocationHistory history = new LocationHistory(3);
+        Assert.assertEquals(-1, history.farthestNorth());
+        Assert.assertEquals(-1, history.getCurrentIndex());
+
+        Assert.assertEquals(0, history.add(10.0, 5.0));
+        Assert.assertEquals(1, history.add(20.0, -5.0));
+        Assert.assertEquals(2, history.add(20.0, 15.0));
+        Assert.assertEquals(3, history.size());
+        Assert.assertEquals(1, history.farthestNorth());
+        Assert.assertEquals(0, history.farthestSouth());
+        Assert.assertEquals(2, history.farthestEast());
+        Assert.assertEquals(1, history.farthestWest());
+
+        // Overwrites slot 0, which now ties with slot 1 for north and wins on index.
+        Assert.assertEquals(0, history.add(20.0, 0.0));
+        Assert.assertEquals(3, history.size());
+        Assert.assertEquals(0, history.farthestNorth());
+        Assert.assertEquals(0, history.farthestSouth());
+        Assert.assertEquals(1, history.farthestWest());
+
+        // A latitude of exactly -90 never wins north, just like Locator.farthestNorth.
+        LocationHistory southPole = new LocationHistory(1);
+        southPole.add(Locator.MIN_LATITUDE, 0.0);
+        Assert.assertEquals(-1, southPole.farthestNorth());
+        Assert.assertEquals(0, southPole.farthestEast());
+    }
+
+    @Test(timeout=1000)
+    public void testExtremesRandom() {
+        for (int trial = 0; trial < 32; trial++) {
+            int capacity = random.nextInt(64) + 1;
+            LocationHistory history = new LocationHistory(capacity);
+            for (int i = 0; i < capacity * 4; i++) {
+                // Few distinct values so that ties are common
+                double latitude = random.nextInt(8) * 10.0 - 40.0;
+                double longitude = random.nextInt(8) * 20.0 - 80.0;
+                history.add(latitude, longitude);
+
+                double[] latitudes = history.getLatitudes();
+                double[] longitudes = history.getLongitudes();
+                boolean[] valid = history.getValidLocations();
+                Assert.assertEquals(Locator.farthestNorth(latitudes, longitudes, valid), history.farthestNorth());
+                Assert.assertEquals(best(latitudes, valid, -1.0), history.farthestSouth());
+                Assert.assertEquals(best(longitudes, valid, 1.0), history.farthestEast());
+                Assert.assertEquals(best(longitudes, valid, -1.0), history.farthestWest());
+                Assert.assertEquals(Math.min(i + 1, capacity), history.size());
+            }
+        }
+    }
+
+    @Test(timeout=1000)
+    public void testBeenHereRandom() {
+        for (int trial = 0; trial < 32; trial++) {
+            int capacity = random.nextInt(64) + 1;
+            LocationHistory history = new LocationHistory(capacity);
+            for (int i = 0; i < capacity * 4; i++) {
+                history.add(random.nextInt(4), random.nextInt(4));
+
+                double[] latitudes = history.getLatitudes();
+                double[] longitudes = history.getLongitudes();
+                boolean[] valid = history.getValidLocations();
+                boolean[] all = history.beenHereAll();
+                for (int j = 0; j < capacity; j++) {
+                    boolean expected = Locator.beenHere(j, latitudes, longitudes, valid);
+                    Assert.assertEquals(expected, history.beenHere(j));
+                    Assert.assertEquals(expected, all[j]);
+                }
+            }
+        }
+    }
+
+    /** Brute-force reference: first valid index maximizing sign * values[i]. */
+    private static int best(final double[] values, final boolean[] valid, final double sign) {
+        int index = -1;
+        for (int i = 0; i < values.length; i++) {
+            if (valid[i] && (index == -1 || sign * values[i] > sign * values[index])) {
+                index = i;
+            }
+        }
+        return index;
+    }
+}
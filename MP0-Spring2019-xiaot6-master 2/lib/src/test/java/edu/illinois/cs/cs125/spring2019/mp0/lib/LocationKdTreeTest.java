@@ -0,0 +1,91 @@
+package edu.illinois.cs.cs125.spring2019.mp0.lib;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Test suite for the LocationKdTree class.
+ */
+public class LocationKdTreeTest {
+    private static Random random = new Random();
+
+    @Test(timeout=100)
+    public void testQueriesSimple() {
+        LocationKdTree tree = new LocationKdTree(new double[0], new double[0], new boolean[0]);
+        Assert.assertEquals(-1, tree.nearest(0.0, 0.0));
+
+        double[] latitudes = {40.0, 41.0, 42.0, 10.0};
+        double[] longitudes = {-88.0, -88.0, -88.0, 179.9};
+        boolean[] valid = {true, false, true, true};
+        tree.rebuild(latitudes, longitudes, valid);
+        Assert.assertEquals(3, tree.size());
+        Assert.assertEquals(0, tree.nearest(40.9, -88.0));
+        Assert.assertEquals(3, tree.nearest(10.0, -179.9));
+
+        IntList result = new IntList();
+        Assert.assertEquals(2, tree.range(39.0, 43.0, -89.0, -87.0, result));
+        result.clear();
+        Assert.assertEquals(1, tree.range(0.0, 20.0, 179.0, -179.0, result));
+        Assert.assertEquals(3, result.get(0));
+    }
+
+    @Test(timeout=2000)
+    public void testQueriesRandom() {
+        for (int trial = 0; trial < 16; trial++) {
+            int length = random.nextInt(3000) + 1;
+            double[] latitudes = new double[length];
+            double[] longitudes = new double[length];
+            boolean[] valid = new boolean[length];
+            for (int i = 0; i < length; i++) {
+                // Coarse values so that ties are common
+                latitudes[i] = random.nextInt(360) * 0.5 - 90.0;
+                longitudes[i] = random.nextInt(720) * 0.5 - 180.0;
+                valid[i] = random.nextInt(4) != 0;
+            }
+            LocationKdTree tree = new LocationKdTree(latitudes, longitudes, valid);
+            int k = random.nextInt(8) + 1;
+            int[] indices = new int[k];
+            double[] distances = new double[k];
+            for (int query = 0; query < 50; query++) {
+                double latitude = random.nextDouble() * 180 - 90;
+                double longitude = random.nextDouble() * 360 - 180;
+
+                double[] all = new double[length];
+                int validCount = 0;
+                for (int i = 0; i < length; i++) {
+                    if (valid[i]) {
+                        all[validCount++] = GeoMath.haversine(latitude, longitude, latitudes[i], longitudes[i]);
+                    }
+                }
+                Arrays.sort(all, 0, validCount);
+                int found = tree.nearest(latitude, longitude, k, indices, distances);
+                Assert.assertEquals(Math.min(k, validCount), found);
+                for (int i = 0; i < found; i++) {
+                    Assert.assertEquals(all[i], distances[i], 1e-6);
+                    Assert.assertTrue(valid[indices[i]]);
+                }
+
+                double minLatitude = random.nextDouble() * 180 - 90;
+                double maxLatitude = minLatitude + random.nextDouble() * 40;
+                double minLongitude = random.nextDouble() * 360 - 180;
+                double maxLongitude = random.nextDouble() * 360 - 180;
+                int expected = 0;
+                for (int i = 0; i < length; i++) {
+                    boolean inLongitude = longitudes[i] >= minLongitude && longitudes[i] <= maxLongitude;
+                    if (minLongitude > maxLongitude) {
+                        inLongitude = longitudes[i] >= minLongitude || longitudes[i] <= maxLongitude;
+                    }
+                    if (valid[i] && latitudes[i] >= minLatitude && latitudes[i] <= maxLatitude && inLongitude) {
+                        expected++;
+                    }
+                }
+                IntList result = new IntList();
+                Assert.assertEquals(expected,
+                    tree.range(minLatitude, maxLatitude, minLongitude, maxLongitude, result));
+            }
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package edu.illinois.cs.cs125.spring2019.mp0.lib;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+
+/**
+ * Test suite for the LocationProcessor class.
+ */
+public class LocationProcessorTest {
+    private static Random random = new Random();
+
+    /** Keeps the category of the marker shown for each slot, as a map would. */
+    private static final class FakeMap implements LocationProcessor.Renderer {
+        private final int[] categories;
+        private final double[] latitudes;
+        private final double[] longitudes;
+
+        FakeMap(final int capacity) {
+            categories = new int[capacity];
+            latitudes = new double[capacity];
+            longitudes = new double[capacity];
+        }
+
+        @Override
+        public void drawMarker(final int index, final int category, final double latitude, final double longitude) {
+            categories[index] = category;
+            latitudes[index] = latitude;
+            longitudes[index] = longitude;
+        }
+    }
+
+    @Test(timeout=100)
+    public void testProcessorSimple() {
+        LocationProcessor processor = new LocationProcessor(3);
+        FakeMap map = new FakeMap(3);
+        Assert.assertFalse(processor.hasLocation());
+        try {
+            processor.getCurrentLatitude();
+            Assert.fail("reading the current position before any measurement should throw");
+        } catch (IllegalStateException expected) { }
+
+        Assert.assertEquals(1, processor.process(8.0, 8.0, map));
+        Assert.assertArrayEquals(new int[] {MarkerStateTracker.NORTH, MarkerStateTracker.NONE,
+            MarkerStateTracker.NONE}, map.categories);
+        processor.process(7.0, 8.0, map);
+        Assert.assertArrayEquals(new int[] {MarkerStateTracker.NORTH, MarkerStateTracker.CURRENT,
+            MarkerStateTracker.NONE}, map.categories);
+        processor.process(8.0, 8.0, map);
+        Assert.assertArrayEquals(new int[] {MarkerStateTracker.NORTH, MarkerStateTracker.NORMAL,
+            MarkerStateTracker.CURRENT}, map.categories);
+        Assert.assertEquals(8.0, processor.getCurrentLatitude(), 0.0);
+        Assert.assertEquals(8.0, processor.getCurrentLongitude(), 0.0);
+
+        // Measurements recorded while there's no map are all drawn by the next render
+        processor.add(1.0, 1.0);
+        processor.add(2.0, 2.0);
+        processor.render(map);
+        Assert.assertArrayEquals(new int[] {MarkerStateTracker.NORMAL, MarkerStateTracker.CURRENT,
+            MarkerStateTracker.NORTH}, map.categories);
+        Assert.assertEquals(2.0, map.latitudes[1], 0.0);
+        Assert.assertEquals(0, processor.render(map));
+    }
+
+    @Test(timeout=2000)
+    public void testMatchesLocator() {
+        for (int trial = 0; trial < 8; trial++) {
+            int capacity = random.nextInt(40) + 1;
+            LocationProcessor processor = new LocationProcessor(capacity);
+            FakeMap map = new FakeMap(capacity);
+            for (int i = 0; i < 500; i++) {
+                double latitude = random.nextInt(6);
+                double longitude = random.nextInt(6);
+                if (random.nextInt(4) == 0) {
+                    processor.add(latitude, longitude);
+                    continue;
+                }
+                processor.process(latitude, longitude, map);
+
+                LocationHistory history = processor.getHistory();
+                double[] latitudes = history.getLatitudes();
+                double[] longitudes = history.getLongitudes();
+                boolean[] valid = history.getValidLocations();
+                int north = Locator.farthestNorth(latitudes, longitudes, valid);
+                for (int index = 0; index < capacity; index++) {
+                    int expected;
+                    if (!valid[index]) {
+                        expected = MarkerStateTracker.NONE;
+                    } else if (index == north) {
+                        expected = MarkerStateTracker.NORTH;
+                    } else if (index == history.getCurrentIndex()) {
+                        expected = MarkerStateTracker.CURRENT;
+                    } else if (Locator.beenHere(index, latitudes, longitudes, valid)) {
+                        expected = MarkerStateTracker.BEEN_HERE;
+                    } else {
+                        expected = MarkerStateTracker.NORMAL;
+                    }
+                    Assert.assertEquals(expected, map.categories[index]);
+                    if (valid[index]) {
+                        Assert.assertEquals(latitudes[index], map.latitudes[index], 0.0);
+                        Assert.assertEquals(longitudes[index], map.longitudes[index], 0.0);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package edu.illinois.cs.cs125.spring2019.mp0.lib;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.EnumSet;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Test suite for the LocationReductions class.
+ */
+public class LocationReductionsTest {
+    private static Random random = new Random();
+
+    @Test(timeout=100)
+    public void testReduceSimple() {
+        double[] latitudes = {10.0, 20.0, 20.0, -5.0};
+        double[] longitudes = {1.0, 2.0, 3.0, 1.0};
+        boolean[] valid = {true, true, true, false};
+        LocationReductions reductions = new LocationReductions(ForkJoinPool.commonPool(), 1);
+
+        LocationReductions.Summary summary = reductions.reduce(latitudes, longitudes, valid,
+            EnumSet.allOf(LocationReductions.Reduction.class));
+        Assert.assertEquals(3, summary.getValidCount());
+        Assert.assertArrayEquals(new int[] {1, 0, 2, 0}, summary.getExtremes());
+        Assert.assertArrayEquals(new double[] {10.0, 20.0, 1.0, 3.0}, summary.getBoundingBox(), 0.0);
+        Assert.assertArrayEquals(new double[] {50.0 / 3, 2.0}, summary.getCentroid(), 1e-12);
+        Assert.assertEquals(0, summary.getRepeatCount());
+
+        valid[3] = true;
+        latitudes[3] = 20.0;
+        longitudes[3] = 2.0;
+        Assert.assertEquals(2, reductions.repeatCount(latitudes, longitudes, valid));
+        Assert.assertEquals(1, reductions.farthestNorth(latitudes, longitudes, valid));
+    }
+
+    @Test(timeout=5000)
+    public void testReduceRandom() {
+        ForkJoinPool single = new ForkJoinPool(1);
+        ForkJoinPool many = new ForkJoinPool(4);
+        try {
+            for (int trial = 0; trial < 32; trial++) {
+                int length = random.nextInt(20000) + 1;
+                double[] latitudes = new double[length];
+                double[] longitudes = new double[length];
+                boolean[] valid = new boolean[length];
+                for (int i = 0; i < length; i++) {
+                    latitudes[i] = random.nextInt(181) - 90.0;
+                    longitudes[i] = random.nextInt(361) - 180.0;
+                    valid[i] = random.nextInt(8) != 0;
+                }
+                int chunkSize = random.nextInt(2000) + 1;
+                LocationReductions.Summary first = new LocationReductions(single, chunkSize)
+                    .reduce(latitudes, longitudes, valid, EnumSet.allOf(LocationReductions.Reduction.class));
+                LocationReductions.Summary second = new LocationReductions(many, chunkSize)
+                    .reduce(latitudes, longitudes, valid, EnumSet.allOf(LocationReductions.Reduction.class));
+
+                Assert.assertArrayEquals(Locator.extremes(latitudes, longitudes, valid), first.getExtremes());
+                Assert.assertArrayEquals(first.getExtremes(), second.getExtremes());
+
+                // beenHereAll also reports invalid slots that match a valid one, so only count valid slots
+                int repeats = 0;
+                boolean[] all = Locator.beenHereAll(latitudes, longitudes, valid);
+                for (int i = 0; i < length; i++) {
+                    if (valid[i] && all[i]) {
+                        repeats++;
+                    }
+                }
+                Assert.assertEquals(repeats, first.getRepeatCount());
+                Assert.assertEquals(repeats, second.getRepeatCount());
+
+                // Results are identical regardless of the number of threads
+                Assert.assertArrayEquals(first.getBoundingBox(), second.getBoundingBox(), 0.0);
+                Assert.assertArrayEquals(first.getCentroid(), second.getCentroid(), 0.0);
+            }
+        } finally {
+            single.shutdown();
+            many.shutdown();
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package edu.illinois.cs.cs125.spring2019.mp0.lib;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Test suite for the LocationRegistry class.
+ */
+public class LocationRegistryTest {
+    private static Random random = new Random();
+
+    @Test(timeout=100)
+    public void testRegistrySimple() {
+        LocationRegistry registry = new LocationRegistry(3, 2);
+        Assert.assertEquals(-1, registry.farthestNorth("phone"));
+        Assert.assertNull(registry.snapshot("phone"));
+        Assert.assertEquals(0, registry.record("phone", 8.0, 8.0));
+        Assert.assertEquals(1, registry.record("phone", 9.0, 8.0));
+        Assert.assertEquals(0, registry.record("watch", 8.0, 8.0));
+        Assert.assertEquals(2, registry.record("phone", 8.0, 8.0));
+        Assert.assertEquals(2, registry.deviceCount());
+
+        Assert.assertEquals(1, registry.farthestNorth("phone"));
+        Assert.assertTrue(registry.beenHere("phone", 2));
+        Assert.assertFalse(registry.beenHere("watch", 0));
+
+        LocationRegistry.Snapshot snapshot = registry.snapshot("phone");
+        Assert.assertEquals(2, snapshot.getCurrentIndex());
+        Assert.assertEquals(3, snapshot.getAddCount());
+        Assert.assertEquals(1, snapshot.farthestNorth());
+        Assert.assertArrayEquals(new boolean[] {true, false, true}, snapshot.beenHereAll());
+        // Snapshots don't change when the device moves on
+        registry.record("phone", 20.0, 8.0);
+        Assert.assertEquals(8.0, snapshot.getLatitude(0), 0.0);
+        Assert.assertEquals(0, registry.farthestNorth("phone"));
+
+        Map<String, LocationRegistry.Snapshot> all = registry.snapshotAll();
+        Assert.assertEquals(2, all.size());
+        Assert.assertEquals(0, all.get("watch").farthestNorth());
+        Assert.assertTrue(registry.remove("watch"));
+        Assert.assertFalse(registry.remove("watch"));
+        Assert.assertEquals(1, registry.deviceCount());
+    }
+
+    @Test(timeout=10000)
+    public void testConcurrentUpdates() throws InterruptedException {
+        final int devices = 1000;
+        final int threads = 8;
+        final int updates = 200;
+        final long seed = random.nextLong();
+        final LocationRegistry registry = new LocationRegistry(16, 8);
+        final AtomicBoolean writing = new AtomicBoolean(true);
+        final AtomicBoolean inconsistent = new AtomicBoolean(false);
+
+        // Each thread owns a disjoint set of devices, so every device sees a known sequence of measurements
+        Thread[] writers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            final int thread = t;
+            writers[t] = new Thread(() -> {
+                Random local = new Random(seed + thread);
+                for (int update = 0; update < updates; update++) {
+                    for (int device = thread; device < devices; device += threads) {
+                        registry.record("device" + device, local.nextInt(8), local.nextInt(8));
+                    }
+                }
+            });
+        }
+        Thread reader = new Thread(() -> {
+            while (writing.get()) {
+                LocationRegistry.Snapshot snapshot = registry.snapshot("device" + random.nextInt(devices));
+                if (snapshot == null) {
+                    continue;
+                }
+                double[] latitudes = new double[16];
+                double[] longitudes = new double[16];
+                boolean[] valid = new boolean[16];
+                for (int i = 0; i < 16; i++) {
+                    latitudes[i] = snapshot.getLatitude(i);
+                    longitudes[i] = snapshot.getLongitude(i);
+                    valid[i] = snapshot.isValid(i);
+                }
+                if (snapshot.farthestNorth() != Locator.farthestNorth(latitudes, longitudes, valid)
+                    || snapshot.getCurrentIndex() != (snapshot.getAddCount() - 1) % 16) {
+                    inconsistent.set(true);
+                }
+            }
+        });
+        reader.start();
+        for (Thread writer : writers) {
+            writer.start();
+        }
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        writing.set(false);
+        reader.join();
+        Assert.assertFalse("a snapshot mixed two states", inconsistent.get());
+        Assert.assertEquals(devices, registry.deviceCount());
+
+        for (int t = 0; t < threads; t++) {
+            Random local = new Random(seed + t);
+            LocationHistory[] expected = new LocationHistory[devices];
+            for (int update = 0; update < updates; update++) {
+                for (int device = t; device < devices; device += threads) {
+                    if (expected[device] == null) {
+                        expected[device] = new LocationHistory(16);
+                    }
+                    expected[device].add(local.nextInt(8), local.nextInt(8));
+                }
+            }
+            for (int device = t; device < devices; device += threads) {
+                LocationRegistry.Snapshot snapshot = registry.snapshot("device" + device);
+                Assert.assertEquals(expected[device].farthestNorth(), snapshot.farthestNorth());
+                Assert.assertEquals(expected[device].getCurrentIndex(), snapshot.getCurrentIndex());
+                Assert.assertArrayEquals(expected[device].beenHereAll(), snapshot.beenHereAll());
+            }
+        }
+    }
+}
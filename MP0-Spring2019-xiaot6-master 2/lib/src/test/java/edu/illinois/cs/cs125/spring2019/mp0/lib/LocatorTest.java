@@ -15234,5 +15234,62 @@ public class LocatorTest {
                         false,
                 }));
     }
+
+    @Test(timeout=600)
+    public void testBeenHereAllRandom() {
+        for (int i = 0; i < 64; i++) {
+            int length = random.nextInt(256) + 1;
+            double[] latitudes = new double[length];
+            double[] longitudes = new double[length];
+            boolean[] validLocations = new boolean[length];
+            for (int j = 0; j < length; j++) {
+                latitudes[j] = random.nextInt(8);
+                longitudes[j] = random.nextInt(8);
+                validLocations[j] = random.nextBoolean();
+            }
+            boolean[] all = Locator.beenHereAll(latitudes, longitudes, validLocations);
+            for (int j = 0; j < length; j++) {
+                Assert.assertEquals(Locator.beenHere(j, latitudes, longitudes, validLocations), all[j]);
+            }
+        }
+    }
+
+    @Test(timeout=600)
+    public void testExtremesRandom() {
+        for (int i = 0; i < 256; i++) {
+            int length = random.nextInt(256) + 1;
+            double[] latitudes = new double[length];
+            double[] longitudes = new double[length];
+            boolean[] validLocations = new boolean[length];
+            for (int j = 0; j < length; j++) {
+                latitudes[j] = random.nextInt(9) * 22.5 - 90.0;
+                longitudes[j] = random.nextInt(9) * 45.0 - 180.0;
+                validLocations[j] = random.nextBoolean();
+            }
+            int[] extremes = Locator.extremes(latitudes, longitudes, validLocations);
+            Assert.assertEquals(Locator.farthestNorth(latitudes, longitudes, validLocations),
+                extremes[Locator.NORTH]);
+            Assert.assertEquals(farthest(latitudes, validLocations, -1.0, Locator.MAX_LATITUDE),
+                extremes[Locator.SOUTH]);
+            Assert.assertEquals(farthest(longitudes, validLocations, 1.0, Locator.MIN_LONGITUDE),
+                extremes[Locator.EAST]);
+            Assert.assertEquals(farthest(longitudes, validLocations, -1.0, Locator.MAX_LONGITUDE),
+                extremes[Locator.WEST]);
+        }
+    }
+
+    /** Reference for extremes: first valid index maximizing sign * value, which must beat the starting boundary. */
+    private static int farthest(final double[] values, final boolean[] valid, final double sign,
+                                final double boundary) {
+        int index = -1;
+        double best = sign * boundary;
+        for (int i = 0; i < values.length; i++) {
+            if (valid[i] && sign * values[i] > best) {
+                best = sign * values[i];
+                index = i;
+            }
+        }
+        return index;
+    }
 }
 // vim: sts=4:ts=4:sw=4:et:ft=java
@@ -0,0 +1,107 @@
+package edu.illinois.cs.cs125.spring2019.mp0.lib;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+
+/**
+ * Test suite for the MarkerStateTracker class.
+ */
+public class MarkerStateTrackerTest {
+    private static Random random = new Random();
+
+    private static int expectedCategory(final LocationHistory history, final int index) {
+        double[] latitudes = history.getLatitudes();
+        double[] longitudes = history.getLongitudes();
+        boolean[] validLocations = history.getValidLocations();
+        if (!validLocations[index]) {
+            return MarkerStateTracker.NONE;
+        } else if (index == Locator.farthestNorth(latitudes, longitudes, validLocations)) {
+            return MarkerStateTracker.NORTH;
+        } else if (index == history.getCurrentIndex()) {
+            return MarkerStateTracker.CURRENT;
+        } else if (Locator.beenHere(index, latitudes, longitudes, validLocations)) {
+            return MarkerStateTracker.BEEN_HERE;
+        }
+        return MarkerStateTracker.NORMAL;
+    }
+
+    @Test(timeout=100)
+    public void testUpdateSimple() {
+        LocationHistory history = new LocationHistory(4);
+        MarkerStateTracker tracker = new MarkerStateTracker(history);
+
+        history.add(1.0, 1.0);
+        IntList changed = tracker.update();
+        Assert.assertArrayEquals(new int[] {0}, changed.toArray());
+        Assert.assertEquals(MarkerStateTracker.NORTH, tracker.getCategory(0));
+
+        history.add(0.0, 0.0);
+        Assert.assertArrayEquals(new int[] {1}, tracker.update().toArray());
+        Assert.assertEquals(MarkerStateTracker.CURRENT, tracker.getCategory(1));
+
+        // Returning to the spot of slot 1 makes it a repeat and takes away its current marker
+        history.add(0.0, 0.0);
+        changed = tracker.update();
+        changed.sort();
+        Assert.assertArrayEquals(new int[] {1, 2}, changed.toArray());
+        Assert.assertEquals(MarkerStateTracker.BEEN_HERE, tracker.getCategory(1));
+        Assert.assertEquals(MarkerStateTracker.CURRENT, tracker.getCategory(2));
+
+        history.add(2.0, 2.0);
+        changed = tracker.update();
+        changed.sort();
+        Assert.assertArrayEquals(new int[] {0, 2, 3}, changed.toArray());
+        Assert.assertEquals(MarkerStateTracker.NORMAL, tracker.getCategory(0));
+        Assert.assertEquals(MarkerStateTracker.BEEN_HERE, tracker.getCategory(2));
+
+        // Overwriting slot 0 changes nothing else
+        history.add(-1.0, -1.0);
+        Assert.assertArrayEquals(new int[] {0}, tracker.update().toArray());
+
+        // Overwriting slot 1 leaves slot 2 as the only measurement at its spot
+        history.add(5.0, 5.0);
+        changed = tracker.update();
+        changed.sort();
+        Assert.assertArrayEquals(new int[] {0, 1, 2, 3}, changed.toArray());
+        Assert.assertEquals(MarkerStateTracker.NORMAL, tracker.getCategory(2));
+        Assert.assertEquals(MarkerStateTracker.NORTH, tracker.getCategory(1));
+    }
+
+    @Test(timeout=1000)
+    public void testUpdateRandom() {
+        for (int trial = 0; trial < 32; trial++) {
+            int capacity = random.nextInt(32) + 1;
+            LocationHistory history = new LocationHistory(capacity);
+            MarkerStateTracker tracker = new MarkerStateTracker(history);
+            int[] expected = new int[capacity];
+            for (int i = 0; i < 500; i++) {
+                boolean[] overwritten = new boolean[capacity];
+                overwritten[history.add(random.nextInt(4), random.nextInt(4))] = true;
+                if (random.nextInt(16) == 0) {
+                    // Skipping an update forces a full refresh on the next one
+                    for (int skipped = random.nextInt(2 * capacity); skipped >= 0; skipped--) {
+                        overwritten[history.add(random.nextInt(4), random.nextInt(4))] = true;
+                    }
+                }
+                IntList changed = tracker.update();
+                boolean[] reported = new boolean[capacity];
+                for (int j = 0; j < changed.size(); j++) {
+                    Assert.assertFalse("slots are reported once", reported[changed.get(j)]);
+                    reported[changed.get(j)] = true;
+                }
+                for (int j = 0; j < capacity; j++) {
+                    int category = expectedCategory(history, j);
+                    Assert.assertEquals(category, tracker.getCategory(j));
+                    if (category != expected[j] || overwritten[j]) {
+                        Assert.assertTrue("changed slot " + j + " was not reported", reported[j]);
+                    } else {
+                        Assert.assertFalse("unchanged slot " + j + " was reported", reported[j]);
+                    }
+                    expected[j] = category;
+                }
+            }
+        }
+    }
+}
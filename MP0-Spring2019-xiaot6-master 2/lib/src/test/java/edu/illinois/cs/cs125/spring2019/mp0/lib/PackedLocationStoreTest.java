@@ -0,0 +1,87 @@
+package edu.illinois.cs.cs125.spring2019.mp0.lib;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+
+/**
+ * Test suite for the PackedLocationStore class.
+ */
+public class PackedLocationStoreTest {
+    private static Random random = new Random();
+
+    @Test(timeout=100)
+    public void testPackSimple() {
+        long value = PackedLocationStore.pack(40.092802, -88.220097);
+        Assert.assertEquals(40.092802, PackedLocationStore.unpackLatitude(value), 0.0);
+        Assert.assertEquals(-88.220097, PackedLocationStore.unpackLongitude(value), 0.0);
+
+        value = PackedLocationStore.pack(Locator.MIN_LATITUDE, Locator.MAX_LONGITUDE);
+        Assert.assertEquals(Locator.MIN_LATITUDE, PackedLocationStore.unpackLatitude(value), 0.0);
+        Assert.assertEquals(Locator.MAX_LONGITUDE, PackedLocationStore.unpackLongitude(value), 0.0);
+
+        // Values closer than the resolution pack to the same long
+        Assert.assertEquals(PackedLocationStore.pack(1.0, 2.0), PackedLocationStore.pack(1.0 + 1e-9, 2.0 - 1e-9));
+
+        try {
+            PackedLocationStore.pack(91.0, 0.0);
+            Assert.fail("out of range latitude should throw");
+        } catch (IllegalArgumentException expected) { }
+        try {
+            PackedLocationStore.pack(0.0, Double.NaN);
+            Assert.fail("NaN longitude should throw");
+        } catch (IllegalArgumentException expected) { }
+    }
+
+    @Test(timeout=100)
+    public void testStoreSimple() {
+        PackedLocationStore store = new PackedLocationStore(3);
+        Assert.assertEquals(-1, store.farthestNorth());
+        store.set(0, 8.0, 8.0);
+        store.set(2, 8.0, 8.0);
+        Assert.assertTrue(store.isValid(0));
+        Assert.assertFalse(store.isValid(1));
+        Assert.assertTrue(store.beenHere(0));
+        Assert.assertEquals(0, store.farthestNorth());
+        store.invalidate(2);
+        Assert.assertFalse(store.beenHere(0));
+    }
+
+    @Test(timeout=1000)
+    public void testMatchesLocatorRandom() {
+        for (int trial = 0; trial < 64; trial++) {
+            int length = random.nextInt(200) + 1;
+            double[] latitudes = new double[length];
+            double[] longitudes = new double[length];
+            boolean[] valid = new boolean[length];
+            for (int i = 0; i < length; i++) {
+                // Whole multiples of the resolution survive the round trip exactly
+                latitudes[i] = random.nextInt(16) * 0.5 - 4.0;
+                longitudes[i] = random.nextInt(16) * 0.25 - 2.0;
+                valid[i] = random.nextBoolean();
+            }
+            PackedLocationStore store = new PackedLocationStore(length + random.nextInt(100));
+            store.importFrom(latitudes, longitudes, valid);
+            Assert.assertEquals(Locator.farthestNorth(latitudes, longitudes, valid), store.farthestNorth());
+            for (int i = 0; i < length; i++) {
+                if (valid[i]) {
+                    Assert.assertEquals(Locator.beenHere(i, latitudes, longitudes, valid), store.beenHere(i));
+                }
+            }
+
+            double[] exportedLatitudes = new double[store.getCapacity()];
+            double[] exportedLongitudes = new double[store.getCapacity()];
+            boolean[] exportedValid = new boolean[store.getCapacity()];
+            store.exportTo(exportedLatitudes, exportedLongitudes, exportedValid);
+            for (int i = 0; i < store.getCapacity(); i++) {
+                boolean expectedValid = i < length && valid[i];
+                Assert.assertEquals(expectedValid, exportedValid[i]);
+                if (expectedValid) {
+                    Assert.assertEquals(latitudes[i], exportedLatitudes[i], 0.0);
+                    Assert.assertEquals(longitudes[i], exportedLongitudes[i], 0.0);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package edu.illinois.cs.cs125.spring2019.mp0.lib;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Test suite for the PlaceClusterer class.
+ */
+public class PlaceClustererTest {
+    private static Random random = new Random();
+
+    /** Degrees of latitude per meter. */
+    private static final double DEGREES_PER_METER = GeoMath.metersToDegrees(1.0);
+
+    @Test(timeout=1000)
+    public void testClustererSimple() {
+        PlaceClusterer clusterer = new PlaceClusterer(50.0, 3);
+        // Three positions a few meters apart make a place; a far away position is noise
+        Assert.assertEquals(0, clusterer.add(40.0, -88.0));
+        clusterer.add(40.0 + 10 * DEGREES_PER_METER, -88.0);
+        Assert.assertEquals(PlaceClusterer.NOISE, clusterer.getPlace(0));
+        clusterer.add(40.0 + 20 * DEGREES_PER_METER, -88.0);
+        clusterer.add(41.0, -88.0);
+        Assert.assertEquals(0, clusterer.getPlace(0));
+        Assert.assertEquals(0, clusterer.getPlace(2));
+        Assert.assertTrue(clusterer.isCore(1));
+        Assert.assertEquals(PlaceClusterer.NOISE, clusterer.getPlace(3));
+
+        // A position 45 meters north of the last core position is a border position
+        clusterer.add(40.0 + 65 * DEGREES_PER_METER, -88.0);
+        Assert.assertFalse(clusterer.isCore(4));
+        Assert.assertEquals(0, clusterer.getPlace(4));
+
+        // A second place forms around the far position
+        clusterer.addAll(new double[] {41.0, 41.0}, new double[] {-88.0, -88.0});
+        Assert.assertArrayEquals(new int[] {0, 0, 0, 1, 0, 1, 1}, clusterer.getLabels());
+        List<PlaceClusterer.Place> places = clusterer.getPlaces();
+        Assert.assertEquals(2, places.size());
+        Assert.assertEquals(4, places.get(0).size());
+        Assert.assertEquals(41.0, places.get(1).getLatitude(), 1e-9);
+
+        // Another position beyond it makes it a core position and joins the place too
+        clusterer.add(40.0 + 100 * DEGREES_PER_METER, -88.0);
+        Assert.assertTrue(clusterer.isCore(4));
+        Assert.assertFalse(clusterer.isCore(7));
+        Assert.assertEquals(0, clusterer.getPlace(7));
+
+        try {
+            clusterer.add(91.0, 0.0);
+            Assert.fail("an invalid position should throw");
+        } catch (IllegalArgumentException expected) { }
+        try {
+            new PlaceClusterer(0.0, 3);
+            Assert.fail("a zero radius should throw");
+        } catch (IllegalArgumentException expected) { }
+    }
+
+    @Test(timeout=20000)
+    public void testMatchesBruteForce() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        for (int trial = 0; trial < 10; trial++) {
+            double radius = 20.0 + random.nextDouble() * 100.0;
+            int minPoints = random.nextInt(8) + 1;
+            int count = 1500;
+            double[] latitudes = new double[count];
+            double[] longitudes = new double[count];
+            double centerLatitude = random.nextDouble() * 170.0 - 85.0;
+            double centerLongitude = random.nextDouble() * 360.0 - 180.0;
+            if (trial == 0) {
+                centerLongitude = 179.99;
+            }
+            double spread = 2000.0 * DEGREES_PER_METER;
+            for (int i = 0; i < count; i++) {
+                // Clumps of positions around a few hot spots, plus scattered ones
+                double latitude = centerLatitude + (random.nextDouble() - 0.5) * spread;
+                double longitude = centerLongitude + (random.nextDouble() - 0.5) * spread;
+                if (random.nextInt(3) > 0) {
+                    int spot = random.nextInt(5);
+                    latitude = centerLatitude + (spot - 2) * spread / 5
+                        + random.nextGaussian() * radius * DEGREES_PER_METER;
+                    longitude = centerLongitude + random.nextGaussian() * radius * DEGREES_PER_METER;
+                }
+                if (longitude > 180.0) {
+                    longitude -= 360.0;
+                }
+                latitudes[i] = latitude;
+                longitudes[i] = longitude;
+            }
+
+            PlaceClusterer incremental = new PlaceClusterer(radius, minPoints);
+            for (int i = 0; i < count; i++) {
+                incremental.add(latitudes[i], longitudes[i]);
+            }
+            PlaceClusterer batch = new PlaceClusterer(radius, minPoints, pool, random.nextInt(16) + 1);
+            batch.addAll(latitudes, longitudes);
+            PlaceClusterer mixed = new PlaceClusterer(radius, minPoints, pool, 4);
+            mixed.addAll(Arrays.copyOf(latitudes, count / 2), Arrays.copyOf(longitudes, count / 2));
+            for (int i = count / 2; i < count; i++) {
+                mixed.add(latitudes[i], longitudes[i]);
+            }
+
+            boolean[][] neighbours = new boolean[count][count];
+            boolean[] core = new boolean[count];
+            for (int i = 0; i < count; i++) {
+                int found = 0;
+                for (int j = 0; j < count; j++) {
+                    neighbours[i][j] = GeoMath.haversine(latitudes[i], longitudes[i],
+                        latitudes[j], longitudes[j]) <= radius;
+                    if (neighbours[i][j]) {
+                        found++;
+                    }
+                }
+                core[i] = found >= minPoints;
+            }
+            int[] components = new int[count];
+            Arrays.fill(components, -1);
+            for (int i = 0; i < count; i++) {
+                if (!core[i] || components[i] != -1) {
+                    continue;
+                }
+                int[] stack = new int[count];
+                int top = 0;
+                stack[top++] = i;
+                components[i] = i;
+                while (top > 0) {
+                    int current = stack[--top];
+                    for (int j = 0; j < count; j++) {
+                        if (core[j] && neighbours[current][j] && components[j] == -1) {
+                            components[j] = i;
+                            stack[top++] = j;
+                        }
+                    }
+                }
+            }
+
+            for (PlaceClusterer clusterer : new PlaceClusterer[] {incremental, batch, mixed}) {
+                for (int i = 0; i < count; i++) {
+                    Assert.assertEquals(core[i], clusterer.isCore(i));
+                    int place = clusterer.getPlace(i);
+                    if (core[i]) {
+                        Assert.assertEquals(components[i], place);
+                        continue;
+                    }
+                    int expected = PlaceClusterer.NOISE;
+                    for (int j = 0; j < count && place != PlaceClusterer.NOISE; j++) {
+                        if (core[j] && neighbours[i][j] && components[j] == place) {
+                            expected = place;
+                        }
+                    }
+                    for (int j = 0; j < count && place == PlaceClusterer.NOISE; j++) {
+                        Assert.assertFalse(core[j] && neighbours[i][j]);
+                    }
+                    Assert.assertEquals(expected, place);
+                }
+            }
+        }
+        pool.shutdown();
+    }
+
+    @Test(timeout=20000)
+    public void testLargeHistory() {
+        // A month of filtered fixes, mostly at home and work
+        int count = 200000;
+        double[] latitudes = new double[count];
+        double[] longitudes = new double[count];
+        for (int i = 0; i < count; i++) {
+            double latitude = 40.1 + random.nextDouble() * 0.1;
+            double longitude = -88.3 + random.nextDouble() * 0.1;
+            if (random.nextInt(10) > 0) {
+                latitude = 40.11 + random.nextInt(2) * 0.05 + random.nextGaussian() * 10 * DEGREES_PER_METER;
+                longitude = -88.22 + random.nextGaussian() * 10 * DEGREES_PER_METER;
+            }
+            latitudes[i] = latitude;
+            longitudes[i] = longitude;
+        }
+        PlaceClusterer batch = new PlaceClusterer(30.0, 20);
+        batch.addAll(latitudes, longitudes);
+        PlaceClusterer incremental = new PlaceClusterer(30.0, 20);
+        for (int i = 0; i < count; i++) {
+            incremental.add(latitudes[i], longitudes[i]);
+        }
+        for (int i = 0; i < count; i++) {
+            Assert.assertEquals(batch.isCore(i), incremental.isCore(i));
+            if (batch.isCore(i)) {
+                Assert.assertEquals(batch.getPlace(i), incremental.getPlace(i));
+            }
+        }
+        Assert.assertTrue(batch.getPlaces().size() >= 2);
+    }
+}
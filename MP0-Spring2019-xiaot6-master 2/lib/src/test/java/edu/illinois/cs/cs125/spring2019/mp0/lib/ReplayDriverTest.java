@@ -0,0 +1,70 @@
+package edu.illinois.cs.cs125.spring2019.mp0.lib;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Test suite for the ReplayDriver class.
+ */
+public class ReplayDriverTest {
+
+    @Test(timeout=100)
+    public void testPercentiles() {
+        ReplayDriver.Result result = new ReplayDriver.Result(new long[] {5, 1, 4, 2, 3, 10, 6, 7, 9, 8}, 100, 12);
+        Assert.assertEquals(10, result.getCount());
+        Assert.assertEquals(5, result.getP50());
+        Assert.assertEquals(10, result.getP99());
+        Assert.assertEquals(1, result.getPercentile(0.0));
+        Assert.assertEquals(9, result.getPercentile(0.9));
+        Assert.assertEquals(10, result.getMax());
+        Assert.assertEquals(12, result.getInstructions());
+        Assert.assertEquals(1e8, result.getThroughput(), 1.0);
+        Assert.assertEquals(0, new ReplayDriver.Result(new long[0], 0, 0).getP99());
+    }
+
+    @Test(timeout=5000)
+    public void testReplaySynthetic() {
+        LocationProcessor processor = new LocationProcessor(ReplayDriver.DEFAULT_CAPACITY);
+        final long[] drawn = new long[1];
+        ReplayDriver.Result result = new ReplayDriver(processor)
+            .setWarmup(1000)
+            .setRenderer((index, category, latitude, longitude) -> drawn[0]++)
+            .replaySynthetic(20000, 125);
+        Assert.assertEquals(19000, result.getCount());
+        // Every update redraws at least its own slot
+        Assert.assertTrue(result.getInstructions() >= result.getCount());
+        Assert.assertTrue(drawn[0] >= result.getInstructions() + 1000);
+        Assert.assertTrue(result.getP50() <= result.getP99());
+        Assert.assertTrue(result.getP99() <= result.getMax());
+        Assert.assertTrue(processor.hasLocation());
+    }
+
+    @Test(timeout=5000)
+    public void testReplayAtRate() {
+        // 200 updates at 1000 per second should take about 200ms
+        ReplayDriver.Result result = new ReplayDriver(new LocationProcessor(16))
+            .setRate(1000.0)
+            .replaySynthetic(200, 125);
+        Assert.assertEquals(200, result.getCount());
+        Assert.assertTrue(result.getElapsedNanos() >= 199000000L);
+        Assert.assertTrue(result.getThroughput() <= 1010.0);
+    }
+
+    @Test(timeout=5000)
+    public void testReplayTrackLog() throws IOException {
+        File file = File.createTempFile("replay", ".log");
+        file.deleteOnExit();
+        try (TrackLog trackLog = new TrackLog(file)) {
+            for (int i = 0; i < 100; i++) {
+                trackLog.append(i, 40.0 + i % 7, -88.0);
+            }
+            LocationProcessor processor = new LocationProcessor(10);
+            ReplayDriver.Result result = new ReplayDriver(processor).replay(trackLog);
+            Assert.assertEquals(100, result.getCount());
+            Assert.assertEquals(40.0 + 99 % 7, processor.getCurrentLatitude(), 0.0);
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package edu.illinois.cs.cs125.spring2019.mp0.lib;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Test suite for the StopDetector class.
+ */
+public class StopDetectorTest {
+    private static Random random = new Random();
+
+    /** Degrees of latitude per meter. */
+    private static final double DEGREES_PER_METER = GeoMath.metersToDegrees(1.0);
+
+    /** Records events, checking that starts and ends alternate. */
+    private static final class Recorder implements StopDetector.Listener {
+        private final List<Long> starts = new ArrayList<>();
+        private final List<Long> ends = new ArrayList<>();
+        private boolean open = false;
+        private double latitude;
+        private double longitude;
+
+        @Override
+        public void onStopStart(final long startMillis, final double setLatitude, final double setLongitude) {
+            Assert.assertFalse("stop started twice", open);
+            open = true;
+            starts.add(startMillis);
+        }
+
+        @Override
+        public void onStopEnd(final long startMillis, final long endMillis,
+                              final double setLatitude, final double setLongitude) {
+            Assert.assertTrue("stop ended before it started", open);
+            open = false;
+            Assert.assertEquals((long) starts.get(starts.size() - 1), startMillis);
+            ends.add(endMillis);
+            latitude = setLatitude;
+            longitude = setLongitude;
+        }
+    }
+
+    @Test(timeout=1000)
+    public void testStopSimple() {
+        StopDetector detector = new StopDetector(50.0, 60000L);
+        Recorder recorder = new Recorder();
+        // Walk north for a minute, wait five minutes a few meters from one spot, then walk on
+        long time = 0;
+        double latitude = 40.1;
+        for (int i = 0; i < 6; i++, time += 10000L) {
+            Assert.assertFalse(detector.update(time, latitude, -88.2, recorder));
+            latitude += 100 * DEGREES_PER_METER;
+        }
+        long arrived = time;
+        for (int i = 0; i < 30; i++, time += 10000L) {
+            double jitter = (i % 3 - 1) * 5 * DEGREES_PER_METER;
+            boolean stopped = detector.update(time, latitude + jitter, -88.2 + jitter, recorder);
+            Assert.assertEquals(time - arrived >= 60000L, stopped);
+        }
+        Assert.assertEquals(1, recorder.starts.size());
+        Assert.assertEquals(arrived, (long) recorder.starts.get(0));
+        Assert.assertEquals(latitude, detector.getLatitude(), 5 * DEGREES_PER_METER);
+        Assert.assertEquals(arrived, detector.getStartMillis());
+
+        // Out of order fixes are ignored
+        Assert.assertTrue(detector.update(0L, 0.0, 0.0, recorder));
+        long left = time - 10000L;
+        Assert.assertFalse(detector.update(time, latitude + 100 * DEGREES_PER_METER, -88.2, recorder));
+        Assert.assertEquals(left, (long) recorder.ends.get(0));
+        Assert.assertEquals(latitude, recorder.latitude, 5 * DEGREES_PER_METER);
+        Assert.assertEquals(-88.2, recorder.longitude, 5 * DEGREES_PER_METER);
+
+        // A stop in progress is ended by finish, and the detector starts afresh
+        for (int i = 0; i < 10; i++) {
+            time += 10000L;
+            detector.update(time, 0.0, 179.99999, recorder);
+            time += 10000L;
+            detector.update(time, 0.0, -179.99999, recorder);
+        }
+        Assert.assertTrue(detector.isStopped());
+        Assert.assertEquals(180.0, Math.abs(detector.getLongitude()), 1e-4);
+        detector.finish(recorder);
+        Assert.assertFalse(detector.isStopped());
+        Assert.assertEquals(2, recorder.ends.size());
+        Assert.assertEquals(2, detector.getStops());
+        try {
+            detector.getLatitude();
+            Assert.fail("reading the stop of a finished detector should throw");
+        } catch (IllegalStateException expected) { }
+        try {
+            detector.update(time, 91.0, 0.0, recorder);
+            Assert.fail("an invalid position should throw");
+        } catch (IllegalArgumentException expected) { }
+        try {
+            new StopDetector(0.0, 1000L);
+            Assert.fail("a zero radius should throw");
+        } catch (IllegalArgumentException expected) { }
+    }
+
+    @Test(timeout=5000)
+    public void testFindsDwells() {
+        for (int trial = 0; trial < 20; trial++) {
+            // Alternate between walking at 1.5 m/s and dwelling with a few meters of noise, with a fix a second
+            int segments = random.nextInt(20) + 1;
+            int count = 0;
+            int[] lengths = new int[segments];
+            for (int s = 0; s < segments; s++) {
+                // Dwells are either well short of the minimum or well over it
+                lengths[s] = random.nextInt(140) + 60;
+                if (s % 2 == 1 && random.nextBoolean()) {
+                    lengths[s] = random.nextInt(800) + 400;
+                }
+                count += lengths[s];
+            }
+            long[] times = new long[count];
+            double[] latitudes = new double[count];
+            double[] longitudes = new double[count];
+            long[] expectedStarts = new long[segments];
+            long[] expectedEnds = new long[segments];
+            int expected = 0;
+            double latitude = random.nextDouble() * 120.0 - 60.0;
+            double longitude = random.nextDouble() * 360.0 - 180.0;
+            double metersPerDegreeEast = Math.cos(Math.toRadians(latitude)) / DEGREES_PER_METER;
+            int i = 0;
+            for (int s = 0; s < segments; s++) {
+                boolean dwell = s % 2 == 1;
+                double heading = random.nextDouble() * 2 * Math.PI;
+                if (dwell && lengths[s] >= 400) {
+                    expectedStarts[expected] = i * 1000L;
+                    expectedEnds[expected] = (i + lengths[s] - 1) * 1000L;
+                    expected++;
+                }
+                for (int k = 0; k < lengths[s]; k++, i++) {
+                    if (!dwell) {
+                        latitude += 1.5 * Math.cos(heading) * DEGREES_PER_METER;
+                        longitude += 1.5 * Math.sin(heading) / metersPerDegreeEast;
+                    }
+                    times[i] = i * 1000L;
+                    latitudes[i] = latitude + random.nextGaussian() * 3 * DEGREES_PER_METER;
+                    longitudes[i] = longitude + random.nextGaussian() * 3 / metersPerDegreeEast;
+                    if (longitudes[i] > 180.0) {
+                        longitudes[i] -= 360.0;
+                    } else if (longitudes[i] < -180.0) {
+                        longitudes[i] += 360.0;
+                    }
+                }
+                if (longitude > 180.0) {
+                    longitude -= 360.0;
+                } else if (longitude < -180.0) {
+                    longitude += 360.0;
+                }
+            }
+
+            Recorder recorder = new Recorder();
+            StopDetector detector = new StopDetector(30.0, 300000L);
+            Assert.assertEquals(expected, detector.detect(times, latitudes, longitudes, recorder));
+            for (int stop = 0; stop < expected; stop++) {
+                // Walking fixes within the radius can join either end of a stop, which at 1.5 m/s covers 40 seconds
+                Assert.assertEquals(expectedStarts[stop], recorder.starts.get(stop), 60000.0);
+                Assert.assertEquals(expectedEnds[stop], recorder.ends.get(stop), 60000.0);
+            }
+        }
+    }
+
+    @Test(timeout=10000)
+    public void testLongReplay() {
+        // Ten million fixes, so a day of fixes for a few hundred devices
+        int count = 10000000;
+        long[] times = new long[count];
+        double[] latitudes = new double[count];
+        double[] longitudes = new double[count];
+        latitudes[0] = 40.1;
+        longitudes[0] = -88.2;
+        WalkerSimulation.fillRandomWalk(latitudes, longitudes, 0.01, 0.001, 0.001, random.nextLong());
+        for (int i = 0; i < count; i++) {
+            times[i] = i * 1000L;
+        }
+        StopDetector detector = new StopDetector(50.0, 60000L);
+        long[] events = new long[2];
+        long stops = detector.detect(times, latitudes, longitudes, new StopDetector.Listener() {
+            @Override
+            public void onStopStart(final long startMillis, final double latitude, final double longitude) {
+                events[0]++;
+            }
+
+            @Override
+            public void onStopEnd(final long startMillis, final long endMillis,
+                                  final double latitude, final double longitude) {
+                events[1]++;
+            }
+        });
+        Assert.assertTrue(stops > 0);
+        Assert.assertEquals(stops, events[0]);
+        Assert.assertEquals(stops, events[1]);
+    }
+}
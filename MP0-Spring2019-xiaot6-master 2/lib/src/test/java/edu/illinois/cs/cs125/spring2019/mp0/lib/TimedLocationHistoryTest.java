@@ -0,0 +1,103 @@
+package edu.illinois.cs.cs125.spring2019.mp0.lib;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+
+/**
+ * Test suite for the TimedLocationHistory class.
+ */
+public class TimedLocationHistoryTest {
+    private static Random random = new Random();
+
+    @Test(timeout=100)
+    public void testWindowSimple() {
+        TimedLocationHistory history = new TimedLocationHistory(8, 60000L, 50.0);
+        Assert.assertFalse(history.revisited(50.0, 60000L));
+        history.add(0L, 40.1105, -88.2272);
+        history.add(10000L, 40.1200, -88.2272);
+        Assert.assertFalse(history.revisited(50.0, 60000L));
+        history.add(20000L, 40.11051, -88.2272);
+        Assert.assertTrue(history.revisited(50.0, 60000L));
+        Assert.assertFalse(history.revisited(50.0, 15000L));
+        Assert.assertTrue(history.beenNear(40.1200, -88.2272, 10.0, 10000L));
+        Assert.assertFalse(history.beenNear(40.1200, -88.2272, 10.0, 10001L));
+
+        Assert.assertEquals(0L, history.firstVisitInCell(40.1105, -88.2272));
+        Assert.assertEquals(20000L, history.lastVisitInCell(40.1105, -88.2272));
+        Assert.assertEquals(TimedLocationHistory.NO_VISIT, history.firstVisitInCell(0.0, 0.0));
+
+        // Sliding the window forgets the first visit
+        history.expire(60001L);
+        Assert.assertEquals(2, history.size());
+        Assert.assertEquals(20000L, history.firstVisitInCell(40.1105, -88.2272));
+        Assert.assertFalse(history.revisited(50.0, 60000L));
+        history.expire(1000000L);
+        Assert.assertEquals(0, history.size());
+        Assert.assertEquals(-1, history.getNewestIndex());
+
+        try {
+            history.add(10L, 0.0, 0.0);
+            Assert.fail("time going backwards should throw");
+        } catch (IllegalArgumentException expected) { }
+        try {
+            history.add(30000L, Double.NaN, 0.0);
+            Assert.fail("an invalid position should throw");
+        } catch (IllegalArgumentException expected) { }
+    }
+
+    @Test(timeout=2000)
+    public void testMatchesBruteForce() {
+        for (int trial = 0; trial < 8; trial++) {
+            int capacity = random.nextInt(200) + 1;
+            long window = random.nextInt(5000) + 1;
+            double radius = 20.0 + random.nextDouble() * 200.0;
+            TimedLocationHistory history = new TimedLocationHistory(capacity, window, radius);
+            long[] times = new long[4000];
+            double[] latitudes = new double[times.length];
+            double[] longitudes = new double[times.length];
+            long now = 0;
+            for (int i = 0; i < times.length; i++) {
+                now += random.nextInt(50);
+                times[i] = now;
+                latitudes[i] = 40.0 + random.nextInt(100) * 1e-4;
+                longitudes[i] = -88.0 + random.nextInt(100) * 1e-4;
+                history.add(now, latitudes[i], longitudes[i]);
+
+                // The stored measurements are the most recent ones, up to capacity, that are inside the window
+                int first = Math.max(0, i - capacity + 1);
+                while (times[first] < now - window) {
+                    first++;
+                }
+                Assert.assertEquals(i - first + 1, history.size());
+
+                long lookback = random.nextInt((int) window + 1);
+                boolean expected = false;
+                for (int j = first; j < i; j++) {
+                    if (times[j] >= now - lookback
+                        && GeoMath.haversine(latitudes[i], longitudes[i], latitudes[j], longitudes[j]) <= radius) {
+                        expected = true;
+                    }
+                }
+                Assert.assertEquals(expected, history.revisited(radius, lookback));
+
+                double cellDegrees = history.getCellDegrees();
+                long firstVisit = TimedLocationHistory.NO_VISIT;
+                long lastVisit = TimedLocationHistory.NO_VISIT;
+                for (int j = first; j <= i; j++) {
+                    if (Math.floor((latitudes[j] + 90.0) / cellDegrees) == Math.floor((latitudes[i] + 90.0) / cellDegrees)
+                        && Math.floor((longitudes[j] + 180.0) / cellDegrees)
+                        == Math.floor((longitudes[i] + 180.0) / cellDegrees)) {
+                        if (firstVisit == TimedLocationHistory.NO_VISIT) {
+                            firstVisit = times[j];
+                        }
+                        lastVisit = times[j];
+                    }
+                }
+                Assert.assertEquals(firstVisit, history.firstVisitInCell(latitudes[i], longitudes[i]));
+                Assert.assertEquals(lastVisit, history.lastVisitInCell(latitudes[i], longitudes[i]));
+            }
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package edu.illinois.cs.cs125.spring2019.mp0.lib;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+/**
+ * Test suite for the TrackCodec class.
+ */
+public class TrackCodecTest {
+    private static Random random = new Random();
+
+    private static double[][] randomTrack(final int length) {
+        double[] latitudes = new double[length];
+        double[] longitudes = new double[length];
+        if (length > 0) {
+            latitudes[0] = random.nextDouble() * 160 - 80;
+            longitudes[0] = random.nextDouble() * 340 - 170;
+            WalkerSimulation.fillRandomWalk(latitudes, longitudes, 0.8, 0.001, 0.002, random.nextLong());
+        }
+        return new double[][] {latitudes, longitudes};
+    }
+
+    private static double round(final double value) {
+        return PackedLocationStore.unpackLatitude(PackedLocationStore.pack(value, 0.0));
+    }
+
+    @Test(timeout=100)
+    public void testRoundTripSimple() {
+        double[] latitudes = {40.1105, 40.1105, -90.0, 90.0, 0.0, 12.3456789};
+        double[] longitudes = {-88.2272, -88.2272, 180.0, -180.0, -0.0, 98.7654321};
+        byte[] encoded = TrackCodec.encode(latitudes, longitudes, 4);
+        TrackCodec.BlockDecoder decoder = new TrackCodec.BlockDecoder(encoded);
+        Assert.assertEquals(6, decoder.size());
+        Assert.assertEquals(2, decoder.getBlockCount());
+        double[] decodedLatitudes = new double[6];
+        double[] decodedLongitudes = new double[6];
+        decoder.decode(0, 6, decodedLatitudes, decodedLongitudes, 0);
+        Assert.assertArrayEquals(latitudes, decodedLatitudes, 0.0);
+        Assert.assertArrayEquals(longitudes, decodedLongitudes, 0.0);
+
+        // An empty track is valid
+        decoder = new TrackCodec.BlockDecoder(TrackCodec.encode(new double[0], new double[0], 4));
+        Assert.assertEquals(0, decoder.size());
+        Assert.assertEquals(0, decoder.getBlockCount());
+
+        try {
+            TrackCodec.encode(new double[] {91.0}, new double[] {0.0}, 4);
+            Assert.fail("out of range latitude should throw");
+        } catch (IllegalArgumentException expected) { }
+        try {
+            new TrackCodec.BlockDecoder(new byte[] {1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 17, 18, 19,
+                20, 21, 22, 23, 24});
+            Assert.fail("random bytes are not a track");
+        } catch (IllegalArgumentException expected) { }
+    }
+
+    @Test(timeout=1000)
+    public void testRandomAccess() {
+        for (int trial = 0; trial < 16; trial++) {
+            int length = random.nextInt(5000) + 1;
+            int blockSize = random.nextInt(300) + 1;
+            double[][] track = randomTrack(length);
+            byte[] encoded = TrackCodec.encode(track[0], track[1], blockSize);
+            ByteBuffer buffer = ByteBuffer.allocateDirect(encoded.length + 7);
+            buffer.position(7);
+            buffer.put(encoded);
+            buffer.position(7);
+            TrackCodec.BlockDecoder decoder = new TrackCodec.BlockDecoder(buffer);
+            Assert.assertEquals(length, decoder.size());
+            Assert.assertEquals((length + blockSize - 1) / blockSize, decoder.getBlockCount());
+            for (int query = 0; query < 32; query++) {
+                int from = random.nextInt(length);
+                int count = random.nextInt(length - from + 1);
+                double[] latitudes = new double[count + 2];
+                double[] longitudes = new double[count + 2];
+                decoder.decode(from, count, latitudes, longitudes, 1);
+                for (int i = 0; i < count; i++) {
+                    Assert.assertEquals(round(track[0][from + i]), latitudes[i + 1], 0.0);
+                    Assert.assertEquals(PackedLocationStore.unpackLongitude(
+                        PackedLocationStore.pack(0.0, track[1][from + i])), longitudes[i + 1], 0.0);
+                }
+                Assert.assertEquals(0.0, latitudes[count + 1], 0.0);
+            }
+            try {
+                decoder.decode(length - 1, 2, new double[2], new double[2], 0);
+                Assert.fail("reading past the end should throw");
+            } catch (IndexOutOfBoundsException expected) { }
+        }
+    }
+
+    @Test(timeout=100)
+    public void testSteadyTrackIsSmall() {
+        // Moving at a constant speed, or not at all, costs a byte per coordinate after the first two measurements
+        int length = 10000;
+        double[] latitudes = new double[length];
+        double[] longitudes = new double[length];
+        for (int i = 0; i < length; i++) {
+            latitudes[i] = 40.0 + i * 1e-5;
+            longitudes[i] = -88.0;
+        }
+        byte[] encoded = TrackCodec.encode(latitudes, longitudes, TrackCodec.DEFAULT_BLOCK_SIZE);
+        Assert.assertTrue(encoded.length + " bytes", encoded.length < length * 2 + 1000);
+        double[] decoded = new double[length];
+        new TrackCodec.BlockDecoder(encoded).decode(0, length, decoded, new double[length], 0);
+        for (int i = 0; i < length; i++) {
+            Assert.assertEquals(round(latitudes[i]), decoded[i], 0.0);
+        }
+    }
+
+    @Test(timeout=1000)
+    public void testStreaming() throws IOException {
+        int length = 100000;
+        double[][] track = randomTrack(length);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        TrackCodec.Encoder encoder = new TrackCodec.Encoder(bytes, TrackCodec.DEFAULT_BLOCK_SIZE);
+        for (int i = 0; i < length; i++) {
+            encoder.append(track[0][i], track[1][i]);
+        }
+        Assert.assertEquals(length, encoder.size());
+        encoder.finish();
+        byte[] encoded = bytes.toByteArray();
+        // Even a random walk takes well under half the space of raw doubles
+        Assert.assertTrue(encoded.length + " bytes", encoded.length < length * 6);
+
+        TrackCodec.StreamDecoder decoder = new TrackCodec.StreamDecoder(new ByteArrayInputStream(encoded));
+        double[] latitudes = new double[length];
+        double[] longitudes = new double[length];
+        int decoded = 0;
+        for (int count = decoder.readBlock(latitudes, longitudes, decoded); count != -1;
+             count = decoder.readBlock(latitudes, longitudes, decoded)) {
+            decoded += count;
+        }
+        Assert.assertEquals(length, decoded);
+        Assert.assertEquals(-1, decoder.readBlock(latitudes, longitudes, 0));
+        for (int i = 0; i < length; i++) {
+            Assert.assertEquals(round(track[0][i]), latitudes[i], 0.0);
+        }
+    }
+}
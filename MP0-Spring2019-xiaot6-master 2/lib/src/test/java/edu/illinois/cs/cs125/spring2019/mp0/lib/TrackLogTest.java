@@ -0,0 +1,133 @@
+package edu.illinois.cs.cs125.spring2019.mp0.lib;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Random;
+
+/**
+ * Test suite for the TrackLog class.
+ */
+public class TrackLogTest {
+    private static Random random = new Random();
+
+    private static File newLogFile() throws IOException {
+        File file = File.createTempFile("track", ".log");
+        Assert.assertTrue(file.delete());
+        file.deleteOnExit();
+        return file;
+    }
+
+    @Test(timeout=1000)
+    public void testAppendAndReopen() throws IOException {
+        File file = newLogFile();
+        try (TrackLog log = new TrackLog(file)) {
+            Assert.assertEquals(0, log.size());
+            log.append(1000L, 40.092802, -88.220097);
+            log.append(2000L, -0.0, 180.0);
+            Assert.assertEquals(2, log.size());
+            Assert.assertEquals(1000L, log.getTime(0));
+            Assert.assertEquals(40.092802, log.getLatitude(0), 0.0);
+            Assert.assertEquals(-88.220097, log.getLongitude(0), 0.0);
+        }
+        try (TrackLog log = new TrackLog(file)) {
+            Assert.assertEquals(2, log.size());
+            Assert.assertEquals(2000L, log.getTime(1));
+            Assert.assertEquals(-0.0, log.getLatitude(1), 0.0);
+            Assert.assertEquals(180.0, log.getLongitude(1), 0.0);
+            try {
+                log.getTime(2);
+                Assert.fail("reading past the end should throw");
+            } catch (IndexOutOfBoundsException expected) { }
+            log.append(3000L, 1.0, 2.0);
+            Assert.assertEquals(3, log.size());
+        }
+    }
+
+    @Test(timeout=1000)
+    public void testGrowth() throws IOException {
+        File file = newLogFile();
+        int count = 10000 + random.nextInt(10000);
+        try (TrackLog log = new TrackLog(file)) {
+            for (int i = 0; i < count; i++) {
+                log.append(i, i * 1e-3, -i * 1e-3);
+            }
+        }
+        try (TrackLog log = new TrackLog(file)) {
+            Assert.assertEquals(count, log.size());
+            long[] times = new long[count];
+            double[] latitudes = new double[count];
+            double[] longitudes = new double[count];
+            log.read(0, count, times, latitudes, longitudes, 0);
+            for (int i = 0; i < count; i++) {
+                Assert.assertEquals(i, times[i]);
+                Assert.assertEquals(i * 1e-3, latitudes[i], 0.0);
+                Assert.assertEquals(-i * 1e-3, longitudes[i], 0.0);
+            }
+        }
+    }
+
+    @Test(timeout=1000)
+    public void testReplayInto() throws IOException {
+        File file = newLogFile();
+        try (TrackLog log = new TrackLog(file)) {
+            LocationHistory empty = new LocationHistory(4);
+            Assert.assertEquals(0, log.replayInto(empty, 4));
+            Assert.assertEquals(-1, empty.getCurrentIndex());
+
+            for (int i = 0; i < 10; i++) {
+                log.append(i, i, -i);
+            }
+            // Only as many fixes as fit in the history are replayed, oldest first
+            LocationHistory history = new LocationHistory(4);
+            Assert.assertEquals(4, log.replayInto(history, 100));
+            Assert.assertEquals(3, history.getCurrentIndex());
+            for (int i = 0; i < 4; i++) {
+                Assert.assertEquals(6 + i, history.getLatitude(i), 0.0);
+                Assert.assertEquals(-6 - i, history.getLongitude(i), 0.0);
+            }
+            Assert.assertEquals(3, history.farthestNorth());
+
+            LocationHistory partial = new LocationHistory(4);
+            Assert.assertEquals(2, log.replayInto(partial, 2));
+            Assert.assertEquals(8.0, partial.getLatitude(0), 0.0);
+            Assert.assertEquals(2, partial.size());
+        }
+    }
+
+    @Test(timeout=1000)
+    public void testTornAppend() throws IOException {
+        File file = newLogFile();
+        try (TrackLog log = new TrackLog(file)) {
+            log.append(1L, 1.0, 1.0);
+            log.append(2L, 2.0, 2.0);
+        }
+        // Simulate a crash after a record was written but before the count was updated
+        try (RandomAccessFile raw = new RandomAccessFile(file, "rw")) {
+            raw.seek(32 + 2 * TrackLog.RECORD_SIZE);
+            raw.writeLong(3L);
+            raw.writeDouble(3.0);
+        }
+        try (TrackLog log = new TrackLog(file)) {
+            Assert.assertEquals(2, log.size());
+            log.append(4L, 4.0, 4.0);
+            Assert.assertEquals(4L, log.getTime(2));
+            Assert.assertEquals(4.0, log.getLongitude(2), 0.0);
+        }
+    }
+
+    @Test(timeout=1000)
+    public void testRejectsOtherFiles() throws IOException {
+        File file = newLogFile();
+        try (RandomAccessFile raw = new RandomAccessFile(file, "rw")) {
+            raw.writeBytes("latitude,longitude\n40.0,-88.0\n12.0,13.0\n");
+        }
+        try {
+            new TrackLog(file).close();
+            Assert.fail("a text file is not a track log");
+        } catch (IOException expected) { }
+    }
+}
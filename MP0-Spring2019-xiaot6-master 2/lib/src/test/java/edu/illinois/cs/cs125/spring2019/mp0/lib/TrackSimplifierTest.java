@@ -0,0 +1,184 @@
+package edu.illinois.cs.cs125.spring2019.mp0.lib;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+
+/**
+ * Test suite for the TrackSimplifier class.
+ */
+public class TrackSimplifierTest {
+    private static Random random = new Random();
+
+    /** Degrees of latitude per meter. */
+    private static final double DEGREES_PER_METER = GeoMath.metersToDegrees(1.0);
+
+    /**
+     * Make a wandering track: straight stretches with a little noise, and an occasional turn.
+     */
+    private static double[][] wander(final int length) {
+        double[][] track = new double[2][length];
+        double heading = random.nextDouble() * 2 * Math.PI;
+        track[0][0] = 40.1;
+        track[1][0] = -88.2;
+        for (int i = 1; i < length; i++) {
+            if (random.nextInt(50) == 0) {
+                heading = random.nextDouble() * 2 * Math.PI;
+            }
+            double north = 5.0 * Math.cos(heading) + random.nextGaussian();
+            double east = 5.0 * Math.sin(heading) + random.nextGaussian();
+            track[0][i] = track[0][i - 1] + north * DEGREES_PER_METER;
+            track[1][i] = track[1][i - 1] + east * DEGREES_PER_METER / Math.cos(Math.toRadians(40.1));
+        }
+        return track;
+    }
+
+    /**
+     * Check that every dropped position is within the tolerance of the segment that replaced it.
+     */
+    private static void checkWithinTolerance(final double[][] track, final int[] kept, final double tolerance) {
+        Assert.assertEquals(0, kept[0]);
+        Assert.assertEquals(track[0].length - 1, kept[kept.length - 1]);
+        for (int k = 1; k < kept.length; k++) {
+            Assert.assertTrue(kept[k] > kept[k - 1]);
+            for (int i = kept[k - 1] + 1; i < kept[k]; i++) {
+                double distance = TrackSimplifier.segmentDistance(track[0][i], track[1][i],
+                    track[0][kept[k - 1]], track[1][kept[k - 1]], track[0][kept[k]], track[1][kept[k]]);
+                Assert.assertTrue(distance <= tolerance);
+            }
+        }
+    }
+
+    /**
+     * Run a track through an online simplifier.
+     */
+    private static int[] online(final double[][] track, final TrackSimplifier simplifier) {
+        IntList kept = new IntList();
+        int base = simplifier.getOffered();
+        for (int i = 0; i < track[0].length; i++) {
+            int index = simplifier.offer(track[0][i], track[1][i]);
+            if (index != TrackSimplifier.NONE) {
+                kept.add(index - base);
+            }
+        }
+        int last = simplifier.finish();
+        if (last != TrackSimplifier.NONE) {
+            kept.add(last - base);
+        }
+        return kept.toArray();
+    }
+
+    @Test(timeout=1000)
+    public void testSimplifySimple() {
+        // A straight line with one bump
+        double[] latitudes = {0.0, 0.0, 0.0, 0.001, 0.0, 0.0};
+        double[] longitudes = {0.0, 0.001, 0.002, 0.003, 0.004, 0.005};
+        Assert.assertArrayEquals(new int[] {0, 2, 3, 4, 5},
+            TrackSimplifier.douglasPeucker(latitudes, longitudes, 10.0));
+        Assert.assertArrayEquals(new int[] {0, 5}, TrackSimplifier.douglasPeucker(latitudes, longitudes, 200.0));
+        Assert.assertArrayEquals(new int[] {0, 2, 3, 4, 5},
+            TrackSimplifier.visvalingamWhyatt(latitudes, longitudes, 10.0));
+        Assert.assertArrayEquals(new int[] {0, 5},
+            TrackSimplifier.visvalingamWhyatt(latitudes, longitudes, 1000.0));
+        Assert.assertArrayEquals(new int[] {0, 2, 3, 4, 5},
+            online(new double[][] {latitudes, longitudes}, new TrackSimplifier(10.0)));
+
+        Assert.assertArrayEquals(new int[0], TrackSimplifier.douglasPeucker(new double[0], new double[0], 1.0));
+        Assert.assertArrayEquals(new int[] {0}, TrackSimplifier.visvalingamWhyatt(new double[] {1.0},
+            new double[] {1.0}, 1.0));
+
+        TrackSimplifier simplifier = new TrackSimplifier(10.0);
+        Assert.assertEquals(0, simplifier.offer(0.0, 0.0));
+        Assert.assertEquals(TrackSimplifier.NONE, simplifier.finish());
+        Assert.assertEquals(1, simplifier.getKept());
+        try {
+            simplifier.offer(0.0, 181.0);
+            Assert.fail("an invalid position should throw");
+        } catch (IllegalArgumentException expected) { }
+        try {
+            TrackSimplifier.douglasPeucker(new double[1], new double[2], 1.0);
+            Assert.fail("arrays of different lengths should throw");
+        } catch (IllegalArgumentException expected) { }
+    }
+
+    @Test(timeout=5000)
+    public void testToleranceIsRespected() {
+        for (int trial = 0; trial < 50; trial++) {
+            double[][] track = wander(random.nextInt(2000) + 1);
+            double tolerance = random.nextDouble() * 20.0;
+            checkWithinTolerance(track, TrackSimplifier.douglasPeucker(track[0], track[1], tolerance), tolerance);
+            TrackSimplifier simplifier = new TrackSimplifier(tolerance, random.nextInt(100) + 1);
+            // The same simplifier can be reused for track after track
+            checkWithinTolerance(track, online(track, simplifier), tolerance);
+            checkWithinTolerance(track, online(track, simplifier), tolerance);
+        }
+    }
+
+    @Test(timeout=5000)
+    public void testVisvalingamMatchesSlowVersion() {
+        for (int trial = 0; trial < 50; trial++) {
+            double[][] track = wander(random.nextInt(300) + 1);
+            double tolerance = random.nextDouble() * 20.0;
+            int count = track[0].length;
+
+            // Recompute every remaining triangle each time, the slow way
+            IntList remaining = new IntList();
+            for (int i = 0; i < count; i++) {
+                remaining.add(i);
+            }
+            double[] floor = new double[count];
+            while (remaining.size() > 2) {
+                int best = -1;
+                double bestArea = Double.POSITIVE_INFINITY;
+                double[] areas = new double[remaining.size()];
+                for (int k = 1; k < remaining.size() - 1; k++) {
+                    int before = remaining.get(k - 1);
+                    int middle = remaining.get(k);
+                    int after = remaining.get(k + 1);
+                    double metersPerDegree = 1.0 / DEGREES_PER_METER;
+                    double scale = metersPerDegree * Math.cos(Math.toRadians(track[0][middle]));
+                    double firstNorth = (track[0][before] - track[0][middle]) * metersPerDegree;
+                    double firstEast = (track[1][before] - track[1][middle]) * scale;
+                    double lastNorth = (track[0][after] - track[0][middle]) * metersPerDegree;
+                    double lastEast = (track[1][after] - track[1][middle]) * scale;
+                    areas[k] = Math.max(floor[middle], Math.abs(firstEast * lastNorth - firstNorth * lastEast) / 2);
+                    if (areas[k] < bestArea) {
+                        best = k;
+                        bestArea = areas[k];
+                    }
+                }
+                if (bestArea >= tolerance * tolerance) {
+                    break;
+                }
+                // The neighbours of the dropped position never count as smaller than it from now on
+                floor[remaining.get(best - 1)] = Math.max(floor[remaining.get(best - 1)], bestArea);
+                floor[remaining.get(best + 1)] = Math.max(floor[remaining.get(best + 1)], bestArea);
+                IntList next = new IntList();
+                for (int k = 0; k < remaining.size(); k++) {
+                    if (k != best) {
+                        next.add(remaining.get(k));
+                    }
+                }
+                remaining = next;
+            }
+            Assert.assertArrayEquals(remaining.toArray(),
+                TrackSimplifier.visvalingamWhyatt(track[0], track[1], tolerance));
+        }
+    }
+
+    @Test(timeout=5000)
+    public void testLongWalkShrinks() {
+        // A day of walking every few seconds collapses to a small fraction of its positions
+        double[][] track = wander(20000);
+        int douglasPeucker = TrackSimplifier.douglasPeucker(track[0], track[1], 10.0).length;
+        int visvalingamWhyatt = TrackSimplifier.visvalingamWhyatt(track[0], track[1], 10.0).length;
+        TrackSimplifier simplifier = new TrackSimplifier(10.0);
+        int online = online(track, simplifier).length;
+        Assert.assertTrue("Douglas-Peucker kept " + douglasPeucker, douglasPeucker < 2000);
+        Assert.assertTrue("Visvalingam-Whyatt kept " + visvalingamWhyatt, visvalingamWhyatt < 2000);
+        Assert.assertTrue("online kept " + online, online < 2000);
+        Assert.assertEquals(online, simplifier.getKept());
+        Assert.assertEquals(20000, simplifier.getOffered());
+    }
+}
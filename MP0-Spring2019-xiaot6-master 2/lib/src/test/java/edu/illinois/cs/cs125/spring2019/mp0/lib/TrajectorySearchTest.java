@@ -0,0 +1,185 @@
+package edu.illinois.cs.cs125.spring2019.mp0.lib;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Test suite for the TrajectorySearch class.
+ */
+public class TrajectorySearchTest {
+    private static Random random = new Random();
+
+    /**
+     * Compute an unbanded track distance the slow way, filling in the whole table.
+     */
+    private static double slowDistance(final double[] aLat, final double[] aLon, final double[] bLat,
+                                       final double[] bLon, final boolean frechet) {
+        double[][] table = new double[aLat.length][bLat.length];
+        for (int i = 0; i < aLat.length; i++) {
+            for (int j = 0; j < bLat.length; j++) {
+                double cost = GeoMath.haversine(aLat[i], aLon[i], bLat[j], bLon[j]);
+                double best = Double.POSITIVE_INFINITY;
+                if (i == 0 && j == 0) {
+                    best = 0;
+                }
+                if (i > 0) {
+                    best = Math.min(best, table[i - 1][j]);
+                }
+                if (j > 0) {
+                    best = Math.min(best, table[i][j - 1]);
+                }
+                if (i > 0 && j > 0) {
+                    best = Math.min(best, table[i - 1][j - 1]);
+                }
+                if (frechet) {
+                    table[i][j] = Math.max(best, cost);
+                } else {
+                    table[i][j] = best + cost;
+                }
+            }
+        }
+        return table[aLat.length - 1][bLat.length - 1];
+    }
+
+    /**
+     * Make a random walk of a given length near a starting point.
+     */
+    private static double[][] walk(final int length, final double latitude, final double longitude) {
+        double[][] track = new double[2][length];
+        track[0][0] = latitude;
+        track[1][0] = longitude;
+        for (int i = 1; i < length; i++) {
+            track[0][i] = Math.max(-90.0, Math.min(90.0, track[0][i - 1] + (random.nextDouble() - 0.5) * 0.001));
+            track[1][i] = Math.max(-180.0, Math.min(180.0, track[1][i - 1] + (random.nextDouble() - 0.5) * 0.001));
+        }
+        return track;
+    }
+
+    @Test(timeout=1000)
+    public void testDistancesSimple() {
+        double[] latitudes = {0.0, 0.0, 0.0};
+        double[] longitudes = {0.0, 1.0, 2.0};
+        double degree = GeoMath.haversine(0.0, 0.0, 0.0, 1.0);
+        Assert.assertEquals(0.0, TrajectorySearch.dtw(latitudes, longitudes, latitudes, longitudes, 0), 0.0);
+
+        // Stopping halfway for an extra measurement costs nothing in either distance, once warped
+        double[] slowLatitudes = {0.0, 0.0, 0.0, 0.0};
+        double[] slowLongitudes = {0.0, 1.0, 1.0, 2.0};
+        Assert.assertEquals(0.0, TrajectorySearch.dtw(latitudes, longitudes, slowLatitudes, slowLongitudes,
+            TrajectorySearch.UNBANDED), 1e-9);
+        Assert.assertEquals(0.0, TrajectorySearch.frechet(slowLatitudes, slowLongitudes, latitudes, longitudes, 1),
+            1e-9);
+
+        // A parallel track one degree north is one degree away at every pair
+        double[] northLatitudes = {1.0, 1.0, 1.0};
+        Assert.assertEquals(3 * GeoMath.haversine(0.0, 0.0, 1.0, 0.0),
+            TrajectorySearch.dtw(latitudes, longitudes, northLatitudes, longitudes, 0), 1e-6);
+        Assert.assertEquals(GeoMath.haversine(0.0, 2.0, 1.0, 2.0),
+            TrajectorySearch.frechet(latitudes, longitudes, northLatitudes, longitudes, 0), 1e-6);
+
+        // A single position is paired with everything
+        Assert.assertEquals(2 * degree, TrajectorySearch.dtw(new double[] {0.0}, new double[] {1.0},
+            latitudes, longitudes, 0), 1e-6);
+
+        try {
+            TrajectorySearch.dtw(new double[0], new double[0], latitudes, longitudes, 0);
+            Assert.fail("an empty track should throw");
+        } catch (IllegalArgumentException expected) { }
+        try {
+            TrajectorySearch.frechet(latitudes, longitudes, latitudes, longitudes, -1);
+            Assert.fail("a negative band should throw");
+        } catch (IllegalArgumentException expected) { }
+    }
+
+    @Test(timeout=5000)
+    public void testDistancesMatchFullTable() {
+        for (int trial = 0; trial < 200; trial++) {
+            double[][] first = walk(random.nextInt(40) + 1, 40.0, -88.0);
+            double[][] second = walk(random.nextInt(40) + 1, 40.0, -88.0);
+            int band = random.nextInt(5);
+            for (TrajectorySearch.Metric metric : TrajectorySearch.Metric.values()) {
+                boolean frechet = metric == TrajectorySearch.Metric.FRECHET;
+                double expected = slowDistance(first[0], first[1], second[0], second[1], frechet);
+                double unbanded;
+                double banded;
+                if (frechet) {
+                    unbanded = TrajectorySearch.frechet(first[0], first[1], second[0], second[1],
+                        TrajectorySearch.UNBANDED);
+                    banded = TrajectorySearch.frechet(first[0], first[1], second[0], second[1], band);
+                } else {
+                    unbanded = TrajectorySearch.dtw(first[0], first[1], second[0], second[1],
+                        TrajectorySearch.UNBANDED);
+                    banded = TrajectorySearch.dtw(first[0], first[1], second[0], second[1], band);
+                }
+                Assert.assertEquals(expected, unbanded, 1e-6);
+                Assert.assertTrue(banded >= unbanded - 1e-6);
+                Assert.assertTrue(banded < Double.POSITIVE_INFINITY);
+                double bound = TrajectorySearch.keogh(first[0], first[1], second[0], second[1], metric, band,
+                    Double.POSITIVE_INFINITY);
+                Assert.assertTrue(bound <= banded + 1e-6);
+            }
+        }
+    }
+
+    @Test(timeout=20000)
+    public void testSearchMatchesBruteForce() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        TrajectorySearch search = new TrajectorySearch(pool, random.nextInt(16) + 1);
+        int tracks = 2000;
+        double[][][] corpus = new double[tracks][][];
+        for (int i = 0; i < tracks; i++) {
+            // Trips around the state, some of them repeated exactly
+            if (i > 0 && random.nextInt(10) == 0) {
+                corpus[i] = corpus[random.nextInt(i)];
+            } else {
+                corpus[i] = walk(random.nextInt(100) + 20, 39.0 + random.nextDouble() * 2.0,
+                    -89.0 + random.nextDouble() * 2.0);
+            }
+            Assert.assertEquals(i, search.add(corpus[i][0], corpus[i][1]));
+        }
+        Assert.assertEquals(tracks, search.size());
+
+        for (int trial = 0; trial < 10; trial++) {
+            double[][] query = walk(random.nextInt(100) + 20, 39.0 + random.nextDouble() * 2.0,
+                -89.0 + random.nextDouble() * 2.0);
+            if (trial % 2 == 0) {
+                query = corpus[random.nextInt(tracks)];
+            }
+            TrajectorySearch.Metric metric = TrajectorySearch.Metric.values()[trial % 2];
+            int band = random.nextInt(10) + 1;
+            int count = random.nextInt(10) + 1;
+            TrajectorySearch.Result result = search.search(query[0], query[1], count, metric, band);
+
+            double[] distances = new double[tracks];
+            for (int i = 0; i < tracks; i++) {
+                if (metric == TrajectorySearch.Metric.DTW) {
+                    distances[i] = TrajectorySearch.dtw(query[0], query[1], corpus[i][0], corpus[i][1], band);
+                } else {
+                    distances[i] = TrajectorySearch.frechet(query[0], query[1], corpus[i][0], corpus[i][1], band);
+                }
+            }
+            double[] sorted = distances.clone();
+            Arrays.sort(sorted);
+            List<TrajectorySearch.Match> matches = result.getMatches();
+            Assert.assertEquals(count, matches.size());
+            for (int i = 0; i < count; i++) {
+                TrajectorySearch.Match match = matches.get(i);
+                Assert.assertEquals(sorted[i], match.getDistance(), 0.0);
+                Assert.assertEquals(distances[match.getIndex()], match.getDistance(), 0.0);
+                if (i > 0 && matches.get(i - 1).getDistance() == match.getDistance()) {
+                    Assert.assertTrue(matches.get(i - 1).getIndex() < match.getIndex());
+                }
+            }
+            Assert.assertEquals(tracks, result.getBoxRejected() + result.getKeoghRejected()
+                + result.getAbandoned() + result.getComputed());
+            // Most of the corpus never needs its full table
+            Assert.assertTrue(result.toString(), result.getComputed() < tracks / 4);
+        }
+        pool.shutdown();
+    }
+}
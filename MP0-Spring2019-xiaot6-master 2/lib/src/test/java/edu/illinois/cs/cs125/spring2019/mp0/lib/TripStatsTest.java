@@ -0,0 +1,132 @@
+package edu.illinois.cs.cs125.spring2019.mp0.lib;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+
+/**
+ * Test suite for the TripStats class.
+ */
+public class TripStatsTest {
+    private static Random random = new Random();
+
+    @Test(timeout=100)
+    public void testTripStatsSimple() {
+        TripStats stats = new TripStats(3);
+        Assert.assertEquals(0, stats.size());
+        Assert.assertEquals(0.0, stats.getDistance(), 0.0);
+        Assert.assertTrue(Double.isNaN(stats.getMaxLatitude()));
+
+        double segment = GeoMath.haversine(0.0, 0.0, 0.0, 1.0);
+        stats.add(0L, 0.0, 0.0);
+        stats.add(1000L, 0.0, 1.0);
+        stats.add(2000L, 0.0, 2.0);
+        Assert.assertEquals(2 * segment, stats.getDistance(), 1e-6);
+        Assert.assertEquals(2 * segment, stats.getMaxDisplacement(), 1e-6);
+        Assert.assertEquals(segment, stats.getAverageSpeed(), 1e-6);
+        Assert.assertEquals(2000L, stats.getDurationMillis());
+
+        // The window slides, but the trip still started at the origin
+        stats.add(3000L, 0.0, 1.0);
+        Assert.assertEquals(2 * segment, stats.getDistance(), 1e-6);
+        Assert.assertEquals(1.0, stats.getMinLongitude(), 0.0);
+        Assert.assertEquals(2.0, stats.getMaxLongitude(), 0.0);
+        Assert.assertEquals(2 * segment, stats.getMaxDisplacement(), 1e-6);
+        stats.add(4000L, 0.0, 1.0);
+        stats.add(5000L, 0.0, 1.0);
+        Assert.assertEquals(0.0, stats.getDistance(), 0.0);
+        Assert.assertEquals(segment, stats.getMaxDisplacement(), 1e-6);
+        Assert.assertEquals(0.0, stats.getStartLatitude(), 0.0);
+
+        stats.evictOldest();
+        stats.evictOldest();
+        Assert.assertEquals(1, stats.size());
+        stats.reset();
+        Assert.assertEquals(0, stats.size());
+        Assert.assertTrue(Double.isNaN(stats.getStartLatitude()));
+        try {
+            stats.evictOldest();
+            Assert.fail("evicting from an empty window should throw");
+        } catch (IllegalStateException expected) { }
+        stats.add(6000L, 1.0, 1.0);
+        try {
+            stats.add(5999L, 1.0, 1.0);
+            Assert.fail("time going backwards should throw");
+        } catch (IllegalArgumentException expected) { }
+        try {
+            stats.add(7000L, 1.0, 200.0);
+            Assert.fail("an invalid position should throw");
+        } catch (IllegalArgumentException expected) { }
+    }
+
+    @Test(timeout=5000)
+    public void testMatchesRecomputation() {
+        for (int trial = 0; trial < 8; trial++) {
+            int capacity = random.nextInt(100) + 1;
+            TripStats stats = new TripStats(capacity);
+            int count = 5000;
+            long[] times = new long[count];
+            double[] latitudes = new double[count];
+            double[] longitudes = new double[count];
+            int first = 0;
+            long time = 0;
+            for (int i = 0; i < count; i++) {
+                time += random.nextInt(10000);
+                times[i] = time;
+                latitudes[i] = 40.0 + random.nextDouble() * 0.1;
+                longitudes[i] = -88.0 + random.nextDouble() * 0.1;
+                stats.add(time, latitudes[i], longitudes[i]);
+                first = Math.max(first, i - capacity + 1);
+                if (first < i && random.nextInt(10) == 0) {
+                    stats.evictOldest();
+                    first++;
+                }
+
+                double distance = 0.0;
+                double maxDisplacement = 0.0;
+                double minLatitude = 90.0;
+                double maxLatitude = -90.0;
+                double minLongitude = 180.0;
+                double maxLongitude = -180.0;
+                for (int j = first; j <= i; j++) {
+                    if (j > first) {
+                        distance += GeoMath.haversine(latitudes[j - 1], longitudes[j - 1],
+                            latitudes[j], longitudes[j]);
+                    }
+                    maxDisplacement = Math.max(maxDisplacement,
+                        GeoMath.haversine(latitudes[0], longitudes[0], latitudes[j], longitudes[j]));
+                    minLatitude = Math.min(minLatitude, latitudes[j]);
+                    maxLatitude = Math.max(maxLatitude, latitudes[j]);
+                    minLongitude = Math.min(minLongitude, longitudes[j]);
+                    maxLongitude = Math.max(maxLongitude, longitudes[j]);
+                }
+                Assert.assertEquals(i - first + 1, stats.size());
+                Assert.assertEquals(distance, stats.getDistance(), 1e-6);
+                Assert.assertEquals(maxDisplacement, stats.getMaxDisplacement(), 0.0);
+                Assert.assertEquals(minLatitude, stats.getMinLatitude(), 0.0);
+                Assert.assertEquals(maxLatitude, stats.getMaxLatitude(), 0.0);
+                Assert.assertEquals(minLongitude, stats.getMinLongitude(), 0.0);
+                Assert.assertEquals(maxLongitude, stats.getMaxLongitude(), 0.0);
+                Assert.assertEquals(times[i] - times[first], stats.getDurationMillis());
+            }
+        }
+    }
+
+    @Test(timeout=5000)
+    public void testLongTripDoesNotDrift() {
+        // Ten million segments pass through a small window; the total must not pick up rounding error along the way
+        TripStats stats = new TripStats(16);
+        double[] latitudes = {40.0, 40.0001, 40.0003, 40.0002};
+        double[] longitudes = {-88.0, -88.0002, -88.0001, -88.0003};
+        for (int i = 0; i < 10000000; i++) {
+            stats.add(i, latitudes[i % 4], longitudes[i % 4]);
+        }
+        double expected = 0.0;
+        for (int i = 1; i < 16; i++) {
+            expected += GeoMath.haversine(latitudes[(i - 1) % 4], longitudes[(i - 1) % 4],
+                latitudes[i % 4], longitudes[i % 4]);
+        }
+        Assert.assertEquals(expected, stats.getDistance(), 1e-9);
+    }
+}
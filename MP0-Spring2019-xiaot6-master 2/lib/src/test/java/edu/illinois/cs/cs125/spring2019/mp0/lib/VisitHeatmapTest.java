@@ -0,0 +1,178 @@
+package edu.illinois.cs.cs125.spring2019.mp0.lib;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Test suite for the VisitHeatmap class.
+ */
+public class VisitHeatmapTest {
+    private static Random random = new Random();
+
+    /**
+     * Collect a getTiles result into a map from packed tile coordinates to counts.
+     */
+    private static Map<Long, Integer> tiles(final IntList result) {
+        Map<Long, Integer> tiles = new HashMap<>();
+        for (int i = 0; i < result.size(); i += VisitHeatmap.TILE_FIELDS) {
+            Integer previous = tiles.put((long) result.get(i) << 32 | result.get(i + 1), result.get(i + 2));
+            Assert.assertNull("tile listed twice", previous);
+        }
+        return tiles;
+    }
+
+    @Test(timeout=1000)
+    public void testHeatmapSimple() {
+        Assert.assertEquals(0, VisitHeatmap.tileX(1, -180.0));
+        Assert.assertEquals(1, VisitHeatmap.tileX(1, 0.0));
+        Assert.assertEquals(1, VisitHeatmap.tileX(1, 180.0));
+        Assert.assertEquals(0, VisitHeatmap.tileY(1, 90.0));
+        Assert.assertEquals(1, VisitHeatmap.tileY(1, -1.0));
+        Assert.assertEquals(3, VisitHeatmap.tileY(2, -90.0));
+
+        VisitHeatmap heatmap = new VisitHeatmap(4);
+        heatmap.add(40.1, -88.2);
+        heatmap.add(40.1, -88.2);
+        heatmap.add(-33.9, 151.2);
+        Assert.assertEquals(3, heatmap.getTotal());
+        Assert.assertEquals(3, heatmap.getCount(0, 0, 0));
+        Assert.assertEquals(2, heatmap.getCount(1, 0, 0));
+        Assert.assertEquals(1, heatmap.getCount(1, 1, 1));
+        Assert.assertEquals(2, heatmap.getCount(4,
+            VisitHeatmap.tileX(4, -88.2), VisitHeatmap.tileY(4, 40.1)));
+        Assert.assertEquals(0, heatmap.getCount(4, 100, 0));
+        Assert.assertEquals(2, heatmap.getTileCount(4));
+
+        IntList result = new IntList();
+        Assert.assertEquals(1, heatmap.getTiles(2, 60.0, 20.0, -60.0, -100.0, result));
+        Assert.assertEquals(2, result.get(2));
+        // A viewport across the antimeridian from Australia to Hawaii
+        result.clear();
+        Assert.assertEquals(1, heatmap.getTiles(3, 0.0, -60.0, -150.0, 100.0, result));
+        Assert.assertEquals(1, result.get(2));
+
+        heatmap.remove(40.1, -88.2);
+        heatmap.remove(40.1, -88.2);
+        Assert.assertEquals(1, heatmap.getCount(0, 0, 0));
+        Assert.assertEquals(0, heatmap.getCount(1, 0, 0));
+        Assert.assertEquals(1, heatmap.getTileCount(4));
+        try {
+            heatmap.remove(40.1, -88.2);
+            Assert.fail("removing an uncounted visit should throw");
+        } catch (IllegalStateException expected) { }
+        try {
+            heatmap.add(0.0, 181.0);
+            Assert.fail("an invalid position should throw");
+        } catch (IllegalArgumentException expected) { }
+        try {
+            heatmap.getCount(5, 0, 0);
+            Assert.fail("a zoom level beyond the deepest should throw");
+        } catch (IllegalArgumentException expected) { }
+    }
+
+    @Test(timeout=10000)
+    public void testMatchesBruteForce() {
+        for (int trial = 0; trial < 20; trial++) {
+            int maxZoom = random.nextInt(VisitHeatmap.MAX_ZOOM + 1);
+            VisitHeatmap heatmap = new VisitHeatmap(maxZoom);
+            int count = 2000;
+            double[] latitudes = new double[count];
+            double[] longitudes = new double[count];
+            boolean[] present = new boolean[count];
+            for (int i = 0; i < count; i++) {
+                // Some clumped positions, which share tiles even deep down, and some spread over the world
+                latitudes[i] = random.nextDouble() * 180.0 - 90.0;
+                longitudes[i] = random.nextDouble() * 360.0 - 180.0;
+                if (random.nextBoolean()) {
+                    latitudes[i] = 40.1 + random.nextGaussian() * 0.01;
+                    longitudes[i] = -88.2 + random.nextGaussian() * 0.01;
+                }
+            }
+            for (int step = 0; step < 3 * count; step++) {
+                int i = random.nextInt(count);
+                if (present[i]) {
+                    heatmap.remove(latitudes[i], longitudes[i]);
+                } else {
+                    heatmap.add(latitudes[i], longitudes[i]);
+                }
+                present[i] = !present[i];
+            }
+
+            for (int query = 0; query < 20; query++) {
+                int zoom = random.nextInt(maxZoom + 1);
+                double north = random.nextDouble() * 180.0 - 90.0;
+                double south = random.nextDouble() * 180.0 - 90.0;
+                if (south > north) {
+                    double swap = south;
+                    south = north;
+                    north = swap;
+                }
+                double east = random.nextDouble() * 360.0 - 180.0;
+                double west = random.nextDouble() * 360.0 - 180.0;
+                if (random.nextBoolean()) {
+                    north = 40.1 + random.nextDouble() * 0.02;
+                    south = north - random.nextDouble() * 0.04;
+                    east = -88.2 + random.nextDouble() * 0.02;
+                    west = east - random.nextDouble() * 0.04;
+                }
+
+                int side = 1 << zoom;
+                int firstColumn = VisitHeatmap.tileX(zoom, west);
+                int columns = Math.floorMod(VisitHeatmap.tileX(zoom, east) - firstColumn, side) + 1;
+                if (west > east && columns == 1) {
+                    columns = side;
+                }
+                Map<Long, Integer> expected = new HashMap<>();
+                long total = 0;
+                for (int i = 0; i < count; i++) {
+                    if (!present[i]) {
+                        continue;
+                    }
+                    total++;
+                    int x = VisitHeatmap.tileX(zoom, longitudes[i]);
+                    int y = VisitHeatmap.tileY(zoom, latitudes[i]);
+                    if (y >= VisitHeatmap.tileY(zoom, north) && y <= VisitHeatmap.tileY(zoom, south)
+                        && Math.floorMod(x - firstColumn, side) < columns) {
+                        expected.merge((long) x << 32 | y, 1, Integer::sum);
+                    }
+                }
+                IntList result = new IntList();
+                Assert.assertEquals(expected.size(), heatmap.getTiles(zoom, north, south, east, west, result));
+                Assert.assertEquals(expected, tiles(result));
+                Assert.assertEquals(total, heatmap.getTotal());
+                for (Map.Entry<Long, Integer> tile : expected.entrySet()) {
+                    int x = (int) (tile.getKey() >>> 32);
+                    int y = (int) (long) tile.getKey();
+                    Assert.assertEquals((int) tile.getValue(), heatmap.getCount(zoom, x, y));
+                }
+            }
+        }
+    }
+
+    @Test(timeout=2000)
+    public void testProcessorEvictsVisits() {
+        LocationProcessor processor = new LocationProcessor(3);
+        processor.add(40.1, -88.2);
+        processor.add(40.1, -88.2);
+        processor.add(91.0, 0.0);
+        VisitHeatmap heatmap = processor.getHeatmap();
+        Assert.assertEquals(2, heatmap.getTotal());
+        processor.add(-33.9, 151.2);
+        Assert.assertEquals(1, heatmap.getCount(1, 0, 0));
+        Assert.assertEquals(1, heatmap.getCount(1, 1, 1));
+
+        // Measurements added straight to the history are picked up too
+        for (int i = 0; i < 10; i++) {
+            processor.getHistory().add(random.nextDouble() * 10.0, random.nextDouble() * 10.0);
+        }
+        processor.getHistory().add(-10.0, -10.0);
+        processor.render((index, category, latitude, longitude) -> { });
+        Assert.assertEquals(3, heatmap.getTotal());
+        Assert.assertEquals(1, heatmap.getCount(1, 0, 1));
+        Assert.assertEquals(2, heatmap.getCount(1, 1, 0));
+    }
+}
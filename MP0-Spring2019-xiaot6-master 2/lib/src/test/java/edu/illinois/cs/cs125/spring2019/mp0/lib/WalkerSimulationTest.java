@@ -0,0 +1,220 @@
+package edu.illinois.cs.cs125.spring2019.mp0.lib;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Test suite for the WalkerSimulation class.
+ */
+public class WalkerSimulationTest {
+    private static Random random = new Random();
+
+    private static long sum(final long[] values) {
+        long total = 0;
+        for (long value : values) {
+            total += value;
+        }
+        return total;
+    }
+
+    @Test(timeout=1000)
+    public void testSimulationSimple() {
+        // Walkers that never move stay in the starting cell and never reach a bound
+        WalkerSimulation.Result result = new WalkerSimulation(10, 20)
+            .setStart(40.1, -88.2)
+            .setMovement(0.0, 1.0, 1.0)
+            .run();
+        Assert.assertEquals(10, result.getWalkers());
+        Assert.assertEquals(20, result.getSteps());
+        Assert.assertEquals(200, result.getOccupancy(40.5, -88.5));
+        Assert.assertEquals(200, sum(result.getOccupancy()));
+        Assert.assertEquals(10, result.getMisses(Locator.NORTH));
+        Assert.assertEquals(10, result.getMisses(Locator.SOUTH));
+        Assert.assertEquals(0, sum(result.getHittingTimes(Locator.NORTH)));
+        Assert.assertEquals(180, result.getRows());
+        Assert.assertEquals(360, result.getColumns());
+
+        // Huge steps reach both bounds quickly
+        result = new WalkerSimulation(100, 1000)
+            .setMovement(1.0, 500.0, 1.0)
+            .setHittingTimeBins(10)
+            .run();
+        Assert.assertEquals(100, result.getBinWidth());
+        Assert.assertEquals(100, sum(result.getHittingTimes(Locator.NORTH)));
+        Assert.assertEquals(100, sum(result.getHittingTimes(Locator.SOUTH)));
+        Assert.assertEquals(0, result.getMisses(Locator.NORTH));
+        Assert.assertTrue(result.getHittingTimes(Locator.NORTH)[0] > 90);
+
+        try {
+            result.getHittingTimes(Locator.EAST);
+            Assert.fail("hitting times are only kept for latitude bounds");
+        } catch (IllegalArgumentException expected) { }
+    }
+
+    @Test(timeout=2000)
+    public void testReproducible() {
+        long seed = random.nextLong();
+        WalkerSimulation.Result expected = null;
+        for (int threads = 1; threads <= 4; threads++) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            try {
+                WalkerSimulation.Result result = new WalkerSimulation(2000, 500)
+                    .setStart(85.0, 0.0)
+                    .setMovement(0.5, 1.0, 2.0)
+                    .setSeed(seed)
+                    .setCellDegrees(0.5)
+                    .setPool(pool, threads * 37)
+                    .run();
+                Assert.assertEquals(2000L * 500, sum(result.getOccupancy()));
+                Assert.assertEquals(2000, sum(result.getHittingTimes(Locator.NORTH))
+                    + result.getMisses(Locator.NORTH));
+                if (expected == null) {
+                    expected = result;
+                } else {
+                    Assert.assertArrayEquals(expected.getOccupancy(), result.getOccupancy());
+                    Assert.assertArrayEquals(expected.getHittingTimes(Locator.NORTH),
+                        result.getHittingTimes(Locator.NORTH));
+                    Assert.assertArrayEquals(expected.getHittingTimes(Locator.SOUTH),
+                        result.getHittingTimes(Locator.SOUTH));
+                }
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+
+    @Test(timeout=5000)
+    public void testFineCells() {
+        // The finest grid allowed, with a task per walker, holds one grid per thread rather than one per task
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            WalkerSimulation.Result result = new WalkerSimulation(512, 200)
+                .setStart(40.1, -88.2)
+                .setMovement(1.0, 0.5, 0.5)
+                .setCellDegrees(0.125)
+                .setPool(pool, 1)
+                .run();
+            Assert.assertEquals(1440, result.getRows());
+            Assert.assertEquals(2880, result.getColumns());
+            Assert.assertEquals(512L * 200, sum(result.getOccupancy()));
+            Assert.assertEquals(512, result.getMisses(Locator.NORTH));
+        } finally {
+            pool.shutdown();
+        }
+        Assert.assertEquals(0, sum(new WalkerSimulation(0, 10).setCellDegrees(0.125).run().getOccupancy()));
+
+        // Grids too large to hold once per thread are refused up front
+        try {
+            new WalkerSimulation(1, 1).setCellDegrees(0.01);
+            Assert.fail("a cell size of 0.01 degrees should throw");
+        } catch (IllegalArgumentException expected) { }
+        try {
+            new WalkerSimulation(1, 1).setCellDegrees(0.0);
+            Assert.fail("a zero cell size should throw");
+        } catch (IllegalArgumentException expected) { }
+    }
+
+    @Test(timeout=1000)
+    public void testMatchesFillRandomWalk() {
+        // A single walker follows the same path fillRandomWalk produces from that walker's stream
+        long seed = random.nextLong();
+        int steps = 2000;
+        double[] latitudes = new double[steps + 1];
+        double[] longitudes = new double[steps + 1];
+        latitudes[0] = 89.0;
+        longitudes[0] = 179.0;
+        WalkerSimulation.fillRandomWalk(latitudes, longitudes, 0.7, 0.5, 0.5,
+            new SplittableRandom(WalkerSimulation.walkerSeed(seed, 0)));
+        int firstNorth = 0;
+        long[] occupancy = new long[180 * 360];
+        for (int step = 1; step <= steps; step++) {
+            if (firstNorth == 0 && latitudes[step] == Locator.MAX_LATITUDE) {
+                firstNorth = step;
+            }
+            int row = Math.min(179, (int) (latitudes[step] + 90));
+            int column = Math.min(359, (int) (longitudes[step] + 180));
+            occupancy[row * 360 + column]++;
+        }
+
+        WalkerSimulation.Result result = new WalkerSimulation(1, steps)
+            .setStart(89.0, 179.0)
+            .setMovement(0.7, 0.5, 0.5)
+            .setSeed(seed)
+            .setHittingTimeBins(steps)
+            .run();
+        Assert.assertArrayEquals(occupancy, result.getOccupancy());
+        if (firstNorth == 0) {
+            Assert.assertEquals(1, result.getMisses(Locator.NORTH));
+        } else {
+            Assert.assertEquals(1, result.getHittingTimes(Locator.NORTH)[firstNorth - 1]);
+        }
+    }
+
+    @Test(timeout=100)
+    public void testFillRandomWalkSimple() {
+        double[] latitudes = new double[] {89.0, 0.0, 0.0, 0.0};
+        double[] longitudes = new double[] {-179.0, 0.0, 0.0, 0.0};
+        WalkerSimulation.fillRandomWalk(latitudes, longitudes, 0.0, 1.0, 1.0, 125L);
+        for (int i = 0; i < latitudes.length; i++) {
+            Assert.assertEquals(89.0, latitudes[i], 0.0);
+            Assert.assertEquals(-179.0, longitudes[i], 0.0);
+        }
+
+        // Large steps always end up bounded to the valid range
+        latitudes = new double[1024];
+        longitudes = new double[1024];
+        WalkerSimulation.fillRandomWalk(latitudes, longitudes, 1.0, 500.0, 500.0, 125L);
+        boolean sawBound = false;
+        for (int i = 0; i < latitudes.length; i++) {
+            Assert.assertTrue(latitudes[i] >= Locator.MIN_LATITUDE && latitudes[i] <= Locator.MAX_LATITUDE);
+            Assert.assertTrue(longitudes[i] >= Locator.MIN_LONGITUDE && longitudes[i] <= Locator.MAX_LONGITUDE);
+            sawBound |= Math.abs(latitudes[i]) == Locator.MAX_LATITUDE;
+        }
+        Assert.assertTrue(sawBound);
+
+        try {
+            WalkerSimulation.fillRandomWalk(new double[2], new double[3], 0.5, 1.0, 1.0, 125L);
+            Assert.fail("arrays of different lengths should throw");
+        } catch (IllegalArgumentException expected) { }
+    }
+
+    @Test(timeout=600)
+    public void testFillRandomWalkRandom() {
+        for (int i = 0; i < 64; i++) {
+            long seed = random.nextLong();
+            double transitionProbability = random.nextDouble();
+            int length = random.nextInt(4096) + 2;
+            double[] latitudes = new double[length];
+            double[] longitudes = new double[length];
+            latitudes[0] = random.nextDouble() * 10;
+            longitudes[0] = random.nextDouble() * 20;
+            WalkerSimulation.fillRandomWalk(latitudes, longitudes, transitionProbability, 0.001, 0.002, seed);
+
+            // The same seed gives the same walk, whether passed directly or through a generator
+            double[] againLatitudes = new double[length];
+            double[] againLongitudes = new double[length];
+            againLatitudes[0] = latitudes[0];
+            againLongitudes[0] = longitudes[0];
+            WalkerSimulation.fillRandomWalk(againLatitudes, againLongitudes, transitionProbability, 0.001, 0.002,
+                new SplittableRandom(seed));
+            Assert.assertArrayEquals(latitudes, againLatitudes, 0.0);
+            Assert.assertArrayEquals(longitudes, againLongitudes, 0.0);
+
+            int countChanged = 0;
+            for (int j = 1; j < length; j++) {
+                Assert.assertEquals(latitudes[j - 1], latitudes[j], 0.001);
+                Assert.assertEquals(longitudes[j - 1], longitudes[j], 0.002);
+                if (latitudes[j] != latitudes[j - 1] || longitudes[j] != longitudes[j - 1]) {
+                    countChanged++;
+                }
+            }
+            if (length > 1024) {
+                Assert.assertEquals(transitionProbability, (double) countChanged / (length - 1), 0.1);
+            }
+        }
+    }
+}